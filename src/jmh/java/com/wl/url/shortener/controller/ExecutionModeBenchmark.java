@@ -0,0 +1,160 @@
+package com.wl.url.shortener.controller;
+
+import com.wl.url.shortener.entity.ShortenerUrl;
+import com.wl.url.shortener.loadtest.InjectedLatency;
+import com.wl.url.shortener.repository.ShortenerUrlReader;
+import com.wl.url.shortener.service.ClickAnalytics;
+import com.wl.url.shortener.service.ShortCodeBloomFilter;
+import com.wl.url.shortener.service.ShortUrlCache;
+import com.wl.url.shortener.service.ShortenerService;
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.CircuitBreaker;
+import com.wl.url.shortener.utils.FrequencySketch;
+import com.wl.url.shortener.utils.Hedge;
+import com.wl.url.shortener.utils.ShortCodeGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// a burst of concurrent redirects through the real controller and service, every one a cache miss that
+// blocks its request thread on a slow Cassandra read; the only difference between the modes is the
+// executor running the requests: Tomcat's default 200 platform threads or one virtual thread per request
+// (JDK 21+, the virtual runs fail at setup on older JDKs)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExecutionModeBenchmark {
+
+    private static final int REQUESTS = 2_000;
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    String mode;
+
+    @Param({"20"})
+    int backendLatencyMillis;
+
+    MockMvc mvc;
+    ExecutorService executor;
+    ScheduledExecutorService timer;
+    String[] codes;
+
+    @Setup
+    public void setup() {
+        executor = "virtual".equals(mode) ? newVirtualThreadExecutor() : Executors.newFixedThreadPool(PLATFORM_THREADS);
+
+        // distinct codes, so concurrent misses are not coalesced into one read
+        ShortCodeGenerator generator = new ShortCodeGenerator(0);
+        Map<String, ShortenerUrl> rows = new ConcurrentHashMap<>();
+        codes = new String[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            codes[i] = generator.next();
+            rows.put(codes[i], ShortenerUrl.builder().shortcode(codes[i]).fullUrl("https://example.com/" + i).build());
+        }
+
+        ShortCodeBloomFilter bloomFilter = new ShortCodeBloomFilter(null, null, generator,
+                false, false, REQUESTS, 0.01, Path.of("unused.bloom"), Duration.ofSeconds(10), Duration.ofSeconds(1),
+                1_000, Duration.ofDays(1), Duration.ofMinutes(5));
+        ClickAnalytics clickAnalytics = new ClickAnalytics(null, null, new SimpleMeterRegistry(), false, 2,
+                Duration.ofSeconds(10), Duration.ofMillis(100));
+        timer = Executors.newSingleThreadScheduledExecutor();
+
+        ShortenerService service = new ShortenerService(
+                new SlowReader(rows, new InjectedLatency(Duration.ofMillis(backendLatencyMillis), Duration.ZERO)),
+                new MissingCache(), null, bloomFilter, generator,
+                new Bulkhead("cassandra", 512, Duration.ofMillis(100)),
+                new Hedge("redirect-read", 0.95, Duration.ofMillis(2), Duration.ofMillis(50), 0.05, 1024, timer),
+                clickAnalytics, null, new SimpleMeterRegistry());
+        mvc = MockMvcBuilders.standaloneSetup(new ShortenerController(service, null)).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    // one operation per redirect; requests rejected by the bulkhead (503) are not counted as redirects
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int redirectBurst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        AtomicInteger redirected = new AtomicInteger();
+        for (String code : codes) {
+            executor.execute(() -> {
+                try {
+                    if (mvc.perform(get("/api/shortener/" + code)).andReturn().getResponse().getStatus() == 302) {
+                        redirected.incrementAndGet();
+                    }
+                } catch (Exception ignored) {
+                    // counted as not redirected
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return redirected.get();
+    }
+
+    // through reflection so the project still compiles on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("virtual threads need JDK 21+", ex);
+        }
+    }
+
+    static final class SlowReader extends ShortenerUrlReader {
+
+        private final Map<String, ShortenerUrl> rows;
+        private final InjectedLatency latency;
+
+        SlowReader(Map<String, ShortenerUrl> rows, InjectedLatency latency) {
+            super(null);
+            this.rows = rows;
+            this.latency = latency;
+        }
+
+        @Override
+        public CompletableFuture<Optional<ShortenerUrl>> findUrl(String shortCode) {
+            return latency.complete(() -> Optional.ofNullable(rows.get(shortCode)));
+        }
+
+        @Override
+        public CompletableFuture<Optional<ShortenerUrl>> findUrl(String shortCode, int attempt) {
+            return findUrl(shortCode);
+        }
+    }
+
+    static final class MissingCache extends ShortUrlCache {
+
+        MissingCache() {
+            super(new StringRedisTemplate(), new FrequencySketch(16, 100), new Bulkhead("redis", 1, Duration.ZERO),
+                    new CircuitBreaker("redis", 1, 1, 1, Duration.ofSeconds(1), Duration.ofSeconds(1), 1),
+                    new SimpleMeterRegistry(), Duration.ofMillis(25), 1, Duration.ofSeconds(1));
+        }
+
+        @Override
+        public String get(String shortUrl) {
+            return null;
+        }
+
+        @Override
+        public void registerHitAndMaybeCache(String shortUrl, String fullUrl, Instant expiresAt) {
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.wl.url.shortener.controller;
+
+import com.wl.url.shortener.service.ShortenerService;
+import com.wl.url.shortener.utils.ShortCodeGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// the same constant lookup in both cases; only the dispatch cost up to the 302 differs
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RedirectBenchmark {
+
+    private static final String TARGET = "https://example.com/some/long/path?utm_source=benchmark";
+
+    MockMvc mvc;
+    MockMvc fastPath;
+
+    @Setup
+    public void setup() {
+        ShortenerService service = new FixedShortenerService();
+        ShortenerController controller = new ShortenerController(service, null);
+
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+        fastPath = MockMvcBuilders.standaloneSetup(controller)
+                .addFilters(new RedirectFilter(service, (request, response, handler, ex) -> null))
+                .build();
+    }
+
+    @Benchmark
+    public MvcResult mvcDispatch() throws Exception {
+        return mvc.perform(get("/api/shortener/abc123")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult redirectFilter() throws Exception {
+        return fastPath.perform(get("/api/shortener/abc123")).andReturn();
+    }
+
+    static final class FixedShortenerService extends ShortenerService {
+
+        FixedShortenerService() {
+            super(null, null, null, null, new ShortCodeGenerator(0), null, null, null, null, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public String resolveFullUrl(String shortUrl, long visitor) {
+            return TARGET;
+        }
+    }
+}
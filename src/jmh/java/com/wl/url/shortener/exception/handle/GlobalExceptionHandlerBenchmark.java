@@ -0,0 +1,53 @@
+package com.wl.url.shortener.exception.handle;
+
+import com.wl.url.shortener.exception.impl.NotFoundException;
+import com.wl.url.shortener.exception.model.ApiErrorResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import java.util.concurrent.TimeUnit;
+
+// the jmh profile's logback-test.xml turns logging off: this measures building the body, not console I/O
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GlobalExceptionHandlerBenchmark {
+
+    GlobalExceptionHandler handler;
+    MockHttpServletRequest request;
+    NotFoundException notFound;
+    MethodArgumentNotValidException invalid;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        handler = new GlobalExceptionHandler();
+        request = new MockHttpServletRequest("GET", "/api/shortener/abc123");
+        notFound = new NotFoundException("Short URL not found");
+
+        BeanPropertyBindingResult errors = new BeanPropertyBindingResult(new Object(), "shortenerRequest");
+        errors.addError(new FieldError("shortenerRequest", "url", "url é obrigatória"));
+        errors.addError(new FieldError("shortenerRequest", "url", "url inválida"));
+        MethodParameter parameter = new MethodParameter(
+                GlobalExceptionHandlerBenchmark.class.getDeclaredMethod("target", Object.class), 0);
+        invalid = new MethodArgumentNotValidException(parameter, errors);
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiErrorResponse> notFound() {
+        return handler.handleNotFound(notFound, request);
+    }
+
+    @Benchmark
+    public ResponseEntity<ApiErrorResponse> validation() {
+        return handler.handleValidation(invalid, request);
+    }
+
+    @SuppressWarnings("unused")
+    void target(Object body) {
+    }
+}
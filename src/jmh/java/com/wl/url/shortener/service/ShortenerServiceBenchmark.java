@@ -0,0 +1,168 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.dto.response.ShortenerFullResponse;
+import com.wl.url.shortener.entity.ShortenerUrl;
+import com.wl.url.shortener.entity.ShortenerUrlClicks;
+import com.wl.url.shortener.exception.impl.NotFoundException;
+import com.wl.url.shortener.loadtest.InMemoryRedis;
+import com.wl.url.shortener.loadtest.InjectedLatency;
+import com.wl.url.shortener.repository.ShortenerUrlClickStore;
+import com.wl.url.shortener.repository.ShortenerUrlReader;
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.CircuitBreaker;
+import com.wl.url.shortener.utils.FrequencySketch;
+import com.wl.url.shortener.utils.Hedge;
+import com.wl.url.shortener.utils.ShortCodeGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShortenerServiceBenchmark {
+
+    private static final int CODES = 10_000;
+
+    // with analytics on, a redirect only pays for the ring buffer offer; the drain (counters and visitor
+    // sketches merged into an in-memory Redis) runs on another thread, as in production
+    @Param({"false", "true"})
+    boolean analytics;
+
+    ShortenerService service;
+    String[] codes;
+    ClickAnalytics clickAnalytics;
+    ScheduledExecutorService timer;
+
+    @Setup
+    public void setup() {
+        Map<String, ShortenerUrl> rows = new ConcurrentHashMap<>();
+        codes = new String[CODES];
+        for (int i = 0; i < CODES; i++) {
+            codes[i] = "c" + i;
+            rows.put(codes[i], ShortenerUrl.builder()
+                    .shortcode(codes[i])
+                    .fullUrl("https://example.com/" + i)
+                    .build());
+        }
+
+        InMemoryReader reader = new InMemoryReader(rows);
+        InMemoryShortUrlCache cache = new InMemoryShortUrlCache();
+        for (int i = 0; i < CODES / 2; i++) {
+            cache.values.put(codes[i], rows.get(codes[i]).getFullUrl());
+        }
+
+        // filter disabled: mightExist is always true, so every read goes through the cache
+        ShortCodeBloomFilter bloomFilter = new ShortCodeBloomFilter(null, null, new ShortCodeGenerator(0),
+                false, false, CODES, 0.01, Path.of("unused.bloom"), Duration.ofSeconds(10), Duration.ofSeconds(1),
+                1_000, Duration.ofDays(1), Duration.ofMinutes(5));
+
+        StringRedisTemplate redis = new StringRedisTemplate(
+                new InMemoryRedis(new InjectedLatency(Duration.ZERO, Duration.ZERO)).connectionFactory());
+        UniqueVisitors uniqueVisitors = new UniqueVisitors(redis, new Bulkhead("redis", 16, Duration.ofMillis(100)),
+                new SimpleMeterRegistry(), analytics, Duration.ofDays(35), CODES);
+        clickAnalytics = new ClickAnalytics(new DiscardingClickStore(), uniqueVisitors, new SimpleMeterRegistry(),
+                analytics, 65536, Duration.ofSeconds(10), Duration.ofMillis(100));
+        clickAnalytics.start();
+        timer = Executors.newSingleThreadScheduledExecutor();
+
+        // reads complete at once: measures the hedge overhead on the common path, without speculation
+        service = new ShortenerService(reader, cache, null, bloomFilter, new ShortCodeGenerator(0),
+                new Bulkhead("cassandra", 1024, Duration.ofMillis(100)),
+                new Hedge("redirect-read", 0.95, Duration.ofMillis(2), Duration.ofMillis(50), 0.05, 1024, timer),
+                clickAnalytics, uniqueVisitors, new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        clickAnalytics.shutdown();
+        timer.shutdownNow();
+    }
+
+    @Benchmark
+    public ShortenerFullResponse cacheHit() {
+        return service.findByShortUrl(codes[ThreadLocalRandom.current().nextInt(CODES / 2)], visitor());
+    }
+
+    @Benchmark
+    public ShortenerFullResponse cacheMissRepositoryHit() {
+        return service.findByShortUrl(codes[CODES / 2 + ThreadLocalRandom.current().nextInt(CODES / 2)], visitor());
+    }
+
+    @Benchmark
+    public Object notFound() {
+        try {
+            return service.findByShortUrl("missing");
+        } catch (NotFoundException ex) {
+            return ex;
+        }
+    }
+
+    private static long visitor() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    // only findUrl is on the read path
+    static final class InMemoryReader extends ShortenerUrlReader {
+
+        private final Map<String, ShortenerUrl> rows;
+
+        InMemoryReader(Map<String, ShortenerUrl> rows) {
+            super(null);
+            this.rows = rows;
+        }
+
+        @Override
+        public CompletableFuture<Optional<ShortenerUrl>> findUrl(String shortCode) {
+            return CompletableFuture.completedFuture(Optional.ofNullable(rows.get(shortCode)));
+        }
+
+        @Override
+        public CompletableFuture<Optional<ShortenerUrl>> findUrl(String shortCode, int attempt) {
+            return findUrl(shortCode);
+        }
+    }
+
+    static final class DiscardingClickStore extends ShortenerUrlClickStore {
+
+        DiscardingClickStore() {
+            super(null, 32, 64);
+        }
+
+        @Override
+        public CompletableFuture<Void> increment(List<ShortenerUrlClicks> counts) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    static final class InMemoryShortUrlCache extends ShortUrlCache {
+
+        final Map<String, String> values = new ConcurrentHashMap<>();
+        private final FrequencySketch hits = new FrequencySketch(16_384, 100_000);
+
+        InMemoryShortUrlCache() {
+            super(new StringRedisTemplate(), new FrequencySketch(16, 100), new Bulkhead("redis", 1, Duration.ZERO),
+                    new CircuitBreaker("redis", 1, 1, 1, Duration.ofSeconds(1), Duration.ofSeconds(1), 1),
+                    new SimpleMeterRegistry(), Duration.ofMillis(25), 1, Duration.ofSeconds(1));
+        }
+
+        @Override
+        public String get(String shortUrl) {
+            return values.get(shortUrl);
+        }
+
+        // keeps the sketch cost but never promotes, so the miss scenario stays a miss
+        @Override
+        public void registerHitAndMaybeCache(String shortUrl, String fullUrl, Instant expiresAt) {
+            hits.increment(shortUrl);
+        }
+    }
+}
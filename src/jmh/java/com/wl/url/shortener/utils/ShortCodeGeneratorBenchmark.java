@@ -0,0 +1,100 @@
+package com.wl.url.shortener.utils;
+
+import com.wl.url.shortener.exception.impl.RateLimitExceededException;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShortCodeGeneratorBenchmark {
+
+    // fast-forward: at 10000x real time a second never runs out, so this measures the plain CAS path.
+    // real: 4096 codes/s run out within the first millisecond, so the generator borrows up to max-drift
+    // seconds ahead and then spends the rest of each second rejecting; this is what production sees under
+    // overload. frozen: the clock never moves, so after the borrowed seconds every call takes the exhaustion path
+    @Param({"fast-forward", "real", "frozen"})
+    String clock;
+
+    ShortCodeGenerator generator;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        Clock source = switch (clock) {
+            case "fast-forward" -> new FastForwardClock(10_000);
+            case "real" -> Clock.systemUTC();
+            case "frozen" -> Clock.fixed(Instant.now(), ZoneOffset.UTC);
+            default -> throw new IllegalArgumentException("unknown clock " + clock);
+        };
+        generator = new ShortCodeGenerator(1, ShortCodeGenerator.DEFAULT_NODE_BITS, ShortCodeGenerator.DEFAULT_SEQ_BITS,
+                ShortCodeGenerator.DEFAULT_MAX_DRIFT_SECONDS, source);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String next_1thread() {
+        return next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String next_4threads() {
+        return next();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String next_maxThreads() {
+        return next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object nextBlockOf16_4threads() {
+        try {
+            return generator.next(16);
+        } catch (RateLimitExceededException ex) {
+            return ex;
+        }
+    }
+
+    private String next() {
+        try {
+            return generator.next();
+        } catch (RateLimitExceededException ex) {
+            return null;
+        }
+    }
+
+    static final class FastForwardClock extends Clock {
+
+        private final long speedup;
+        private final long startNanos = System.nanoTime();
+        private final long startMillis = System.currentTimeMillis();
+
+        FastForwardClock(long speedup) {
+            this.speedup = speedup;
+        }
+
+        @Override
+        public Instant instant() {
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            return Instant.ofEpochMilli(startMillis + elapsedMillis * speedup);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.wl.url.shortener.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShortenerUtilsBenchmark {
+
+    // typical ids: freshly generated (7 chars) and close to the 11-char limit
+    @Param({"140737488355327", "4611686018427387903"})
+    long id;
+
+    String code;
+    final char[] buffer = new char[ShortenerUtils.MAX_LENGTH];
+
+    @Setup
+    public void setup() {
+        code = ShortenerUtils.encode(id);
+    }
+
+    @Benchmark
+    public String encode() {
+        return ShortenerUtils.encode(id);
+    }
+
+    @Benchmark
+    public int encodeIntoBuffer() {
+        return ShortenerUtils.encode(id, buffer, 0);
+    }
+
+    @Benchmark
+    public long decode() {
+        return ShortenerUtils.decode(code);
+    }
+
+    @Benchmark
+    public long tryDecodeMalformed() {
+        return ShortenerUtils.tryDecode("..%2F");
+    }
+}
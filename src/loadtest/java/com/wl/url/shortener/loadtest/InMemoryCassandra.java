@@ -0,0 +1,256 @@
+package com.wl.url.shortener.loadtest;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.*;
+import com.datastax.oss.driver.api.core.metadata.Metadata;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+public final class InMemoryCassandra {
+
+    private final Map<String, String> urls = new ConcurrentHashMap<>();
+    private final Map<String, Instant> expiries = new ConcurrentHashMap<>();
+    private final Map<ByteBuffer, String> hashes = new ConcurrentHashMap<>();
+    private final Map<String, NavigableMap<Instant, Long>> clicks = new ConcurrentHashMap<>();
+    private final Map<String, Long> clickTotals = new ConcurrentHashMap<>();
+    private final InjectedLatency latency;
+
+    public InMemoryCassandra(InjectedLatency latency) {
+        this.latency = latency;
+    }
+
+    public int size() {
+        return urls.size();
+    }
+
+    public CqlSession session() {
+        return proxy(CqlSession.class, (method, args) -> switch (method.getName()) {
+            case "prepare" -> prepared(args[0] instanceof SimpleStatement simple ? simple.getQuery() : (String) args[0]);
+            case "executeAsync" -> latency.complete(() -> asyncResultSet(run(statementOf(args[0]))));
+            case "execute" -> {
+                latency.pause();
+                yield resultSet(run(statementOf(args[0])));
+            }
+            case "getMetadata" -> metadata();
+            case "getKeyspace" -> Optional.empty();
+            case "getName" -> "in-memory";
+            case "isClosed" -> false;
+            case "checkSchemaAgreement" -> true;
+            case "close", "refreshSchema" -> null;
+            case "closeAsync", "forceCloseAsync", "refreshSchemaAsync", "checkSchemaAgreementAsync" ->
+                    CompletableFuture.completedFuture(null);
+            default -> throw unsupported("CqlSession", method);
+        });
+    }
+
+    private List<Object> run(Statement<?> statement) {
+        if (statement instanceof BatchStatement batch) {
+            for (BatchableStatement<?> inner : batch) {
+                run(inner);
+            }
+            return List.of();
+        }
+
+        if (Proxy.isProxyClass(statement.getClass()) && Proxy.getInvocationHandler(statement) instanceof Bound bound) {
+            return apply(bound.cql(), bound.values());
+        }
+        if (statement instanceof SimpleStatement simple) {
+            return apply(simple.getQuery(), simple.getPositionalValues().toArray());
+        }
+        throw new UnsupportedOperationException("in-memory Cassandra cannot run " + statement.getClass().getName());
+    }
+
+    private List<Object> apply(String cql, Object[] values) {
+        String query = cql.trim();
+        if (query.startsWith("INSERT INTO shortner_url_hash")) {
+            hashes.put(((ByteBuffer) values[0]).duplicate(), (String) values[1]);
+            return List.of();
+        }
+        if (query.startsWith("INSERT INTO shortner_url ") && query.contains(" IF NOT EXISTS")) {
+            String shortcode = (String) values[0];
+            synchronized (urls) {
+                if (liveUrl(shortcode) != null) return List.of(false);
+                put(shortcode, (String) values[1], (Instant) values[3]);
+            }
+            return List.of(true);
+        }
+        if (query.startsWith("INSERT INTO shortner_url ")) {
+            put((String) values[0], (String) values[1], values.length > 3 ? (Instant) values[3] : null);
+            return List.of();
+        }
+        if (query.startsWith("SELECT shortcode FROM shortner_url_hash WHERE")) {
+            return single(hashes.get(((ByteBuffer) values[0]).duplicate()));
+        }
+        if (query.startsWith("SELECT full_url, expires_at FROM shortner_url WHERE")) {
+            String fullUrl = liveUrl((String) values[0]);
+            return fullUrl == null ? List.of() : List.of(new Object[]{fullUrl, expiries.get((String) values[0])});
+        }
+        if (query.startsWith("UPDATE shortner_url_clicks SET")) {
+            clicks.computeIfAbsent((String) values[1], code -> new ConcurrentSkipListMap<>())
+                    .merge((Instant) values[2], (Long) values[0], Long::sum);
+            return List.of();
+        }
+        if (query.startsWith("UPDATE shortner_url_click_total SET")) {
+            clickTotals.merge((String) values[1], (Long) values[0], Long::sum);
+            return List.of();
+        }
+        if (query.startsWith("SELECT clicks FROM shortner_url_click_total WHERE")) {
+            return single(clickTotals.get((String) values[0]));
+        }
+        if (query.startsWith("SELECT minute, clicks FROM shortner_url_clicks WHERE")) {
+            List<Object> rows = new ArrayList<>();
+            clicks.getOrDefault((String) values[0], Collections.emptyNavigableMap())
+                    .tailMap((Instant) values[1], true)
+                    .descendingMap()
+                    .forEach((minute, count) -> rows.add(new Object[]{minute, count}));
+            return rows;
+        }
+        if (query.equals("SELECT shortcode FROM shortner_url")) {
+            return new ArrayList<>(urls.keySet());
+        }
+        throw new UnsupportedOperationException("in-memory Cassandra does not understand: " + cql);
+    }
+
+    private void put(String shortcode, String fullUrl, Instant expiresAt) {
+        urls.put(shortcode, fullUrl);
+        if (expiresAt == null) {
+            expiries.remove(shortcode);
+        } else {
+            expiries.put(shortcode, expiresAt);
+        }
+    }
+
+    private String liveUrl(String shortcode) {
+        Instant expiresAt = expiries.get(shortcode);
+        if (expiresAt != null && !expiresAt.isAfter(Instant.now())) {
+            urls.remove(shortcode);
+            expiries.remove(shortcode);
+            return null;
+        }
+        return urls.get(shortcode);
+    }
+
+    private static boolean wasApplied(List<Object> values) {
+        return values.isEmpty() || !(values.get(0) instanceof Boolean applied) || applied;
+    }
+
+    private static List<Object> single(Object value) {
+        return value == null ? List.of() : List.of(value);
+    }
+
+    private static Statement<?> statementOf(Object arg) {
+        return arg instanceof String cql ? SimpleStatement.newInstance(cql) : (Statement<?>) arg;
+    }
+
+    private static PreparedStatement prepared(String cql) {
+        return proxy(PreparedStatement.class, (method, args) -> switch (method.getName()) {
+            case "bind" -> bound(cql, args != null && args.length > 0 ? (Object[]) args[0] : new Object[0]);
+            case "getQuery" -> cql;
+            default -> throw unsupported("PreparedStatement", method);
+        });
+    }
+
+    private static BoundStatement bound(String cql, Object[] values) {
+        return (BoundStatement) Proxy.newProxyInstance(
+                InMemoryCassandra.class.getClassLoader(),
+                new Class<?>[]{BoundStatement.class},
+                new Bound(cql, values));
+    }
+
+    private static AsyncResultSet asyncResultSet(List<Object> values) {
+        List<Row> rows = values.stream().map(InMemoryCassandra::row).toList();
+        return proxy(AsyncResultSet.class, (method, args) -> switch (method.getName()) {
+            case "one" -> rows.isEmpty() ? null : rows.get(0);
+            case "currentPage" -> rows;
+            case "remaining" -> rows.size();
+            case "hasMorePages" -> false;
+            case "wasApplied" -> wasApplied(values);
+            default -> throw unsupported("AsyncResultSet", method);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ResultSet resultSet(List<Object> values) {
+        List<Row> rows = values.stream().map(InMemoryCassandra::row).toList();
+        return proxy(ResultSet.class, (method, args) -> switch (method.getName()) {
+            case "one" -> rows.isEmpty() ? null : rows.get(0);
+            case "all" -> rows;
+            case "iterator" -> rows.iterator();
+            case "spliterator" -> rows.spliterator();
+            case "forEach" -> {
+                rows.forEach((Consumer<Row>) args[0]);
+                yield null;
+            }
+            case "getAvailableWithoutFetching" -> rows.size();
+            case "isFullyFetched" -> true;
+            case "wasApplied" -> wasApplied(values);
+            default -> throw unsupported("ResultSet", method);
+        });
+    }
+
+    private static Row row(Object value) {
+        Object[] columns = value instanceof Object[] multiple ? multiple : new Object[]{value};
+        return proxy(Row.class, (method, args) -> switch (method.getName()) {
+            case "getString", "getObject", "getLong", "getInstant" -> columns[indexOf(args)];
+            case "isNull" -> columns[indexOf(args)] == null;
+            default -> throw unsupported("Row", method);
+        });
+    }
+
+    private static int indexOf(Object[] args) {
+        return args != null && args.length > 0 && args[0] instanceof Integer index ? index : 0;
+    }
+
+    private static Metadata metadata() {
+        return proxy(Metadata.class, (method, args) -> switch (method.getName()) {
+            case "getTokenMap", "getClusterName" -> Optional.empty();
+            case "getNodes", "getKeyspaces" -> Map.of();
+            default -> throw unsupported("Metadata", method);
+        });
+    }
+
+    private record Bound(String cql, Object[] values) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            return switch (method.getName()) {
+                case "setIdempotent", "setConsistencyLevel", "setTimeout", "setPageSize", "setTracing" -> proxy;
+                case "isIdempotent" -> true;
+                case "getRoutingKey", "getRoutingKeyspace", "getRoutingToken", "getKeyspace" -> null;
+                case "toString" -> "Bound[" + cql + "]";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw unsupported("BoundStatement", method);
+            };
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(InMemoryCassandra.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> "InMemory" + type.getSimpleName();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> handler.handle(method, args);
+                });
+    }
+
+    private static UnsupportedOperationException unsupported(String type, Method method) {
+        return new UnsupportedOperationException("in-memory " + type + " does not support " + method.getName());
+    }
+}
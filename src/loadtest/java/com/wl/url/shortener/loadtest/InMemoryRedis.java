@@ -0,0 +1,140 @@
+package com.wl.url.shortener.loadtest;
+
+import com.wl.url.shortener.utils.HyperLogLog;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class InMemoryRedis {
+
+    private final Map<ByteBuffer, byte[]> values = new ConcurrentHashMap<>();
+    private final InjectedLatency latency;
+
+    public InMemoryRedis(InjectedLatency latency) {
+        this.latency = latency;
+    }
+
+    public RedisConnectionFactory connectionFactory() {
+        RedisConnection connection = (RedisConnection) Proxy.newProxyInstance(
+                InMemoryRedis.class.getClassLoader(),
+                new Class<?>[]{RedisConnection.class},
+                (proxy, method, args) -> onConnection(proxy, method, args));
+
+        return (RedisConnectionFactory) Proxy.newProxyInstance(
+                InMemoryRedis.class.getClassLoader(),
+                new Class<?>[]{RedisConnectionFactory.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getConnection" -> connection;
+                    case "getConvertPipelineAndTxResults" -> false;
+                    case "translateExceptionIfPossible" -> null;
+                    case "toString" -> "InMemoryRedisConnectionFactory";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw unsupported(method);
+                });
+    }
+
+    private Object onConnection(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "stringCommands", "keyCommands", "scriptingCommands", "commands":
+                return proxy;
+            case "close", "openPipeline":
+                return null;
+            case "closePipeline":
+                return List.of();
+            case "isClosed", "isPipelined", "isQueueing", "isSubscribed":
+                return false;
+            case "getNativeConnection":
+                return null;
+            case "toString":
+                return "InMemoryRedisConnection";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                break;
+        }
+
+        latency.pause();
+        return switch (method.getName()) {
+            case "get" -> values.get(key(args[0]));
+            case "mGet" -> {
+                List<byte[]> found = new ArrayList<>();
+                for (byte[] key : (byte[][]) args[0]) {
+                    found.add(values.get(key(key)));
+                }
+                yield found;
+            }
+            case "set" -> set(args);
+            case "setNX" -> values.putIfAbsent(key(args[0]), (byte[]) args[1]) == null;
+            case "setEx", "pSetEx" -> {
+                values.put(key(args[0]), (byte[]) args[2]);
+                yield true;
+            }
+            case "incr" -> incrBy((byte[]) args[0], 1);
+            case "incrBy" -> incrBy((byte[]) args[0], ((Number) args[1]).longValue());
+            case "del", "unlink" -> {
+                long removed = 0;
+                for (byte[] key : (byte[][]) args[0]) {
+                    if (values.remove(key(key)) != null) removed++;
+                }
+                yield removed;
+            }
+            case "eval" -> mergeRegisters((byte[][]) args[3]);
+            default -> throw unsupported(method);
+        };
+    }
+
+    private Boolean set(Object[] args) {
+        ByteBuffer key = key(args[0]);
+        byte[] value = (byte[]) args[1];
+        SetOption option = args.length >= 4 && args[3] instanceof SetOption o ? o : SetOption.UPSERT;
+
+        return switch (option) {
+            case SET_IF_ABSENT -> values.putIfAbsent(key, value) == null;
+            case SET_IF_PRESENT -> values.replace(key, value) != null;
+            default -> {
+                values.put(key, value);
+                yield true;
+            }
+        };
+    }
+
+    private Long mergeRegisters(byte[][] keysAndArgs) {
+        byte[] incoming = keysAndArgs[3];
+        values.compute(key(keysAndArgs[0]), (key, current) -> {
+            HyperLogLog merged = current != null && current.length == HyperLogLog.REGISTERS
+                    ? HyperLogLog.fromBytes(current)
+                    : new HyperLogLog();
+            merged.mergeCompact(incoming);
+            return merged.toBytes();
+        });
+        return 1L;
+    }
+
+    private Long incrBy(byte[] rawKey, long delta) {
+        byte[] updated = values.compute(key(rawKey), (key, current) -> {
+            long value = current == null ? 0 : Long.parseLong(new String(current, StandardCharsets.UTF_8));
+            return String.valueOf(value + delta).getBytes(StandardCharsets.UTF_8);
+        });
+        return Long.parseLong(new String(updated, StandardCharsets.UTF_8));
+    }
+
+    private static ByteBuffer key(Object raw) {
+        return ByteBuffer.wrap((byte[]) raw);
+    }
+
+    private static UnsupportedOperationException unsupported(Method method) {
+        return new UnsupportedOperationException("in-memory Redis does not support " + method.getName());
+    }
+}
@@ -0,0 +1,42 @@
+package com.wl.url.shortener.loadtest;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+public final class InjectedLatency {
+
+    private final long baseNanos;
+    private final long jitterNanos;
+
+    public InjectedLatency(Duration base, Duration jitter) {
+        if (base.isNegative() || jitter.isNegative()) {
+            throw new IllegalArgumentException("latency and jitter must be >= 0");
+        }
+        this.baseNanos = base.toNanos();
+        this.jitterNanos = jitter.toNanos();
+    }
+
+    public long nextDelayNanos() {
+        if (jitterNanos == 0) return baseNanos;
+        return baseNanos + ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+    }
+
+    public void pause() {
+        long delay = nextDelayNanos();
+        if (delay > 0) {
+            LockSupport.parkNanos(delay);
+        }
+    }
+
+    public <T> CompletableFuture<T> complete(Supplier<T> result) {
+        long delay = nextDelayNanos();
+        if (delay == 0) {
+            return CompletableFuture.completedFuture(result.get());
+        }
+        return CompletableFuture.supplyAsync(result, CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,381 @@
+package com.wl.url.shortener.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Open-loop load driver: requests go out at the configured rate whatever the responses do, and
+ * latency is measured from the intended send time (no coordinated omission).
+ *
+ *   --base-url=http://localhost:8080   --duration=60s   --warmup=10s
+ *   --read-rate=2000   --create-rate=50   --not-found-ratio=0.05
+ *   --zipf=1.1   --seed-urls=10000   --max-in-flight=1024
+ *   --replay=workload.jsonl   --replay-rate=500
+ *   --report-dir=target/loadtest
+ */
+public final class LoadDriver {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder().build();
+    private static final Pattern CREATED_CODE = Pattern.compile("\"shortCode\"\\s*:\\s*\"([^\"]+)\"");
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Options options;
+    private final HttpClient client;
+    private final Semaphore inFlight;
+    private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+    private final List<String> codes = new CopyOnWriteArrayList<>();
+
+    LoadDriver(Options options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors())))
+                .build();
+        this.inFlight = new Semaphore(options.maxInFlight);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        new LoadDriver(options).run(System.out);
+        System.exit(0);
+    }
+
+    void run(PrintStream out) throws Exception {
+        List<Stream> streams = new ArrayList<>();
+        if (options.replay != null) {
+            streams.add(new Stream(options.replayRate, new ReplayWorkload(options.replay)));
+        } else {
+            seed(out);
+            ZipfSampler popularity = new ZipfSampler(codes.size(), options.zipf);
+            streams.add(new Stream(options.readRate, () -> read(popularity)));
+            streams.add(new Stream(options.createRate, LoadDriver::create));
+        }
+
+        out.printf("warmup %s, measuring %s%n", options.warmup, options.duration);
+        long startNanos = System.nanoTime();
+        long recordFrom = startNanos + options.warmup.toNanos();
+        long endNanos = recordFrom + options.duration.toNanos();
+
+        List<Thread> issuers = new ArrayList<>();
+        for (Stream stream : streams) {
+            if (stream.rate() <= 0) continue;
+            Thread issuer = new Thread(() -> issue(stream, startNanos, recordFrom, endNanos), "load-issuer");
+            issuer.start();
+            issuers.add(issuer);
+        }
+        for (Thread issuer : issuers) {
+            issuer.join();
+        }
+        // wait for outstanding responses before closing the report
+        inFlight.acquire(options.maxInFlight);
+
+        report(out, options.duration);
+    }
+
+    private void issue(Stream stream, long startNanos, long recordFrom, long endNanos) {
+        long intervalNanos = (long) (1_000_000_000.0 / stream.rate());
+        long intended = startNanos;
+        while (intended < endNanos) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(stream.workload().next(), intended, intended >= recordFrom);
+            intended += intervalNanos;
+        }
+    }
+
+    private void send(Request request, long intendedNanos, boolean record) {
+        inFlight.acquireUninterruptibly();
+        Endpoint endpoint = endpoints.computeIfAbsent(request.endpoint(), Endpoint::new);
+
+        client.sendAsync(request.toHttp(options.baseUrl), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, ex) -> {
+                    long latency = System.nanoTime() - intendedNanos;
+                    boolean ok = ex == null && response.statusCode() == request.expectedStatus();
+                    if (record) {
+                        endpoint.record(latency, ok);
+                    }
+                    if (ok && response.statusCode() == 201) {
+                        rememberCreated(response.body());
+                    }
+                    inFlight.release();
+                });
+    }
+
+    private void seed(PrintStream out) throws InterruptedException {
+        out.printf("seeding %d urls...%n", options.seedUrls);
+        CountDownLatch done = new CountDownLatch(options.seedUrls);
+        for (int i = 0; i < options.seedUrls; i++) {
+            inFlight.acquire();
+            client.sendAsync(create().toHttp(options.baseUrl), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, ex) -> {
+                        if (ex == null && response.statusCode() == 201) {
+                            rememberCreated(response.body());
+                        }
+                        inFlight.release();
+                        done.countDown();
+                    });
+        }
+        done.await();
+        if (codes.isEmpty()) {
+            throw new IllegalStateException("seeding failed: no shortcode was created at " + options.baseUrl);
+        }
+        out.printf("seeded %d shortcodes%n", codes.size());
+    }
+
+    private void rememberCreated(String body) {
+        Matcher matcher = CREATED_CODE.matcher(body);
+        if (matcher.find()) {
+            codes.add(matcher.group(1));
+        }
+    }
+
+    private Request read(ZipfSampler popularity) {
+        if (ThreadLocalRandom.current().nextDouble() < options.notFoundRatio) {
+            return Request.get("not-found", "/api/shortener/zz" + Long.toString(ThreadLocalRandom.current().nextLong(Long.MAX_VALUE), 36), 404);
+        }
+        return Request.get("redirect", "/api/shortener/" + codes.get(popularity.sample()), 302);
+    }
+
+    private static Request create() {
+        String url = "https://example.com/load/" + UUID.randomUUID();
+        return Request.post("create", "/api/shortener", "{\"url\":\"" + url + "\"}", 201);
+    }
+
+    private void report(PrintStream out, Duration measured) throws IOException {
+        double seconds = measured.toNanos() / 1_000_000_000.0;
+        ObjectNode json = MAPPER.createObjectNode();
+        json.put("durationSeconds", seconds);
+        ObjectNode perEndpoint = json.putObject("endpoints");
+
+        Files.createDirectories(options.reportDir);
+        out.printf("%n%-28s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        for (Endpoint endpoint : endpoints.values()) {
+            Histogram histogram = endpoint.histogram;
+            long count = histogram.getTotalCount();
+            ObjectNode node = perEndpoint.putObject(endpoint.name);
+            node.put("requests", count);
+            node.put("errors", endpoint.errors.get());
+            node.put("throughput", count / seconds);
+            for (double percentile : PERCENTILES) {
+                node.put("p" + percentile, millis(histogram.getValueAtPercentile(percentile)));
+            }
+            node.put("max", millis(histogram.getMaxValue()));
+
+            out.printf("%-28s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint.name, count, endpoint.errors.get(), count / seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+
+            // standard .hgrm format, for the HdrHistogram plotter
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(
+                    options.reportDir.resolve(endpoint.fileName() + ".hgrm")))) {
+                histogram.outputPercentileDistribution(hgrm, 1_000_000.0);
+            }
+        }
+
+        Path summary = options.reportDir.resolve("summary.json");
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(summary.toFile(), json);
+        out.printf("%nreport written to %s%n", options.reportDir.toAbsolutePath());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    interface Workload {
+        Request next();
+    }
+
+    record Stream(double rate, Workload workload) {
+    }
+
+    record Request(String endpoint, String method, String path, String body, int expectedStatus) {
+
+        static Request get(String endpoint, String path, int expectedStatus) {
+            return new Request(endpoint, "GET", path, null, expectedStatus);
+        }
+
+        static Request post(String endpoint, String path, String body, int expectedStatus) {
+            return new Request(endpoint, "POST", path, body, expectedStatus);
+        }
+
+        HttpRequest toHttp(String baseUrl) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(30));
+            if (body == null) {
+                return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+            }
+            return builder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    }
+
+    static final class Endpoint {
+
+        final String name;
+        // up to 1 minute with 3 significant digits
+        final Histogram histogram = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+        final AtomicLong errors = new AtomicLong();
+
+        Endpoint(String name) {
+            this.name = name;
+        }
+
+        void record(long latencyNanos, boolean ok) {
+            histogram.recordValue(Math.min(latencyNanos, histogram.getHighestTrackableValue()));
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+        }
+
+        String fileName() {
+            return name.replaceAll("[^A-Za-z0-9.-]+", "_");
+        }
+    }
+
+    // Zipf popularity over the seeded codes: rank 0 is requested the most
+    static final class ZipfSampler {
+
+        private final double[] cdf;
+
+        ZipfSampler(int size, double exponent) {
+            cdf = new double[size];
+            double sum = 0;
+            for (int rank = 0; rank < size; rank++) {
+                sum += 1.0 / Math.pow(rank + 1, exponent);
+                cdf[rank] = sum;
+            }
+            for (int rank = 0; rank < size; rank++) {
+                cdf[rank] /= sum;
+            }
+        }
+
+        int sample() {
+            int index = Arrays.binarySearch(cdf, ThreadLocalRandom.current().nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+        }
+    }
+
+    /*
+     * Replays a JSONL file in a loop. Each line can be:
+     *   {"method":"GET","path":"/api/shortener/abc","status":302}
+     *   {"method":"POST","path":"/api/shortener","body":{"url":"..."},"status":201}
+     *   {"url":"https://..."}        -> create
+     *   {"shortcode":"abc"}          -> redirect
+     * Lines in any other shape (e.g. requests.jsonl) become creates of a URL derived from request_id.
+     */
+    static final class ReplayWorkload implements Workload {
+
+        private final List<Request> requests = new ArrayList<>();
+        private final AtomicLong cursor = new AtomicLong();
+
+        ReplayWorkload(Path file) throws IOException {
+            List<String> lines = Files.readAllLines(file);
+            for (int i = 0; i < lines.size(); i++) {
+                if (!lines.get(i).isBlank()) {
+                    requests.add(toRequest(MAPPER.readTree(lines.get(i)), i + 1));
+                }
+            }
+            if (requests.isEmpty()) {
+                throw new IllegalArgumentException("replay file " + file + " has no requests");
+            }
+        }
+
+        @Override
+        public Request next() {
+            return requests.get((int) (cursor.getAndIncrement() % requests.size()));
+        }
+
+        private static Request toRequest(JsonNode line, int number) {
+            if (line.hasNonNull("method") && line.hasNonNull("path")) {
+                String method = line.get("method").asString().toUpperCase(Locale.ROOT);
+                String path = line.get("path").asString();
+                String body = line.hasNonNull("body") ? MAPPER.writeValueAsString(line.get("body")) : null;
+                int status = line.hasNonNull("status") ? line.get("status").asInt() : defaultStatus(method);
+                return new Request(method + " " + template(path), method, path, body, status);
+            }
+            if (line.hasNonNull("url")) {
+                return Request.post("create", "/api/shortener",
+                        MAPPER.writeValueAsString(MAPPER.createObjectNode().put("url", line.get("url").asString())), 201);
+            }
+            if (line.hasNonNull("shortcode")) {
+                return Request.get("redirect", "/api/shortener/" + line.get("shortcode").asString(), 302);
+            }
+            String id = line.hasNonNull("request_id") ? line.get("request_id").asString() : "line-" + number;
+            return Request.post("create", "/api/shortener", "{\"url\":\"https://replay.example/" + id + "\"}", 201);
+        }
+
+        private static int defaultStatus(String method) {
+            return method.equals("POST") ? 201 : 302;
+        }
+
+        // reports /api/shortener/abc, /api/shortener/def... under one endpoint
+        private static String template(String path) {
+            return path.replaceAll("^/api/shortener/(?!bulk$|resolve$)[^/?]+", "/api/shortener/{code}");
+        }
+    }
+
+    record Options(String baseUrl, Duration duration, Duration warmup, double readRate, double createRate,
+                   double notFoundRatio, double zipf, int seedUrls, int maxInFlight,
+                   Path replay, double replayRate, Path reportDir) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("expected --name=value, got " + arg);
+                }
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            return new Options(
+                    values.getOrDefault("base-url", "http://localhost:8080"),
+                    duration(values.getOrDefault("duration", "60s")),
+                    duration(values.getOrDefault("warmup", "10s")),
+                    Double.parseDouble(values.getOrDefault("read-rate", "2000")),
+                    Double.parseDouble(values.getOrDefault("create-rate", "50")),
+                    Double.parseDouble(values.getOrDefault("not-found-ratio", "0.05")),
+                    Double.parseDouble(values.getOrDefault("zipf", "1.1")),
+                    Integer.parseInt(values.getOrDefault("seed-urls", "10000")),
+                    Integer.parseInt(values.getOrDefault("max-in-flight", "1024")),
+                    values.containsKey("replay") ? Path.of(values.get("replay")) : null,
+                    Double.parseDouble(values.getOrDefault("replay-rate", "500")),
+                    Path.of(values.getOrDefault("report-dir", "target/loadtest"))
+            );
+        }
+
+        // accepts 30s, 5m, 500ms or ISO-8601
+        private static Duration duration(String value) {
+            if (value.endsWith("ms")) return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            if (value.endsWith("s")) return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+            if (value.endsWith("m")) return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+            return Duration.parse(value);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.wl.url.shortener.loadtest;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Duration;
+
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfig {
+
+    @Bean
+    public InMemoryCassandra inMemoryCassandra(@Value("${shortener.loadtest.cassandra.latency:2ms}") Duration latency,
+                                               @Value("${shortener.loadtest.cassandra.jitter:3ms}") Duration jitter) {
+        return new InMemoryCassandra(new InjectedLatency(latency, jitter));
+    }
+
+    @Bean
+    public CqlSession cqlSession(InMemoryCassandra cassandra) {
+        return cassandra.session();
+    }
+
+    @Bean
+    public RedisConnectionFactory redisConnectionFactory(@Value("${shortener.loadtest.redis.latency:300us}") Duration latency,
+                                                         @Value("${shortener.loadtest.redis.jitter:200us}") Duration jitter) {
+        return new InMemoryRedis(new InjectedLatency(latency, jitter)).connectionFactory();
+    }
+}
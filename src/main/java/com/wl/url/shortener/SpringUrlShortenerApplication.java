@@ -3,9 +3,11 @@ package com.wl.url.shortener;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.cassandra.config.EnableCassandraAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableCassandraAuditing
+@EnableScheduling
 public class SpringUrlShortenerApplication {
     public static void main(String[] args) {
         SpringApplication.run(SpringUrlShortenerApplication.class, args);
@@ -0,0 +1,35 @@
+package com.wl.url.shortener.config;
+
+import com.wl.url.shortener.utils.Bulkhead;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class BulkheadConfig {
+
+    @Bean
+    public Bulkhead redisBulkhead(MeterRegistry meterRegistry,
+                                  @Value("${shortener.bulkhead.redis.max-concurrent:512}") int maxConcurrent,
+                                  @Value("${shortener.bulkhead.redis.max-wait:100ms}") Duration maxWait) {
+        return monitored(meterRegistry, new Bulkhead("redis", maxConcurrent, maxWait));
+    }
+
+    @Bean
+    public Bulkhead cassandraBulkhead(MeterRegistry meterRegistry,
+                                      @Value("${shortener.bulkhead.cassandra.max-concurrent:512}") int maxConcurrent,
+                                      @Value("${shortener.bulkhead.cassandra.max-wait:100ms}") Duration maxWait) {
+        return monitored(meterRegistry, new Bulkhead("cassandra", maxConcurrent, maxWait));
+    }
+
+    private static Bulkhead monitored(MeterRegistry meterRegistry, Bulkhead bulkhead) {
+        Gauge.builder("shortener.bulkhead.available", bulkhead, Bulkhead::availablePermits)
+                .tag("name", bulkhead.name())
+                .register(meterRegistry);
+        return bulkhead;
+    }
+}
@@ -0,0 +1,44 @@
+package com.wl.url.shortener.config;
+
+import com.wl.url.shortener.utils.CircuitBreaker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CircuitBreakerConfig {
+
+    @Bean
+    public CircuitBreaker redisCircuitBreaker(MeterRegistry meterRegistry,
+                                              @Value("${shortener.cache.redis.breaker.window:100}") int window,
+                                              @Value("${shortener.cache.redis.breaker.minimum-calls:20}") int minimumCalls,
+                                              @Value("${shortener.cache.redis.breaker.failure-rate:0.5}") double failureRate,
+                                              @Value("${shortener.cache.redis.breaker.open-duration:1s}") Duration openDuration,
+                                              @Value("${shortener.cache.redis.breaker.max-open-duration:30s}") Duration maxOpenDuration,
+                                              @Value("${shortener.cache.redis.breaker.probes:3}") int probes) {
+        return monitored(meterRegistry, new CircuitBreaker("redis", window, minimumCalls, failureRate,
+                openDuration, maxOpenDuration, probes));
+    }
+
+    // 0 = closed, 1 = half-open, 2 = open
+    private static CircuitBreaker monitored(MeterRegistry meterRegistry, CircuitBreaker breaker) {
+        Gauge.builder("shortener.breaker.state", breaker, b -> b.state().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .tag("name", breaker.name())
+                .register(meterRegistry);
+        FunctionCounter.builder("shortener.breaker.trips", breaker, CircuitBreaker::trips)
+                .description("Times the breaker opened")
+                .tag("name", breaker.name())
+                .register(meterRegistry);
+        FunctionCounter.builder("shortener.breaker.probes", breaker, CircuitBreaker::probes)
+                .description("Calls let through while half-open to test the backend")
+                .tag("name", breaker.name())
+                .register(meterRegistry);
+        return breaker;
+    }
+}
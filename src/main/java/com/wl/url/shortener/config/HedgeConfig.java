@@ -0,0 +1,68 @@
+package com.wl.url.shortener.config;
+
+import com.wl.url.shortener.utils.Hedge;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+@Configuration
+public class HedgeConfig implements DisposableBean {
+
+    // not a bean: a ScheduledExecutorService in the context would take the place of Spring's task scheduler
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, task -> {
+        Thread thread = new Thread(task, "hedge-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HedgeConfig() {
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Bean
+    public Hedge redirectReadHedge(MeterRegistry meterRegistry,
+                                   @Value("${shortener.hedge.redirect-read.enabled:true}") boolean enabled,
+                                   @Value("${shortener.hedge.redirect-read.percentile:0.95}") double percentile,
+                                   @Value("${shortener.hedge.redirect-read.min-delay:2ms}") Duration minDelay,
+                                   @Value("${shortener.hedge.redirect-read.max-delay:50ms}") Duration maxDelay,
+                                   @Value("${shortener.hedge.redirect-read.max-rate:0.05}") double maxRate,
+                                   @Value("${shortener.hedge.redirect-read.window:1024}") int window) {
+        return monitored(meterRegistry, new Hedge("redirect-read", percentile, minDelay, maxDelay,
+                enabled ? maxRate : 0, window, timer));
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+    }
+
+    private static Hedge monitored(MeterRegistry meterRegistry, Hedge hedge) {
+        TimeGauge.builder("shortener.hedge.threshold", hedge, TimeUnit.NANOSECONDS, h -> h.threshold().toNanos())
+                .description("Current delay before a speculative request is sent")
+                .tag("operation", hedge.name())
+                .register(meterRegistry);
+        counter(meterRegistry, hedge, "sent", Hedge::hedged);
+        counter(meterRegistry, hedge, "won", Hedge::won);
+        counter(meterRegistry, hedge, "capped", Hedge::capped);
+        counter(meterRegistry, hedge, "failed_over", Hedge::failedOver);
+        return hedge;
+    }
+
+    private static void counter(MeterRegistry meterRegistry, Hedge hedge, String outcome,
+                                ToDoubleFunction<Hedge> count) {
+        FunctionCounter.builder("shortener.hedge.requests", hedge, count)
+                .description("Alternate requests sent speculatively, won against the first attempt, skipped by the rate cap, or sent because the first attempt failed")
+                .tag("operation", hedge.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
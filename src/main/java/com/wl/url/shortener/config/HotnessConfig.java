@@ -0,0 +1,16 @@
+package com.wl.url.shortener.config;
+
+import com.wl.url.shortener.utils.FrequencySketch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HotnessConfig {
+
+    @Bean
+    public FrequencySketch hotnessSketch(@Value("${shortener.hotness.width:16384}") int width,
+                                         @Value("${shortener.hotness.sample-size:100000}") long sampleSize) {
+        return new FrequencySketch(width, sampleSize);
+    }
+}
@@ -0,0 +1,27 @@
+package com.wl.url.shortener.config;
+
+import com.wl.url.shortener.controller.RedirectFilter;
+import com.wl.url.shortener.service.ShortenerService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "shortener.redirect.fast-path", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RedirectConfig {
+
+    @Bean
+    public FilterRegistrationBean<RedirectFilter> redirectFilter(
+            ShortenerService shortenerService,
+            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        FilterRegistrationBean<RedirectFilter> registration =
+                new FilterRegistrationBean<>(new RedirectFilter(shortenerService, exceptionResolver));
+        registration.addUrlPatterns(RedirectFilter.PREFIX + "*");
+        return registration;
+    }
+}
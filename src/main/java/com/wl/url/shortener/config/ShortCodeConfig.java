@@ -0,0 +1,45 @@
+package com.wl.url.shortener.config;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.wl.url.shortener.repository.CassandraIdRangeStore;
+import com.wl.url.shortener.utils.LeasedShortCodeGenerator;
+import com.wl.url.shortener.utils.ShortCodeGenerator;
+import com.wl.url.shortener.utils.ShortCodeSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+public class ShortCodeConfig {
+
+    private static final Duration LEASED_START_MARGIN = Duration.ofHours(1);
+
+    @Bean
+    @ConditionalOnProperty(name = "shortener.generator.strategy", havingValue = "time", matchIfMissing = true)
+    public ShortCodeSource shortCodeGenerator(@Value("${shortener.node-id:0}") int nodeId,
+                                              @Value("${shortener.generator.node-bits:5}") int nodeBits,
+                                              @Value("${shortener.generator.seq-bits:12}") int seqBits,
+                                              @Value("${shortener.generator.max-drift:5s}") Duration maxDrift) {
+        return new ShortCodeGenerator(nodeId, nodeBits, seqBits, maxDrift.toSeconds(), Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "shortener.generator.strategy", havingValue = "leased")
+    public ShortCodeSource leasedShortCodeGenerator(CqlSession session,
+                                                    @Value("${shortener.generator.node-bits:5}") int nodeBits,
+                                                    @Value("${shortener.generator.seq-bits:12}") int seqBits,
+                                                    @Value("${shortener.generator.leased.min-block:16}") long minBlock,
+                                                    @Value("${shortener.generator.leased.max-block:65536}") long maxBlock,
+                                                    @Value("${shortener.generator.leased.lease-interval:10s}") Duration leaseInterval,
+                                                    @Value("${shortener.generator.leased.max-block-age:1m}") Duration maxBlockAge) {
+        ShortCodeGenerator timeLayout = new ShortCodeGenerator(0, nodeBits, seqBits, 0, Clock.systemUTC());
+        CassandraIdRangeStore store = new CassandraIdRangeStore(session,
+                () -> timeLayout.idFloorAt(Clock.systemUTC().instant().plus(LEASED_START_MARGIN).getEpochSecond()));
+
+        return new LeasedShortCodeGenerator(store, minBlock, maxBlock, leaseInterval, maxBlockAge);
+    }
+}
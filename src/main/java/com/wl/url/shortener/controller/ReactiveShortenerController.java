@@ -0,0 +1,94 @@
+package com.wl.url.shortener.controller;
+
+import com.wl.url.shortener.dto.request.ShortenerRequest;
+import com.wl.url.shortener.dto.request.ShortenerResolveRequest;
+import com.wl.url.shortener.dto.response.ShortenerResolveResponse;
+import com.wl.url.shortener.dto.response.ShortenerResponse;
+import com.wl.url.shortener.dto.response.ShortenerStatsResponse;
+import com.wl.url.shortener.dto.response.ShortenerVisitorsResponse;
+import com.wl.url.shortener.service.ClickAnalytics;
+import com.wl.url.shortener.service.ReactiveShortenerService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/shortener")
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveShortenerController {
+
+    private final ReactiveShortenerService shortenerService;
+
+    @GetMapping(ShortenerController.REDIRECT_PATH)
+    public Mono<ResponseEntity<Void>> redirect(@PathVariable String shortcode, ServerHttpRequest httpRequest) {
+
+        InetSocketAddress remote = httpRequest.getRemoteAddress();
+        String address = remote == null || remote.getAddress() == null ? null : remote.getAddress().getHostAddress();
+        long visitor = ClickAnalytics.visitorOf(address, httpRequest.getHeaders().getFirst(HttpHeaders.USER_AGENT));
+
+        return shortenerService.findByShortUrl(shortcode, visitor)
+                .map(response -> ResponseEntity
+                        .status(HttpStatus.FOUND)
+                        .header(HttpHeaders.LOCATION, response.getUrl())
+                        .build());
+    }
+
+    @GetMapping("/{shortcode}/stats")
+    public Mono<ResponseEntity<ShortenerStatsResponse>> stats(@PathVariable String shortcode,
+                                                             @RequestParam(defaultValue = "60") int minutes) {
+
+        return shortenerService.stats(shortcode, minutes)
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{shortcode}/visitors")
+    public Mono<ResponseEntity<ShortenerVisitorsResponse>> visitors(
+            @PathVariable String shortcode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        return shortenerService.visitors(shortcode, from, to)
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/resolve")
+    public Mono<ResponseEntity<ShortenerResolveResponse>> resolve(@Valid @RequestBody ShortenerResolveRequest request) {
+
+        return shortenerService.resolveAll(request.getCodes())
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<ShortenerResponse>> createShortcode(@Valid @RequestBody ShortenerRequest request,
+                                                                   ServerHttpRequest httpRequest) {
+
+        UriComponentsBuilder location = UriComponentsBuilder
+                .fromUri(httpRequest.getURI())
+                .replaceQuery(null)
+                .path("/{shortcode}");
+
+        return shortenerService.save(request.getUrl(), request.getExpiresAt(), request.getAlias())
+                .map(response -> {
+                    URI uri = location.buildAndExpand(response.getShortCode()).toUri();
+                    response.setShortUrl(uri.toString());
+
+                    return ResponseEntity
+                            .created(uri)
+                            .body(response);
+                });
+    }
+
+}
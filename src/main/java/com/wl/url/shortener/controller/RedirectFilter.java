@@ -0,0 +1,73 @@
+package com.wl.url.shortener.controller;
+
+import com.wl.url.shortener.service.ClickAnalytics;
+import com.wl.url.shortener.service.ShortenerService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.util.Set;
+
+public class RedirectFilter extends OncePerRequestFilter {
+
+    static final String PREFIX = "/api/shortener/";
+    private static final String PATH_PATTERN = PREFIX + "{shortcode}";
+    // controller endpoints under the prefix; left to MVC so a GET on them answers 405, not a lookup miss
+    static final Set<String> RESERVED = Set.of("bulk", "resolve");
+
+    private final ShortenerService shortenerService;
+    private final HandlerExceptionResolver exceptionResolver;
+
+    public RedirectFilter(ShortenerService shortenerService, HandlerExceptionResolver exceptionResolver) {
+        this.shortenerService = shortenerService;
+        this.exceptionResolver = exceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) return true;
+        return shortcodeOf(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        ServerHttpObservationFilter.findObservationContext(request)
+                .ifPresent(context -> context.setPathPattern(PATH_PATTERN));
+
+        String fullUrl;
+        try {
+            long visitor = ClickAnalytics.visitorOf(request.getRemoteAddr(), request.getHeader(HttpHeaders.USER_AGENT));
+            fullUrl = shortenerService.resolveFullUrl(shortcodeOf(request), visitor);
+        } catch (RuntimeException ex) {
+            if (exceptionResolver.resolveException(request, response, null, ex) == null) {
+                throw ex;
+            }
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader(HttpHeaders.LOCATION, fullUrl);
+    }
+
+    static String shortcodeOf(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length() + PREFIX.length();
+        if (uri.length() <= start || !uri.startsWith(PREFIX, start - PREFIX.length())) return null;
+
+        for (int i = start; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == '/' || c == ';' || c == '%') return null;
+        }
+        String shortcode = uri.substring(start);
+        return RESERVED.contains(shortcode) ? null : shortcode;
+    }
+}
@@ -1,54 +1,122 @@
 package com.wl.url.shortener.controller;
 
 import com.wl.url.shortener.dto.request.ShortenerRequest;
+import com.wl.url.shortener.dto.request.ShortenerResolveRequest;
 import com.wl.url.shortener.dto.response.ShortenerFullResponse;
+import com.wl.url.shortener.dto.response.ShortenerResolveResponse;
 import com.wl.url.shortener.dto.response.ShortenerResponse;
+import com.wl.url.shortener.dto.response.ShortenerStatsResponse;
+import com.wl.url.shortener.dto.response.ShortenerVisitorsResponse;
+import com.wl.url.shortener.service.BulkShortenerService;
+import com.wl.url.shortener.service.ClickAnalytics;
 import com.wl.url.shortener.service.ShortenerService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/shortener")
 @RequiredArgsConstructor
+@Profile("!reactive")
 public class ShortenerController {
 
+    // the reserved segments are POST-only endpoints; excluding them here makes a GET on them a 405
+    static final String REDIRECT_PATH = "/{shortcode:(?!bulk$|resolve$)[^/]+}";
+
     private final ShortenerService shortenerService;
+    private final BulkShortenerService bulkShortenerService;
 
-    @GetMapping("/{shortcode}")
-    public ResponseEntity<Void> redirect(@PathVariable String shortcode) {
+    @GetMapping(REDIRECT_PATH)
+    public ResponseEntity<Void> redirect(@PathVariable String shortcode, HttpServletRequest httpRequest) {
 
-        ShortenerFullResponse response = shortenerService.findByShortUrl(shortcode);
+        long visitor = ClickAnalytics.visitorOf(httpRequest.getRemoteAddr(), httpRequest.getHeader(HttpHeaders.USER_AGENT));
+        ShortenerFullResponse response = shortenerService.findByShortUrl(shortcode, visitor);
 
         return ResponseEntity
                 .status(HttpStatus.FOUND)
-                .location(URI.create(response.getUrl()))
+                .header(HttpHeaders.LOCATION, response.getUrl())
                 .build();
     }
 
-    @PostMapping
-    public ResponseEntity<ShortenerResponse> createShortcode(@Valid @RequestBody ShortenerRequest request,
-                                                             HttpServletRequest httpRequest) {
+    @GetMapping("/{shortcode}/stats")
+    public CompletableFuture<ResponseEntity<ShortenerStatsResponse>> stats(@PathVariable String shortcode,
+                                                                          @RequestParam(defaultValue = "60") int minutes) {
 
-        ShortenerResponse response = shortenerService.save(request.getUrl());
+        return shortenerService.stats(shortcode, minutes)
+                .thenApply(ResponseEntity::ok);
+    }
 
-        URI location = ServletUriComponentsBuilder
+    @GetMapping("/{shortcode}/visitors")
+    public CompletableFuture<ResponseEntity<ShortenerVisitorsResponse>> visitors(
+            @PathVariable String shortcode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        return shortenerService.visitors(shortcode, from, to)
+                .thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("/resolve")
+    public ResponseEntity<ShortenerResolveResponse> resolve(@Valid @RequestBody ShortenerResolveRequest request) {
+
+        ShortenerResolveResponse response = shortenerService.resolveAll(request.getCodes());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping
+    public CompletableFuture<ResponseEntity<ShortenerResponse>> createShortcode(@Valid @RequestBody ShortenerRequest request,
+                                                                                HttpServletRequest httpRequest) {
+
+        UriComponentsBuilder location = ServletUriComponentsBuilder
                 .fromRequest(httpRequest)
-                .path("/{shortcode}")
-                .buildAndExpand(response.getShortCode())
-                .toUri();
+                .path("/{shortcode}");
+
+        return shortenerService.saveAsync(request.getUrl(), request.getExpiresAt(), request.getAlias())
+                .thenApply(response -> {
+                    URI uri = location.buildAndExpand(response.getShortCode()).toUri();
+                    response.setShortUrl(uri.toString());
+
+                    return ResponseEntity
+                            .created(uri)
+                            .body(response);
+                });
+    }
+
+    @PostMapping(
+            path = "/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE
+    )
+    public ResponseEntity<StreamingResponseBody> createShortcodes(HttpServletRequest httpRequest) throws IOException {
+
+        boolean ndjson = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(httpRequest.getContentType()));
+        InputStream body = httpRequest.getInputStream();
 
-        response.setShortUrl(location.toString());
+        UriComponentsBuilder shortUrl = ServletUriComponentsBuilder
+                .fromContextPath(httpRequest)
+                .path("/api/shortener/{shortcode}");
 
         return ResponseEntity
-                .created(location)
-                .body(response);
+                .ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> bulkShortenerService.createAll(body, ndjson, shortUrl, out));
     }
 
 }
@@ -1,12 +1,17 @@
 package com.wl.url.shortener.dto.request;
 
+import com.wl.url.shortener.utils.ShortenerUtils;
+import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.validator.constraints.URL;
 
+import java.time.Instant;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -18,4 +23,13 @@ public class ShortenerRequest {
             regexp = "^(https?://).+"
     )
     private String url;
+
+    @Future(message = "expiresAt deve estar no futuro")
+    private Instant expiresAt;
+
+    @Pattern(
+            regexp = ShortenerUtils.ALIAS_PATTERN,
+            message = "alias deve ter de 3 a 64 letras, dígitos, '-' ou '_', com ao menos um '-' ou '_' no meio"
+    )
+    private String alias;
 }
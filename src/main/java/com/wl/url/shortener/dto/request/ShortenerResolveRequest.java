@@ -0,0 +1,21 @@
+package com.wl.url.shortener.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShortenerResolveRequest {
+    @NotEmpty(message = "codes é obrigatório")
+    @Size(max = 100, message = "no máximo 100 codes por requisição")
+    private List<@NotBlank(message = "code não pode ser vazio") String> codes;
+}
@@ -0,0 +1,20 @@
+package com.wl.url.shortener.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkShortenerResponse {
+    private long line;
+    private String url;
+    private String shortCode;
+    private String shortUrl;
+    private String error;
+}
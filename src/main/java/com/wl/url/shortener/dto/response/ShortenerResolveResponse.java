@@ -0,0 +1,18 @@
+package com.wl.url.shortener.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShortenerResolveResponse {
+    private Map<String, String> urls;
+    private List<String> notFound;
+}
@@ -0,0 +1,19 @@
+package com.wl.url.shortener.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShortenerStatsResponse {
+    private String shortCode;
+    private long totalClicks;
+    private Map<Instant, Long> clicksPerMinute;
+}
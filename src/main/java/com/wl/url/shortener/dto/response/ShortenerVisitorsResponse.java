@@ -0,0 +1,21 @@
+package com.wl.url.shortener.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShortenerVisitorsResponse {
+    private String shortCode;
+    private LocalDate from;
+    private LocalDate to;
+    private long uniqueVisitors;
+    private Map<LocalDate, Long> visitorsPerDay;
+}
@@ -0,0 +1,25 @@
+package com.wl.url.shortener.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("shortner_id_lease")
+public class ShortenerIdLease {
+
+    @PrimaryKey
+    @Column("name")
+    private String name;
+
+    @Column("next_id")
+    private long nextId;
+
+}
@@ -9,6 +9,7 @@ import org.springframework.data.cassandra.core.mapping.Column;
 import org.springframework.data.cassandra.core.mapping.PrimaryKey;
 import org.springframework.data.cassandra.core.mapping.Table;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 @Data
@@ -29,4 +30,7 @@ public class ShortenerUrl {
     @Column("created_at")
     private LocalDateTime createdAt;
 
+    @Column("expires_at")
+    private Instant expiresAt;
+
 }
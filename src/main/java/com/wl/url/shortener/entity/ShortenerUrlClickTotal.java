@@ -0,0 +1,27 @@
+package com.wl.url.shortener.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.mapping.CassandraType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("shortner_url_click_total")
+public class ShortenerUrlClickTotal {
+
+    @PrimaryKey
+    @Column("shortcode")
+    private String shortcode;
+
+    @Column("clicks")
+    @CassandraType(type = CassandraType.Name.COUNTER)
+    private long clicks;
+
+}
@@ -0,0 +1,33 @@
+package com.wl.url.shortener.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.CassandraType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("shortner_url_clicks")
+public class ShortenerUrlClicks {
+
+    @PrimaryKeyColumn(name = "shortcode", type = PrimaryKeyType.PARTITIONED)
+    private String shortcode;
+
+    @PrimaryKeyColumn(name = "minute", ordinal = 1, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.DESCENDING)
+    private Instant minute;
+
+    @Column("clicks")
+    @CassandraType(type = CassandraType.Name.COUNTER)
+    private long clicks;
+
+}
@@ -0,0 +1,27 @@
+package com.wl.url.shortener.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.nio.ByteBuffer;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("shortner_url_hash")
+public class ShortenerUrlHash {
+
+    @PrimaryKey
+    @Column("url_hash")
+    private ByteBuffer urlHash;
+
+    @Column("shortcode")
+    private String shortcode;
+
+}
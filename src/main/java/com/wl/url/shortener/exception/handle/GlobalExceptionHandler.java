@@ -1,13 +1,19 @@
 package com.wl.url.shortener.exception.handle;
 
+import com.wl.url.shortener.exception.impl.AliasTakenException;
+import com.wl.url.shortener.exception.impl.BackendBusyException;
+import com.wl.url.shortener.exception.impl.InvalidExpiryException;
+import com.wl.url.shortener.exception.impl.InvalidUrlException;
 import com.wl.url.shortener.exception.impl.NotFoundException;
 import com.wl.url.shortener.exception.impl.RateLimitExceededException;
 import com.wl.url.shortener.exception.model.ApiErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -17,6 +23,7 @@ import java.util.stream.Collectors;
 
 @Slf4j
 @RestControllerAdvice
+@Profile("!reactive")
 public class GlobalExceptionHandler {
     @ExceptionHandler(NotFoundException.class)
     public ResponseEntity<ApiErrorResponse> handleNotFound(
@@ -26,6 +33,30 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.NOT_FOUND, ex, request);
     }
 
+    @ExceptionHandler(InvalidUrlException.class)
+    public ResponseEntity<ApiErrorResponse> handleInvalidUrl(
+            InvalidUrlException ex,
+            HttpServletRequest request
+    ) {
+        return build(HttpStatus.BAD_REQUEST, ex, request);
+    }
+
+    @ExceptionHandler(InvalidExpiryException.class)
+    public ResponseEntity<ApiErrorResponse> handleInvalidExpiry(
+            InvalidExpiryException ex,
+            HttpServletRequest request
+    ) {
+        return build(HttpStatus.BAD_REQUEST, ex, request);
+    }
+
+    @ExceptionHandler(AliasTakenException.class)
+    public ResponseEntity<ApiErrorResponse> handleAliasTaken(
+            AliasTakenException ex,
+            HttpServletRequest request
+    ) {
+        return build(HttpStatus.CONFLICT, ex, request);
+    }
+
     @ExceptionHandler(RateLimitExceededException.class)
     public ResponseEntity<ApiErrorResponse> handleRateLimit(
             RateLimitExceededException ex,
@@ -34,6 +65,24 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.TOO_MANY_REQUESTS, ex, request);
     }
 
+    @ExceptionHandler(BackendBusyException.class)
+    public ResponseEntity<ApiErrorResponse> handleBackendBusy(
+            BackendBusyException ex,
+            HttpServletRequest request
+    ) {
+        return build(HttpStatus.SERVICE_UNAVAILABLE, ex, request);
+    }
+
+    // otherwise the generic handler below would turn it into a 500
+    @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
+    public ResponseEntity<ApiErrorResponse> handleMethodNotAllowed(
+            HttpRequestMethodNotSupportedException ex,
+            HttpServletRequest request
+    ) {
+        ResponseEntity<ApiErrorResponse> response = build(HttpStatus.METHOD_NOT_ALLOWED, ex, request);
+        return ResponseEntity.status(response.getStatusCode()).headers(ex.getHeaders()).body(response.getBody());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiErrorResponse> handleGeneric(
             Exception ex,
@@ -0,0 +1,139 @@
+package com.wl.url.shortener.exception.handle;
+
+import com.wl.url.shortener.exception.impl.AliasTakenException;
+import com.wl.url.shortener.exception.impl.BackendBusyException;
+import com.wl.url.shortener.exception.impl.InvalidExpiryException;
+import com.wl.url.shortener.exception.impl.InvalidUrlException;
+import com.wl.url.shortener.exception.impl.NotFoundException;
+import com.wl.url.shortener.exception.impl.RateLimitExceededException;
+import com.wl.url.shortener.exception.model.ApiErrorResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.MethodNotAllowedException;
+
+import java.time.Instant;
+import java.util.stream.Collectors;
+
+@Slf4j
+@RestControllerAdvice
+@Profile("reactive")
+public class ReactiveGlobalExceptionHandler {
+    @ExceptionHandler(NotFoundException.class)
+    public ResponseEntity<ApiErrorResponse> handleNotFound(
+            NotFoundException ex,
+            ServerHttpRequest request
+    ) {
+        return build(HttpStatus.NOT_FOUND, ex, request);
+    }
+
+    @ExceptionHandler(InvalidUrlException.class)
+    public ResponseEntity<ApiErrorResponse> handleInvalidUrl(
+            InvalidUrlException ex,
+            ServerHttpRequest request
+    ) {
+        return build(HttpStatus.BAD_REQUEST, ex, request);
+    }
+
+    @ExceptionHandler(InvalidExpiryException.class)
+    public ResponseEntity<ApiErrorResponse> handleInvalidExpiry(
+            InvalidExpiryException ex,
+            ServerHttpRequest request
+    ) {
+        return build(HttpStatus.BAD_REQUEST, ex, request);
+    }
+
+    @ExceptionHandler(AliasTakenException.class)
+    public ResponseEntity<ApiErrorResponse> handleAliasTaken(
+            AliasTakenException ex,
+            ServerHttpRequest request
+    ) {
+        return build(HttpStatus.CONFLICT, ex, request);
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ApiErrorResponse> handleRateLimit(
+            RateLimitExceededException ex,
+            ServerHttpRequest request
+    ) {
+        return build(HttpStatus.TOO_MANY_REQUESTS, ex, request);
+    }
+
+    @ExceptionHandler(BackendBusyException.class)
+    public ResponseEntity<ApiErrorResponse> handleBackendBusy(
+            BackendBusyException ex,
+            ServerHttpRequest request
+    ) {
+        return build(HttpStatus.SERVICE_UNAVAILABLE, ex, request);
+    }
+
+    // otherwise the generic handler below would turn it into a 500
+    @ExceptionHandler(MethodNotAllowedException.class)
+    public ResponseEntity<ApiErrorResponse> handleMethodNotAllowed(
+            MethodNotAllowedException ex,
+            ServerHttpRequest request
+    ) {
+        ResponseEntity<ApiErrorResponse> response = build(HttpStatus.METHOD_NOT_ALLOWED, ex, request);
+        return ResponseEntity.status(response.getStatusCode()).headers(ex.getHeaders()).body(response.getBody());
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ApiErrorResponse> handleGeneric(
+            Exception ex,
+            ServerHttpRequest request
+    ) {
+        return build(HttpStatus.INTERNAL_SERVER_ERROR, ex, request);
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<ApiErrorResponse> handleValidation(
+            WebExchangeBindException ex,
+            ServerHttpRequest request
+    ) {
+        String message = ex.getBindingResult()
+                .getFieldErrors()
+                .stream()
+                .map(this::formatFieldError)
+                .distinct()
+                .collect(Collectors.joining("; "));
+
+        if (message.isBlank()) {
+            message = "Validation failed";
+        }
+
+        log.warn("Validation error: {}", message);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body(HttpStatus.BAD_REQUEST, message, request));
+    }
+
+    private String formatFieldError(FieldError fe) {
+        String msg = fe.getDefaultMessage();
+        if (msg == null || msg.isBlank()) msg = "invalid";
+        return msg;
+    }
+
+    private ResponseEntity<ApiErrorResponse> build(
+            HttpStatus status,
+            Exception ex,
+            ServerHttpRequest request
+    ) {
+        log.error("Error: {}", ex.getMessage(), ex);
+        return ResponseEntity.status(status).body(body(status, ex.getMessage(), request));
+    }
+
+    private ApiErrorResponse body(HttpStatus status, String message, ServerHttpRequest request) {
+        return new ApiErrorResponse(
+                Instant.now(),
+                status.value(),
+                status.getReasonPhrase(),
+                message,
+                request.getPath().value()
+        );
+    }
+
+}
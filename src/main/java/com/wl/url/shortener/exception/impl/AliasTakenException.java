@@ -0,0 +1,7 @@
+package com.wl.url.shortener.exception.impl;
+
+public class AliasTakenException extends RuntimeException {
+    public AliasTakenException(String message) {
+        super(message);
+    }
+}
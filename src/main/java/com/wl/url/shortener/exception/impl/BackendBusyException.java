@@ -0,0 +1,7 @@
+package com.wl.url.shortener.exception.impl;
+
+public class BackendBusyException extends RuntimeException {
+    public BackendBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.wl.url.shortener.exception.impl;
+
+public class InvalidExpiryException extends RuntimeException {
+    public InvalidExpiryException(String message) {
+        super(message);
+    }
+}
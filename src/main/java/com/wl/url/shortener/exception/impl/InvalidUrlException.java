@@ -0,0 +1,7 @@
+package com.wl.url.shortener.exception.impl;
+
+public class InvalidUrlException extends RuntimeException {
+    public InvalidUrlException(String message) {
+        super(message);
+    }
+}
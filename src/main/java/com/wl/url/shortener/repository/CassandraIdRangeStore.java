@@ -0,0 +1,71 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.DefaultConsistencyLevel;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.wl.url.shortener.utils.LeasedShortCodeGenerator;
+
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
+
+public class CassandraIdRangeStore implements LeasedShortCodeGenerator.IdRangeStore {
+
+    static final String COUNTER = "shortcode";
+    static final String SELECT_CQL = "SELECT next_id FROM shortner_id_lease WHERE name = ?";
+    static final String INSERT_CQL = "INSERT INTO shortner_id_lease (name, next_id) VALUES (?, ?) IF NOT EXISTS";
+    static final String ADVANCE_CQL = "UPDATE shortner_id_lease SET next_id = ? WHERE name = ? IF next_id = ?";
+
+    private static final int MAX_ATTEMPTS = 32;
+
+    private final PreparedStatements statements;
+    private final LongSupplier initialValue;
+
+    public CassandraIdRangeStore(CqlSession session, LongSupplier initialValue) {
+        this.statements = new PreparedStatements(session);
+        this.initialValue = initialValue;
+    }
+
+    @Override
+    public long reserve(long size) {
+        Counter current = execute(statements.get(SELECT_CQL).bind(COUNTER)
+                .setConsistencyLevel(DefaultConsistencyLevel.SERIAL)
+                .setIdempotent(true));
+
+        // retrying an LWT that already applied only wastes a block: the retry sees the new value and does not apply
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Counter outcome;
+            long end;
+            if (current.nextId() == null) {
+                end = initialValue.getAsLong() + size;
+                outcome = execute(statements.get(INSERT_CQL).bind(COUNTER, end).setIdempotent(true));
+            } else {
+                end = current.nextId() + size;
+                outcome = execute(statements.get(ADVANCE_CQL).bind(end, COUNTER, current.nextId()).setIdempotent(true));
+            }
+            if (outcome.applied()) {
+                return end;
+            }
+            current = outcome;
+        }
+        throw new IllegalStateException("Could not lease a shortcode id block");
+    }
+
+    private Counter execute(Statement<?> statement) {
+        try {
+            return statements.execute(() -> statement, rs -> {
+                Row row = rs.one();
+                boolean present = row != null && row.getColumnDefinitions().contains("next_id") && !row.isNull("next_id");
+                return new Counter(rs.wasApplied(), present ? row.getLong("next_id") : null);
+            }).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private record Counter(boolean applied, Long nextId) {
+    }
+}
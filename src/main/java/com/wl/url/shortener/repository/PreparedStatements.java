@@ -0,0 +1,76 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.cassandra.core.cql.CassandraExceptionTranslator;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// prepared once every singleton exists, so the schema action has created the tables and no request
+// thread (possibly a reactive event loop) pays for a blocking prepare; get() still prepares lazily
+// whatever could not be prepared at startup
+@Slf4j
+final class PreparedStatements {
+
+    private final CqlSession session;
+    private final CassandraExceptionTranslator translator = new CassandraExceptionTranslator();
+    private final Map<String, PreparedStatement> prepared = new ConcurrentHashMap<>();
+
+    PreparedStatements(CqlSession session) {
+        this.session = session;
+    }
+
+    void prepareAll(String... cqls) {
+        for (String cql : cqls) {
+            try {
+                get(cql);
+            } catch (RuntimeException ex) {
+                log.warn("Could not prepare \"{}\" at startup, will retry on first use: {}", cql, ex.getMessage());
+            }
+        }
+    }
+
+    PreparedStatement get(String cql) {
+        return prepared.computeIfAbsent(cql, session::prepare);
+    }
+
+    <T> CompletableFuture<T> execute(Supplier<? extends Statement<?>> statement, Function<AsyncResultSet, T> mapper) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            session.executeAsync(statement.get()).whenComplete((rs, ex) -> {
+                if (ex != null) {
+                    result.completeExceptionally(translate(ex));
+                    return;
+                }
+                try {
+                    result.complete(mapper.apply(rs));
+                } catch (RuntimeException mapping) {
+                    result.completeExceptionally(translate(mapping));
+                }
+            });
+        } catch (RuntimeException ex) {
+            result.completeExceptionally(translate(ex));
+        }
+        return result;
+    }
+
+    Throwable translate(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof RuntimeException runtime) {
+            DataAccessException translated = translator.translateExceptionIfPossible(runtime);
+            if (translated != null) {
+                return translated;
+            }
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,74 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.wl.url.shortener.entity.ShortenerUrl;
+import com.wl.url.shortener.exception.impl.RateLimitExceededException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+@Repository
+public class ShortenerUrlAliasWriter implements SmartInitializingSingleton {
+
+    static final String INSERT_CQL =
+            "INSERT INTO shortner_url (shortcode, full_url, created_at, expires_at) VALUES (?, ?, ?, ?) "
+                    + "IF NOT EXISTS USING TTL ?";
+
+    private final PreparedStatements statements;
+    private final Semaphore inFlight;
+    private final Clock clock;
+
+    public ShortenerUrlAliasWriter(CqlSession session,
+                                   @Value("${shortener.alias.max-in-flight:64}") int maxInFlight) {
+        this(session, maxInFlight, Clock.systemUTC());
+    }
+
+    ShortenerUrlAliasWriter(CqlSession session, int maxInFlight, Clock clock) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be > 0");
+        }
+        this.statements = new PreparedStatements(session);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.clock = clock;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        statements.prepareAll(INSERT_CQL);
+    }
+
+    public CompletableFuture<Boolean> insertIfAbsent(ShortenerUrl entity) {
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new RateLimitExceededException("Too many pending alias writes"));
+        }
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Instant now = clock.instant();
+        // not idempotent: retrying an IF NOT EXISTS that already applied would tell its own owner "already exists"
+        statements.execute(() -> statements.get(INSERT_CQL)
+                                .bind(entity.getShortcode(), entity.getFullUrl(), now, entity.getExpiresAt(),
+                                        ShortenerUrlWriter.ttlSeconds(entity.getExpiresAt(), now))
+                                .setIdempotent(false),
+                        AsyncResultSet::wasApplied)
+                .whenComplete((applied, ex) -> {
+                    inFlight.release();
+                    if (ex == null) {
+                        result.complete(applied);
+                    } else {
+                        result.completeExceptionally(ex);
+                    }
+                });
+        return result;
+    }
+
+    int availableSlots() {
+        return inFlight.availablePermits();
+    }
+}
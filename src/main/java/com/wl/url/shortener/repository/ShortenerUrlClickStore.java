@@ -0,0 +1,164 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.*;
+import com.wl.url.shortener.entity.ShortenerUrlClicks;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Repository
+public class ShortenerUrlClickStore implements SmartInitializingSingleton {
+
+    static final String INCREMENT_MINUTE_CQL =
+            "UPDATE shortner_url_clicks SET clicks = clicks + ? WHERE shortcode = ? AND minute = ?";
+    static final String INCREMENT_TOTAL_CQL =
+            "UPDATE shortner_url_click_total SET clicks = clicks + ? WHERE shortcode = ?";
+    static final String SELECT_MINUTES_CQL =
+            "SELECT minute, clicks FROM shortner_url_clicks WHERE shortcode = ? AND minute >= ?";
+    static final String SELECT_TOTAL_CQL =
+            "SELECT clicks FROM shortner_url_click_total WHERE shortcode = ?";
+
+    private final PreparedStatements statements;
+    private final int maxBatchSize;
+    private final Semaphore inFlight;
+
+    private final Queue<PendingIncrement> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pumps = new AtomicInteger();
+
+    public ShortenerUrlClickStore(CqlSession session,
+                                  @Value("${shortener.analytics.max-batch-size:32}") int maxBatchSize,
+                                  @Value("${shortener.analytics.max-in-flight:64}") int maxInFlight) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be >= 1");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be >= 1");
+        }
+        this.statements = new PreparedStatements(session);
+        this.maxBatchSize = maxBatchSize;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        statements.prepareAll(INCREMENT_MINUTE_CQL, INCREMENT_TOTAL_CQL, SELECT_MINUTES_CQL, SELECT_TOTAL_CQL);
+    }
+
+    // counter increments are not idempotent: no retries or speculation, and batches stay inside one partition.
+    // Statements wait in a queue and at most maxInFlight of them are sent at a time, so a large flush
+    // cannot flood the cluster; they are never dropped, since the clicks would be lost for good
+    public CompletableFuture<Void> increment(List<ShortenerUrlClicks> counts) {
+        Map<String, List<ShortenerUrlClicks>> byCode = new LinkedHashMap<>();
+        for (ShortenerUrlClicks count : counts) {
+            byCode.computeIfAbsent(count.getShortcode(), code -> new ArrayList<>(1)).add(count);
+        }
+
+        List<CompletableFuture<Void>> sent = new ArrayList<>(byCode.size() * 2);
+        try {
+            PreparedStatement minute = statements.get(INCREMENT_MINUTE_CQL);
+            PreparedStatement total = statements.get(INCREMENT_TOTAL_CQL);
+
+            byCode.forEach((code, minutes) -> {
+                long sum = 0;
+                for (ShortenerUrlClicks count : minutes) {
+                    sum += count.getClicks();
+                }
+                for (int from = 0; from < minutes.size(); from += maxBatchSize) {
+                    List<ShortenerUrlClicks> chunk = minutes.subList(from, Math.min(minutes.size(), from + maxBatchSize));
+                    if (chunk.size() == 1) {
+                        ShortenerUrlClicks count = chunk.get(0);
+                        sent.add(submit(minute.bind(count.getClicks(), code, count.getMinute()).setIdempotent(false)));
+                    } else {
+                        BatchStatementBuilder batch = BatchStatement.builder(DefaultBatchType.COUNTER).setIdempotence(false);
+                        for (ShortenerUrlClicks count : chunk) {
+                            batch.addStatement(minute.bind(count.getClicks(), code, count.getMinute()));
+                        }
+                        sent.add(submit(batch.build()));
+                    }
+                }
+                sent.add(submit(total.bind(sum, code).setIdempotent(false)));
+            });
+        } catch (RuntimeException ex) {
+            sent.add(CompletableFuture.failedFuture(statements.translate(ex)));
+        }
+        return CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new));
+    }
+
+    public CompletableFuture<Long> findTotal(String shortCode) {
+        return statements.execute(() -> statements.get(SELECT_TOTAL_CQL).bind(shortCode).setIdempotent(true), rs -> {
+            Row row = rs.one();
+            return row == null ? 0L : row.getLong(0);
+        });
+    }
+
+    public CompletableFuture<List<ShortenerUrlClicks>> findSince(String shortCode, Instant from) {
+        return statements.execute(() -> statements.get(SELECT_MINUTES_CQL).bind(shortCode, from).setIdempotent(true), rs -> {
+            List<ShortenerUrlClicks> minutes = new ArrayList<>(rs.remaining());
+            for (Row row : rs.currentPage()) {
+                minutes.add(ShortenerUrlClicks.builder()
+                        .shortcode(shortCode)
+                        .minute(row.getInstant(0))
+                        .clicks(row.getLong(1))
+                        .build());
+            }
+            return minutes;
+        });
+    }
+
+    int availableSlots() {
+        return inFlight.availablePermits();
+    }
+
+    private CompletableFuture<Void> submit(Statement<?> statement) {
+        PendingIncrement pending = new PendingIncrement(statement, new CompletableFuture<>());
+        waiting.add(pending);
+        pump();
+        return pending.result();
+    }
+
+    // one thread sends at a time; a call that finds another one sending only makes it loop again,
+    // so completions that arrive on the sending thread do not recurse
+    private void pump() {
+        if (pumps.getAndIncrement() != 0) return;
+
+        int missed = 1;
+        do {
+            while (!waiting.isEmpty() && inFlight.tryAcquire()) {
+                PendingIncrement pending = waiting.poll();
+                if (pending == null) {
+                    inFlight.release();
+                    break;
+                }
+                send(pending);
+            }
+            missed = pumps.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void send(PendingIncrement pending) {
+        statements.execute(pending::statement, rs -> null).whenComplete((ignored, ex) -> {
+            inFlight.release();
+            if (ex == null) {
+                pending.result().complete(null);
+            } else {
+                pending.result().completeExceptionally(ex);
+            }
+            pump();
+        });
+    }
+
+    private record PendingIncrement(Statement<?> statement, CompletableFuture<Void> result) {
+    }
+}
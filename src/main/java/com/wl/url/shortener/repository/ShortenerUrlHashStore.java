@@ -0,0 +1,40 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+@Repository
+public class ShortenerUrlHashStore implements SmartInitializingSingleton {
+
+    static final String SELECT_CQL = "SELECT shortcode FROM shortner_url_hash WHERE url_hash = ?";
+    static final String INSERT_CQL = "INSERT INTO shortner_url_hash (url_hash, shortcode) VALUES (?, ?)";
+
+    private final PreparedStatements statements;
+
+    public ShortenerUrlHashStore(CqlSession session) {
+        this.statements = new PreparedStatements(session);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        statements.prepareAll(SELECT_CQL, INSERT_CQL);
+    }
+
+    public CompletableFuture<Optional<String>> findShortCode(ByteBuffer urlHash) {
+        return statements.execute(() -> statements.get(SELECT_CQL).bind(urlHash).setIdempotent(true), rs -> {
+            Row row = rs.one();
+            return Optional.ofNullable(row).map(r -> r.getString(0));
+        });
+    }
+
+    public CompletableFuture<Void> save(ByteBuffer urlHash, String shortCode) {
+        return statements.execute(() -> statements.get(INSERT_CQL).bind(urlHash, shortCode).setIdempotent(true),
+                rs -> null);
+    }
+}
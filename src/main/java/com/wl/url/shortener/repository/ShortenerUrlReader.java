@@ -0,0 +1,106 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.NodeState;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodecs;
+import com.wl.url.shortener.entity.ShortenerUrl;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Repository
+public class ShortenerUrlReader implements SmartInitializingSingleton {
+
+    static final String SELECT_CQL = "SELECT full_url, expires_at FROM shortner_url WHERE shortcode = ?";
+
+    private static final Comparator<Node> BY_HOST_ID =
+            Comparator.comparing(Node::getHostId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final CqlSession session;
+    private final PreparedStatements statements;
+
+    private volatile SortedReplicas sortedReplicas;
+
+    public ShortenerUrlReader(CqlSession session) {
+        this.session = session;
+        this.statements = new PreparedStatements(session);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        statements.prepareAll(SELECT_CQL);
+    }
+
+    public CompletableFuture<Optional<String>> findFullUrl(String shortCode) {
+        return findUrl(shortCode).thenApply(found -> found.map(ShortenerUrl::getFullUrl));
+    }
+
+    public CompletableFuture<Optional<ShortenerUrl>> findUrl(String shortCode) {
+        return statements.execute(() -> statements.get(SELECT_CQL).bind(shortCode).setIdempotent(true),
+                rs -> toUrl(shortCode, rs));
+    }
+
+    public CompletableFuture<Optional<ShortenerUrl>> findUrl(String shortCode, int attempt) {
+        Node node = replica(shortCode, attempt);
+        if (node == null) return findUrl(shortCode);
+
+        return statements.execute(() -> statements.get(SELECT_CQL).bind(shortCode).setIdempotent(true).setNode(node),
+                rs -> toUrl(shortCode, rs));
+    }
+
+    // fixed order per code: attempt n for a code always goes to the same live replica
+    private Node replica(String shortCode, int attempt) {
+        Optional<CqlIdentifier> keyspace = session.getKeyspace();
+        Optional<TokenMap> tokenMap = session.getMetadata().getTokenMap();
+        if (keyspace.isEmpty() || tokenMap.isEmpty()) return null;
+
+        ByteBuffer key = TypeCodecs.TEXT.encode(shortCode, session.getContext().getProtocolVersion());
+        Node[] replicas = sorted(tokenMap.get(), tokenMap.get().getReplicas(keyspace.get(), key));
+
+        int up = 0;
+        for (Node node : replicas) {
+            if (node.getState() == NodeState.UP) up++;
+        }
+        if (up < 2) return null;
+
+        int pick = Math.floorMod(shortCode.hashCode() + attempt, up);
+        for (Node node : replicas) {
+            if (node.getState() == NodeState.UP && pick-- == 0) return node;
+        }
+        return null;
+    }
+
+    private Node[] sorted(TokenMap tokenMap, Set<Node> replicas) {
+        SortedReplicas cache = sortedReplicas;
+        if (cache == null || cache.tokenMap() != tokenMap) {
+            cache = new SortedReplicas(tokenMap, new ConcurrentHashMap<>());
+            sortedReplicas = cache;
+        }
+        return cache.byReplicaSet().computeIfAbsent(replicas,
+                set -> set.stream().sorted(BY_HOST_ID).toArray(Node[]::new));
+    }
+
+    private static Optional<ShortenerUrl> toUrl(String shortCode, AsyncResultSet rs) {
+        Row row = rs.one();
+        return Optional.ofNullable(row).map(r -> ShortenerUrl.builder()
+                .shortcode(shortCode)
+                .fullUrl(r.getString(0))
+                .expiresAt(r.getInstant(1))
+                .build());
+    }
+
+    private record SortedReplicas(TokenMap tokenMap, Map<Set<Node>, Node[]> byReplicaSet) {
+    }
+}
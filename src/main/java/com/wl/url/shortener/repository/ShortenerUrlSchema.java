@@ -0,0 +1,74 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// manual migration; enable it on a single node, not on the whole fleet
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "shortener.schema", name = "manage", havingValue = "true")
+public class ShortenerUrlSchema implements SmartInitializingSingleton {
+
+    static final String TABLE = "shortner_url";
+
+    private static final CqlIdentifier COMPACTION = CqlIdentifier.fromCql("compaction");
+    private static final CqlIdentifier GC_GRACE = CqlIdentifier.fromCql("gc_grace_seconds");
+
+    private final CqlSession session;
+    private final Duration gcGrace;
+
+    public ShortenerUrlSchema(CqlSession session,
+                              @Value("${shortener.schema.gc-grace:3d}") Duration gcGrace) {
+        this.session = session;
+        this.gcGrace = gcGrace;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Optional<TableMetadata> table = session.getKeyspace()
+                .flatMap(keyspace -> session.getMetadata().getKeyspace(keyspace))
+                .flatMap(keyspace -> keyspace.getTable(TABLE));
+        if (table.isEmpty()) {
+            log.warn("Table {} not found in session metadata, skipping schema tuning", TABLE);
+            return;
+        }
+
+        for (String statement : pendingChanges(table.get(), gcGrace)) {
+            log.info("Applying schema change: {}", statement);
+            session.execute(statement);
+        }
+    }
+
+    static List<String> pendingChanges(TableMetadata table, Duration gcGrace) {
+        List<String> statements = new ArrayList<>();
+        if (table.getColumn("expires_at").isEmpty()) {
+            statements.add("ALTER TABLE " + TABLE + " ADD expires_at timestamp");
+        }
+
+        Map<CqlIdentifier, Object> options = table.getOptions();
+        boolean leveled = options.get(COMPACTION) instanceof Map<?, ?> compaction
+                && String.valueOf(compaction.get("class")).endsWith("LeveledCompactionStrategy")
+                && "true".equals(String.valueOf(compaction.get("unchecked_tombstone_compaction")));
+        boolean graceMatches = options.get(GC_GRACE) instanceof Number grace && grace.longValue() == gcGrace.toSeconds();
+        if (!leveled || !graceMatches) {
+            statements.add("ALTER TABLE " + TABLE + " WITH compaction = {"
+                    + "'class': 'LeveledCompactionStrategy', "
+                    + "'unchecked_tombstone_compaction': 'true', "
+                    + "'tombstone_threshold': '0.2'} "
+                    + "AND gc_grace_seconds = " + gcGrace.toSeconds());
+        }
+        return statements;
+    }
+}
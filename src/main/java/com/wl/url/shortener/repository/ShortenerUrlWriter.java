@@ -0,0 +1,216 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.*;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.wl.url.shortener.entity.ShortenerUrl;
+import com.wl.url.shortener.exception.impl.RateLimitExceededException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Repository
+public class ShortenerUrlWriter implements SmartInitializingSingleton {
+
+    // TTL 0 = never expires
+    static final String INSERT_CQL =
+            "INSERT INTO shortner_url (shortcode, full_url, created_at, expires_at) VALUES (?, ?, ?, ?) USING TTL ?";
+
+    public static final Duration MAX_TTL = Duration.ofSeconds(630_720_000);
+
+    private static final Object UNKNOWN_REPLICAS = new Object();
+
+    private static final int NO_FLUSH = 0;
+    private static final int LINGER_FLUSH = 1;
+    private static final int IMMEDIATE_FLUSH = 2;
+
+    private final CqlSession session;
+    private final TaskScheduler scheduler;
+    private final Semaphore inFlight;
+    private final boolean batching;
+    private final int maxBatchSize;
+    private final Duration linger;
+    private final Clock clock;
+    private final PreparedStatements statements;
+
+    private final Queue<PendingInsert> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger flushScheduled = new AtomicInteger(NO_FLUSH);
+
+    public ShortenerUrlWriter(CqlSession session,
+                              @Value("${shortener.write.max-in-flight:1024}") int maxInFlight,
+                              @Value("${shortener.write.batching.enabled:false}") boolean batching,
+                              @Value("${shortener.write.batching.max-size:16}") int maxBatchSize,
+                              @Value("${shortener.write.batching.linger:2ms}") Duration linger) {
+        this(session, batching ? flushScheduler() : null, maxInFlight, batching, maxBatchSize, linger,
+                Clock.systemUTC());
+    }
+
+    ShortenerUrlWriter(CqlSession session,
+                       TaskScheduler scheduler,
+                       int maxInFlight,
+                       boolean batching,
+                       int maxBatchSize,
+                       Duration linger,
+                       Clock clock) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be > 0");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be > 0");
+        }
+        this.session = session;
+        this.statements = new PreparedStatements(session);
+        this.scheduler = scheduler;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.batching = batching;
+        this.maxBatchSize = maxBatchSize;
+        this.linger = linger;
+        this.clock = clock;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        statements.prepareAll(INSERT_CQL);
+    }
+
+    public CompletableFuture<Void> insert(ShortenerUrl entity) {
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new RateLimitExceededException("Too many pending shortcode writes"));
+        }
+
+        CompletableFuture<Void> result;
+        try {
+            Instant now = clock.instant();
+            BoundStatement statement = statements.get(INSERT_CQL)
+                    .bind(entity.getShortcode(), entity.getFullUrl(), now, entity.getExpiresAt(),
+                            ttlSeconds(entity.getExpiresAt(), now))
+                    .setIdempotent(true);
+            result = batching ? enqueue(statement) : execute(statement);
+        } catch (RuntimeException ex) {
+            result = CompletableFuture.failedFuture(statements.translate(ex));
+        }
+
+        result.whenComplete((ignored, ex) -> inFlight.release());
+        return result;
+    }
+
+    // rounded up: the row never disappears before the expiresAt the caches use as their upper bound
+    static int ttlSeconds(Instant expiresAt, Instant now) {
+        if (expiresAt == null) return 0;
+        long millis = Duration.between(now, expiresAt).toMillis();
+        return (int) Math.max(1, Math.min(MAX_TTL.toSeconds(), (millis + 999) / 1000));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler instanceof ThreadPoolTaskScheduler own) {
+            own.shutdown();
+            flush();
+        }
+    }
+
+    int availableSlots() {
+        return inFlight.availablePermits();
+    }
+
+    void flush() {
+        flushScheduled.set(NO_FLUSH);
+
+        Map<Object, List<PendingInsert>> byReplicas = new HashMap<>();
+        PendingInsert pending;
+        while ((pending = queue.poll()) != null) {
+            queued.decrementAndGet();
+            byReplicas.computeIfAbsent(replicasOf(pending.statement()), key -> new ArrayList<>()).add(pending);
+        }
+
+        for (List<PendingInsert> group : byReplicas.values()) {
+            for (int from = 0; from < group.size(); from += maxBatchSize) {
+                send(group.subList(from, Math.min(group.size(), from + maxBatchSize)));
+            }
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(BoundStatement statement) {
+        PendingInsert pending = new PendingInsert(statement, new CompletableFuture<>());
+        queue.add(pending);
+
+        // a full batch upgrades a pending linger flush to an immediate one; until that flush runs,
+        // further enqueues schedule nothing
+        if (queued.incrementAndGet() >= maxBatchSize) {
+            if (flushScheduled.getAndSet(IMMEDIATE_FLUSH) != IMMEDIATE_FLUSH) {
+                scheduler.schedule(this::flush, clock.instant());
+            }
+        } else if (flushScheduled.compareAndSet(NO_FLUSH, LINGER_FLUSH)) {
+            scheduler.schedule(this::flush, clock.instant().plus(linger));
+        }
+        return pending.result();
+    }
+
+    private void send(List<PendingInsert> group) {
+        Statement<?> statement;
+        if (group.size() == 1) {
+            statement = group.get(0).statement();
+        } else {
+            // the whole group lives on the same replicas, so the UNLOGGED batch causes no coordinator fan-out
+            BatchStatementBuilder batch = BatchStatement.builder(DefaultBatchType.UNLOGGED).setIdempotence(true);
+            for (PendingInsert pending : group) {
+                batch.addStatement(pending.statement());
+            }
+            statement = batch.build();
+        }
+
+        execute(statement).whenComplete((ignored, ex) -> {
+            for (PendingInsert pending : group) {
+                if (ex == null) {
+                    pending.result().complete(null);
+                } else {
+                    pending.result().completeExceptionally(ex);
+                }
+            }
+        });
+    }
+
+    private CompletableFuture<Void> execute(Statement<?> statement) {
+        return statements.execute(() -> statement, rs -> null);
+    }
+
+    private Object replicasOf(BoundStatement statement) {
+        ByteBuffer routingKey = statement.getRoutingKey();
+        CqlIdentifier keyspace = statement.getRoutingKeyspace() != null
+                ? statement.getRoutingKeyspace()
+                : session.getKeyspace().orElse(null);
+        Optional<TokenMap> tokenMap = session.getMetadata().getTokenMap();
+
+        if (routingKey == null || keyspace == null || tokenMap.isEmpty()) {
+            return UNKNOWN_REPLICAS;
+        }
+        return tokenMap.get().getReplicas(keyspace, routingKey);
+    }
+
+    private static ThreadPoolTaskScheduler flushScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("write-batch-flush-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    private record PendingInsert(BoundStatement statement, CompletableFuture<Void> result) {
+    }
+}
@@ -0,0 +1,367 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.dto.request.ShortenerRequest;
+import com.wl.url.shortener.dto.response.BulkShortenerResponse;
+import com.wl.url.shortener.exception.impl.BackendBusyException;
+import com.wl.url.shortener.exception.impl.InvalidExpiryException;
+import com.wl.url.shortener.exception.impl.InvalidUrlException;
+import com.wl.url.shortener.exception.impl.RateLimitExceededException;
+import com.wl.url.shortener.utils.ShortCodeSource;
+import com.wl.url.shortener.utils.UrlCanonicalizer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class BulkShortenerService {
+
+    // per-item errors are part of the API: clients match on them, so driver messages never leak through
+    static final String RATE_LIMITED = "rate limit exceeded, retry later";
+    static final String BACKEND_BUSY = "backend busy, retry later";
+    static final String STORAGE_FAILED = "storage error, retry later";
+    static final String INTERNAL_ERROR = "internal error";
+
+    private static final long DRAIN_INTERVAL_MS = 10;
+
+    private final ShortCodeSource generator;
+    private final ShortCodeCreationService creationService;
+    private final Validator validator;
+    private final ObjectMapper mapper;
+    private final int parallelism;
+    private final int blockSize;
+    private final Clock clock;
+
+    public BulkShortenerService(ShortCodeSource generator,
+                                ShortCodeCreationService creationService,
+                                Validator validator,
+                                ObjectMapper mapper,
+                                @Value("${shortener.bulk.parallelism:64}") int parallelism,
+                                @Value("${shortener.bulk.block-size:256}") int blockSize) {
+        this(generator, creationService, validator, mapper, parallelism, blockSize, Clock.systemUTC());
+    }
+
+    BulkShortenerService(ShortCodeSource generator,
+                         ShortCodeCreationService creationService,
+                         Validator validator,
+                         ObjectMapper mapper,
+                         int parallelism,
+                         int blockSize,
+                         Clock clock) {
+        if (parallelism <= 0 || blockSize <= 0) {
+            throw new IllegalArgumentException("parallelism and blockSize must be > 0");
+        }
+        this.generator = generator;
+        this.creationService = creationService;
+        this.validator = validator;
+        this.mapper = mapper;
+        this.parallelism = parallelism;
+        this.blockSize = blockSize;
+        this.clock = clock;
+    }
+
+    public void createAll(InputStream body,
+                          boolean ndjson,
+                          UriComponentsBuilder shortUrl,
+                          OutputStream out) throws IOException {
+
+        BulkRun run = new BulkRun(shortUrl, out);
+        List<BulkItem> chunk = new ArrayList<>(blockSize);
+
+        try (BulkReader reader = ndjson ? new NdjsonReader(body) : new JsonArrayReader(body)) {
+            BulkItem item;
+            while ((item = reader.next()) != null) {
+                chunk.add(item);
+                if (chunk.size() == blockSize) {
+                    run.submit(chunk);
+                    chunk.clear();
+                }
+            }
+        }
+        run.submit(chunk);
+        run.awaitAll();
+    }
+
+    private String validate(ShortenerRequest request) {
+        if (request == null) return "url é obrigatória";
+
+        String message = validator.validate(request)
+                .stream()
+                .map(ConstraintViolation::getMessage)
+                .distinct()
+                .collect(Collectors.joining("; "));
+        if (!message.isBlank()) return message;
+
+        if (request.getAlias() != null) return "alias não é aceito no bulk";
+
+        try {
+            request.setUrl(UrlCanonicalizer.canonicalize(request.getUrl()));
+            ShortCodeCreationService.checkExpiry(request.getExpiresAt(), clock.instant());
+        } catch (InvalidUrlException | InvalidExpiryException ex) {
+            return ex.getMessage();
+        }
+        return null;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws InterruptedIOException, ExecutionException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Bulk creation interrupted");
+        }
+    }
+
+    private static String messageOf(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof RateLimitExceededException) return RATE_LIMITED;
+        if (cause instanceof BackendBusyException) return BACKEND_BUSY;
+        if (cause instanceof DataAccessException) return STORAGE_FAILED;
+
+        log.warn("Unexpected bulk item failure", cause);
+        return INTERNAL_ERROR;
+    }
+
+    private final class BulkRun {
+
+        private final UriComponentsBuilder shortUrl;
+        private final OutputStream out;
+        private final Semaphore permits = new Semaphore(parallelism);
+        private final Queue<BulkShortenerResponse> completed = new ConcurrentLinkedQueue<>();
+
+        BulkRun(UriComponentsBuilder shortUrl, OutputStream out) {
+            this.shortUrl = shortUrl;
+            this.out = out;
+        }
+
+        void submit(List<BulkItem> chunk) throws IOException {
+            List<BulkItem> valid = new ArrayList<>(chunk.size());
+            for (BulkItem item : chunk) {
+                String error = item.error() != null ? item.error() : validate(item.request());
+                if (error != null) {
+                    emit(failure(item, error));
+                } else {
+                    valid.add(item);
+                }
+            }
+
+            List<CompletableFuture<Optional<String>>> lookups = new ArrayList<>(valid.size());
+            for (BulkItem item : valid) {
+                lookups.add(creationService.findDuplicate(item.request().getUrl(), item.request().getExpiresAt()));
+            }
+
+            List<BulkItem> fresh = new ArrayList<>(valid.size());
+            for (int i = 0; i < valid.size(); i++) {
+                BulkItem item = valid.get(i);
+                Optional<String> existing;
+                try {
+                    existing = await(lookups.get(i));
+                } catch (ExecutionException ex) {
+                    emit(failure(item, messageOf(ex.getCause())));
+                    continue;
+                }
+                if (existing.isPresent()) {
+                    emit(success(item, existing.get()));
+                } else {
+                    fresh.add(item);
+                }
+            }
+
+            // an exhausted generator fails the block at once, like a single create gets 429: no sleeping on
+            // the request thread, the client resubmits the failed lines and later blocks try again
+            if (!fresh.isEmpty()) {
+                Instant mintedAt = clock.instant();
+                List<String> codes;
+                try {
+                    codes = generator.next(fresh.size());
+                } catch (RateLimitExceededException ex) {
+                    for (BulkItem item : fresh) {
+                        emit(failure(item, RATE_LIMITED));
+                    }
+                    codes = List.of();
+                }
+
+                for (int i = 0; i < codes.size(); i++) {
+                    write(fresh.get(i), codes.get(i), mintedAt);
+                }
+            }
+
+            drain();
+            out.flush();
+        }
+
+        void awaitAll() throws IOException {
+            acquire(parallelism);
+            drain();
+            out.flush();
+        }
+
+        private void write(BulkItem item, String shortCode, Instant mintedAt) throws IOException {
+            acquire(1);
+
+            creationService.persist(item.request().getUrl(), item.request().getExpiresAt(), shortCode, mintedAt)
+                    .whenComplete((ignored, ex) -> {
+                        completed.add(ex == null ? success(item, shortCode) : failure(item, messageOf(ex)));
+                        permits.release();
+                    });
+        }
+
+        // only the request thread writes the response; driver callbacks just enqueue
+        private void acquire(int count) throws IOException {
+            try {
+                while (!permits.tryAcquire(count, DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    drain();
+                    out.flush();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Bulk creation interrupted");
+            }
+        }
+
+        private void drain() throws IOException {
+            BulkShortenerResponse result;
+            while ((result = completed.poll()) != null) {
+                emit(result);
+            }
+        }
+
+        private void emit(BulkShortenerResponse result) throws IOException {
+            if (result.getShortCode() != null) {
+                result.setShortUrl(shortUrl.buildAndExpand(result.getShortCode()).toUriString());
+            }
+            out.write(mapper.writeValueAsBytes(result));
+            out.write('\n');
+        }
+
+        private BulkShortenerResponse success(BulkItem item, String shortCode) {
+            return BulkShortenerResponse.builder()
+                    .line(item.line())
+                    .url(item.request().getUrl())
+                    .shortCode(shortCode)
+                    .build();
+        }
+
+        private BulkShortenerResponse failure(BulkItem item, String error) {
+            return BulkShortenerResponse.builder()
+                    .line(item.line())
+                    .url(item.request() != null ? item.request().getUrl() : null)
+                    .error(error)
+                    .build();
+        }
+    }
+
+    private record BulkItem(long line, ShortenerRequest request, String error) {
+    }
+
+    private interface BulkReader extends Closeable {
+        BulkItem next() throws IOException;
+    }
+
+    private final class NdjsonReader implements BulkReader {
+
+        private final BufferedReader lines;
+        private long line;
+
+        NdjsonReader(InputStream in) {
+            this.lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public BulkItem next() throws IOException {
+            String text;
+            while ((text = lines.readLine()) != null) {
+                line++;
+                if (text.isBlank()) continue;
+
+                try {
+                    return new BulkItem(line, mapper.readValue(text, ShortenerRequest.class), null);
+                } catch (JacksonException ex) {
+                    return new BulkItem(line, null, "invalid JSON");
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            lines.close();
+        }
+    }
+
+    private final class JsonArrayReader implements BulkReader {
+
+        private final JsonParser parser;
+        private boolean started;
+        private boolean finished;
+        private long index;
+
+        JsonArrayReader(InputStream in) {
+            this.parser = mapper.createParser(in);
+        }
+
+        @Override
+        public BulkItem next() {
+            if (finished) return null;
+
+            long position = index + 1;
+            try {
+                if (!started) {
+                    started = true;
+                    if (parser.nextToken() != JsonToken.START_ARRAY) {
+                        finished = true;
+                        return new BulkItem(0, null, "expected a JSON array");
+                    }
+                }
+
+                JsonToken token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    finished = true;
+                    return null;
+                }
+
+                index++;
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    return new BulkItem(index, null, "expected a JSON object");
+                }
+                return new BulkItem(index, mapper.readValue(parser, ShortenerRequest.class), null);
+
+            } catch (JacksonException ex) {
+                // the parser cannot resync inside an array: say so instead of ending the stream quietly
+                finished = true;
+                return new BulkItem(position, null,
+                        "invalid JSON at item " + position + ", bulk aborted: later items were not read");
+            }
+        }
+
+        @Override
+        public void close() {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.dto.response.ShortenerStatsResponse;
+import com.wl.url.shortener.entity.ShortenerUrlClicks;
+import com.wl.url.shortener.repository.ShortenerUrlClickStore;
+import com.wl.url.shortener.utils.HyperLogLog;
+import com.wl.url.shortener.utils.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class ClickAnalytics {
+
+    static final int MAX_WINDOW_MINUTES = 24 * 60;
+
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final long DAY_MILLIS = 24 * 60 * MINUTE_MILLIS;
+
+    private final ShortenerUrlClickStore store;
+    private final UniqueVisitors uniqueVisitors;
+    private final boolean enabled;
+    private final MpscRingBuffer<String> buffer;
+    private final long flushIntervalMillis;
+    private final long drainIntervalMillis;
+    private final Clock clock;
+
+    private final Counter recorded;
+    private final Counter dropped;
+    private final Counter flushedRows;
+    private final Counter flushFailures;
+
+    // only the draining thread touches these; the lock only contends with shutdown
+    // keyed by the epoch millis of the minute the clicks happened in
+    private Map<Long, Map<String, long[]>> pending = new HashMap<>();
+    private long nextFlushAt;
+    private ScheduledExecutorService drainer;
+
+    public ClickAnalytics(ShortenerUrlClickStore store,
+                          UniqueVisitors uniqueVisitors,
+                          MeterRegistry meterRegistry,
+                          @Value("${shortener.analytics.enabled:false}") boolean enabled,
+                          @Value("${shortener.analytics.buffer-size:65536}") int bufferSize,
+                          @Value("${shortener.analytics.flush-interval:10s}") Duration flushInterval,
+                          @Value("${shortener.analytics.drain-interval:100ms}") Duration drainInterval) {
+        this(store, uniqueVisitors, meterRegistry, enabled, bufferSize, flushInterval, drainInterval,
+                Clock.systemUTC());
+    }
+
+    ClickAnalytics(ShortenerUrlClickStore store,
+                   UniqueVisitors uniqueVisitors,
+                   MeterRegistry meterRegistry,
+                   boolean enabled,
+                   int bufferSize,
+                   Duration flushInterval,
+                   Duration drainInterval,
+                   Clock clock) {
+        this.store = store;
+        this.uniqueVisitors = uniqueVisitors;
+        this.enabled = enabled;
+        this.buffer = new MpscRingBuffer<>(enabled ? bufferSize : 2);
+        this.flushIntervalMillis = flushInterval.toMillis();
+        this.drainIntervalMillis = Math.max(1, drainInterval.toMillis());
+        this.clock = clock;
+        this.nextFlushAt = clock.millis() + flushIntervalMillis;
+
+        this.recorded = Counter.builder("shortener.analytics.clicks")
+                .description("Clicks taken from the ring buffer and aggregated")
+                .tag("result", "recorded")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("shortener.analytics.clicks")
+                .description("Clicks dropped because the ring buffer was full")
+                .tag("result", "dropped")
+                .register(meterRegistry);
+        this.flushedRows = Counter.builder("shortener.analytics.flushed")
+                .description("Per-minute counter rows written to Cassandra")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("shortener.analytics.flush.failures")
+                .description("Click flushes that failed; clicks in the failed batches were lost")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static long visitorOf(String remoteAddress, String userAgent) {
+        return remoteAddress == null && userAgent == null ? 0 : HyperLogLog.hash(remoteAddress, userAgent);
+    }
+
+    public void record(String shortCode) {
+        record(shortCode, 0);
+    }
+
+    public void record(String shortCode, long visitor) {
+        if (enabled && !buffer.offer(shortCode, visitor, clock.millis())) {
+            dropped.increment();
+        }
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || drainer != null) return;
+
+        drainer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "analytics-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        drainer.scheduleWithFixedDelay(() -> {
+            try {
+                drain();
+            } catch (RuntimeException ex) {
+                log.warn("Click drain failed: {}", ex.getMessage());
+            }
+        }, drainIntervalMillis, drainIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void drain() {
+        if (!enabled) return;
+
+        drainBuffer();
+        if (clock.millis() >= nextFlushAt) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!enabled) return;
+
+        if (drainer != null) {
+            drainer.shutdown();
+        }
+        drainBuffer();
+        try {
+            flush().get(5, TimeUnit.SECONDS);
+        } catch (Exception ex) {
+            log.warn("Could not flush click counters on shutdown: {}", ex.getMessage());
+        }
+    }
+
+    public CompletableFuture<ShortenerStatsResponse> stats(String shortCode, int minutes) {
+        int window = Math.max(1, Math.min(minutes, MAX_WINDOW_MINUTES));
+        Instant from = currentMinute().minus(window - 1L, ChronoUnit.MINUTES);
+
+        CompletableFuture<Long> total = store.findTotal(shortCode);
+        CompletableFuture<List<ShortenerUrlClicks>> recent = store.findSince(shortCode, from);
+
+        return total.thenCombine(recent, (totalClicks, rows) -> {
+            Map<Instant, Long> perMinute = new TreeMap<>();
+            for (ShortenerUrlClicks row : rows) {
+                perMinute.put(row.getMinute(), row.getClicks());
+            }
+            return new ShortenerStatsResponse(shortCode, totalClicks, perMinute);
+        });
+    }
+
+    // a click counts toward the minute and UTC day it was recorded in, however late it is drained
+    void drainBuffer() {
+        int drained = buffer.drain((shortCode, visitor, clickedAt) -> {
+            long minute = clickedAt - Math.floorMod(clickedAt, MINUTE_MILLIS);
+            pending.computeIfAbsent(minute, key -> new HashMap<>())
+                    .computeIfAbsent(shortCode, key -> new long[1])[0]++;
+            uniqueVisitors.add(shortCode, LocalDate.ofEpochDay(Math.floorDiv(clickedAt, DAY_MILLIS)), visitor);
+        }, buffer.capacity());
+        if (drained > 0) {
+            recorded.increment(drained);
+        }
+    }
+
+    CompletableFuture<Void> flush() {
+        nextFlushAt = clock.millis() + flushIntervalMillis;
+
+        Map<Long, Map<String, long[]>> toWrite = pending;
+        pending = new HashMap<>();
+
+        uniqueVisitors.flush();
+
+        List<ShortenerUrlClicks> rows = new ArrayList<>();
+        toWrite.forEach((minute, counts) -> counts.forEach((code, count) -> rows.add(ShortenerUrlClicks.builder()
+                .shortcode(code)
+                .minute(Instant.ofEpochMilli(minute))
+                .clicks(count[0])
+                .build())));
+        if (rows.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return store.increment(rows).whenComplete((ignored, ex) -> {
+            if (ex == null) {
+                flushedRows.increment(rows.size());
+            } else {
+                flushFailures.increment();
+                log.warn("Could not persist {} click counter rows: {}", rows.size(), ex.getMessage());
+            }
+        });
+    }
+
+    private Instant currentMinute() {
+        return clock.instant().truncatedTo(ChronoUnit.MINUTES);
+    }
+}
@@ -0,0 +1,97 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.utils.FrequencySketch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "shortener.hotness.sync", name = "enabled", havingValue = "true")
+public class HotnessSync {
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> MERGE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/merge-hotness.lua"), List.class);
+
+    private final StringRedisTemplate redis;
+    private final FrequencySketch sketch;
+    private final Duration window;
+    private final Clock clock;
+
+    private long currentWindow = Long.MIN_VALUE;
+
+    public HotnessSync(StringRedisTemplate redis,
+                       FrequencySketch sketch,
+                       @Value("${shortener.hotness.sync.window:10m}") Duration window) {
+        this(redis, sketch, window, Clock.systemUTC());
+    }
+
+    HotnessSync(StringRedisTemplate redis, FrequencySketch sketch, Duration window, Clock clock) {
+        this.redis = redis;
+        this.sketch = sketch;
+        this.window = window;
+        this.clock = clock;
+    }
+
+    @Scheduled(fixedDelayString = "${shortener.hotness.sync.interval:10s}")
+    public void flush() {
+        int[] delta = sketch.drainPending();
+
+        long current = clock.instant().getEpochSecond() / window.toSeconds();
+        if (current != currentWindow) {
+            sketch.clearRemote();
+            currentWindow = current;
+        }
+
+        int cells = 0;
+        long increments = 0;
+        for (int value : delta) {
+            if (value != 0) {
+                cells++;
+                increments += value;
+            }
+        }
+
+        int[] indexes = new int[cells];
+        Object[] args = new Object[2 + 2 * cells];
+        args[0] = String.valueOf(window.multipliedBy(2).toSeconds());
+        args[1] = String.valueOf(increments / FrequencySketch.DEPTH);
+        for (int i = 0, next = 0; i < delta.length; i++) {
+            if (delta[i] != 0) {
+                indexes[next] = i;
+                args[2 + 2 * next] = String.valueOf(i);
+                args[3 + 2 * next] = String.valueOf(delta[i]);
+                next++;
+            }
+        }
+
+        try {
+            List<?> reply = redis.execute(MERGE_SCRIPT, List.of("url:hotness:" + current), args);
+            if (reply == null || reply.size() != cells + 1) {
+                log.warn("Hotness sync got an unexpected reply, keeping local counts only");
+                return;
+            }
+            int[] counts = new int[cells];
+            for (int i = 0; i < cells; i++) {
+                counts[i] = (int) Math.min(Integer.MAX_VALUE, toLong(reply.get(i + 1)));
+            }
+            sketch.mergeRemote(indexes, counts, toLong(reply.get(0)));
+        } catch (RuntimeException ex) {
+            log.warn("Hotness sync failed, keeping local counts only: {}", ex.getMessage());
+        }
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : Long.parseLong(String.valueOf(value));
+    }
+}
@@ -0,0 +1,123 @@
+package com.wl.url.shortener.service;
+
+import io.lettuce.core.cluster.SlotHash;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Supplier;
+
+@Component
+@Profile("reactive")
+public class ReactiveShortUrlCache {
+
+    // an event loop must never park, so a full bulkhead is a cache miss right away
+    private static final long NO_WAIT = 0;
+
+    private final ReactiveStringRedisTemplate redis;
+    private final ShortUrlCache tiers;
+
+    public ReactiveShortUrlCache(ReactiveStringRedisTemplate redis, ShortUrlCache tiers) {
+        this.redis = redis;
+        this.tiers = tiers;
+    }
+
+    public Mono<String> get(String shortUrl) {
+        String value = tiers.getLocal(shortUrl);
+        if (value != null) return Mono.just(value);
+        if (!tiers.admitRedis()) return Mono.empty();
+
+        return guarded(() -> redis.opsForValue().get(ShortUrlCache.cacheKey(shortUrl)))
+                .timeout(tiers.budget())
+                .doOnSuccess(found -> tiers.onRedisSuccess())
+                .mapNotNull(found -> {
+                    String fullUrl = tiers.live(found);
+                    if (fullUrl != null) tiers.putLocal(shortUrl, found);
+                    return fullUrl;
+                })
+                .doOnSuccess(found -> tiers.recordRedisLookups(found != null ? 1 : 0, found != null ? 0 : 1))
+                .onErrorResume(ex -> {
+                    tiers.onRedisFailure("GET", ex);
+                    return Mono.empty();
+                });
+    }
+
+    public Mono<Map<String, String>> getAll(Collection<String> shortUrls) {
+        Map<String, String> found = new HashMap<>();
+        Map<Integer, List<String>> bySlot = new HashMap<>();
+        for (String shortUrl : shortUrls) {
+            String value = tiers.getLocal(shortUrl);
+            if (value != null) {
+                found.put(shortUrl, value);
+            } else {
+                String key = ShortUrlCache.cacheKey(shortUrl);
+                bySlot.computeIfAbsent(SlotHash.getSlot(key), slot -> new ArrayList<>()).add(shortUrl);
+            }
+        }
+        if (bySlot.isEmpty() || !tiers.admitRedis()) return Mono.just(found);
+
+        int remote = bySlot.values().stream().mapToInt(List::size).sum();
+        int local = found.size();
+
+        return Flux.fromIterable(bySlot.values())
+                .flatMap(group -> guarded(() -> redis.opsForValue().multiGet(group.stream().map(ShortUrlCache::cacheKey).toList()))
+                        .flatMapIterable(values -> {
+                            List<Map.Entry<String, String>> hits = new ArrayList<>();
+                            for (int i = 0; i < group.size() && i < values.size(); i++) {
+                                if (values.get(i) != null && tiers.live(values.get(i)) != null) {
+                                    hits.add(Map.entry(group.get(i), values.get(i)));
+                                }
+                            }
+                            return hits;
+                        }))
+                .timeout(tiers.budget())
+                .doOnNext(hit -> tiers.putLocal(hit.getKey(), hit.getValue()))
+                .collect(() -> found, (acc, hit) -> acc.put(hit.getKey(), ShortUrlCache.urlOf(hit.getValue())))
+                .doOnNext(all -> {
+                    tiers.onRedisSuccess();
+                    tiers.recordRedisLookups(all.size() - local, remote - (all.size() - local));
+                })
+                .onErrorResume(ex -> {
+                    tiers.onRedisFailure("MGET", ex);
+                    return Mono.just(found);
+                });
+    }
+
+    public Mono<Void> registerHitAndMaybeCache(String shortUrl, String fullUrl) {
+        return registerHitAndMaybeCache(shortUrl, fullUrl, null);
+    }
+
+    public Mono<Void> registerHitAndMaybeCache(String shortUrl, String fullUrl, Instant expiresAt) {
+        if (!tiers.registerHit(shortUrl)) return Mono.empty();
+
+        Duration ttl = tiers.cacheTtl(expiresAt);
+        if (ttl == null) return Mono.empty();
+
+        String value = ShortUrlCache.encode(fullUrl, expiresAt);
+        Mono<Void> promoted = Mono.fromRunnable(() -> {
+            tiers.putLocal(shortUrl, value);
+            tiers.recordPromotion();
+        });
+        if (!tiers.admitRedis()) return promoted;
+
+        return guarded(() -> redis.opsForValue().setIfAbsent(ShortUrlCache.cacheKey(shortUrl), value, ttl))
+                .timeout(tiers.budget())
+                .doOnSuccess(ignored -> tiers.onRedisSuccess())
+                .then()
+                .onErrorResume(ex -> {
+                    tiers.onRedisFailure("SET", ex);
+                    return Mono.empty();
+                })
+                .then(promoted);
+    }
+
+    // the permit is held until the command answers or the budget timeout cancels it
+    private <T> Mono<T> guarded(Supplier<Mono<T>> command) {
+        return Mono.fromFuture(() -> tiers.bulkhead().callAsync(NO_WAIT, () -> command.get().toFuture()));
+    }
+}
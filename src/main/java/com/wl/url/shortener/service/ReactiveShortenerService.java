@@ -0,0 +1,175 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.dto.response.ShortenerFullResponse;
+import com.wl.url.shortener.dto.response.ShortenerResolveResponse;
+import com.wl.url.shortener.dto.response.ShortenerResponse;
+import com.wl.url.shortener.dto.response.ShortenerStatsResponse;
+import com.wl.url.shortener.dto.response.ShortenerVisitorsResponse;
+import com.wl.url.shortener.exception.impl.NotFoundException;
+import com.wl.url.shortener.repository.ShortenerUrlReader;
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.Hedge;
+import com.wl.url.shortener.utils.ShortCodeSource;
+import com.wl.url.shortener.utils.ShortenerUtils;
+import com.wl.url.shortener.utils.SingleFlight;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+
+@Service
+@Profile("reactive")
+public class ReactiveShortenerService {
+
+    // an event loop must never park, so a full bulkhead answers 503 right away
+    private static final long NO_WAIT = 0;
+
+    private final ShortenerUrlReader reader;
+    private final ReactiveShortUrlCache cache;
+    private final ShortCodeCreationService creationService;
+    private final ShortCodeBloomFilter bloomFilter;
+    private final ShortCodeSource generator;
+    private final ClickAnalytics clickAnalytics;
+    private final UniqueVisitors uniqueVisitors;
+    private final Bulkhead cassandraBulkhead;
+    private final Hedge redirectHedge;
+    private final SingleFlight<String, String> storageLoads = new SingleFlight<>();
+
+    public ReactiveShortenerService(ShortenerUrlReader reader,
+                                    ReactiveShortUrlCache cache,
+                                    ShortCodeCreationService creationService,
+                                    ShortCodeBloomFilter bloomFilter,
+                                    ShortCodeSource generator,
+                                    ClickAnalytics clickAnalytics,
+                                    UniqueVisitors uniqueVisitors,
+                                    @Qualifier("cassandraBulkhead") Bulkhead cassandraBulkhead,
+                                    @Qualifier("redirectReadHedge") Hedge redirectHedge) {
+        this.reader = reader;
+        this.cache = cache;
+        this.creationService = creationService;
+        this.bloomFilter = bloomFilter;
+        this.generator = generator;
+        this.clickAnalytics = clickAnalytics;
+        this.uniqueVisitors = uniqueVisitors;
+        this.cassandraBulkhead = cassandraBulkhead;
+        this.redirectHedge = redirectHedge;
+    }
+
+    public Mono<ShortenerResponse> save(String fullUrl) {
+        return save(fullUrl, null, null);
+    }
+
+    public Mono<ShortenerResponse> save(String fullUrl, Instant expiresAt, String alias) {
+        if (!StringUtils.hasText(fullUrl)) {
+            return Mono.error(new IllegalArgumentException("url must not be null/blank"));
+        }
+
+        Mono<String> created = Mono.fromFuture(() -> creationService.createAndPersistAsync(fullUrl, expiresAt, alias));
+        if (generator.mayBlock()) {
+            created = created.subscribeOn(Schedulers.boundedElastic());
+        }
+        return created.map(shortCode -> new ShortenerResponse(shortCode, null));
+    }
+
+    public Mono<ShortenerFullResponse> findByShortUrl(String shortUrl) {
+        return findByShortUrl(shortUrl, 0);
+    }
+
+    public Mono<ShortenerFullResponse> findByShortUrl(String shortUrl, long visitor) {
+        if (!StringUtils.hasText(shortUrl)) {
+            return Mono.error(new IllegalArgumentException("shortUrl must not be null/blank"));
+        }
+
+        if (!isPlausible(shortUrl) || !bloomFilter.mightExist(shortUrl)) {
+            return Mono.error(new NotFoundException("Short URL not found"));
+        }
+
+        Mono<String> fromStorage = Mono.fromFuture(() -> storageLoads.callAsync(shortUrl,
+                () -> Mono.fromFuture(() -> cassandraBulkhead.callAsync(NO_WAIT,
+                                () -> redirectHedge.callAsync(attempt -> reader.findUrl(shortUrl, attempt))))
+                        .flatMap(Mono::justOrEmpty)
+                        .switchIfEmpty(Mono.error(() -> new NotFoundException("Short URL not found")))
+                        .flatMap(stored -> cache.registerHitAndMaybeCache(shortUrl, stored.getFullUrl(), stored.getExpiresAt())
+                                .thenReturn(stored.getFullUrl()))
+                        .toFuture()));
+
+        return cache.get(shortUrl)
+                .switchIfEmpty(fromStorage)
+                .doOnNext(fullUrl -> clickAnalytics.record(shortUrl, visitor))
+                .map(ShortenerFullResponse::new);
+    }
+
+    public Mono<ShortenerStatsResponse> stats(String shortUrl, int minutes) {
+        if (!StringUtils.hasText(shortUrl)) {
+            return Mono.error(new IllegalArgumentException("shortUrl must not be null/blank"));
+        }
+        if (!isPlausible(shortUrl) || !bloomFilter.mightExist(shortUrl)) {
+            return Mono.error(new NotFoundException("Short URL not found"));
+        }
+
+        return Mono.fromFuture(() -> cassandraBulkhead.callAsync(NO_WAIT, () -> reader.findFullUrl(shortUrl)))
+                .flatMap(Mono::justOrEmpty)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Short URL not found")))
+                .flatMap(ignored -> Mono.fromFuture(() -> clickAnalytics.stats(shortUrl, minutes)));
+    }
+
+    public Mono<ShortenerVisitorsResponse> visitors(String shortUrl, LocalDate from, LocalDate to) {
+        if (!StringUtils.hasText(shortUrl)) {
+            return Mono.error(new IllegalArgumentException("shortUrl must not be null/blank"));
+        }
+        if (!isPlausible(shortUrl) || !bloomFilter.mightExist(shortUrl)) {
+            return Mono.error(new NotFoundException("Short URL not found"));
+        }
+
+        Mono<ShortenerVisitorsResponse> visitors = Mono.fromCallable(() -> uniqueVisitors.query(shortUrl, from, to))
+                .subscribeOn(Schedulers.boundedElastic());
+
+        return Mono.fromFuture(() -> cassandraBulkhead.callAsync(NO_WAIT, () -> reader.findFullUrl(shortUrl)))
+                .flatMap(Mono::justOrEmpty)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("Short URL not found")))
+                .flatMap(ignored -> visitors);
+    }
+
+    public Mono<ShortenerResolveResponse> resolveAll(List<String> shortUrls) {
+        Set<String> codes = new LinkedHashSet<>(shortUrls);
+        List<String> candidates = codes.stream()
+                .filter(this::isPlausible)
+                .filter(bloomFilter::mightExist)
+                .toList();
+
+        return cache.getAll(candidates)
+                .flatMap(cached -> Flux.fromIterable(candidates)
+                        .filter(code -> !cached.containsKey(code))
+                        .flatMap(code -> Mono.fromFuture(() -> cassandraBulkhead.callAsync(NO_WAIT, () -> reader.findUrl(code)))
+                                .flatMap(Mono::justOrEmpty)
+                                .flatMap(stored -> cache.registerHitAndMaybeCache(code, stored.getFullUrl(), stored.getExpiresAt())
+                                        .thenReturn(Map.entry(code, stored.getFullUrl()))))
+                        .collect(() -> new HashMap<>(cached), (acc, hit) -> acc.put(hit.getKey(), hit.getValue())))
+                .map(found -> {
+                    Map<String, String> urls = new LinkedHashMap<>();
+                    List<String> notFound = new ArrayList<>();
+                    for (String code : codes) {
+                        String fullUrl = found.get(code);
+                        if (fullUrl != null) {
+                            urls.put(code, fullUrl);
+                        } else {
+                            notFound.add(code);
+                        }
+                    }
+                    return new ShortenerResolveResponse(urls, notFound);
+                });
+    }
+
+    private boolean isPlausible(String shortUrl) {
+        long id = ShortenerUtils.tryDecode(shortUrl);
+        if (id < 0) return ShortenerUtils.isAlias(shortUrl);
+        return generator.isPlausible(id);
+    }
+}
@@ -0,0 +1,456 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.exception.impl.BackendBusyException;
+import com.wl.url.shortener.utils.ScalableBloomFilter;
+import com.wl.url.shortener.utils.ShortCodeSource;
+import com.wl.url.shortener.utils.ShortenerUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.cql.RowCallbackHandler;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+public class ShortCodeBloomFilter {
+
+    static final String STREAM_KEY = "url:bloom:codes";
+    static final String CODES_FIELD = "codes";
+
+    private static final long UNTRUSTED = -1;
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int MAX_CODES_PER_ENTRY = 512;
+    private static final int POLL_BATCH = 1000;
+
+    private final CassandraOperations cassandra;
+    private final StringRedisTemplate redis;
+    private final ShortCodeSource generator;
+    private final boolean enabled;
+    private final boolean sync;
+    private final long expectedInsertions;
+    private final double fpp;
+    private final Path snapshotPath;
+    private final Duration maxSkew;
+    private final Duration syncInterval;
+    private final Duration rebuildInterval;
+    private final Duration rebuildJitter;
+    private final long streamMaxLength;
+    private final Clock clock;
+
+    private final Queue<Announcement> announcements = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ReadWriteLock swap = new ReentrantReadWriteLock();
+    private ScheduledExecutorService syncer;
+
+    private volatile ScalableBloomFilter filter;
+    private volatile ScalableBloomFilter building;
+    private volatile long scannedBelowId = UNTRUSTED;
+    private volatile long followedBelowId = UNTRUSTED;
+    private volatile boolean covered;
+    private volatile Instant nextRebuildAt;
+
+    // guarded by this: the stream position and how many times it had to be re-established
+    private String cursor;
+    private int cursorEpoch;
+
+    public ShortCodeBloomFilter(CassandraOperations cassandra,
+                                StringRedisTemplate redis,
+                                ShortCodeSource generator,
+                                @Value("${shortener.bloom.enabled:true}") boolean enabled,
+                                @Value("${shortener.bloom.sync.enabled:true}") boolean sync,
+                                @Value("${shortener.bloom.expected-insertions:1000000}") long expectedInsertions,
+                                @Value("${shortener.bloom.fpp:0.01}") double fpp,
+                                @Value("${shortener.bloom.snapshot-path:${java.io.tmpdir}/shortener-codes.bloom}") Path snapshotPath,
+                                @Value("${shortener.bloom.max-skew:10s}") Duration maxSkew,
+                                @Value("${shortener.bloom.sync.interval:1s}") Duration syncInterval,
+                                @Value("${shortener.bloom.sync.max-length:1000000}") long streamMaxLength,
+                                @Value("${shortener.bloom.rebuild-interval:24h}") Duration rebuildInterval,
+                                @Value("${shortener.bloom.rebuild-jitter:5m}") Duration rebuildJitter) {
+        this(cassandra, redis, generator, enabled, sync, expectedInsertions, fpp, snapshotPath, maxSkew,
+                syncInterval, streamMaxLength, rebuildInterval, rebuildJitter, Clock.systemUTC());
+    }
+
+    ShortCodeBloomFilter(CassandraOperations cassandra,
+                         StringRedisTemplate redis,
+                         ShortCodeSource generator,
+                         boolean enabled,
+                         boolean sync,
+                         long expectedInsertions,
+                         double fpp,
+                         Path snapshotPath,
+                         Duration maxSkew,
+                         Duration syncInterval,
+                         long streamMaxLength,
+                         Duration rebuildInterval,
+                         Duration rebuildJitter,
+                         Clock clock) {
+        this.cassandra = cassandra;
+        this.redis = redis;
+        this.generator = generator;
+        this.enabled = enabled;
+        this.sync = sync;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.snapshotPath = snapshotPath;
+        this.maxSkew = maxSkew;
+        this.syncInterval = syncInterval;
+        this.streamMaxLength = streamMaxLength;
+        this.rebuildInterval = rebuildInterval;
+        this.rebuildJitter = rebuildJitter;
+        this.clock = clock;
+        this.filter = new ScalableBloomFilter(expectedInsertions, fpp);
+        this.nextRebuildAt = jittered(clock.instant());
+        if (enabled) {
+            loadSnapshot();
+        }
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || !sync || syncer != null) return;
+
+        syncer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "bloom-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException ex) {
+                log.warn("Shortcode bloom filter sync failed: {}", ex.getMessage());
+            }
+        }, 0, syncInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = syncer;
+            syncer = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (enabled) {
+            saveSnapshot();
+        }
+    }
+
+    public boolean mightExist(String shortCode) {
+        if (!enabled) return true;
+
+        // aliases carry no creation time, so no node can ever prove their absence
+        long id = ShortenerUtils.tryDecode(shortCode);
+        if (id < 0) return true;
+
+        long trusted = covered ? Math.max(scannedBelowId, followedBelowId()) : scannedBelowId;
+        if (trusted == UNTRUSTED || id >= trusted) return true;
+
+        return filter.mightContain(shortCode);
+    }
+
+    public CompletableFuture<Void> put(String shortCode, Instant mintedAt) {
+        return put(List.of(shortCode), mintedAt);
+    }
+
+    // a late announcement fails the creation: other nodes may already trust a miss for the code
+    public CompletableFuture<Void> put(List<String> shortCodes, Instant mintedAt) {
+        if (!enabled || shortCodes.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        putLocally(shortCodes);
+        if (!sync) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Announcement announcement = new Announcement(shortCodes, mintedAt.plus(maxSkew), new CompletableFuture<>());
+        announcements.add(announcement);
+        scheduleFlush();
+        return announcement.result();
+    }
+
+    @Scheduled(fixedDelayString = "${shortener.bloom.check-interval:10s}")
+    public void maintain() {
+        if (enabled && !clock.instant().isBefore(nextRebuildAt)) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        if (!enabled) return;
+
+        int epochAtStart;
+        synchronized (this) {
+            epochAtStart = cursor != null ? cursorEpoch : -1;
+        }
+        Instant started = clock.instant();
+        ScalableBloomFilter fresh = new ScalableBloomFilter(expectedInsertions, fpp);
+        building = fresh;
+        try {
+            cassandra.getCqlOperations().query(
+                    "SELECT shortcode FROM shortner_url",
+                    (RowCallbackHandler) row -> fresh.put(row.getString(0))
+            );
+        } catch (RuntimeException ex) {
+            building = null;
+            nextRebuildAt = jittered(clock.instant());
+            log.warn("Shortcode bloom filter rebuild failed: {}", ex.getMessage());
+            return;
+        }
+
+        swap.writeLock().lock();
+        try {
+            filter = fresh;
+            building = null;
+        } finally {
+            swap.writeLock().unlock();
+        }
+        scannedBelowId = idFloorAt(started.minus(trustLag()));
+        synchronized (this) {
+            covered = !sync || (epochAtStart >= 0 && epochAtStart == cursorEpoch);
+        }
+        nextRebuildAt = started.plus(rebuildInterval);
+        log.info("Shortcode bloom filter rebuilt with ~{} codes", fresh.approximateCount());
+
+        saveSnapshot();
+    }
+
+    void poll() {
+        if (!enabled || !sync) return;
+
+        Instant started = clock.instant();
+        String from;
+        synchronized (this) {
+            from = cursor;
+        }
+
+        if (from == null) {
+            RecordId marker = redis.opsForStream().add(STREAM_KEY, Map.of(CODES_FIELD, ""));
+            synchronized (this) {
+                cursor = marker.getValue();
+                cursorEpoch++;
+            }
+            if (!covered) {
+                requestRebuild();
+            }
+            return;
+        }
+
+        while (true) {
+            List<MapRecord<String, Object, Object>> records = redis.opsForStream().range(
+                    STREAM_KEY, Range.rightUnbounded(Range.Bound.inclusive(from)), Limit.limit().count(POLL_BATCH));
+            if (records == null || records.isEmpty() || !from.equals(records.get(0).getId().getValue())) {
+                onGap();
+                return;
+            }
+
+            for (MapRecord<String, Object, Object> record : records.subList(1, records.size())) {
+                Object codes = record.getValue().get(CODES_FIELD);
+                if (codes != null && !codes.toString().isEmpty()) {
+                    putLocally(List.of(codes.toString().split(" ")));
+                }
+            }
+            from = records.get(records.size() - 1).getId().getValue();
+            synchronized (this) {
+                cursor = from;
+            }
+            if (records.size() < POLL_BATCH) break;
+        }
+
+        followedBelowId = idFloorAt(started.minus(trustLag()));
+        redis.opsForStream().trim(STREAM_KEY, streamMaxLength, true);
+    }
+
+    void flushAnnouncements() {
+        flushScheduled.set(false);
+
+        List<Announcement> batch = new ArrayList<>();
+        Announcement next;
+        while ((next = announcements.poll()) != null) {
+            batch.add(next);
+        }
+
+        int from = 0;
+        while (from < batch.size()) {
+            List<String> codes = new ArrayList<>();
+            int to = from;
+            while (to < batch.size() && (codes.isEmpty() || codes.size() + batch.get(to).codes().size() <= MAX_CODES_PER_ENTRY)) {
+                codes.addAll(batch.get(to++).codes());
+            }
+            announce(codes, batch.subList(from, to));
+            from = to;
+        }
+    }
+
+    private void announce(List<String> codes, List<Announcement> batch) {
+        try {
+            redis.opsForStream().add(STREAM_KEY, Map.of(CODES_FIELD, String.join(" ", codes)));
+        } catch (RuntimeException ex) {
+            log.warn("Could not announce {} shortcodes: {}", codes.size(), ex.getMessage());
+            batch.forEach(a -> a.result().completeExceptionally(
+                    new BackendBusyException("shortcode could not be announced to the other nodes")));
+            return;
+        }
+
+        Instant acked = clock.instant();
+        for (Announcement a : batch) {
+            if (acked.isAfter(a.deadline())) {
+                a.result().completeExceptionally(
+                        new BackendBusyException("shortcode announcement took longer than the allowed clock skew"));
+            } else {
+                a.result().complete(null);
+            }
+        }
+    }
+
+    private void scheduleFlush() {
+        ScheduledExecutorService current = syncer;
+        if (current == null) {
+            flushAnnouncements();
+            return;
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                current.execute(this::flushAnnouncements);
+            } catch (RejectedExecutionException ex) {
+                flushAnnouncements();
+            }
+        }
+    }
+
+    private void putLocally(List<String> shortCodes) {
+        swap.readLock().lock();
+        try {
+            ScalableBloomFilter pending = building;
+            for (String shortCode : shortCodes) {
+                filter.put(shortCode);
+                if (pending != null) {
+                    pending.put(shortCode);
+                }
+            }
+        } finally {
+            swap.readLock().unlock();
+        }
+    }
+
+    private void onGap() {
+        synchronized (this) {
+            cursor = null;
+            cursorEpoch++;
+            covered = false;
+        }
+        followedBelowId = UNTRUSTED;
+        log.warn("Shortcode bloom filter lost its place in {}, trusting the last full scan only", STREAM_KEY);
+        requestRebuild();
+    }
+
+    private void requestRebuild() {
+        Instant soon = jittered(clock.instant());
+        if (soon.isBefore(nextRebuildAt)) {
+            nextRebuildAt = soon;
+        }
+    }
+
+    private long followedBelowId() {
+        return sync ? followedBelowId : idFloorAt(clock.instant().minus(trustLag()));
+    }
+
+    // an announcement may land up to max-skew after mint, and the minting clock may run max-skew ahead
+    private Duration trustLag() {
+        return sync ? maxSkew.multipliedBy(2) : maxSkew;
+    }
+
+    private long idFloorAt(Instant instant) {
+        return generator.idFloorAt(instant.getEpochSecond());
+    }
+
+    private Instant jittered(Instant from) {
+        long bound = rebuildJitter.toMillis();
+        return from.plusMillis(bound > 0 ? ThreadLocalRandom.current().nextLong(bound) : 0);
+    }
+
+    private void saveSnapshot() {
+        String savedCursor;
+        synchronized (this) {
+            savedCursor = sync && covered && cursor != null ? cursor : "";
+        }
+        try {
+            Path parent = snapshotPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(scannedBelowId);
+                out.writeLong(nextRebuildAt.toEpochMilli());
+                out.writeUTF(savedCursor);
+                filter.writeTo(out);
+            }
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Could not write shortcode bloom filter snapshot to {}: {}", snapshotPath, ex.getMessage());
+        }
+    }
+
+    private void loadSnapshot() {
+        if (!Files.isReadable(snapshotPath)) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("unknown snapshot version");
+            }
+            long savedScan = in.readLong();
+            long savedRebuildAt = in.readLong();
+            String savedCursor = in.readUTF();
+            filter = ScalableBloomFilter.readFrom(in);
+            scannedBelowId = savedScan;
+            nextRebuildAt = Instant.ofEpochMilli(savedRebuildAt);
+            if (sync && !savedCursor.isEmpty()) {
+                synchronized (this) {
+                    cursor = savedCursor;
+                    cursorEpoch++;
+                    covered = true;
+                }
+            }
+            log.info("Loaded shortcode bloom filter snapshot from {}", snapshotPath);
+        } catch (IOException ex) {
+            log.warn("Ignoring unreadable shortcode bloom filter snapshot {}: {}", snapshotPath, ex.getMessage());
+        }
+    }
+
+    private record Announcement(List<String> codes, Instant deadline, CompletableFuture<Void> result) {
+    }
+}
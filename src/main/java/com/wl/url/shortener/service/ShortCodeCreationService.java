@@ -1,55 +1,204 @@
 package com.wl.url.shortener.service;
 
 import com.wl.url.shortener.entity.ShortenerUrl;
+import com.wl.url.shortener.exception.impl.AliasTakenException;
+import com.wl.url.shortener.exception.impl.InvalidExpiryException;
+import com.wl.url.shortener.exception.impl.InvalidUrlException;
 import com.wl.url.shortener.exception.impl.RateLimitExceededException;
-import com.wl.url.shortener.repository.ShortenerUrlRepository;
-import com.wl.url.shortener.utils.ShortCodeGenerator;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.dao.DataIntegrityViolationException;
+import com.wl.url.shortener.repository.ShortenerUrlAliasWriter;
+import com.wl.url.shortener.repository.ShortenerUrlWriter;
+import com.wl.url.shortener.utils.ShortCodeSource;
+import com.wl.url.shortener.utils.ShortenerUtils;
+import com.wl.url.shortener.utils.UrlCanonicalizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
 @Service
 public class ShortCodeCreationService {
 
-    private static final int MAX_RETRIES = 8;
+    private final ShortenerUrlWriter writer;
+    private final ShortenerUrlAliasWriter aliasWriter;
+    private final ShortCodeSource generator;
+    private final UrlDeduplicator deduplicator;
+    private final ShortCodeBloomFilter bloomFilter;
+    private final Clock clock;
 
-    private final ShortenerUrlRepository repository;
-    private final ShortCodeGenerator generator;
+    private final Timer cassandraWrite;
+    private final Timer cassandraAliasWrite;
+    private final Counter generatorExhausted;
+    private final Counter aliasConflicts;
 
-    public ShortCodeCreationService(ShortenerUrlRepository repository,
-                                    @Value("${shortener.node-id:0}") int nodeId) {
-        this.repository = repository;
-        this.generator = new ShortCodeGenerator(nodeId);
+    public ShortCodeCreationService(ShortenerUrlWriter writer,
+                                    ShortenerUrlAliasWriter aliasWriter,
+                                    ShortCodeSource generator,
+                                    UrlDeduplicator deduplicator,
+                                    ShortCodeBloomFilter bloomFilter,
+                                    MeterRegistry meterRegistry) {
+        this(writer, aliasWriter, generator, deduplicator, bloomFilter, meterRegistry, Clock.systemUTC());
+    }
+
+    ShortCodeCreationService(ShortenerUrlWriter writer,
+                             ShortenerUrlAliasWriter aliasWriter,
+                             ShortCodeSource generator,
+                             UrlDeduplicator deduplicator,
+                             ShortCodeBloomFilter bloomFilter,
+                             MeterRegistry meterRegistry,
+                             Clock clock) {
+        this.writer = writer;
+        this.aliasWriter = aliasWriter;
+        this.generator = generator;
+        this.deduplicator = deduplicator;
+        this.bloomFilter = bloomFilter;
+        this.clock = clock;
+
+        this.cassandraWrite = Timer.builder("shortener.cassandra.latency")
+                .description("Cassandra latency as seen by the service, bulkhead wait included")
+                .tag("operation", "write")
+                .register(meterRegistry);
+        this.cassandraAliasWrite = Timer.builder("shortener.cassandra.latency")
+                .description("Cassandra latency as seen by the service, bulkhead wait included")
+                .tag("operation", "alias_write")
+                .register(meterRegistry);
+        this.generatorExhausted = Counter.builder("shortener.generator.exhausted")
+                .description("Times the shortcode generator ran out of sequence/ids")
+                .register(meterRegistry);
+        this.aliasConflicts = Counter.builder("shortener.alias.conflicts")
+                .description("Alias creations rejected because the alias was already taken")
+                .register(meterRegistry);
     }
 
     public String createAndPersist(String fullUrl) {
+        return createAndPersist(fullUrl, null, null);
+    }
+
+    public String createAndPersist(String fullUrl, Instant expiresAt, String alias) {
+        try {
+            return createAndPersistAsync(fullUrl, expiresAt, alias).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    public CompletableFuture<String> createAndPersistAsync(String url) {
+        return createAndPersistAsync(url, null, null);
+    }
+
+    public CompletableFuture<String> createAndPersistAsync(String url, Instant expiresAt, String alias) {
+        String fullUrl;
+        try {
+            fullUrl = UrlCanonicalizer.canonicalize(url);
+            checkExpiry(expiresAt, clock.instant());
+        } catch (InvalidUrlException | InvalidExpiryException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        if (alias != null) {
+            return createAlias(fullUrl, expiresAt, alias);
+        }
+
+        return findDuplicate(fullUrl, expiresAt).thenCompose(existing -> existing.isPresent()
+                ? CompletableFuture.completedFuture(existing.get())
+                : tryCreate(fullUrl, expiresAt));
+    }
+
+    // an expiring code must never be handed to someone asking for a permanent link
+    public CompletableFuture<Optional<String>> findDuplicate(String fullUrl, Instant expiresAt) {
+        if (expiresAt != null || !deduplicator.isEnabled()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return deduplicator.findExisting(fullUrl);
+    }
+
+    public CompletableFuture<String> persist(String fullUrl, Instant expiresAt, String shortCode, Instant mintedAt) {
+        ShortenerUrl entity = ShortenerUrl.builder()
+                .shortcode(shortCode)
+                .fullUrl(fullUrl)
+                .expiresAt(expiresAt)
+                .build();
+
+        long writeStart = System.nanoTime();
+        CompletableFuture<String> written = writer.insert(entity)
+                .whenComplete((ignored, ex) ->
+                        cassandraWrite.record(System.nanoTime() - writeStart, TimeUnit.NANOSECONDS))
+                .thenCompose(ignored -> bloomFilter.put(shortCode, mintedAt))
+                .thenApply(ignored -> shortCode);
+
+        if (expiresAt != null || !deduplicator.isEnabled()) {
+            return written;
+        }
+        return written.thenCompose(code -> rememberQuietly(fullUrl, code));
+    }
+
+    private CompletableFuture<String> createAlias(String fullUrl, Instant expiresAt, String alias) {
+        if (!ShortenerUtils.isAlias(alias)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("alias is not a valid alias"));
+        }
 
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                String shortCode = generator.next();
-
-                ShortenerUrl entity = ShortenerUrl.builder()
-                        .shortcode(shortCode)
-                        .fullUrl(fullUrl)
-                        .build();
-
-                repository.insert(entity);
-                return shortCode;
-
-            } catch (RateLimitExceededException ex) {
-                if (attempt == MAX_RETRIES) {
-                    throw ex;
-                }
-
-            } catch (DataIntegrityViolationException ex) {
-                if (attempt == MAX_RETRIES) {
-                    throw new IllegalStateException(
-                            "Could not generate a unique shortcode", ex
-                    );
-                }
+        ShortenerUrl entity = ShortenerUrl.builder()
+                .shortcode(alias)
+                .fullUrl(fullUrl)
+                .expiresAt(expiresAt)
+                .build();
+
+        long writeStart = System.nanoTime();
+        return aliasWriter.insertIfAbsent(entity)
+                .whenComplete((ignored, ex) ->
+                        cassandraAliasWrite.record(System.nanoTime() - writeStart, TimeUnit.NANOSECONDS))
+                .thenCompose(applied -> {
+                    if (!applied) {
+                        aliasConflicts.increment();
+                        return CompletableFuture.failedFuture(new AliasTakenException("alias " + alias + " is already taken"));
+                    }
+                    return CompletableFuture.completedFuture(alias);
+                });
+    }
+
+    static void checkExpiry(Instant expiresAt, Instant now) {
+        if (expiresAt == null) return;
+        if (!expiresAt.isAfter(now)) {
+            throw new InvalidExpiryException("expiresAt must be in the future");
+        }
+        if (Duration.between(now, expiresAt).compareTo(ShortenerUrlWriter.MAX_TTL) > 0) {
+            throw new InvalidExpiryException("expiresAt must be at most "
+                    + ShortenerUrlWriter.MAX_TTL.toDays() + " days ahead");
+        }
+    }
+
+    private CompletableFuture<String> rememberQuietly(String fullUrl, String shortCode) {
+        return deduplicator.remember(fullUrl, shortCode).handle((ignored, ex) -> {
+            if (ex != null) {
+                log.warn("Could not index shortcode {} for deduplication: {}", shortCode, ex.getMessage());
             }
+            return shortCode;
+        });
+    }
+
+    // no retry: the generator only runs out after borrowing sequence up to max-drift
+    private CompletableFuture<String> tryCreate(String fullUrl, Instant expiresAt) {
+        Instant mintedAt = clock.instant();
+        String shortCode;
+        try {
+            shortCode = generator.next();
+        } catch (RateLimitExceededException ex) {
+            generatorExhausted.increment();
+            return CompletableFuture.failedFuture(ex);
         }
 
-        throw new IllegalStateException("Could not generate a shortcode");
+        return persist(fullUrl, expiresAt, shortCode, mintedAt);
     }
-}
\ No newline at end of file
+}
@@ -1,53 +1,434 @@
 package com.wl.url.shortener.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.wl.url.shortener.exception.impl.BackendBusyException;
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.CircuitBreaker;
+import com.wl.url.shortener.utils.FrequencySketch;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.async.RedisStringAsyncCommands;
+import io.lettuce.core.cluster.SlotHash;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+// an expiring link is stored as "<expiresAt in ms> <url>"; a canonical URL never starts with a digit
+@Slf4j
 @Component
 public class ShortUrlCache {
 
-    private static final Duration CACHE_TTL = Duration.ofHours(2);
-    private static final Duration HITS_TTL = Duration.ofMinutes(10);
+    static final Duration CACHE_TTL = Duration.ofHours(2);
     private static final long HOT_THRESHOLD = 20;
 
     private final StringRedisTemplate redis;
+    private final FrequencySketch hotness;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker breaker;
+    private final Duration budget;
+    private final long budgetNanos;
+    private final Cache<String, String> local;
+    private final Clock clock;
 
-    public ShortUrlCache(StringRedisTemplate redis) {
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter promotions;
+    private final Counter bypassedOpen;
+    private final Counter bypassedFailure;
+    private final Timer redisGet;
+    private final Timer redisMultiGet;
+    private final Timer redisSet;
+
+    public ShortUrlCache(StringRedisTemplate redis,
+                         FrequencySketch hotness,
+                         @Qualifier("redisBulkhead") Bulkhead bulkhead,
+                         @Qualifier("redisCircuitBreaker") CircuitBreaker breaker,
+                         MeterRegistry meterRegistry,
+                         @Value("${shortener.cache.redis.budget:25ms}") Duration budget,
+                         @Value("${shortener.cache.local.max-size:10000}") long localMaxSize,
+                         @Value("${shortener.cache.local.ttl:30s}") Duration localTtl) {
+        this(redis, hotness, bulkhead, breaker, meterRegistry, budget, localMaxSize, localTtl, Clock.systemUTC());
+    }
+
+    ShortUrlCache(StringRedisTemplate redis,
+                  FrequencySketch hotness,
+                  Bulkhead bulkhead,
+                  CircuitBreaker breaker,
+                  MeterRegistry meterRegistry,
+                  Duration budget,
+                  long localMaxSize,
+                  Duration localTtl,
+                  Clock clock) {
+        if (budget.isNegative() || budget.isZero()) {
+            throw new IllegalArgumentException("budget must be > 0");
+        }
         this.redis = redis;
+        this.hotness = hotness;
+        this.bulkhead = bulkhead;
+        this.breaker = breaker;
+        this.budget = budget;
+        this.budgetNanos = budget.toNanos();
+        this.clock = clock;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfter(new CappedExpiry(localTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "shortener.cache.local");
+
+        this.localHits = lookups(meterRegistry, "local", "hit");
+        this.localMisses = lookups(meterRegistry, "local", "miss");
+        this.redisHits = lookups(meterRegistry, "redis", "hit");
+        this.redisMisses = lookups(meterRegistry, "redis", "miss");
+        this.promotions = Counter.builder("shortener.cache.promotions")
+                .description("Shortcodes promoted to the Redis and local tiers after becoming hot")
+                .register(meterRegistry);
+        this.bypassedOpen = bypassed(meterRegistry, "open");
+        this.bypassedFailure = bypassed(meterRegistry, "failure");
+        this.redisGet = redisTimer(meterRegistry, "get");
+        this.redisMultiGet = redisTimer(meterRegistry, "mget");
+        this.redisSet = redisTimer(meterRegistry, "set");
     }
 
     public String get(String shortUrl) {
-        return redis.opsForValue().get(cacheKey(shortUrl));
+        String value = getLocal(shortUrl);
+        if (value != null) return value;
+
+        if (!admitRedis()) return null;
+
+        long start = System.nanoTime();
+        try {
+            long deadline = start + budgetNanos;
+            value = bulkhead.call(budgetNanos, () -> redis.execute((RedisCallback<String>) connection ->
+                    getWithinBudget(connection, shortUrl, deadline)));
+            onRedisSuccess();
+        } catch (DataAccessException | BackendBusyException ex) {
+            onRedisFailure("GET", ex);
+            return null;
+        } finally {
+            redisGet.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        String fullUrl = live(value);
+        recordRedisLookups(fullUrl != null ? 1 : 0, fullUrl != null ? 0 : 1);
+        if (fullUrl != null) {
+            local.put(shortUrl, value);
+        }
+        return fullUrl;
+    }
+
+    public Map<String, String> getAll(Collection<String> shortUrls) {
+        Map<String, String> found = new HashMap<>();
+        List<String> remote = new ArrayList<>();
+        for (String shortUrl : shortUrls) {
+            String value = getLocal(shortUrl);
+            if (value != null) {
+                found.put(shortUrl, value);
+            } else {
+                remote.add(shortUrl);
+            }
+        }
+        if (remote.isEmpty() || !admitRedis()) return found;
+
+        Map<String, String> fromRedis;
+        long start = System.nanoTime();
+        try {
+            long deadline = start + budgetNanos;
+            fromRedis = bulkhead.call(budgetNanos, () ->
+                    redis.execute((RedisCallback<Map<String, String>>) connection -> multiGetBySlot(connection, remote, deadline)));
+            onRedisSuccess();
+        } catch (DataAccessException | BackendBusyException ex) {
+            onRedisFailure("MGET", ex);
+            return found;
+        } finally {
+            redisMultiGet.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        int redisFound = fromRedis == null ? 0 : fromRedis.size();
+        recordRedisLookups(redisFound, remote.size() - redisFound);
+        if (fromRedis != null) {
+            fromRedis.forEach((shortUrl, value) -> {
+                String fullUrl = live(value);
+                if (fullUrl == null) return;
+                local.put(shortUrl, value);
+                found.put(shortUrl, fullUrl);
+            });
+        }
+        return found;
     }
 
     public void registerHitAndMaybeCache(String shortUrl, String fullUrl) {
-        String hk = hitsKey(shortUrl);
+        registerHitAndMaybeCache(shortUrl, fullUrl, null);
+    }
+
+    public void registerHitAndMaybeCache(String shortUrl, String fullUrl, Instant expiresAt) {
+        if (!registerHit(shortUrl)) return;
 
-        Long hits = redis.opsForValue().increment(hk);
-        if (hits == null) return;
+        Duration ttl = cacheTtl(expiresAt);
+        if (ttl == null) return;
 
-        if (hits == 1) {
-            redis.expire(hk, HITS_TTL);
-        } else {
-            Long ttl = redis.getExpire(hk);
-            if (ttl != null && ttl < 0) {
-                redis.expire(hk, HITS_TTL);
+        String value = encode(fullUrl, expiresAt);
+        if (admitRedis()) {
+            long start = System.nanoTime();
+            try {
+                long deadline = start + budgetNanos;
+                bulkhead.run(budgetNanos, () -> redis.execute((RedisCallback<Boolean>) connection ->
+                        setIfAbsentWithinBudget(connection, shortUrl, value, ttl, deadline)));
+                onRedisSuccess();
+            } catch (DataAccessException | BackendBusyException ex) {
+                onRedisFailure("SET", ex);
+            } finally {
+                redisSet.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             }
         }
+        local.put(shortUrl, value);
+        promotions.increment();
+    }
+
+    String getLocal(String shortUrl) {
+        String fullUrl = live(local.getIfPresent(shortUrl));
+        (fullUrl != null ? localHits : localMisses).increment();
+        return fullUrl;
+    }
+
+    void putLocal(String shortUrl, String value) {
+        local.put(shortUrl, value);
+    }
+
+    String live(String value) {
+        if (value == null) return null;
+        return expiresAtMillis(value) > clock.millis() ? urlOf(value) : null;
+    }
+
+    Duration cacheTtl(Instant expiresAt) {
+        if (expiresAt == null) return CACHE_TTL;
+        Duration remaining = Duration.between(clock.instant(), expiresAt);
+        if (remaining.isNegative() || remaining.isZero()) return null;
+        return remaining.compareTo(CACHE_TTL) < 0 ? remaining : CACHE_TTL;
+    }
+
+    boolean registerHit(String shortUrl) {
+        return hotness.increment(shortUrl) >= HOT_THRESHOLD;
+    }
+
+    void recordPromotion() {
+        promotions.increment();
+    }
+
+    Duration budget() {
+        return budget;
+    }
+
+    Bulkhead bulkhead() {
+        return bulkhead;
+    }
+
+    boolean admitRedis() {
+        if (breaker.tryAcquire() != CircuitBreaker.State.OPEN) return true;
+        bypassedOpen.increment();
+        return false;
+    }
+
+    void onRedisSuccess() {
+        breaker.onSuccess();
+    }
+
+    void onRedisFailure(String command, Throwable ex) {
+        breaker.onFailure();
+        bypassedFailure.increment();
+        log.debug("Redis {} failed, serving without cache: {}", command, ex.toString());
+    }
+
+    void recordRedisLookups(int hits, int misses) {
+        if (hits > 0) redisHits.increment(hits);
+        if (misses > 0) redisMisses.increment(misses);
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("shortener.cache.lookups")
+                .description("Cache lookups per tier")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
 
-        if (hits >= HOT_THRESHOLD) {
-            redis.opsForValue().set(cacheKey(shortUrl), fullUrl, CACHE_TTL);
-            redis.delete(hk);
+    private static Counter bypassed(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("shortener.cache.bypassed")
+                .description("Redis lookups skipped because the breaker was open or the call failed or ran over budget")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static Timer redisTimer(MeterRegistry meterRegistry, String command) {
+        return Timer.builder("shortener.redis.latency")
+                .description("Redis command latency as seen by the cache, bulkhead wait included")
+                .tag("command", command)
+                .register(meterRegistry);
+    }
+
+    private String getWithinBudget(RedisConnection connection, String shortUrl, long deadline) {
+        byte[] key = cacheKey(shortUrl).getBytes(StandardCharsets.UTF_8);
+        if (!(connection.getNativeConnection() instanceof RedisStringAsyncCommands<?, ?>)) {
+            byte[] value = connection.stringCommands().get(key);
+            return value == null ? null : new String(value, StandardCharsets.UTF_8);
+        }
+
+        @SuppressWarnings("unchecked")
+        RedisStringAsyncCommands<byte[], byte[]> async = (RedisStringAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+        byte[] value = await(async.get(key).toCompletableFuture(), "GET", deadline);
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    private Boolean setIfAbsentWithinBudget(RedisConnection connection, String shortUrl, String value, Duration ttl,
+                                            long deadline) {
+        byte[] key = cacheKey(shortUrl).getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (!(connection.getNativeConnection() instanceof RedisStringAsyncCommands<?, ?>)) {
+            return connection.stringCommands().set(key, bytes, Expiration.from(ttl), SetOption.ifAbsent());
+        }
+
+        @SuppressWarnings("unchecked")
+        RedisStringAsyncCommands<byte[], byte[]> async = (RedisStringAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+        return "OK".equals(await(async.set(key, bytes, SetArgs.Builder.nx().px(ttl)).toCompletableFuture(), "SET", deadline));
+    }
+
+    // the budget covers the bulkhead wait too, so each command only gets what is left of it
+    private <T> T await(CompletableFuture<T> future, String command, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            throw new QueryTimeoutException("Redis " + command + " exceeded its " + budget.toMillis() + "ms budget", ex);
+        } catch (ExecutionException ex) {
+            throw new RedisSystemException("Redis " + command + " failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RedisSystemException("Interrupted while waiting for Redis " + command, ex);
+        }
+    }
+
+    // MGET only works within one slot
+    private Map<String, String> multiGetBySlot(RedisConnection connection, List<String> shortUrls, long deadline) {
+        Map<Integer, List<String>> bySlot = new HashMap<>();
+        for (String shortUrl : shortUrls) {
+            bySlot.computeIfAbsent(SlotHash.getSlot(cacheKey(shortUrl)), slot -> new ArrayList<>()).add(shortUrl);
+        }
+
+        Map<String, String> found = new HashMap<>();
+        Object nativeConnection = connection.getNativeConnection();
+
+        if (!(nativeConnection instanceof RedisStringAsyncCommands<?, ?>)) {
+            for (List<String> group : bySlot.values()) {
+                List<byte[]> values = connection.stringCommands().mGet(keysOf(group));
+                for (int i = 0; values != null && i < group.size(); i++) {
+                    if (values.get(i) != null) {
+                        found.put(group.get(i), new String(values.get(i), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            return found;
+        }
+
+        @SuppressWarnings("unchecked")
+        RedisStringAsyncCommands<byte[], byte[]> async = (RedisStringAsyncCommands<byte[], byte[]>) nativeConnection;
+
+        List<List<String>> groups = new ArrayList<>(bySlot.values());
+        List<CompletableFuture<List<KeyValue<byte[], byte[]>>>> pending = new ArrayList<>(groups.size());
+        for (List<String> group : groups) {
+            RedisFuture<List<KeyValue<byte[], byte[]>>> future = async.mget(keysOf(group));
+            pending.add(future.toCompletableFuture());
         }
+
+        await(CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)), "MGET", deadline);
+
+        for (int g = 0; g < groups.size(); g++) {
+            List<String> group = groups.get(g);
+            List<KeyValue<byte[], byte[]>> values = pending.get(g).join();
+            for (int i = 0; i < group.size() && i < values.size(); i++) {
+                if (values.get(i).hasValue()) {
+                    found.put(group.get(i), new String(values.get(i).getValue(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return found;
+    }
+
+    private static byte[][] keysOf(List<String> shortUrls) {
+        byte[][] keys = new byte[shortUrls.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = cacheKey(shortUrls.get(i)).getBytes(StandardCharsets.UTF_8);
+        }
+        return keys;
+    }
+
+    static String cacheKey(String shortUrl) {
+        return "url:cache:{" + shortUrl + "}";
+    }
+
+    static String encode(String fullUrl, Instant expiresAt) {
+        return expiresAt == null ? fullUrl : expiresAt.toEpochMilli() + " " + fullUrl;
     }
 
-    private static String cacheKey(String shortUrl) {
-        return "url:cache:" + shortUrl;
+    static long expiresAtMillis(String value) {
+        if (value.isEmpty() || !Character.isDigit(value.charAt(0))) return Long.MAX_VALUE;
+        int space = value.indexOf(' ');
+        return space < 0 ? Long.MAX_VALUE : Long.parseLong(value, 0, space, 10);
     }
 
-    private static String hitsKey(String shortUrl) {
-        return "url:hits:" + shortUrl;
+    static String urlOf(String value) {
+        if (value.isEmpty() || !Character.isDigit(value.charAt(0))) return value;
+        return value.substring(value.indexOf(' ') + 1);
+    }
+
+    private final class CappedExpiry implements Expiry<String, String> {
+
+        private final long localTtlNanos;
+
+        CappedExpiry(Duration localTtl) {
+            this.localTtlNanos = localTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, String value, long currentTime) {
+            long expiresAt = expiresAtMillis(value);
+            if (expiresAt == Long.MAX_VALUE) return localTtlNanos;
+            long remaining = TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAt - clock.millis()));
+            return Math.min(localTtlNanos, remaining);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, String value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, String value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,52 +1,263 @@
 package com.wl.url.shortener.service;
 
 import com.wl.url.shortener.dto.response.ShortenerFullResponse;
+import com.wl.url.shortener.dto.response.ShortenerResolveResponse;
 import com.wl.url.shortener.dto.response.ShortenerResponse;
+import com.wl.url.shortener.dto.response.ShortenerStatsResponse;
+import com.wl.url.shortener.dto.response.ShortenerVisitorsResponse;
 import com.wl.url.shortener.entity.ShortenerUrl;
 import com.wl.url.shortener.exception.impl.NotFoundException;
-import com.wl.url.shortener.repository.ShortenerUrlRepository;
+import com.wl.url.shortener.repository.ShortenerUrlReader;
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.Hedge;
+import com.wl.url.shortener.utils.ShortCodeSource;
+import com.wl.url.shortener.utils.ShortenerUtils;
+import com.wl.url.shortener.utils.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class ShortenerService {
 
-    private final ShortenerUrlRepository repository;
+    private final ShortenerUrlReader reader;
     private final ShortUrlCache cache;
     private final ShortCodeCreationService creationService;
+    private final ShortCodeBloomFilter bloomFilter;
+    private final ShortCodeSource generator;
+    private final Bulkhead cassandraBulkhead;
+    private final Hedge redirectHedge;
+    private final ClickAnalytics clickAnalytics;
+    private final UniqueVisitors uniqueVisitors;
+    private final SingleFlight<String, String> storageLoads = new SingleFlight<>();
+
+    private final Timer cassandraRead;
+    private final Timer lookupFromCache;
+    private final Timer lookupFromStorage;
+    private final Timer lookupNotFound;
+    private final Timer lookupMalformed;
 
-    public ShortenerService(ShortenerUrlRepository repository,
+    public ShortenerService(ShortenerUrlReader reader,
                             ShortUrlCache cache,
-                            ShortCodeCreationService creationService) {
-        this.repository = repository;
+                            ShortCodeCreationService creationService,
+                            ShortCodeBloomFilter bloomFilter,
+                            ShortCodeSource generator,
+                            @Qualifier("cassandraBulkhead") Bulkhead cassandraBulkhead,
+                            @Qualifier("redirectReadHedge") Hedge redirectHedge,
+                            ClickAnalytics clickAnalytics,
+                            UniqueVisitors uniqueVisitors,
+                            MeterRegistry meterRegistry) {
+        this.reader = reader;
         this.cache = cache;
         this.creationService = creationService;
+        this.bloomFilter = bloomFilter;
+        this.generator = generator;
+        this.cassandraBulkhead = cassandraBulkhead;
+        this.redirectHedge = redirectHedge;
+        this.clickAnalytics = clickAnalytics;
+        this.uniqueVisitors = uniqueVisitors;
+
+        this.cassandraRead = Timer.builder("shortener.cassandra.latency")
+                .description("Cassandra latency as seen by the service, bulkhead wait included")
+                .tag("operation", "read")
+                .register(meterRegistry);
+        this.lookupFromCache = lookupTimer(meterRegistry, "cache");
+        this.lookupFromStorage = lookupTimer(meterRegistry, "storage");
+        this.lookupNotFound = lookupTimer(meterRegistry, "not_found");
+        this.lookupMalformed = lookupTimer(meterRegistry, "malformed");
+        FunctionCounter.builder("shortener.lookup.coalesced", storageLoads, SingleFlight::coalesced)
+                .description("Cache misses that waited on a storage load already in flight for the same code")
+                .register(meterRegistry);
     }
 
     public ShortenerResponse save(String fullUrl) {
+        return save(fullUrl, null, null);
+    }
+
+    public ShortenerResponse save(String fullUrl, Instant expiresAt, String alias) {
         if (!StringUtils.hasText(fullUrl)) {
             throw new IllegalArgumentException("url must not be null/blank");
         }
-        String shortCode = creationService.createAndPersist(fullUrl);
+        String shortCode = creationService.createAndPersist(fullUrl, expiresAt, alias);
         return new ShortenerResponse(shortCode, null);
     }
 
+    public CompletableFuture<ShortenerResponse> saveAsync(String fullUrl) {
+        return saveAsync(fullUrl, null, null);
+    }
+
+    public CompletableFuture<ShortenerResponse> saveAsync(String fullUrl, Instant expiresAt, String alias) {
+        if (!StringUtils.hasText(fullUrl)) {
+            throw new IllegalArgumentException("url must not be null/blank");
+        }
+        return creationService.createAndPersistAsync(fullUrl, expiresAt, alias)
+                .thenApply(shortCode -> new ShortenerResponse(shortCode, null));
+    }
+
     public ShortenerFullResponse findByShortUrl(String shortUrl) {
+        return findByShortUrl(shortUrl, 0);
+    }
+
+    public ShortenerFullResponse findByShortUrl(String shortUrl, long visitor) {
+        return new ShortenerFullResponse(resolveFullUrl(shortUrl, visitor));
+    }
+
+    public String resolveFullUrl(String shortUrl) {
+        return resolveFullUrl(shortUrl, 0);
+    }
+
+    public String resolveFullUrl(String shortUrl, long visitor) {
         if (!StringUtils.hasText(shortUrl)) {
             throw new IllegalArgumentException("shortUrl must not be null/blank");
         }
 
+        long start = System.nanoTime();
+        if (!isPlausible(shortUrl)) {
+            lookupMalformed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new NotFoundException("Short URL not found");
+        }
+
+        if (!bloomFilter.mightExist(shortUrl)) {
+            lookupNotFound.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new NotFoundException("Short URL not found");
+        }
+
         String cached = cache.get(shortUrl);
         if (cached != null) {
-            return new ShortenerFullResponse(cached);
+            clickAnalytics.record(shortUrl, visitor);
+            lookupFromCache.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached;
         }
 
-        String fullUrl = repository.findById(shortUrl)
-                .map(ShortenerUrl::getFullUrl)
-                .orElseThrow(() -> new NotFoundException("Short URL not found"));
+        String fullUrl;
+        try {
+            fullUrl = storageLoads.call(shortUrl, () -> loadFromStorage(shortUrl));
+        } catch (NotFoundException ex) {
+            lookupNotFound.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw ex;
+        }
+        clickAnalytics.record(shortUrl, visitor);
+
+        lookupFromStorage.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return fullUrl;
+    }
 
-        cache.registerHitAndMaybeCache(shortUrl, fullUrl);
+    private String loadFromStorage(String shortUrl) {
+        long readStart = System.nanoTime();
+        Optional<ShortenerUrl> stored;
+        try {
+            stored = cassandraBulkhead.call(() -> await(redirectHedge.callAsync(attempt -> reader.findUrl(shortUrl, attempt))));
+        } finally {
+            cassandraRead.record(System.nanoTime() - readStart, TimeUnit.NANOSECONDS);
+        }
+
+        if (stored.isEmpty()) {
+            throw new NotFoundException("Short URL not found");
+        }
+        String fullUrl = stored.get().getFullUrl();
+        cache.registerHitAndMaybeCache(shortUrl, fullUrl, stored.get().getExpiresAt());
+        return fullUrl;
+    }
+
+    public ShortenerResolveResponse resolveAll(List<String> shortUrls) {
+        Set<String> codes = new LinkedHashSet<>(shortUrls);
+        List<String> candidates = codes.stream()
+                .filter(this::isPlausible)
+                .filter(bloomFilter::mightExist)
+                .toList();
+
+        Map<String, String> found = new HashMap<>(cache.getAll(candidates));
+
+        Map<String, CompletableFuture<Optional<ShortenerUrl>>> lookups = new LinkedHashMap<>();
+        for (String code : candidates) {
+            if (!found.containsKey(code)) {
+                long readStart = System.nanoTime();
+                lookups.put(code, cassandraBulkhead.callAsync(() -> reader.findUrl(code))
+                        .whenComplete((ignored, ex) ->
+                                cassandraRead.record(System.nanoTime() - readStart, TimeUnit.NANOSECONDS)));
+            }
+        }
+
+        await(CompletableFuture.allOf(lookups.values().toArray(CompletableFuture[]::new)));
+
+        lookups.forEach((code, lookup) -> lookup.join().ifPresent(stored -> {
+            found.put(code, stored.getFullUrl());
+            cache.registerHitAndMaybeCache(code, stored.getFullUrl(), stored.getExpiresAt());
+        }));
+
+        Map<String, String> urls = new LinkedHashMap<>();
+        List<String> notFound = new ArrayList<>();
+        for (String code : codes) {
+            String fullUrl = found.get(code);
+            if (fullUrl != null) {
+                urls.put(code, fullUrl);
+            } else {
+                notFound.add(code);
+            }
+        }
+        return new ShortenerResolveResponse(urls, notFound);
+    }
+
+    public CompletableFuture<ShortenerStatsResponse> stats(String shortUrl, int minutes) {
+        if (!StringUtils.hasText(shortUrl)) {
+            throw new IllegalArgumentException("shortUrl must not be null/blank");
+        }
+        if (!isPlausible(shortUrl) || !bloomFilter.mightExist(shortUrl)) {
+            return CompletableFuture.failedFuture(new NotFoundException("Short URL not found"));
+        }
+
+        return cassandraBulkhead.callAsync(() -> reader.findFullUrl(shortUrl))
+                .thenCompose(found -> found.isPresent()
+                        ? clickAnalytics.stats(shortUrl, minutes)
+                        : CompletableFuture.failedFuture(new NotFoundException("Short URL not found")));
+    }
+
+    public CompletableFuture<ShortenerVisitorsResponse> visitors(String shortUrl, LocalDate from, LocalDate to) {
+        if (!StringUtils.hasText(shortUrl)) {
+            throw new IllegalArgumentException("shortUrl must not be null/blank");
+        }
+        if (!isPlausible(shortUrl) || !bloomFilter.mightExist(shortUrl)) {
+            return CompletableFuture.failedFuture(new NotFoundException("Short URL not found"));
+        }
+
+        ShortenerVisitorsResponse visitors = uniqueVisitors.query(shortUrl, from, to);
+        return cassandraBulkhead.callAsync(() -> reader.findFullUrl(shortUrl))
+                .thenCompose(found -> found.isPresent()
+                        ? CompletableFuture.completedFuture(visitors)
+                        : CompletableFuture.failedFuture(new NotFoundException("Short URL not found")));
+    }
+
+    private boolean isPlausible(String shortUrl) {
+        long id = ShortenerUtils.tryDecode(shortUrl);
+        if (id < 0) return ShortenerUtils.isAlias(shortUrl);
+        return generator.isPlausible(id);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
 
-        return new ShortenerFullResponse(fullUrl);
+    private static Timer lookupTimer(MeterRegistry meterRegistry, String source) {
+        return Timer.builder("shortener.redirect.latency")
+                .description("Shortcode lookup latency inside the service, by where the URL came from")
+                .tag("source", source)
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,285 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.dto.response.ShortenerVisitorsResponse;
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.HyperLogLog;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.async.RedisScriptingAsyncCommands;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Component
+public class UniqueVisitors {
+
+    static final int MAX_RANGE_DAYS = 31;
+    private static final int DEFAULT_RANGE_DAYS = 7;
+    private static final Duration MERGE_TIMEOUT = Duration.ofSeconds(2);
+    private static final byte[] MERGE_SCRIPT = load("scripts/merge-hll.lua");
+    private static final byte[] REGISTERS = String.valueOf(HyperLogLog.REGISTERS).getBytes(StandardCharsets.UTF_8);
+
+    private final StringRedisTemplate redis;
+    private final Bulkhead bulkhead;
+    private final boolean enabled;
+    private final byte[] ttlSeconds;
+    private final int maxPending;
+    private final Executor merger;
+    private final Clock clock;
+
+    private final Counter merged;
+    private final Counter mergeFailures;
+    private final Counter dropped;
+
+    private Map<LocalDate, Map<String, HyperLogLog>> pending = new HashMap<>();
+    private int pendingCount;
+
+    private final AtomicBoolean merging = new AtomicBoolean();
+    private final Queue<Sketch> failed = new ConcurrentLinkedQueue<>();
+
+    public UniqueVisitors(StringRedisTemplate redis,
+                          @Qualifier("redisBulkhead") Bulkhead bulkhead,
+                          MeterRegistry meterRegistry,
+                          @Value("${shortener.analytics.unique-visitors.enabled:true}") boolean enabled,
+                          @Value("${shortener.analytics.unique-visitors.ttl:35d}") Duration ttl,
+                          @Value("${shortener.analytics.unique-visitors.max-pending:4096}") int maxPending) {
+        this(redis, bulkhead, meterRegistry, enabled, ttl, maxPending, Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "visitors-merge");
+            thread.setDaemon(true);
+            return thread;
+        }), Clock.systemUTC());
+    }
+
+    UniqueVisitors(StringRedisTemplate redis,
+                   Bulkhead bulkhead,
+                   MeterRegistry meterRegistry,
+                   boolean enabled,
+                   Duration ttl,
+                   int maxPending,
+                   Executor merger,
+                   Clock clock) {
+        this.redis = redis;
+        this.bulkhead = bulkhead;
+        this.enabled = enabled;
+        this.ttlSeconds = String.valueOf(ttl.toSeconds()).getBytes(StandardCharsets.UTF_8);
+        this.maxPending = maxPending;
+        this.merger = merger;
+        this.clock = clock;
+
+        this.merged = Counter.builder("shortener.analytics.visitors.merged")
+                .description("Per-day visitor sketches merged into Redis")
+                .register(meterRegistry);
+        this.mergeFailures = Counter.builder("shortener.analytics.visitors.merge.failures")
+                .description("Sketch merges that failed and were kept for the next flush")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("shortener.analytics.visitors.dropped")
+                .description("Visits not sketched because max-pending sketches were already open")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void add(String shortCode, LocalDate day, long visitor) {
+        if (!enabled || visitor == 0) return;
+
+        Map<String, HyperLogLog> byCode = pending.computeIfAbsent(day, d -> new HashMap<>());
+        HyperLogLog sketch = byCode.get(shortCode);
+        if (sketch == null) {
+            if (pendingCount >= maxPending) {
+                dropped.increment();
+                return;
+            }
+            sketch = new HyperLogLog();
+            byCode.put(shortCode, sketch);
+            pendingCount++;
+        }
+        sketch.add(visitor);
+    }
+
+    // merges are idempotent (register-wise max), so whatever fails is retried on the next round
+    public CompletableFuture<Void> flush() {
+        if (!enabled) return CompletableFuture.completedFuture(null);
+
+        for (Sketch retry; (retry = failed.poll()) != null; ) {
+            requeue(retry.day(), retry.shortCode(), retry.sketch());
+        }
+        if (pendingCount == 0 || !merging.compareAndSet(false, true)) return CompletableFuture.completedFuture(null);
+
+        List<Sketch> sketches = new ArrayList<>(pendingCount);
+        pending.forEach((day, byCode) -> byCode.forEach((code, sketch) -> sketches.add(new Sketch(day, code, sketch))));
+        pending = new HashMap<>();
+        pendingCount = 0;
+
+        try {
+            return CompletableFuture.runAsync(() -> merge(sketches), merger)
+                    .whenComplete((ignored, ex) -> merging.set(false));
+        } catch (RejectedExecutionException ex) {
+            merge(sketches);
+            merging.set(false);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!(merger instanceof ExecutorService service)) return;
+
+        service.shutdown();
+        try {
+            if (!service.awaitTermination(MERGE_TIMEOUT.toMillis() * 2, TimeUnit.MILLISECONDS)) {
+                log.warn("Visitor sketch merge still running on shutdown");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public ShortenerVisitorsResponse query(String shortCode, LocalDate from, LocalDate to) {
+        LocalDate last = to != null ? to : LocalDate.now(clock);
+        LocalDate first = from != null ? from : last.minusDays(DEFAULT_RANGE_DAYS - 1L);
+        if (first.isAfter(last)) {
+            LocalDate swap = first;
+            first = last;
+            last = swap;
+        }
+        if (ChronoUnit.DAYS.between(first, last) >= MAX_RANGE_DAYS) {
+            first = last.minusDays(MAX_RANGE_DAYS - 1L);
+        }
+
+        List<LocalDate> days = first.datesUntil(last.plusDays(1)).toList();
+        byte[][] keys = new byte[days.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(shortCode, days.get(i)).getBytes(StandardCharsets.UTF_8);
+        }
+
+        // the code is the hash tag: every day of a link is in the same slot and fits in one MGET
+        List<byte[]> values = bulkhead.call(() -> redis.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.stringCommands().mGet(keys)));
+
+        HyperLogLog union = new HyperLogLog();
+        Map<LocalDate, Long> perDay = new TreeMap<>();
+        for (int i = 0; values != null && i < days.size() && i < values.size(); i++) {
+            byte[] registers = values.get(i);
+            if (registers == null || registers.length != HyperLogLog.REGISTERS) continue;
+
+            HyperLogLog sketch = HyperLogLog.fromBytes(registers);
+            perDay.put(days.get(i), sketch.estimate());
+            union.merge(sketch);
+        }
+        return new ShortenerVisitorsResponse(shortCode, first, last, union.estimate(), perDay);
+    }
+
+    static String key(String shortCode, LocalDate day) {
+        return "url:uv:{" + shortCode + "}:" + day.format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    private void requeue(LocalDate day, String shortCode, HyperLogLog sketch) {
+        Map<String, HyperLogLog> byCode = pending.computeIfAbsent(day, d -> new HashMap<>());
+        HyperLogLog current = byCode.putIfAbsent(shortCode, sketch);
+        if (current == null) {
+            pendingCount++;
+        } else {
+            current.merge(sketch);
+        }
+    }
+
+    private void merge(List<Sketch> sketches) {
+        boolean[] done;
+        try {
+            done = bulkhead.call(() -> redis.execute((RedisCallback<boolean[]>) connection -> mergeAll(connection, sketches)));
+        } catch (RuntimeException ex) {
+            log.warn("Could not merge {} visitor sketches, retrying on next flush: {}", sketches.size(), ex.getMessage());
+            done = new boolean[sketches.size()];
+        }
+
+        for (int i = 0; i < sketches.size(); i++) {
+            if (done[i]) {
+                merged.increment();
+            } else {
+                mergeFailures.increment();
+                failed.add(sketches.get(i));
+            }
+        }
+    }
+
+    private boolean[] mergeAll(RedisConnection connection, List<Sketch> sketches) {
+        boolean[] done = new boolean[sketches.size()];
+        Object nativeConnection = connection.getNativeConnection();
+
+        if (!(nativeConnection instanceof RedisScriptingAsyncCommands<?, ?>)) {
+            connection.openPipeline();
+            try {
+                for (Sketch sketch : sketches) {
+                    connection.scriptingCommands().eval(MERGE_SCRIPT, ReturnType.INTEGER, 1, sketch.key(), ttlSeconds,
+                            REGISTERS, sketch.sketch().toCompactBytes());
+                }
+            } finally {
+                connection.closePipeline();
+            }
+            Arrays.fill(done, true);
+            return done;
+        }
+
+        @SuppressWarnings("unchecked")
+        RedisScriptingAsyncCommands<byte[], byte[]> async = (RedisScriptingAsyncCommands<byte[], byte[]>) nativeConnection;
+
+        List<CompletableFuture<Object>> sent = new ArrayList<>(done.length);
+        for (Sketch sketch : sketches) {
+            sent.add(async.<Object>eval(MERGE_SCRIPT, ScriptOutputType.INTEGER, new byte[][]{sketch.key()},
+                    ttlSeconds, REGISTERS, sketch.sketch().toCompactBytes()).toCompletableFuture());
+        }
+
+        try {
+            CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new))
+                    .get(MERGE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException ex) {
+            // each EVAL is checked below; unfinished ones go back to the queue
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (int i = 0; i < done.length; i++) {
+            CompletableFuture<Object> future = sent.get(i);
+            done[i] = future.isDone() && !future.isCompletedExceptionally();
+        }
+        return done;
+    }
+
+    private static byte[] load(String path) {
+        try {
+            return new ClassPathResource(path).getContentAsByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not load " + path, ex);
+        }
+    }
+
+    private record Sketch(LocalDate day, String shortCode, HyperLogLog sketch) {
+
+        byte[] key() {
+            return UniqueVisitors.key(shortCode, day).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
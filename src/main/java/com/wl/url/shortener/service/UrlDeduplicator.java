@@ -0,0 +1,75 @@
+package com.wl.url.shortener.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wl.url.shortener.repository.ShortenerUrlHashStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+@Component
+public class UrlDeduplicator {
+
+    private static final int HASH_BYTES = 16;
+
+    private final ShortenerUrlHashStore store;
+    private final boolean enabled;
+    private final Cache<ByteBuffer, String> local;
+
+    public UrlDeduplicator(ShortenerUrlHashStore store,
+                           MeterRegistry meterRegistry,
+                           @Value("${shortener.dedup.enabled:false}") boolean enabled,
+                           @Value("${shortener.dedup.cache.max-size:100000}") long localMaxSize,
+                           @Value("${shortener.dedup.cache.ttl:1h}") Duration localTtl) {
+        this.store = store;
+        this.enabled = enabled;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "shortener.dedup.local");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<Optional<String>> findExisting(String fullUrl) {
+        ByteBuffer hash = hash(fullUrl);
+        String cached = local.getIfPresent(hash);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(Optional.of(cached));
+        }
+
+        return store.findShortCode(hash).thenApply(found -> {
+            found.ifPresent(shortCode -> local.put(hash, shortCode));
+            return found;
+        });
+    }
+
+    public CompletableFuture<Void> remember(String fullUrl, String shortCode) {
+        ByteBuffer hash = hash(fullUrl);
+        local.put(hash, shortCode);
+        return store.save(hash, shortCode);
+    }
+
+    static ByteBuffer hash(String fullUrl) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fullUrl.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(Arrays.copyOf(digest, HASH_BYTES));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+}
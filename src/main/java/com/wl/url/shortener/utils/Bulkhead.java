@@ -0,0 +1,94 @@
+package com.wl.url.shortener.utils;
+
+import com.wl.url.shortener.exception.impl.BackendBusyException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public final class Bulkhead {
+
+    private final String name;
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+
+    public Bulkhead(String name, int maxConcurrent, Duration maxWait) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be > 0");
+        }
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("maxWait must be >= 0");
+        }
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    public <T> T call(Supplier<T> action) {
+        return call(maxWaitNanos, action);
+    }
+
+    // callers with their own deadline never wait longer than what is left of it
+    public <T> T call(long maxWaitNanos, Supplier<T> action) {
+        acquire(maxWaitNanos);
+        try {
+            return action.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void run(Runnable action) {
+        run(maxWaitNanos, action);
+    }
+
+    public void run(long maxWaitNanos, Runnable action) {
+        acquire(maxWaitNanos);
+        try {
+            action.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> action) {
+        return callAsync(maxWaitNanos, action);
+    }
+
+    // a cancelled future releases the permit too
+    public <T> CompletableFuture<T> callAsync(long maxWaitNanos, Supplier<CompletableFuture<T>> action) {
+        acquire(maxWaitNanos);
+        CompletableFuture<T> future;
+        try {
+            future = action.get();
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+        future.whenComplete((result, ex) -> permits.release());
+        return future;
+    }
+
+    private void acquire(long maxWaitNanos) {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(Math.min(maxWaitNanos, this.maxWaitNanos), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BackendBusyException("Interrupted while waiting for " + name);
+        }
+        if (!acquired) {
+            throw new BackendBusyException(name + " is saturated, try again later");
+        }
+    }
+}
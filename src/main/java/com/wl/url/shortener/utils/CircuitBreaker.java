@@ -0,0 +1,186 @@
+package com.wl.url.shortener.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long baseOpenMillis;
+    private final long maxOpenMillis;
+    private final int probes;
+    private final int windowSize;
+    private final Clock clock;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile Window window;
+    private volatile long openUntil;
+    private volatile long openMillis;
+
+    // guarded by this: only touched while OPEN or HALF_OPEN
+    private long probeDeadline;
+    private int probesLeft;
+    private int probeSuccesses;
+
+    private final LongAdder trips = new LongAdder();
+    private final LongAdder probesIssued = new LongAdder();
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration openDuration, Duration maxOpenDuration, int probes) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, openDuration, maxOpenDuration, probes, Clock.systemUTC());
+    }
+
+    CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                   Duration openDuration, Duration maxOpenDuration, int probes, Clock clock) {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("need 0 < minimumCalls <= windowSize");
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("failureRateThreshold must be in (0, 1]");
+        }
+        if (openDuration.isNegative() || openDuration.isZero() || maxOpenDuration.compareTo(openDuration) < 0) {
+            throw new IllegalArgumentException("need 0 < openDuration <= maxOpenDuration");
+        }
+        if (probes <= 0) {
+            throw new IllegalArgumentException("probes must be > 0");
+        }
+        this.name = name;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.baseOpenMillis = openDuration.toMillis();
+        this.maxOpenMillis = maxOpenDuration.toMillis();
+        this.probes = probes;
+        this.windowSize = windowSize;
+        this.clock = clock;
+        this.window = new Window(windowSize);
+        this.openMillis = baseOpenMillis;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public State state() {
+        return state.get();
+    }
+
+    public State tryAcquire() {
+        if (state.get() == State.CLOSED) return State.CLOSED;
+
+        synchronized (this) {
+            State current = state.get();
+            if (current == State.OPEN) {
+                if (clock.millis() < openUntil) return State.OPEN;
+                transition(State.OPEN, State.HALF_OPEN);
+                startProbing();
+            } else if (current == State.HALF_OPEN && probesLeft == 0 && clock.millis() >= probeDeadline) {
+                // a probe that never reported back (cancelled, discarded) must not keep the circuit half-open forever
+                startProbing();
+            }
+            if (state.get() == State.HALF_OPEN && probesLeft > 0) {
+                probesLeft--;
+                probesIssued.increment();
+                return State.HALF_OPEN;
+            }
+            return state.get() == State.CLOSED ? State.CLOSED : State.OPEN;
+        }
+    }
+
+    public void onSuccess() {
+        if (state.get() == State.CLOSED) {
+            window.record(false);
+            return;
+        }
+
+        synchronized (this) {
+            if (state.get() == State.HALF_OPEN && ++probeSuccesses >= probes) {
+                openMillis = baseOpenMillis;
+                window = new Window(windowSize);
+                transition(State.HALF_OPEN, State.CLOSED);
+            }
+        }
+    }
+
+    public void onFailure() {
+        if (state.get() == State.CLOSED) {
+            Window current = window;
+            int recorded = current.record(true);
+            if (recorded >= minimumCalls && current.failures.get() >= failureRateThreshold * recorded) {
+                trip(State.CLOSED);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            if (state.get() == State.HALF_OPEN) {
+                openMillis = Math.min(openMillis * 2, maxOpenMillis);
+                trip(State.HALF_OPEN);
+            }
+        }
+    }
+
+    public long trips() {
+        return trips.sum();
+    }
+
+    public long probes() {
+        return probesIssued.sum();
+    }
+
+    private void startProbing() {
+        probesLeft = probes;
+        probeSuccesses = 0;
+        probeDeadline = clock.millis() + openMillis;
+    }
+
+    // openUntil is written before the CAS so that whoever sees OPEN also sees its deadline
+    private void trip(State from) {
+        openUntil = clock.millis() + openMillis;
+        if (transition(from, State.OPEN)) {
+            trips.increment();
+        }
+    }
+
+    private boolean transition(State from, State next) {
+        if (!state.compareAndSet(from, next)) return false;
+        if (next == State.OPEN) {
+            log.warn("Circuit {} opened for {}ms (was {})", name, openMillis, from);
+        } else {
+            log.info("Circuit {} is now {}", name, next);
+        }
+        return true;
+    }
+
+    private static final class Window {
+
+        private final AtomicIntegerArray outcomes;
+        private final AtomicLong cursor = new AtomicLong();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        Window(int size) {
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        int record(boolean failed) {
+            long index = cursor.getAndIncrement();
+            int outcome = failed ? 1 : 0;
+            int previous = outcomes.getAndSet((int) (index % outcomes.length()), outcome);
+            if (outcome != previous) {
+                failures.addAndGet(outcome - previous);
+            }
+            return (int) Math.min(index + 1, outcomes.length());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.wl.url.shortener.utils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class FrequencySketch {
+
+    public static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L,
+            0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL,
+            0xcbf29ce484222325L
+    };
+
+    private final int width;
+    private final int mask;
+    private final long sampleSize;
+
+    private final AtomicIntegerArray table;
+    private final AtomicIntegerArray pending;
+    private final AtomicLong additions = new AtomicLong();
+    private final AtomicIntegerArray remote;
+    private volatile long remoteAdditions;
+
+    public FrequencySketch(int width, long sampleSize) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width must be > 0");
+        }
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("sampleSize must be > 0");
+        }
+        int w = 1;
+        while (w < width) {
+            w <<= 1;
+        }
+        this.width = w;
+        this.mask = w - 1;
+        this.sampleSize = sampleSize;
+        this.table = new AtomicIntegerArray(DEPTH * this.width);
+        this.pending = new AtomicIntegerArray(DEPTH * this.width);
+        this.remote = new AtomicIntegerArray(DEPTH * this.width);
+    }
+
+    public int size() {
+        return DEPTH * width;
+    }
+
+    public int increment(String key) {
+        int local = Integer.MAX_VALUE;
+
+        for (int row = 0; row < DEPTH; row++) {
+            int idx = indexOf(key, row);
+            int count = table.incrementAndGet(idx);
+            pending.incrementAndGet(idx);
+            local = Math.min(local, count);
+        }
+
+        if (additions.incrementAndGet() == sampleSize) {
+            age();
+        }
+
+        return Math.max(local, remoteEstimate(key));
+    }
+
+    public int estimate(String key) {
+        int local = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            local = Math.min(local, table.get(indexOf(key, row)));
+        }
+        return Math.max(local, remoteEstimate(key));
+    }
+
+    public int[] drainPending() {
+        int[] delta = new int[size()];
+        for (int i = 0; i < delta.length; i++) {
+            if (pending.get(i) != 0) {
+                delta[i] = pending.getAndSet(i, 0);
+            }
+        }
+        return delta;
+    }
+
+    public void mergeRemote(int[] cells, int[] counts, long additions) {
+        if (cells.length != counts.length) {
+            throw new IllegalArgumentException("cells and counts must have the same length");
+        }
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] < 0 || cells[i] >= remote.length()) {
+                throw new IllegalArgumentException("remote cell out of range: " + cells[i]);
+            }
+            remote.set(cells[i], counts[i]);
+        }
+        this.remoteAdditions = additions;
+    }
+
+    public void clearRemote() {
+        remoteAdditions = 0;
+        for (int i = 0; i < remote.length(); i++) {
+            remote.set(i, 0);
+        }
+    }
+
+    // The remote table sums every node over a whole window and never ages, so its counts are scaled
+    // down to sampleSize additions: the same horizon the local counters keep between two halvings.
+    private int remoteEstimate(String key) {
+        long seen = remoteAdditions;
+        if (seen == 0) return 0;
+
+        long min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, remote.get(indexOf(key, row)));
+        }
+        return (int) (min * sampleSize / Math.max(seen, sampleSize));
+    }
+
+    private void age() {
+        for (int i = 0; i < table.length(); i++) {
+            int current;
+            do {
+                current = table.get(i);
+            } while (current != 0 && !table.compareAndSet(i, current, current >>> 1));
+        }
+        additions.addAndGet(-sampleSize / 2);
+    }
+
+    private int indexOf(String key, int row) {
+        return row * width + ((int) (hash(key, SEEDS[row]) >>> 32) & mask);
+    }
+
+    // fixed seeds: HotnessSync shares cell indexes between nodes
+    static long hash(String key, long seed) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,202 @@
+package com.wl.url.shortener.utils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+// only for idempotent operations
+public final class Hedge {
+
+    private static final long CREDIT = 1_000_000;
+    private static final long MAX_CREDITS = 10 * CREDIT;
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final String name;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long creditPerCall;
+    private final Timer timer;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong credits = new AtomicLong();
+    private volatile long thresholdNanos;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder won = new LongAdder();
+    private final LongAdder capped = new LongAdder();
+    private final LongAdder failedOver = new LongAdder();
+
+    public Hedge(String name, double percentile, Duration minDelay, Duration maxDelay, double maxRate, int window,
+                 ScheduledExecutorService scheduler) {
+        this(name, percentile, minDelay, maxDelay, maxRate, window,
+                (task, nanos) -> scheduler.schedule(task, nanos, TimeUnit.NANOSECONDS));
+    }
+
+    Hedge(String name, double percentile, Duration minDelay, Duration maxDelay, double maxRate, int window,
+          Timer timer) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("percentile must be in (0, 1)");
+        }
+        if (minDelay.isNegative() || maxDelay.compareTo(minDelay) < 0) {
+            throw new IllegalArgumentException("need 0 <= minDelay <= maxDelay");
+        }
+        if (maxRate < 0 || maxRate > 1) {
+            throw new IllegalArgumentException("maxRate must be in [0, 1]");
+        }
+        if (window < RECOMPUTE_EVERY) {
+            throw new IllegalArgumentException("window must be >= " + RECOMPUTE_EVERY);
+        }
+        this.name = name;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.creditPerCall = Math.round(maxRate * CREDIT);
+        this.timer = timer;
+        this.samples = new AtomicLongArray(window);
+        this.thresholdNanos = maxDelayNanos;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public <T> CompletableFuture<T> callAsync(IntFunction<CompletableFuture<T>> request) {
+        calls.increment();
+        earnCredit();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicBoolean alternateSent = new AtomicBoolean();
+        long start = System.nanoTime();
+        request.apply(0).whenComplete((value, ex) -> {
+            if (ex == null) {
+                record(System.nanoTime() - start);
+            } else if (alternateSent.compareAndSet(false, true)) {
+                // the first attempt may have been pinned to a replica that is now failing
+                failedOver.increment();
+                pending.incrementAndGet();
+                sendAlternate(request, result, pending, false);
+            }
+            settle(result, pending, value, ex, false);
+        });
+
+        if (creditPerCall > 0 && !result.isDone()) {
+            Future<?> speculation = timer.schedule(
+                    () -> speculate(request, result, pending, alternateSent), thresholdNanos);
+            result.whenComplete((value, ex) -> speculation.cancel(false));
+        }
+        return result;
+    }
+
+    public Duration threshold() {
+        return Duration.ofNanos(thresholdNanos);
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    public long hedged() {
+        return hedged.sum();
+    }
+
+    public long won() {
+        return won.sum();
+    }
+
+    public long capped() {
+        return capped.sum();
+    }
+
+    public long failedOver() {
+        return failedOver.sum();
+    }
+
+    private <T> void speculate(IntFunction<CompletableFuture<T>> request, CompletableFuture<T> result,
+                               AtomicInteger pending, AtomicBoolean alternateSent) {
+        if (result.isDone() || alternateSent.get()) return;
+        if (!spendCredit()) {
+            capped.increment();
+            return;
+        }
+        if (!alternateSent.compareAndSet(false, true)) return;
+        if (pending.getAndUpdate(p -> p == 0 ? 0 : p + 1) == 0) return;
+
+        hedged.increment();
+        sendAlternate(request, result, pending, true);
+    }
+
+    private <T> void sendAlternate(IntFunction<CompletableFuture<T>> request, CompletableFuture<T> result,
+                                   AtomicInteger pending, boolean speculative) {
+        CompletableFuture<T> second;
+        try {
+            second = request.apply(1);
+        } catch (RuntimeException ex) {
+            second = CompletableFuture.failedFuture(ex);
+        }
+        second.whenComplete((value, ex) -> settle(result, pending, value, ex, speculative));
+    }
+
+    private <T> void settle(CompletableFuture<T> result, AtomicInteger pending, T value, Throwable ex,
+                            boolean speculative) {
+        if (ex == null) {
+            if (result.complete(value) && speculative) won.increment();
+        } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+        }
+    }
+
+    private void record(long latencyNanos) {
+        long n = recorded.getAndIncrement();
+        samples.set((int) (n % samples.length()), latencyNanos);
+        if ((n + 1) % RECOMPUTE_EVERY == 0) {
+            recompute((int) Math.min(n + 1, samples.length()));
+        }
+    }
+
+    private void recompute(int filled) {
+        long[] window = new long[filled];
+        for (int i = 0; i < filled; i++) {
+            window[i] = samples.get(i);
+        }
+        Arrays.sort(window);
+        long value = window[(int) Math.min(filled - 1, Math.ceil(percentile * filled) - 1)];
+        thresholdNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, value));
+    }
+
+    private void earnCredit() {
+        if (creditPerCall == 0) return;
+        long current;
+        do {
+            current = credits.get();
+            if (current >= MAX_CREDITS) return;
+        } while (!credits.compareAndSet(current, Math.min(MAX_CREDITS, current + creditPerCall)));
+    }
+
+    private boolean spendCredit() {
+        long current;
+        do {
+            current = credits.get();
+            if (current < CREDIT) return false;
+        } while (!credits.compareAndSet(current, current - CREDIT));
+        return true;
+    }
+
+    @FunctionalInterface
+    interface Timer {
+        Future<?> schedule(Runnable task, long delayNanos);
+    }
+}
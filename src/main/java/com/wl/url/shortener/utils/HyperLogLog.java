@@ -0,0 +1,127 @@
+package com.wl.url.shortener.utils;
+
+public final class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    public static final int REGISTERS = 1 << PRECISION;
+    static final int SPARSE_LIMIT = REGISTERS / 8;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(new byte[REGISTERS]);
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != REGISTERS) {
+            throw new IllegalArgumentException("expected " + REGISTERS + " registers");
+        }
+        return new HyperLogLog(bytes.clone());
+    }
+
+    public byte[] toBytes() {
+        return registers.clone();
+    }
+
+    // only the non-zero registers, 3 bytes each (2-byte big-endian index, then the value). With more than
+    // SPARSE_LIMIT filled the dense form is returned instead; the two never have the same length
+    public byte[] toCompactBytes() {
+        int filled = 0;
+        for (byte register : registers) {
+            if (register != 0 && ++filled > SPARSE_LIMIT) return toBytes();
+        }
+
+        byte[] sparse = new byte[filled * 3];
+        int at = 0;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] == 0) continue;
+            sparse[at++] = (byte) (i >>> 8);
+            sparse[at++] = (byte) i;
+            sparse[at++] = registers[i];
+        }
+        return sparse;
+    }
+
+    public void mergeCompact(byte[] bytes) {
+        if (bytes.length == REGISTERS) {
+            merge(new HyperLogLog(bytes));
+            return;
+        }
+        if (bytes.length % 3 != 0) {
+            throw new IllegalArgumentException("not a sparse register list");
+        }
+        for (int at = 0; at < bytes.length; at += 3) {
+            int index = ((bytes[at] & 0xff) << 8) | (bytes[at + 1] & 0xff);
+            if (bytes[at + 2] > registers[index]) {
+                registers[index] = bytes[at + 2];
+            }
+        }
+    }
+
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        // the sentinel bit caps the rank at 64 - PRECISION + 1 when the rest of the hash is all zeros
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) return false;
+        }
+        return true;
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) zeros++;
+        }
+
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public static long hash(CharSequence first, CharSequence second) {
+        long h = 0xcbf29ce484222325L;
+        h = fnv(h, first);
+        h = (h ^ 0xff) * 0x100000001b3L;
+        h = fnv(h, second);
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long fnv(long h, CharSequence value) {
+        if (value == null) return h;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,186 @@
+package com.wl.url.shortener.utils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+public final class LeasedShortCodeGenerator implements ShortCodeSource {
+
+    private static final int MAX_OBSERVATIONS = 256;
+    private static final long OBSERVATION_RETENTION_SECONDS = 600;
+
+    @FunctionalInterface
+    public interface IdRangeStore {
+        long reserve(long size);
+    }
+
+    private final IdRangeStore store;
+    private final long minBlockSize;
+    private final long maxBlockSize;
+    private final long targetLeaseNanos;
+    private final long maxBlockAgeNanos;
+    private final long maxBlockAgeSeconds;
+    private final Clock clock;
+    private final LongSupplier nanoTime;
+
+    private final AtomicReference<Block> current = new AtomicReference<>(Block.EMPTY);
+    // a lock rather than synchronized: the refill does I/O and must not pin a virtual thread's carrier
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private volatile long nextBlockSize;
+    private volatile long[][] observations = new long[0][];
+
+    public LeasedShortCodeGenerator(IdRangeStore store,
+                                    long minBlockSize,
+                                    long maxBlockSize,
+                                    Duration targetLeaseInterval,
+                                    Duration maxBlockAge) {
+        this(store, minBlockSize, maxBlockSize, targetLeaseInterval, maxBlockAge, Clock.systemUTC(), System::nanoTime);
+    }
+
+    LeasedShortCodeGenerator(IdRangeStore store,
+                             long minBlockSize,
+                             long maxBlockSize,
+                             Duration targetLeaseInterval,
+                             Duration maxBlockAge,
+                             Clock clock,
+                             LongSupplier nanoTime) {
+        if (minBlockSize < 1 || maxBlockSize < minBlockSize) {
+            throw new IllegalArgumentException("block sizes must satisfy 1 <= min <= max");
+        }
+        if (targetLeaseInterval.isNegative() || targetLeaseInterval.isZero()
+                || maxBlockAge.compareTo(targetLeaseInterval) < 0) {
+            throw new IllegalArgumentException("maxBlockAge must be >= targetLeaseInterval > 0");
+        }
+        this.store = store;
+        this.minBlockSize = minBlockSize;
+        this.maxBlockSize = maxBlockSize;
+        this.targetLeaseNanos = targetLeaseInterval.toNanos();
+        this.maxBlockAgeNanos = maxBlockAge.toNanos();
+        this.maxBlockAgeSeconds = (maxBlockAge.toMillis() + 999) / 1000;
+        this.clock = clock;
+        this.nanoTime = nanoTime;
+        this.nextBlockSize = minBlockSize;
+    }
+
+    @Override
+    public String next() {
+        return ShortenerUtils.encode(nextId());
+    }
+
+    @Override
+    public List<String> next(int count) {
+        List<String> codes = new ArrayList<>(count);
+        while (codes.size() < count) {
+            Block block = current.get();
+            if (nanoTime.getAsLong() - block.leasedAt <= maxBlockAgeNanos) {
+                int wanted = count - codes.size();
+                long first = block.cursor.getAndAdd(wanted);
+                long end = Math.min(first + wanted, block.end);
+                char[] buf = new char[ShortenerUtils.MAX_LENGTH];
+                for (long id = first; id < end; id++) {
+                    codes.add(new String(buf, 0, ShortenerUtils.encode(id, buf, 0)));
+                }
+                if (codes.size() == count) break;
+            }
+            refill(block);
+        }
+        return codes;
+    }
+
+    @Override
+    public boolean mayBlock() {
+        return true;
+    }
+
+    @Override
+    public long idFloorAt(long epochSecond) {
+        long cutoff = epochSecond - maxBlockAgeSeconds;
+        long[][] seen = observations;
+        for (int i = seen.length - 1; i >= 0; i--) {
+            if (seen[i][0] <= cutoff) return seen[i][1];
+        }
+        return 0;
+    }
+
+    long nextId() {
+        while (true) {
+            Block block = current.get();
+            if (nanoTime.getAsLong() - block.leasedAt <= maxBlockAgeNanos) {
+                long id = block.cursor.getAndIncrement();
+                if (id < block.end) return id;
+            }
+            refill(block);
+        }
+    }
+
+    long currentBlockSize() {
+        Block block = current.get();
+        return block.end - block.start;
+    }
+
+    private void refill(Block exhausted) {
+        refillLock.lock();
+        try {
+            if (current.get() != exhausted) return;
+
+            long now = nanoTime.getAsLong();
+            long size = adaptSize(exhausted, now);
+            long end = store.reserve(size);
+
+            observe(clock.instant().getEpochSecond(), end);
+            current.set(new Block(end - size, end, now));
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private long adaptSize(Block previous, long now) {
+        if (previous == Block.EMPTY) return nextBlockSize;
+
+        long used = Math.min(previous.cursor.get(), previous.end) - previous.start;
+        long elapsed = Math.max(1, now - previous.leasedAt);
+        double perNano = (double) used / elapsed;
+
+        long wanted = (long) Math.ceil(perNano * targetLeaseNanos);
+        nextBlockSize = Math.max(minBlockSize, Math.min(maxBlockSize, wanted));
+        return nextBlockSize;
+    }
+
+    private void observe(long epochSecond, long counterEnd) {
+        long[][] seen = observations;
+        long cutoff = epochSecond - maxBlockAgeSeconds - OBSERVATION_RETENTION_SECONDS;
+
+        int from = 0;
+        while (from + 1 < seen.length && seen[from + 1][0] <= cutoff) {
+            from++;
+        }
+        from = Math.max(from, seen.length + 1 - MAX_OBSERVATIONS);
+
+        long[][] updated = Arrays.copyOfRange(seen, from, seen.length + 1);
+        updated[updated.length - 1] = new long[]{epochSecond, counterEnd};
+        observations = updated;
+    }
+
+    private static final class Block {
+
+        static final Block EMPTY = new Block(0, 0, Long.MIN_VALUE);
+
+        final long start;
+        final long end;
+        final long leasedAt;
+        final AtomicLong cursor;
+
+        Block(long start, long end, long leasedAt) {
+            this.start = start;
+            this.end = end;
+            this.leasedAt = leasedAt;
+            this.cursor = new AtomicLong(start);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.wl.url.shortener.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    // written before the slot is published in sequences and read after it, so plain arrays are enough
+    private final long[] values;
+    private final long[] stamps;
+    // sequence == position: free for producers; position + 1: published to the consumer
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+
+    private long head;
+
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two >= 2");
+        }
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.values = new long[capacity];
+        this.stamps = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public boolean offer(E element, long value, long stamp) {
+        if (element == null) throw new NullPointerException("element");
+
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, element);
+                    values[index] = value;
+                    stamps[index] = stamp;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // only one thread may drain at a time
+    public int drain(Sink<? super E> consumer, int limit) {
+        int drained = 0;
+        while (drained < limit) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) break;
+
+            E element = slots.get(index);
+            long value = values[index];
+            long stamp = stamps[index];
+            slots.lazySet(index, null);
+            sequences.set(index, head + mask + 1);
+            head++;
+
+            consumer.accept(element, value, stamp);
+            drained++;
+        }
+        return drained;
+    }
+
+    @FunctionalInterface
+    public interface Sink<E> {
+        void accept(E element, long value, long stamp);
+    }
+}
@@ -0,0 +1,200 @@
+package com.wl.url.shortener.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class ScalableBloomFilter {
+
+    private static final int MAGIC = 0x53424631;
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private final double fpp;
+    private volatile Segment[] segments;
+
+    public ScalableBloomFilter(long initialCapacity, double fpp) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("initialCapacity must be > 0");
+        }
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("fpp must be between 0 and 1");
+        }
+        this.fpp = fpp;
+        this.segments = new Segment[]{new Segment(initialCapacity, fpp * (1 - TIGHTENING))};
+    }
+
+    private ScalableBloomFilter(double fpp, Segment[] segments) {
+        this.fpp = fpp;
+        this.segments = segments;
+    }
+
+    public boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L);
+        for (Segment segment : segments) {
+            if (segment.mightContain(h1, h2)) return true;
+        }
+        return false;
+    }
+
+    public void put(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L);
+
+        Segment[] current = segments;
+        for (Segment segment : current) {
+            if (segment.mightContain(h1, h2)) return;
+        }
+
+        Segment last = current[current.length - 1];
+        if (last.isFull()) {
+            last = grow(last);
+        }
+        last.put(h1, h2);
+    }
+
+    public long approximateCount() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.count.get();
+        }
+        return total;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        Segment[] current = segments;
+        out.writeInt(MAGIC);
+        out.writeDouble(fpp);
+        out.writeInt(current.length);
+        for (Segment segment : current) {
+            out.writeLong(segment.capacity);
+            out.writeDouble(segment.fpp);
+            out.writeInt(segment.numHashes);
+            out.writeLong(segment.count.get());
+            out.writeInt(segment.bits.length());
+            for (int i = 0; i < segment.bits.length(); i++) {
+                out.writeLong(segment.bits.get(i));
+            }
+        }
+    }
+
+    public static ScalableBloomFilter readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a shortcode bloom filter snapshot");
+        }
+        double fpp = in.readDouble();
+        int count = in.readInt();
+        if (count <= 0) {
+            throw new IOException("Corrupted bloom filter snapshot");
+        }
+
+        Segment[] segments = new Segment[count];
+        for (int s = 0; s < count; s++) {
+            long capacity = in.readLong();
+            double segmentFpp = in.readDouble();
+            int numHashes = in.readInt();
+            long inserted = in.readLong();
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            segments[s] = new Segment(capacity, segmentFpp, numHashes, inserted, words);
+        }
+        return new ScalableBloomFilter(fpp, segments);
+    }
+
+    private synchronized Segment grow(Segment full) {
+        Segment[] current = segments;
+        Segment last = current[current.length - 1];
+        if (last != full) {
+            return last;
+        }
+        Segment next = new Segment(full.capacity * GROWTH, full.fpp * TIGHTENING);
+        Segment[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = next;
+        segments = grown;
+        return next;
+    }
+
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Segment {
+
+        private final long capacity;
+        private final double fpp;
+        private final int numHashes;
+        private final long numBits;
+        private final AtomicLongArray bits;
+        private final AtomicLong count;
+
+        Segment(long capacity, double fpp) {
+            this.capacity = capacity;
+            this.fpp = fpp;
+            long m = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+            this.numBits = (long) words * 64;
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+            this.bits = new AtomicLongArray(words);
+            this.count = new AtomicLong();
+        }
+
+        Segment(long capacity, double fpp, int numHashes, long inserted, long[] words) {
+            this.capacity = capacity;
+            this.fpp = fpp;
+            this.numHashes = numHashes;
+            this.numBits = (long) words.length * 64;
+            this.bits = new AtomicLongArray(words);
+            this.count = new AtomicLong(inserted);
+        }
+
+        boolean isFull() {
+            return count.get() >= capacity;
+        }
+
+        boolean mightContain(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = (combined & Long.MAX_VALUE) % numBits;
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+                combined += h2;
+            }
+            return true;
+        }
+
+        void put(long h1, long h2) {
+            long combined = h1;
+            boolean changed = false;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = (combined & Long.MAX_VALUE) % numBits;
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+                long previous = bits.getAndAccumulate(word, mask, (a, b) -> a | b);
+                changed |= (previous & mask) == 0;
+                combined += h2;
+            }
+            if (changed) {
+                count.incrementAndGet();
+            }
+        }
+    }
+}
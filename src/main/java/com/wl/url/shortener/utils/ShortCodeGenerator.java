@@ -3,55 +3,142 @@ package com.wl.url.shortener.utils;
 import com.wl.url.shortener.exception.impl.RateLimitExceededException;
 
 import java.time.Clock;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
-public final class ShortCodeGenerator {
+public final class ShortCodeGenerator implements ShortCodeSource {
+
+    public static final int DEFAULT_NODE_BITS = 5;
+    public static final int DEFAULT_SEQ_BITS = 12;
+    public static final long DEFAULT_MAX_DRIFT_SECONDS = 5;
 
-    private static final int NODE_BITS = 5;
-    private static final int SEQ_BITS = 6;
-    private static final int SEQ_MAX = (1 << SEQ_BITS) - 1;
     private static final long CUSTOM_EPOCH_SECONDS = 1735689600L;
+    private static final long NONE_ISSUED = -1L;
+    private static final long PLAUSIBLE_SKEW_SECONDS = 60;
 
     private final int nodeId;
+    private final int nodeBits;
+    private final int seqBits;
+    private final long seqMax;
+    private final long maxDriftSeconds;
     private final Clock clock;
 
-    private final AtomicInteger seq = new AtomicInteger(0);
-    private volatile long lastSecond = -1;
+    // second << seqBits | last issued sequence, only ever updated through CAS
+    private final AtomicLong state = new AtomicLong(NONE_ISSUED);
 
     public ShortCodeGenerator(int nodeId) {
         this(nodeId, Clock.systemUTC());
     }
 
     public ShortCodeGenerator(int nodeId, Clock clock) {
-        if (nodeId < 0 || nodeId >= (1 << NODE_BITS)) {
-            throw new IllegalArgumentException("nodeId must be between 0 and 31");
+        this(nodeId, DEFAULT_NODE_BITS, DEFAULT_SEQ_BITS, DEFAULT_MAX_DRIFT_SECONDS, clock);
+    }
+
+    public ShortCodeGenerator(int nodeId, int nodeBits, int seqBits, long maxDriftSeconds, Clock clock) {
+        if (nodeBits < 0 || seqBits < 1 || nodeBits + seqBits > 31) {
+            throw new IllegalArgumentException("nodeBits + seqBits must be between 1 and 31");
+        }
+        if (nodeId < 0 || nodeId >= (1 << nodeBits)) {
+            throw new IllegalArgumentException("nodeId must be between 0 and " + ((1 << nodeBits) - 1));
+        }
+        if (maxDriftSeconds < 0) {
+            throw new IllegalArgumentException("maxDriftSeconds must be >= 0");
         }
         this.nodeId = nodeId;
+        this.nodeBits = nodeBits;
+        this.seqBits = seqBits;
+        this.seqMax = (1L << seqBits) - 1;
+        this.maxDriftSeconds = maxDriftSeconds;
         this.clock = clock;
     }
 
+    @Override
     public String next() {
+        return ShortenerUtils.encode(nextId());
+    }
+
+    @Override
+    public List<String> next(int count) {
+        List<String> codes = new ArrayList<>(count);
+        while (codes.size() < count) {
+            reserveRun(count - codes.size(), codes);
+        }
+        return codes;
+    }
+
+    @Override
+    public long idFloorAt(long epochSecond) {
+        long sec = Math.max(0, epochSecond - CUSTOM_EPOCH_SECONDS);
+        return sec << (nodeBits + seqBits);
+    }
+
+    @Override
+    public boolean isPlausible(long id) {
+        long ceilingSec = clock.millis() / 1000L - CUSTOM_EPOCH_SECONDS + maxDriftSeconds + PLAUSIBLE_SKEW_SECONDS;
+        return id >= 0 && (id >>> (nodeBits + seqBits)) <= ceilingSec;
+    }
+
+    long nextId() {
         long nowSec = currentSecond();
 
-        int s;
-        synchronized (this) {
-            if (nowSec != lastSecond) {
-                lastSecond = nowSec;
-                seq.set(0);
+        while (true) {
+            long current = state.get();
+            long next = advance(current, nowSec);
+
+            if (state.compareAndSet(current, next)) {
+                return toId(next);
             }
+        }
+    }
+
+    private void reserveRun(int wanted, List<String> out) {
+        long nowSec = currentSecond();
 
-            s = seq.getAndIncrement();
-            if (s > SEQ_MAX) {
-                throw new RateLimitExceededException("Shortcode generation rate exceeded");
+        while (true) {
+            long current = state.get();
+            long first = advance(current, nowSec);
+            long last = first + Math.min(wanted - 1, seqMax - (first & seqMax));
+
+            if (state.compareAndSet(current, last)) {
+                char[] buf = new char[ShortenerUtils.MAX_LENGTH];
+                for (long s = first; s <= last; s++) {
+                    out.add(new String(buf, 0, ShortenerUtils.encode(toId(s), buf, 0)));
+                }
+                return;
             }
         }
+    }
+
+    private long toId(long packed) {
+        long sec = packed >>> seqBits;
+        long seq = packed & seqMax;
+        return (sec << (nodeBits + seqBits)) | ((long) nodeId << seqBits) | seq;
+    }
+
+    private long advance(long current, long nowSec) {
+        if (current == NONE_ISSUED) {
+            return nowSec << seqBits;
+        }
 
-        long id =
-                (nowSec << (NODE_BITS + SEQ_BITS)) |
-                        ((long) nodeId << SEQ_BITS) |
-                        (long) s;
+        long lastSec = current >>> seqBits;
+        if (nowSec > lastSec) {
+            return nowSec << seqBits;
+        }
+        // the clock went back further than we may run ahead of it: refuse like exhaustion (429) until it
+        // catches up, instead of failing with a 500
+        if (lastSec - nowSec > maxDriftSeconds) {
+            throw new RateLimitExceededException("Clock moved backwards, shortcode generation paused");
+        }
+        if ((current & seqMax) < seqMax) {
+            return current + 1;
+        }
 
-        return ShortenerUtils.encode(id);
+        long borrowed = lastSec + 1;
+        if (borrowed - nowSec > maxDriftSeconds) {
+            throw new RateLimitExceededException("Shortcode generation rate exceeded");
+        }
+        return borrowed << seqBits;
     }
 
     private long currentSecond() {
@@ -61,4 +148,4 @@ public final class ShortCodeGenerator {
         }
         return sec;
     }
-}
\ No newline at end of file
+}
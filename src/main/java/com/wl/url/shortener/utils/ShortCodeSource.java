@@ -0,0 +1,27 @@
+package com.wl.url.shortener.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public interface ShortCodeSource {
+
+    String next();
+
+    default List<String> next(int count) {
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add(next());
+        }
+        return codes;
+    }
+
+    default boolean mayBlock() {
+        return false;
+    }
+
+    long idFloorAt(long epochSecond);
+
+    default boolean isPlausible(long id) {
+        return id >= 0;
+    }
+}
@@ -1,29 +1,131 @@
 package com.wl.url.shortener.utils;
 
+import java.util.Arrays;
+
 public class ShortenerUtils {
 
+    public static final int MAX_LENGTH = 11;
+
+    // a user-chosen alias needs at least one '-' or '_', which the base62 alphabet lacks,
+    // so it never matches a generated code
+    public static final int ALIAS_MIN_LENGTH = 3;
+    public static final int ALIAS_MAX_LENGTH = 64;
+    public static final String ALIAS_PATTERN = "^(?=.{3,64}$)[A-Za-z0-9][A-Za-z0-9_-]*[-_][A-Za-z0-9_-]*[A-Za-z0-9]$";
+
     private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
     private static final int BASE = 62;
+    private static final long[] POWERS = new long[MAX_LENGTH];
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < MAX_LENGTH; i++) {
+            POWERS[i] = POWERS[i - 1] * BASE;
+        }
+        Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DIGITS[ALPHABET[i]] = (byte) i;
+        }
+    }
 
     private ShortenerUtils() {
     }
 
     public static String encode(long value) {
+        char[] buf = new char[MAX_LENGTH];
+        int length = encode(value, buf, 0);
+        return new String(buf, 0, length);
+    }
+
+    public static int encode(long value, char[] dst, int offset) {
+        int length = encodedLength(value);
+        for (int i = offset + length - 1; i >= offset; i--) {
+            dst[i] = ALPHABET[(int) (value % BASE)];
+            value /= BASE;
+        }
+        return length;
+    }
 
+    public static int encode(long value, byte[] dst, int offset) {
+        int length = encodedLength(value);
+        for (int i = offset + length - 1; i >= offset; i--) {
+            dst[i] = (byte) ALPHABET[(int) (value % BASE)];
+            value /= BASE;
+        }
+        return length;
+    }
+
+    public static int encodedLength(long value) {
         if (value < 0) throw new IllegalArgumentException("value must be >= 0");
 
-        if (value == 0) return "0";
+        int length = 1;
+        while (length < MAX_LENGTH && value >= POWERS[length]) {
+            length++;
+        }
+        return length;
+    }
 
-        char[] buf = new char[12];
+    public static long decode(String value) {
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("value must not be empty");
+        return decode(value, 0, value.length());
+    }
 
-        int i = buf.length;
+    public static long decode(CharSequence value, int from, int to) {
+        if (from >= to) throw new IllegalArgumentException("value must not be empty");
 
-        while (value > 0) {
-            int rem = (int) (value % BASE);
-            buf[--i] = ALPHABET[rem];
-            value /= BASE;
+        long result = 0;
+
+        for (int i = from; i < to; i++) {
+            int digit = digit(value.charAt(i));
+            if (digit < 0) throw new IllegalArgumentException("invalid base62 character");
+            if (result > (Long.MAX_VALUE - digit) / BASE) throw new IllegalArgumentException("value overflows long");
+            result = result * BASE + digit;
+        }
+
+        return result;
+    }
+
+    public static long tryDecode(CharSequence value) {
+        if (value == null) return -1;
+
+        int length = value.length();
+        if (length == 0 || length > MAX_LENGTH) return -1;
+        if (length > 1 && value.charAt(0) == '0') return -1;
+
+        long result = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = digit(value.charAt(i));
+            if (digit < 0) return -1;
+            if (result > (Long.MAX_VALUE - digit) / BASE) return -1;
+            result = result * BASE + digit;
         }
+        return result;
+    }
+
+    public static boolean isWellFormed(CharSequence value) {
+        return tryDecode(value) >= 0;
+    }
+
+    public static boolean isAlias(CharSequence value) {
+        if (value == null) return false;
+
+        int length = value.length();
+        if (length < ALIAS_MIN_LENGTH || length > ALIAS_MAX_LENGTH) return false;
+        if (digit(value.charAt(0)) < 0 || digit(value.charAt(length - 1)) < 0) return false;
+
+        boolean separator = false;
+        for (int i = 1; i < length - 1; i++) {
+            char c = value.charAt(i);
+            if (c == '-' || c == '_') {
+                separator = true;
+            } else if (digit(c) < 0) {
+                return false;
+            }
+        }
+        return separator;
+    }
 
-        return new String(buf, i, buf.length - i);
+    private static int digit(char c) {
+        return c < 128 ? DIGITS[c] : -1;
     }
 }
@@ -0,0 +1,85 @@
+package com.wl.url.shortener.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V call(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    // each caller gets its own copy: cancelling it does not abort the load for the others
+    public CompletableFuture<V> callAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+
+        try {
+            loader.get().whenComplete((value, ex) -> {
+                inFlight.remove(key, mine);
+                if (ex == null) {
+                    mine.complete(value);
+                } else {
+                    mine.completeExceptionally(unwrap(ex));
+                }
+            });
+        } catch (RuntimeException ex) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(ex);
+        }
+        return mine.copy();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw ex;
+        }
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+}
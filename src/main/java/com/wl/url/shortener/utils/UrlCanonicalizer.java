@@ -0,0 +1,200 @@
+package com.wl.url.shortener.utils;
+
+import com.wl.url.shortener.exception.impl.InvalidUrlException;
+
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class UrlCanonicalizer {
+
+    // the nginx in front answers 502 when response headers do not fit its proxy_buffer_size (4k by default)
+    public static final int MAX_LENGTH = 4000;
+
+    private static final Pattern COMPONENTS =
+            Pattern.compile("(?:([^:/?#]+):)?(?://([^/?#]*))?([^?#]*)(?:\\?([^#]*))?(?:#(.*))?", Pattern.DOTALL);
+    // '_' is not valid in DNS hostnames but is common in internal and service names (my_service.internal)
+    private static final Pattern HOSTNAME =
+            Pattern.compile("[a-z0-9_](?:[a-z0-9_-]*[a-z0-9_])?(?:\\.[a-z0-9_](?:[a-z0-9_-]*[a-z0-9_])?)*\\.?");
+    private static final Pattern IPV6 = Pattern.compile("\\[[0-9a-f:.]+]");
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] UNRESERVED = new boolean[128];
+    private static final boolean[] PATH_SAFE = new boolean[128];
+    private static final boolean[] QUERY_SAFE = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) UNRESERVED[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) UNRESERVED[c] = true;
+        for (char c = '0'; c <= '9'; c++) UNRESERVED[c] = true;
+        for (char c : "-._~".toCharArray()) UNRESERVED[c] = true;
+
+        for (int c = 0; c < 128; c++) PATH_SAFE[c] = UNRESERVED[c];
+        for (char c : "!$&'()*+,;=:@/".toCharArray()) PATH_SAFE[c] = true;
+
+        for (int c = 0; c < 128; c++) QUERY_SAFE[c] = PATH_SAFE[c];
+        QUERY_SAFE['?'] = true;
+    }
+
+    private UrlCanonicalizer() {
+    }
+
+    public static String canonicalize(String url) {
+        if (url == null || url.isBlank()) throw new InvalidUrlException("url must not be blank");
+
+        Matcher parts = COMPONENTS.matcher(url.strip());
+        if (!parts.matches()) throw new InvalidUrlException("url is not valid");
+
+        String scheme = parts.group(1) == null ? null : parts.group(1).toLowerCase(Locale.ROOT);
+        if (!"http".equals(scheme) && !"https".equals(scheme)) {
+            throw new InvalidUrlException("url must use http or https");
+        }
+        String authority = parts.group(2);
+        if (authority == null || authority.isEmpty()) {
+            throw new InvalidUrlException("url must have a host");
+        }
+
+        StringBuilder out = new StringBuilder(url.length() + 16);
+        out.append(scheme).append("://");
+        appendAuthority(out, authority, scheme);
+
+        String path = parts.group(3);
+        if (path.isEmpty()) {
+            out.append('/');
+        } else {
+            StringBuilder encoded = new StringBuilder(path.length() + 8);
+            encode(encoded, path, PATH_SAFE);
+            out.append(removeDotSegments(encoded.toString()));
+        }
+
+        if (parts.group(4) != null) {
+            encode(out.append('?'), parts.group(4), QUERY_SAFE);
+        }
+        if (parts.group(5) != null) {
+            encode(out.append('#'), parts.group(5), QUERY_SAFE);
+        }
+
+        if (out.length() > MAX_LENGTH) {
+            throw new InvalidUrlException("url must be at most " + MAX_LENGTH + " characters once encoded");
+        }
+        return out.toString();
+    }
+
+    private static void appendAuthority(StringBuilder out, String authority, String scheme) {
+        if (authority.indexOf('@') >= 0) {
+            throw new InvalidUrlException("url must not contain credentials");
+        }
+
+        String host;
+        String port = null;
+        if (authority.startsWith("[")) {
+            int end = authority.indexOf(']');
+            if (end < 0) throw new InvalidUrlException("url has an invalid host");
+            host = authority.substring(0, end + 1).toLowerCase(Locale.ROOT);
+            if (!IPV6.matcher(host).matches()) throw new InvalidUrlException("url has an invalid host");
+            if (end + 1 < authority.length()) {
+                if (authority.charAt(end + 1) != ':') throw new InvalidUrlException("url has an invalid host");
+                port = authority.substring(end + 2);
+            }
+        } else {
+            int colon = authority.lastIndexOf(':');
+            host = colon >= 0 ? authority.substring(0, colon) : authority;
+            port = colon >= 0 ? authority.substring(colon + 1) : null;
+            host = asciiHost(host);
+        }
+        out.append(host);
+
+        if (port != null && !port.isEmpty()) {
+            int number = parsePort(port);
+            boolean isDefault = (number == 80 && scheme.equals("http")) || (number == 443 && scheme.equals("https"));
+            if (!isDefault) {
+                out.append(':').append(number);
+            }
+        }
+    }
+
+    private static String asciiHost(String host) {
+        String ascii;
+        try {
+            ascii = IDN.toASCII(host, IDN.ALLOW_UNASSIGNED).toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidUrlException("url has an invalid host");
+        }
+        if (ascii.isEmpty() || !HOSTNAME.matcher(ascii).matches()) {
+            throw new InvalidUrlException("url has an invalid host");
+        }
+        return ascii;
+    }
+
+    private static int parsePort(String port) {
+        if (port.length() > 5) throw new InvalidUrlException("url has an invalid port");
+        int number = 0;
+        for (int i = 0; i < port.length(); i++) {
+            char c = port.charAt(i);
+            if (c < '0' || c > '9') throw new InvalidUrlException("url has an invalid port");
+            number = number * 10 + (c - '0');
+        }
+        if (number > 65535) throw new InvalidUrlException("url has an invalid port");
+        return number;
+    }
+
+    private static void encode(StringBuilder out, String value, boolean[] safe) {
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c == '%' && i + 2 < value.length() && isHex(value.charAt(i + 1)) && isHex(value.charAt(i + 2))) {
+                int decoded = Character.digit(value.charAt(i + 1), 16) * 16 + Character.digit(value.charAt(i + 2), 16);
+                if (decoded < 128 && UNRESERVED[decoded]) {
+                    out.append((char) decoded);
+                } else {
+                    appendEscaped(out, decoded);
+                }
+                i += 3;
+            } else if (c < 128 && c != '%' && safe[c]) {
+                out.append(c);
+                i++;
+            } else {
+                int codePoint = value.codePointAt(i);
+                if (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+                    throw new InvalidUrlException("url is not valid");
+                }
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8)) {
+                    appendEscaped(out, b & 0xFF);
+                }
+                i += Character.charCount(codePoint);
+            }
+        }
+    }
+
+    private static void appendEscaped(StringBuilder out, int b) {
+        out.append('%').append(HEX[b >> 4]).append(HEX[b & 0xF]);
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static String removeDotSegments(String path) {
+        if (!path.contains("/.")) return path;
+
+        String[] segments = path.split("/", -1);
+        List<String> kept = new ArrayList<>(segments.length);
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            boolean last = i == segments.length - 1;
+            if (segment.equals(".") || segment.equals("..")) {
+                if (segment.equals("..") && !kept.isEmpty()) {
+                    kept.remove(kept.size() - 1);
+                }
+                if (last) kept.add("");
+            } else {
+                kept.add(segment);
+            }
+        }
+        return "/" + String.join("/", kept);
+    }
+}
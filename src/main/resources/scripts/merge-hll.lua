@@ -0,0 +1,38 @@
+-- KEYS[1] = HyperLogLog registers of one code on one day (one byte per register)
+-- ARGV[1] = TTL (s), ARGV[2] = number of registers, ARGV[3] = registers accumulated on the node since the
+-- last flush: all of them (dense) or only the non-zero ones as high index, low index, value triples (sparse)
+-- register-wise maximum: applying the same merge again does not change the result
+local size = tonumber(ARGV[2])
+local incoming = ARGV[3]
+local current = redis.call('GET', KEYS[1])
+
+-- a different length only happens when the precision changes; the old sketch is discarded
+if not current or #current ~= size then
+    current = string.rep(string.char(0), size)
+    redis.call('SET', KEYS[1], current)
+end
+
+if #incoming == size then
+    local merged = {}
+    for i = 1, size do
+        local a = string.byte(current, i)
+        local b = string.byte(incoming, i)
+        merged[i] = a > b and a or b
+    end
+    local chunks = {}
+    for i = 1, size, 1024 do
+        chunks[#chunks + 1] = string.char(unpack(merged, i, math.min(i + 1023, size)))
+    end
+    redis.call('SET', KEYS[1], table.concat(chunks))
+else
+    for i = 1, #incoming, 3 do
+        local index = string.byte(incoming, i) * 256 + string.byte(incoming, i + 1)
+        if string.byte(incoming, i + 2) > string.byte(current, index + 1) then
+            redis.call('SETRANGE', KEYS[1], index, string.sub(incoming, i + 2, i + 2))
+        end
+    end
+end
+
+redis.call('EXPIRE', KEYS[1], ARGV[1])
+
+return 1
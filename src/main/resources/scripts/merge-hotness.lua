@@ -0,0 +1,11 @@
+-- KEYS[1] = cluster-wide sketch cells for the current window, plus field n = additions seen
+-- ARGV[1] = window TTL (s), ARGV[2] = additions in this delta, ARGV[3..n] = cell/delta pairs
+-- returns n followed by the new total of each cell sent, in the same order
+local reply = { redis.call('HINCRBY', KEYS[1], 'n', ARGV[2]) }
+for i = 3, #ARGV, 2 do
+    reply[#reply + 1] = redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1])
+end
+
+redis.call('EXPIRE', KEYS[1], ARGV[1])
+
+return reply
@@ -0,0 +1,154 @@
+package com.wl.url.shortener.controller;
+
+import com.wl.url.shortener.dto.response.ShortenerFullResponse;
+import com.wl.url.shortener.dto.response.ShortenerResolveResponse;
+import com.wl.url.shortener.dto.response.ShortenerResponse;
+import com.wl.url.shortener.dto.response.ShortenerStatsResponse;
+import com.wl.url.shortener.dto.response.ShortenerVisitorsResponse;
+import com.wl.url.shortener.exception.handle.ReactiveGlobalExceptionHandler;
+import com.wl.url.shortener.exception.impl.NotFoundException;
+import com.wl.url.shortener.exception.impl.RateLimitExceededException;
+import com.wl.url.shortener.service.ReactiveShortenerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReactiveShortenerControllerTest {
+
+    private WebTestClient client;
+    private ReactiveShortenerService shortenerService;
+
+    @BeforeEach
+    void setup() {
+        shortenerService = Mockito.mock(ReactiveShortenerService.class);
+
+        client = WebTestClient
+                .bindToController(new ReactiveShortenerController(shortenerService))
+                .controllerAdvice(new ReactiveGlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void redirect_shouldReturn302AndLocationToOriginalUrl() {
+        when(shortenerService.findByShortUrl(eq("xYz123"), anyLong()))
+                .thenReturn(Mono.just(new ShortenerFullResponse("https://example.com/abc")));
+
+        client.get().uri("/api/shortener/xYz123")
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().valueEquals("Location", "https://example.com/abc")
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void stats_shouldReturnClickCounters() {
+        when(shortenerService.stats("xYz123", 60))
+                .thenReturn(Mono.just(new ShortenerStatsResponse("xYz123", 10, Map.of())));
+
+        client.get().uri("/api/shortener/xYz123/stats")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.shortCode").isEqualTo("xYz123")
+                .jsonPath("$.totalClicks").isEqualTo(10);
+    }
+
+    @Test
+    void visitors_shouldDefaultRangeInService() {
+        when(shortenerService.visitors("xYz123", null, null))
+                .thenReturn(Mono.just(new ShortenerVisitorsResponse("xYz123", null, null, 3, Map.of())));
+
+        client.get().uri("/api/shortener/xYz123/visitors")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.uniqueVisitors").isEqualTo(3);
+    }
+
+    @Test
+    void redirect_shouldReturn404WithSameErrorBodyAsServletStack() {
+        when(shortenerService.findByShortUrl(eq("nope"), anyLong()))
+                .thenReturn(Mono.error(new NotFoundException("Short URL not found")));
+
+        client.get().uri("/api/shortener/nope")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.error").isEqualTo("Not Found")
+                .jsonPath("$.message").isEqualTo("Short URL not found")
+                .jsonPath("$.path").isEqualTo("/api/shortener/nope")
+                .jsonPath("$.timestamp").exists();
+    }
+
+    @Test
+    void createShortcode_shouldReturn201_LocationAndBodyWithShortUrl_usingRequestHost() {
+        ShortenerResponse sr = new ShortenerResponse();
+        sr.setShortCode("abcd12");
+        when(shortenerService.save("https://google.com", null, null)).thenReturn(Mono.just(sr));
+
+        client.post().uri("http://meu-dominio.com:8080/api/shortener")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"url\": \"https://google.com\" }")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals("Location", "http://meu-dominio.com:8080/api/shortener/abcd12")
+                .expectBody()
+                .jsonPath("$.shortCode").isEqualTo("abcd12")
+                .jsonPath("$.shortUrl").isEqualTo("http://meu-dominio.com:8080/api/shortener/abcd12");
+    }
+
+    @Test
+    void createShortcode_shouldReturn400_whenValidationFails() {
+        client.post().uri("/api/shortener")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"url\": \"\" }")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.error").isEqualTo("Bad Request")
+                .jsonPath("$.path").isEqualTo("/api/shortener")
+                .jsonPath("$.message").isNotEmpty();
+
+        verifyNoInteractions(shortenerService);
+    }
+
+    @Test
+    void createShortcode_shouldReturn429_whenServiceFailsWithRateLimit() {
+        when(shortenerService.save(anyString(), any(), any()))
+                .thenReturn(Mono.error(new RateLimitExceededException("Too many requests")));
+
+        client.post().uri("/api/shortener")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"url\": \"https://example.com\" }")
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Too many requests");
+    }
+
+    @Test
+    void resolve_shouldReturnFoundAndMissingCodes() {
+        when(shortenerService.resolveAll(List.of("abc", "def")))
+                .thenReturn(Mono.just(new ShortenerResolveResponse(Map.of("abc", "https://a.com"), List.of("def"))));
+
+        client.post().uri("/api/shortener/resolve")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{ \"codes\": [\"abc\", \"def\"] }")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.urls.abc").isEqualTo("https://a.com")
+                .jsonPath("$.notFound[0]").isEqualTo("def");
+    }
+}
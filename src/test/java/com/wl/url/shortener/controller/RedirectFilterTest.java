@@ -0,0 +1,116 @@
+package com.wl.url.shortener.controller;
+
+import com.wl.url.shortener.exception.impl.NotFoundException;
+import com.wl.url.shortener.service.ClickAnalytics;
+import com.wl.url.shortener.service.ShortenerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedirectFilterTest {
+
+    @Mock
+    ShortenerService shortenerService;
+
+    @Mock
+    HandlerExceptionResolver exceptionResolver;
+
+    private RedirectFilter filter;
+
+    @BeforeEach
+    void setup() {
+        filter = new RedirectFilter(shortenerService, exceptionResolver);
+    }
+
+    @Test
+    void shouldWrite302WithoutCallingTheChain() throws Exception {
+        when(shortenerService.resolveFullUrl(eq("abc"), anyLong())).thenReturn("https://example.com/abc");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/shortener/abc"), response, chain);
+
+        assertEquals(302, response.getStatus());
+        assertEquals("https://example.com/abc", response.getHeader("Location"));
+        assertNull(chain.getRequest()); // never reached the DispatcherServlet
+    }
+
+    @Test
+    void shouldIdentifyVisitorByAddressAndUserAgent() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/shortener/abc");
+        request.setRemoteAddr("10.1.2.3");
+        request.addHeader("User-Agent", "curl/8");
+        when(shortenerService.resolveFullUrl(eq("abc"), anyLong())).thenReturn("https://example.com/abc");
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        verify(shortenerService).resolveFullUrl("abc", ClickAnalytics.visitorOf("10.1.2.3", "curl/8"));
+    }
+
+    @Test
+    void shouldHonorContextPath() throws Exception {
+        when(shortenerService.resolveFullUrl(eq("abc"), anyLong())).thenReturn("https://example.com/abc");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/api/shortener/abc");
+        request.setContextPath("/app");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        assertEquals(302, response.getStatus());
+    }
+
+    @Test
+    void shouldDelegateErrorsToTheMvcExceptionResolver() throws Exception {
+        NotFoundException notFound = new NotFoundException("Short URL not found");
+        when(shortenerService.resolveFullUrl(eq("abc"), anyLong())).thenThrow(notFound);
+        when(exceptionResolver.resolveException(any(), any(), isNull(), eq(notFound))).thenReturn(new ModelAndView());
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/shortener/abc"), new MockHttpServletResponse(), chain);
+
+        verify(exceptionResolver).resolveException(any(), any(), isNull(), eq(notFound));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void shouldRethrowWhenNoResolverHandlesTheError() {
+        IllegalStateException failure = new IllegalStateException("boom");
+        when(shortenerService.resolveFullUrl(eq("abc"), anyLong())).thenThrow(failure);
+
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(
+                new MockHttpServletRequest("GET", "/api/shortener/abc"), new MockHttpServletResponse(), new MockFilterChain()));
+    }
+
+    @Test
+    void shouldPassThroughEverythingThatIsNotASingleSegmentGet() throws Exception {
+        for (MockHttpServletRequest request : new MockHttpServletRequest[]{
+                new MockHttpServletRequest("POST", "/api/shortener/abc"),
+                new MockHttpServletRequest("POST", "/api/shortener"),
+                new MockHttpServletRequest("GET", "/api/shortener/"),
+                new MockHttpServletRequest("GET", "/api/shortener/abc/extra"),
+                new MockHttpServletRequest("GET", "/api/shortener/ab%63"), // MVC decodes it; left to MVC
+                new MockHttpServletRequest("GET", "/api/shortener/abc;jsessionid=1"),
+                new MockHttpServletRequest("GET", "/api/shortener/bulk"),
+                new MockHttpServletRequest("HEAD", "/api/shortener/resolve"),
+                new MockHttpServletRequest("GET", "/actuator/health")}) {
+            MockFilterChain chain = new MockFilterChain();
+
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+            assertSame(request, chain.getRequest(), request.getMethod() + " " + request.getRequestURI());
+        }
+        verifyNoInteractions(shortenerService);
+    }
+}
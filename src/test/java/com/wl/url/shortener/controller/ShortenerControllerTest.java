@@ -1,22 +1,37 @@
 package com.wl.url.shortener.controller;
 
 import com.wl.url.shortener.dto.response.ShortenerFullResponse;
+import com.wl.url.shortener.dto.response.ShortenerResolveResponse;
 import com.wl.url.shortener.dto.response.ShortenerResponse;
+import com.wl.url.shortener.dto.response.ShortenerStatsResponse;
+import com.wl.url.shortener.dto.response.ShortenerVisitorsResponse;
 import com.wl.url.shortener.exception.handle.GlobalExceptionHandler;
+import com.wl.url.shortener.exception.impl.AliasTakenException;
 import com.wl.url.shortener.exception.impl.NotFoundException;
 import com.wl.url.shortener.exception.impl.RateLimitExceededException;
+import com.wl.url.shortener.service.BulkShortenerService;
 import com.wl.url.shortener.service.ShortenerService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -25,15 +40,17 @@ class ShortenerControllerTest {
 
     private MockMvc mockMvc;
     private ShortenerService shortenerService;
+    private BulkShortenerService bulkShortenerService;
 
     @BeforeEach
     void setup() {
         shortenerService = Mockito.mock(ShortenerService.class);
+        bulkShortenerService = Mockito.mock(BulkShortenerService.class);
 
         LocalValidatorFactoryBean validator = new LocalValidatorFactoryBean();
         validator.afterPropertiesSet();
 
-        ShortenerController controller = new ShortenerController(shortenerService);
+        ShortenerController controller = new ShortenerController(shortenerService, bulkShortenerService);
 
         mockMvc = MockMvcBuilders
                 .standaloneSetup(controller)
@@ -47,39 +64,107 @@ class ShortenerControllerTest {
         ShortenerFullResponse full = new ShortenerFullResponse();
         full.setUrl("https://example.com/abc");
 
-        when(shortenerService.findByShortUrl("xYz123")).thenReturn(full);
+        when(shortenerService.findByShortUrl(eq("xYz123"), anyLong())).thenReturn(full);
 
         mockMvc.perform(get("/api/shortener/xYz123"))
                 .andExpect(status().isFound())
                 .andExpect(header().string("Location", "https://example.com/abc"))
                 .andExpect(content().string(""));
 
-        verify(shortenerService).findByShortUrl("xYz123");
+        verify(shortenerService).findByShortUrl(eq("xYz123"), anyLong());
         verifyNoMoreInteractions(shortenerService);
     }
 
+    @Test
+    void stats_shouldReturnClickCounters() throws Exception {
+        ShortenerStatsResponse stats = new ShortenerStatsResponse("xYz123", 10,
+                Map.of(Instant.parse("2026-01-01T10:15:00Z"), 4L));
+        when(shortenerService.stats("xYz123", 30)).thenReturn(CompletableFuture.completedFuture(stats));
+
+        MvcResult started = mockMvc.perform(get("/api/shortener/xYz123/stats").param("minutes", "30"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.shortCode").value("xYz123"))
+                .andExpect(jsonPath("$.totalClicks").value(10))
+                .andExpect(jsonPath("$.clicksPerMinute['2026-01-01T10:15:00Z']").value(4));
+    }
+
+    @Test
+    void stats_shouldReturn404ForUnknownCode() throws Exception {
+        when(shortenerService.stats("nope", 60))
+                .thenReturn(CompletableFuture.failedFuture(new NotFoundException("Short URL not found")));
+
+        MvcResult started = mockMvc.perform(get("/api/shortener/nope/stats"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Short URL not found"));
+    }
+
+    @Test
+    void visitors_shouldReturnUniqueVisitorEstimates() throws Exception {
+        LocalDate from = LocalDate.of(2026, 1, 5);
+        LocalDate to = LocalDate.of(2026, 1, 6);
+        ShortenerVisitorsResponse visitors = new ShortenerVisitorsResponse("xYz123", from, to, 12, Map.of(from, 7L, to, 9L));
+        when(shortenerService.visitors("xYz123", from, to)).thenReturn(CompletableFuture.completedFuture(visitors));
+
+        MvcResult started = mockMvc.perform(get("/api/shortener/xYz123/visitors")
+                        .param("from", "2026-01-05")
+                        .param("to", "2026-01-06"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.shortCode").value("xYz123"))
+                .andExpect(jsonPath("$.uniqueVisitors").value(12))
+                .andExpect(jsonPath("$.visitorsPerDay['2026-01-06']").value(9));
+    }
+
+    @Test
+    void redirect_shouldEmitStoredUrlVerbatim() throws Exception {
+        // canonicalized on creation: the redirect does not parse or re-encode it
+        ShortenerFullResponse full = new ShortenerFullResponse();
+        full.setUrl("https://xn--caf-dma.example/cr%C3%A8me?q=a%20b&r=%2F");
+
+        when(shortenerService.findByShortUrl(eq("xYz123"), anyLong())).thenReturn(full);
+
+        mockMvc.perform(get("/api/shortener/xYz123"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", "https://xn--caf-dma.example/cr%C3%A8me?q=a%20b&r=%2F"));
+    }
+
     @Test
     void createShortcode_shouldReturn201_LocationAndBodyWithShortUrl_usingRequestHost() throws Exception {
         ShortenerResponse sr = new ShortenerResponse();
         sr.setShortCode("abcd12");
 
-        when(shortenerService.save(eq("https://google.com"))).thenReturn(sr);
+        when(shortenerService.saveAsync(eq("https://google.com"), isNull(), isNull())).thenReturn(CompletableFuture.completedFuture(sr));
 
         String body = """
                 { "url": "https://google.com" }
                 """;
 
-        mockMvc.perform(post("/api/shortener")
+        MvcResult started = mockMvc.perform(post("/api/shortener")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(body)
                         .header("Host", "meu-dominio.com:8080"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
                 .andExpect(status().isCreated())
                 .andExpect(header().string("Location", "http://meu-dominio.com:8080/api/shortener/abcd12"))
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.shortCode").value("abcd12"))
                 .andExpect(jsonPath("$.shortUrl").value("http://meu-dominio.com:8080/api/shortener/abcd12"));
 
-        verify(shortenerService).save("https://google.com");
+        verify(shortenerService).saveAsync("https://google.com", null, null);
         verifyNoMoreInteractions(shortenerService);
     }
 
@@ -102,9 +187,63 @@ class ShortenerControllerTest {
         verifyNoInteractions(shortenerService);
     }
 
+    @Test
+    void createShortcode_shouldPassExpiryToService() throws Exception {
+        ShortenerResponse sr = new ShortenerResponse();
+        sr.setShortCode("abcd12");
+        Instant expiresAt = Instant.parse("2099-01-01T00:00:00Z");
+        when(shortenerService.saveAsync("https://google.com", expiresAt, null)).thenReturn(CompletableFuture.completedFuture(sr));
+
+        MvcResult started = mockMvc.perform(post("/api/shortener")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"url\": \"https://google.com\", \"expiresAt\": \"2099-01-01T00:00:00Z\" }"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void createShortcode_shouldReturn400_whenAliasCouldCollideWithGeneratedCodes() throws Exception {
+        mockMvc.perform(post("/api/shortener")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"url\": \"https://google.com\", \"alias\": \"summer\" }"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(shortenerService);
+    }
+
+    @Test
+    void createShortcode_shouldReturn409_whenAliasIsTaken() throws Exception {
+        when(shortenerService.saveAsync("https://google.com", null, "summer-sale"))
+                .thenReturn(CompletableFuture.failedFuture(new AliasTakenException("alias summer-sale is already taken")));
+
+        MvcResult started = mockMvc.perform(post("/api/shortener")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"url\": \"https://google.com\", \"alias\": \"summer-sale\" }"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("alias summer-sale is already taken"));
+    }
+
+    @Test
+    void createShortcode_shouldReturn400_whenExpiryIsInThePast() throws Exception {
+        mockMvc.perform(post("/api/shortener")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"url\": \"https://google.com\", \"expiresAt\": \"2000-01-01T00:00:00Z\" }"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("expiresAt deve estar no futuro"));
+
+        verifyNoInteractions(shortenerService);
+    }
+
     @Test
     void redirect_shouldReturn404_whenServiceThrowsNotFound() throws Exception {
-        when(shortenerService.findByShortUrl("nope"))
+        when(shortenerService.findByShortUrl(eq("nope"), anyLong()))
                 .thenThrow(new NotFoundException("Short URL not found"));
 
         mockMvc.perform(get("/api/shortener/nope"))
@@ -115,22 +254,39 @@ class ShortenerControllerTest {
                 .andExpect(jsonPath("$.path").value("/api/shortener/nope"))
                 .andExpect(jsonPath("$.timestamp").exists());
 
-        verify(shortenerService).findByShortUrl("nope");
+        verify(shortenerService).findByShortUrl(eq("nope"), anyLong());
         verifyNoMoreInteractions(shortenerService);
     }
 
+    @Test
+    void reservedPaths_shouldReturn405OnGetInsteadOfALookup() throws Exception {
+        mockMvc.perform(get("/api/shortener/bulk"))
+                .andExpect(status().isMethodNotAllowed())
+                .andExpect(header().string("Allow", "POST"))
+                .andExpect(jsonPath("$.status").value(405))
+                .andExpect(jsonPath("$.path").value("/api/shortener/bulk"));
+        mockMvc.perform(get("/api/shortener/resolve"))
+                .andExpect(status().isMethodNotAllowed());
+
+        verifyNoInteractions(shortenerService, bulkShortenerService);
+    }
+
     @Test
     void createShortcode_shouldReturn429_whenServiceThrowsRateLimit() throws Exception {
-        when(shortenerService.save(anyString()))
-                .thenThrow(new RateLimitExceededException("Too many requests"));
+        when(shortenerService.saveAsync(anyString(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RateLimitExceededException("Too many requests")));
 
         String body = """
                 { "url": "https://example.com" }
                 """;
 
-        mockMvc.perform(post("/api/shortener")
+        MvcResult started = mockMvc.perform(post("/api/shortener")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
                 .andExpect(status().isTooManyRequests())
                 .andExpect(jsonPath("$.status").value(429))
                 .andExpect(jsonPath("$.error").value("Too Many Requests"))
@@ -138,29 +294,101 @@ class ShortenerControllerTest {
                 .andExpect(jsonPath("$.path").value("/api/shortener"))
                 .andExpect(jsonPath("$.timestamp").exists());
 
-        verify(shortenerService).save("https://example.com");
+        verify(shortenerService).saveAsync("https://example.com", null, null);
         verifyNoMoreInteractions(shortenerService);
     }
 
     @Test
     void createShortcode_shouldReturn500_whenServiceThrowsGeneric() throws Exception {
-        when(shortenerService.save(anyString()))
-                .thenThrow(new RuntimeException("Boom"));
+        when(shortenerService.saveAsync(anyString(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Boom")));
 
         String body = """
                 { "url": "https://example.com" }
                 """;
 
-        mockMvc.perform(post("/api/shortener")
+        MvcResult started = mockMvc.perform(post("/api/shortener")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
                 .andExpect(status().isInternalServerError())
                 .andExpect(jsonPath("$.status").value(500))
                 .andExpect(jsonPath("$.error").value("Internal Server Error"))
                 .andExpect(jsonPath("$.message").value("Boom"))
                 .andExpect(jsonPath("$.path").value("/api/shortener"));
 
-        verify(shortenerService).save("https://example.com");
+        verify(shortenerService).saveAsync("https://example.com", null, null);
         verifyNoMoreInteractions(shortenerService);
     }
-}
\ No newline at end of file
+
+    @Test
+    void createShortcodes_shouldStreamNdjsonResultsFromBulkService() throws Exception {
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(3);
+            out.write("{\"line\":1,\"shortCode\":\"abc\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(bulkShortenerService).createAll(any(), eq(true), any(), any());
+
+        MvcResult started = mockMvc.perform(post("/api/shortener/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"url\":\"https://a.com\"}\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"line\":1,\"shortCode\":\"abc\"}\n"));
+
+        verify(bulkShortenerService).createAll(any(), eq(true), any(), any());
+        verifyNoInteractions(shortenerService);
+    }
+
+    @Test
+    void createShortcodes_shouldTreatJsonBodyAsArray() throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/shortener/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk());
+
+        verify(bulkShortenerService).createAll(any(), eq(false), any(), any());
+    }
+
+    @Test
+    void resolve_shouldReturnCodeToUrlMapAndMissingCodes() throws Exception {
+        when(shortenerService.resolveAll(List.of("a", "b")))
+                .thenReturn(new ShortenerResolveResponse(Map.of("a", "https://a.com"), List.of("b")));
+
+        mockMvc.perform(post("/api/shortener/resolve")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                { "codes": ["a", "b"] }
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.urls.a").value("https://a.com"))
+                .andExpect(jsonPath("$.notFound[0]").value("b"));
+
+        verify(shortenerService).resolveAll(List.of("a", "b"));
+        verifyNoMoreInteractions(shortenerService);
+    }
+
+    @Test
+    void resolve_shouldReturn400_whenCodesAreMissing() throws Exception {
+        mockMvc.perform(post("/api/shortener/resolve")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                { "codes": [] }
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400));
+
+        verifyNoInteractions(shortenerService);
+    }
+}
@@ -57,6 +57,49 @@ class GlobalExceptionHandlerTest {
                 .andExpect(jsonPath("$.timestamp").exists());
     }
 
+    @Test
+    void shouldHandleInvalidUrlException() throws Exception {
+        mockMvc.perform(get("/test/invalid-url"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.error").value("Bad Request"))
+                .andExpect(jsonPath("$.message").value("url must use http or https"))
+                .andExpect(jsonPath("$.path").value("/test/invalid-url"))
+                .andExpect(jsonPath("$.timestamp").exists());
+    }
+
+    @Test
+    void shouldHandleInvalidExpiryException() throws Exception {
+        mockMvc.perform(get("/test/invalid-expiry"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400))
+                .andExpect(jsonPath("$.message").value("expiresAt must be at most 7300 days ahead"))
+                .andExpect(jsonPath("$.path").value("/test/invalid-expiry"));
+    }
+
+    @Test
+    void shouldHandleAliasTakenExceptionAsConflict() throws Exception {
+        mockMvc.perform(get("/test/alias-taken"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value(409))
+                .andExpect(jsonPath("$.error").value("Conflict"))
+                .andExpect(jsonPath("$.message").value("alias summer-sale is already taken"))
+                .andExpect(jsonPath("$.path").value("/test/alias-taken"));
+    }
+
+    @Test
+    void shouldHandleBackendBusyException() throws Exception {
+        mockMvc.perform(get("/test/busy"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status").value(503))
+                .andExpect(jsonPath("$.error").value("Service Unavailable"))
+                .andExpect(jsonPath("$.message").value("redis is saturated, try again later"))
+                .andExpect(jsonPath("$.path").value("/test/busy"))
+                .andExpect(jsonPath("$.timestamp").exists());
+    }
+
     @Test
     void shouldHandleGenericException() throws Exception {
         mockMvc.perform(get("/test/generic"))
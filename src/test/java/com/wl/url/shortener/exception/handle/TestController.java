@@ -1,5 +1,9 @@
 package com.wl.url.shortener.exception.handle;
 
+import com.wl.url.shortener.exception.impl.AliasTakenException;
+import com.wl.url.shortener.exception.impl.BackendBusyException;
+import com.wl.url.shortener.exception.impl.InvalidExpiryException;
+import com.wl.url.shortener.exception.impl.InvalidUrlException;
 import com.wl.url.shortener.exception.impl.NotFoundException;
 import com.wl.url.shortener.exception.impl.RateLimitExceededException;
 import jakarta.validation.Valid;
@@ -22,6 +26,26 @@ class TestController {
         throw new RateLimitExceededException("Too many requests");
     }
 
+    @GetMapping("/invalid-url")
+    public ResponseEntity<Void> invalidUrl() {
+        throw new InvalidUrlException("url must use http or https");
+    }
+
+    @GetMapping("/invalid-expiry")
+    public ResponseEntity<Void> invalidExpiry() {
+        throw new InvalidExpiryException("expiresAt must be at most 7300 days ahead");
+    }
+
+    @GetMapping("/alias-taken")
+    public ResponseEntity<Void> aliasTaken() {
+        throw new AliasTakenException("alias summer-sale is already taken");
+    }
+
+    @GetMapping("/busy")
+    public ResponseEntity<Void> busy() {
+        throw new BackendBusyException("redis is saturated, try again later");
+    }
+
     @GetMapping("/generic")
     public ResponseEntity<Void> generic() {
         throw new RuntimeException("Boom");
@@ -0,0 +1,120 @@
+package com.wl.url.shortener.loadtest;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.wl.url.shortener.entity.ShortenerUrl;
+import com.wl.url.shortener.entity.ShortenerUrlClicks;
+import com.wl.url.shortener.repository.ShortenerUrlAliasWriter;
+import com.wl.url.shortener.repository.ShortenerUrlClickStore;
+import com.wl.url.shortener.repository.ShortenerUrlHashStore;
+import com.wl.url.shortener.repository.ShortenerUrlReader;
+import com.wl.url.shortener.repository.ShortenerUrlWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryCassandraTest {
+
+    private InMemoryCassandra cassandra;
+    private CqlSession session;
+
+    @BeforeEach
+    void setup() {
+        cassandra = new InMemoryCassandra(new InjectedLatency(Duration.ZERO, Duration.ZERO));
+        session = cassandra.session();
+    }
+
+    @Test
+    void writerAndReader_shouldRoundTripThroughPreparedStatements() {
+        ShortenerUrlWriter writer = new ShortenerUrlWriter(session, 16, false, 16, Duration.ofMillis(2));
+        ShortenerUrlReader reader = new ShortenerUrlReader(session);
+
+        writer.insert(ShortenerUrl.builder().shortcode("abc").fullUrl("https://example.com").build()).join();
+
+        assertEquals(Optional.of("https://example.com"), reader.findFullUrl("abc").join());
+        assertEquals(Optional.empty(), reader.findFullUrl("zzz").join());
+        assertEquals(1, cassandra.size());
+    }
+
+    @Test
+    void reader_shouldCarryExpiryAndHideExpiredRows() {
+        ShortenerUrlWriter writer = new ShortenerUrlWriter(session, 16, false, 16, Duration.ofMillis(2));
+        ShortenerUrlReader reader = new ShortenerUrlReader(session);
+        Instant later = Instant.now().plus(Duration.ofHours(1));
+
+        writer.insert(ShortenerUrl.builder().shortcode("abc").fullUrl("https://a.com").expiresAt(later).build()).join();
+        writer.insert(ShortenerUrl.builder().shortcode("old").fullUrl("https://o.com")
+                .expiresAt(Instant.now().minusSeconds(1)).build()).join();
+
+        assertEquals(later, reader.findUrl("abc").join().orElseThrow().getExpiresAt());
+        assertEquals(Optional.empty(), reader.findUrl("old").join());
+    }
+
+    @Test
+    void aliasWriter_shouldApplyOnlyFirstInsert() {
+        ShortenerUrlAliasWriter writer = new ShortenerUrlAliasWriter(session, 4);
+        ShortenerUrlReader reader = new ShortenerUrlReader(session);
+
+        assertTrue(writer.insertIfAbsent(ShortenerUrl.builder().shortcode("summer-sale").fullUrl("https://a.com").build()).join());
+        assertFalse(writer.insertIfAbsent(ShortenerUrl.builder().shortcode("summer-sale").fullUrl("https://b.com").build()).join());
+
+        assertEquals(Optional.of("https://a.com"), reader.findFullUrl("summer-sale").join());
+    }
+
+    @Test
+    void hashStore_shouldRoundTrip() {
+        ShortenerUrlHashStore store = new ShortenerUrlHashStore(session);
+        ByteBuffer hash = ByteBuffer.wrap(new byte[]{1, 2, 3});
+
+        store.save(hash, "abc").join();
+
+        assertEquals(Optional.of("abc"), store.findShortCode(ByteBuffer.wrap(new byte[]{1, 2, 3})).join());
+    }
+
+    @Test
+    void clickStore_shouldAccumulateCountersThroughCounterBatches() {
+        ShortenerUrlClickStore store = new ShortenerUrlClickStore(session, 4, 64);
+        Instant first = Instant.parse("2026-01-01T10:15:00Z");
+        Instant second = first.plusSeconds(60);
+
+        store.increment(List.of(clicks("abc", first, 2), clicks("abc", second, 1), clicks("xyz", first, 5))).join();
+        store.increment(List.of(clicks("abc", second, 3))).join();
+
+        assertEquals(6L, store.findTotal("abc").join());
+        assertEquals(0L, store.findTotal("zzz").join());
+        assertEquals(List.of(clicks("abc", second, 4), clicks("abc", first, 2)), store.findSince("abc", first).join());
+        assertEquals(List.of(clicks("abc", second, 4)), store.findSince("abc", second).join());
+    }
+
+    @Test
+    void fullScan_shouldReturnAllShortcodes() {
+        ShortenerUrlWriter writer = new ShortenerUrlWriter(session, 16, false, 16, Duration.ofMillis(2));
+        writer.insert(ShortenerUrl.builder().shortcode("a").fullUrl("https://a.com").build()).join();
+        writer.insert(ShortenerUrl.builder().shortcode("b").fullUrl("https://b.com").build()).join();
+
+        Set<String> codes = session.execute("SELECT shortcode FROM shortner_url").all().stream()
+                .map(row -> row.getString(0))
+                .collect(Collectors.toSet());
+
+        assertEquals(Set.of("a", "b"), codes);
+    }
+
+    @Test
+    void shouldFailLoudlyOnUnknownQueries() {
+        // a new query in the application must be taught to the double, not silently ignored
+        assertThrows(UnsupportedOperationException.class,
+                () -> session.execute("SELECT * FROM other_table"));
+    }
+
+    private static ShortenerUrlClicks clicks(String code, Instant minute, long count) {
+        return ShortenerUrlClicks.builder().shortcode(code).minute(minute).clicks(count).build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.wl.url.shortener.loadtest;
+
+import com.wl.url.shortener.dto.response.ShortenerVisitorsResponse;
+import com.wl.url.shortener.service.UniqueVisitors;
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.HyperLogLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRedisTest {
+
+    private StringRedisTemplate redis;
+
+    @BeforeEach
+    void setup() {
+        // a real template over the fake connection factory, as the loadtest profile wires it
+        redis = new StringRedisTemplate(new InMemoryRedis(new InjectedLatency(Duration.ZERO, Duration.ZERO))
+                .connectionFactory());
+    }
+
+    @Test
+    void setAndGet_shouldRoundTrip() {
+        redis.opsForValue().set("short:url:abc", "https://example.com", Duration.ofHours(1));
+
+        assertEquals("https://example.com", redis.opsForValue().get("short:url:abc"));
+        assertNull(redis.opsForValue().get("short:url:zzz"));
+    }
+
+    @Test
+    void setIfAbsent_shouldKeepFirstValue() {
+        assertTrue(redis.opsForValue().setIfAbsent("k", "first", Duration.ofMinutes(1)));
+        assertFalse(redis.opsForValue().setIfAbsent("k", "second", Duration.ofMinutes(1)));
+
+        assertEquals("first", redis.opsForValue().get("k"));
+    }
+
+    @Test
+    void increment_shouldBeAtomicCounter() {
+        assertEquals(1L, redis.opsForValue().increment("counter"));
+        assertEquals(11L, redis.opsForValue().increment("counter", 10));
+    }
+
+    @Test
+    void multiGet_shouldKeepOrderAndNulls() {
+        redis.opsForValue().set("a", "1");
+        redis.opsForValue().set("c", "3");
+
+        List<String> values = redis.opsForValue().multiGet(List.of("a", "b", "c"));
+
+        assertEquals(Arrays.asList("1", null, "3"), values);
+    }
+
+    @Test
+    void delete_shouldRemoveKey() {
+        redis.opsForValue().set("a", "1");
+
+        assertTrue(redis.delete("a"));
+        assertNull(redis.opsForValue().get("a"));
+    }
+
+    @Test
+    void uniqueVisitors_shouldMergeFlushesFromDifferentNodes() {
+        LocalDate day = LocalDate.of(2026, 1, 5);
+        Bulkhead bulkhead = new Bulkhead("redis", 4, Duration.ofMillis(10));
+        // two "nodes" with partly overlapping visitors merging into the same key
+        UniqueVisitors first = new UniqueVisitors(redis, bulkhead, new SimpleMeterRegistry(), true, Duration.ofDays(35), 16);
+        UniqueVisitors second = new UniqueVisitors(redis, bulkhead, new SimpleMeterRegistry(), true, Duration.ofDays(35), 16);
+        for (int i = 0; i < 300; i++) {
+            first.add("abc", day, HyperLogLog.hash("10.0.0." + i, "ua"));
+            second.add("abc", day, HyperLogLog.hash("10.0.0." + (i + 200), "ua"));
+        }
+        first.flush().join();
+        second.flush().join();
+        second.flush().join(); // nothing pending
+
+        ShortenerVisitorsResponse res = first.query("abc", day, day);
+
+        assertEquals(500, res.getUniqueVisitors(), 10);
+        assertEquals(res.getUniqueVisitors(), res.getVisitorsPerDay().get(day));
+    }
+}
@@ -0,0 +1,57 @@
+package com.wl.url.shortener.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InjectedLatencyTest {
+
+    @Test
+    void nextDelayNanos_shouldStayWithinBasePlusJitter() {
+        InjectedLatency latency = new InjectedLatency(Duration.ofMillis(2), Duration.ofMillis(3));
+
+        for (int i = 0; i < 10_000; i++) {
+            long delay = latency.nextDelayNanos();
+            assertTrue(delay >= Duration.ofMillis(2).toNanos());
+            assertTrue(delay <= Duration.ofMillis(5).toNanos());
+        }
+    }
+
+    @Test
+    void nextDelayNanos_shouldBeExactWithoutJitter() {
+        InjectedLatency latency = new InjectedLatency(Duration.ofMillis(1), Duration.ZERO);
+
+        assertEquals(Duration.ofMillis(1).toNanos(), latency.nextDelayNanos());
+    }
+
+    @Test
+    void complete_shouldResolveImmediatelyWhenNoLatency() {
+        InjectedLatency latency = new InjectedLatency(Duration.ZERO, Duration.ZERO);
+
+        CompletableFuture<String> result = latency.complete(() -> "ok");
+
+        assertTrue(result.isDone());
+        assertEquals("ok", result.join());
+    }
+
+    @Test
+    void complete_shouldDelayWithoutBlockingCaller() {
+        InjectedLatency latency = new InjectedLatency(Duration.ofMillis(50), Duration.ZERO);
+
+        long start = System.nanoTime();
+        CompletableFuture<String> result = latency.complete(() -> "ok");
+        // the call returns before the delay; only the future waits
+        assertFalse(result.isDone());
+        assertEquals("ok", result.join());
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+    }
+
+    @Test
+    void shouldRejectNegativeLatency() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new InjectedLatency(Duration.ofMillis(-1), Duration.ZERO));
+    }
+}
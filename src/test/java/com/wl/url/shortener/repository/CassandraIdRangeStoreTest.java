@@ -0,0 +1,140 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.servererrors.InvalidQueryException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CassandraIdRangeStoreTest {
+
+    @Mock
+    CqlSession session;
+
+    @Mock
+    PreparedStatement select;
+
+    @Mock
+    PreparedStatement insert;
+
+    @Mock
+    PreparedStatement advance;
+
+    @Mock
+    BoundStatement selectBound;
+
+    @Mock
+    BoundStatement insertBound;
+
+    @Mock
+    BoundStatement advanceBound;
+
+    private CassandraIdRangeStore store;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(session.prepare(CassandraIdRangeStore.SELECT_CQL)).thenReturn(select);
+        lenient().when(session.prepare(CassandraIdRangeStore.INSERT_CQL)).thenReturn(insert);
+        lenient().when(session.prepare(CassandraIdRangeStore.ADVANCE_CQL)).thenReturn(advance);
+        lenient().when(select.bind(any(Object[].class))).thenReturn(selectBound);
+        lenient().when(insert.bind(any(Object[].class))).thenReturn(insertBound);
+        lenient().when(advance.bind(any(Object[].class))).thenReturn(advanceBound);
+        lenient().when(selectBound.setConsistencyLevel(any(ConsistencyLevel.class))).thenReturn(selectBound);
+        lenient().when(selectBound.setIdempotent(true)).thenReturn(selectBound);
+        lenient().when(insertBound.setIdempotent(true)).thenReturn(insertBound);
+        lenient().when(advanceBound.setIdempotent(true)).thenReturn(advanceBound);
+        store = new CassandraIdRangeStore(session, () -> 5_000L);
+    }
+
+    @Test
+    void reserve_shouldSeedCounterAboveFloorWhenMissing() {
+        when(session.executeAsync(selectBound)).thenReturn(result(true, null));
+        when(session.executeAsync(insertBound)).thenReturn(result(true, null));
+
+        assertEquals(5_064L, store.reserve(64));
+
+        verify(insert).bind("shortcode", 5_064L);
+        verifyNoInteractions(advance);
+    }
+
+    @Test
+    void reserve_shouldAdvanceExistingCounterWithCompareAndSet() {
+        when(session.executeAsync(selectBound)).thenReturn(result(true, 5_064L));
+        when(session.executeAsync(advanceBound)).thenReturn(result(true, null));
+
+        assertEquals(5_192L, store.reserve(128));
+
+        verify(advance).bind(5_192L, "shortcode", 5_064L);
+        verify(selectBound).setConsistencyLevel(ConsistencyLevel.SERIAL);
+        verifyNoInteractions(insert);
+    }
+
+    @Test
+    void reserve_shouldRetryFromValueReturnedByLostRace() {
+        when(session.executeAsync(selectBound)).thenReturn(result(true, 5_064L));
+        // another node reserved first: the LWT returns the current value and the retry starts from it
+        when(session.executeAsync(advanceBound)).thenReturn(result(false, 6_000L), result(true, null));
+
+        assertEquals(6_064L, store.reserve(64));
+
+        verify(advance).bind(5_128L, "shortcode", 5_064L);
+        verify(advance).bind(6_064L, "shortcode", 6_000L);
+    }
+
+    @Test
+    void reserve_shouldNeverReseedWhenAnotherNodeCreatedTheCounter() {
+        when(session.executeAsync(selectBound)).thenReturn(result(true, null));
+        when(session.executeAsync(insertBound)).thenReturn(result(false, 70_000L));
+        when(session.executeAsync(advanceBound)).thenReturn(result(true, null));
+
+        assertEquals(70_064L, store.reserve(64));
+
+        verify(advance).bind(70_064L, "shortcode", 70_000L);
+    }
+
+    @Test
+    void reserve_shouldFailWhenCounterKeepsMoving() {
+        when(session.executeAsync(selectBound)).thenReturn(result(true, 5_064L));
+        when(session.executeAsync(advanceBound)).thenAnswer(inv -> result(false, 5_064L));
+
+        assertThrows(IllegalStateException.class, () -> store.reserve(64));
+    }
+
+    @Test
+    void reserve_shouldTranslateDriverErrors() {
+        when(session.executeAsync(selectBound))
+                .thenReturn(CompletableFuture.failedFuture(new InvalidQueryException(null, "unconfigured table")));
+
+        assertThrows(DataAccessException.class, () -> store.reserve(64));
+    }
+
+    private static CompletionStage<AsyncResultSet> result(boolean applied, Long nextId) {
+        AsyncResultSet rs = mock(AsyncResultSet.class);
+        lenient().when(rs.wasApplied()).thenReturn(applied);
+        if (nextId != null) {
+            Row row = mock(Row.class);
+            ColumnDefinitions columns = mock(ColumnDefinitions.class);
+            lenient().when(row.getColumnDefinitions()).thenReturn(columns);
+            lenient().when(columns.contains("next_id")).thenReturn(true);
+            lenient().when(row.getLong("next_id")).thenReturn(nextId);
+            lenient().when(rs.one()).thenReturn(row);
+        }
+        return CompletableFuture.completedFuture(rs);
+    }
+}
@@ -0,0 +1,78 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.servererrors.InvalidQueryException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PreparedStatementsTest {
+
+    private static final String CQL = "SELECT full_url FROM shortner_url WHERE shortcode = ?";
+
+    @Mock
+    CqlSession session;
+
+    @Mock
+    PreparedStatement prepared;
+
+    @Mock
+    BoundStatement bound;
+
+    @Mock
+    AsyncResultSet resultSet;
+
+    private PreparedStatements statements;
+
+    @BeforeEach
+    void setup() {
+        statements = new PreparedStatements(session);
+    }
+
+    @Test
+    void get_shouldPrepareEachStatementOnce() {
+        when(session.prepare(CQL)).thenReturn(prepared);
+
+        assertSame(prepared, statements.get(CQL));
+        assertSame(prepared, statements.get(CQL));
+
+        verify(session, times(1)).prepare(CQL);
+    }
+
+    @Test
+    void execute_shouldMapResultSet() throws Exception {
+        when(resultSet.remaining()).thenReturn(3);
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        assertEquals(3, statements.execute(() -> bound, AsyncResultSet::remaining).get());
+    }
+
+    @Test
+    void execute_shouldTranslateAsyncAndSynchronousDriverErrors() {
+        when(session.executeAsync(bound))
+                .thenReturn(CompletableFuture.failedFuture(new InvalidQueryException(null, "bad")));
+        when(session.prepare(CQL)).thenThrow(new InvalidQueryException(null, "unconfigured table"));
+
+        ExecutionException async = assertThrows(ExecutionException.class,
+                () -> statements.execute(() -> bound, rs -> null).get());
+        // a failed prepare also fails the future, never throws on the caller's thread
+        CompletableFuture<Object> sync = statements.execute(() -> statements.get(CQL).bind("abc"), rs -> null);
+        ExecutionException prepare = assertThrows(ExecutionException.class, sync::get);
+
+        assertInstanceOf(DataAccessException.class, async.getCause());
+        assertInstanceOf(DataAccessException.class, prepare.getCause());
+    }
+}
@@ -0,0 +1,96 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.servererrors.InvalidQueryException;
+import com.wl.url.shortener.entity.ShortenerUrl;
+import com.wl.url.shortener.exception.impl.RateLimitExceededException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortenerUrlAliasWriterTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    CqlSession session;
+
+    @Mock
+    PreparedStatement prepared;
+
+    @Mock
+    BoundStatement bound;
+
+    private ShortenerUrlAliasWriter writer;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(session.prepare(ShortenerUrlAliasWriter.INSERT_CQL)).thenReturn(prepared);
+        lenient().when(prepared.bind(any(Object[].class))).thenReturn(bound);
+        lenient().when(bound.setIdempotent(false)).thenReturn(bound);
+        writer = new ShortenerUrlAliasWriter(session, 1, CLOCK);
+    }
+
+    @Test
+    void insertIfAbsent_shouldUseLwtStatementAndReportWhetherItApplied() throws Exception {
+        AsyncResultSet applied = mock(AsyncResultSet.class);
+        AsyncResultSet taken = mock(AsyncResultSet.class);
+        when(applied.wasApplied()).thenReturn(true);
+        when(taken.wasApplied()).thenReturn(false);
+        when(session.executeAsync(bound))
+                .thenReturn(CompletableFuture.completedFuture(applied), CompletableFuture.completedFuture(taken));
+
+        assertTrue(writer.insertIfAbsent(alias("summer-sale")).get());
+        assertFalse(writer.insertIfAbsent(alias("summer-sale")).get());
+
+        assertTrue(ShortenerUrlAliasWriter.INSERT_CQL.contains("IF NOT EXISTS"));
+        verify(prepared, times(2)).bind("summer-sale", "https://example.com", CLOCK.instant(), null, 0);
+        // retrying an LWT that already applied would tell the writer "already exists"
+        verify(bound, times(2)).setIdempotent(false);
+        assertEquals(1, writer.availableSlots());
+    }
+
+    @Test
+    void insertIfAbsent_shouldFailFastWhenOwnLimitIsReached() {
+        when(session.executeAsync(bound)).thenReturn(new CompletableFuture<>());
+
+        writer.insertIfAbsent(alias("summer-sale"));
+        CompletableFuture<Boolean> rejected = writer.insertIfAbsent(alias("winter-sale"));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RateLimitExceededException.class, ex.getCause());
+        verify(session, times(1)).executeAsync(bound);
+    }
+
+    @Test
+    void insertIfAbsent_shouldTranslateDriverErrorsAndReleaseSlot() {
+        when(session.executeAsync(bound))
+                .thenReturn(CompletableFuture.failedFuture(new InvalidQueryException(null, "bad")));
+
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> writer.insertIfAbsent(alias("summer-sale")).get());
+
+        assertInstanceOf(DataAccessException.class, ex.getCause());
+        assertEquals(1, writer.availableSlots());
+    }
+
+    private static ShortenerUrl alias(String code) {
+        return ShortenerUrl.builder().shortcode(code).fullUrl("https://example.com").build();
+    }
+}
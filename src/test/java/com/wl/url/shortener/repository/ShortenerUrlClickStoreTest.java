@@ -0,0 +1,180 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.*;
+import com.wl.url.shortener.entity.ShortenerUrlClicks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortenerUrlClickStoreTest {
+
+    private static final Instant MINUTE = Instant.parse("2026-01-01T10:15:00Z");
+    private static final Instant NEXT_MINUTE = MINUTE.plusSeconds(60);
+
+    @Mock
+    CqlSession session;
+
+    @Mock
+    PreparedStatement prepared;
+
+    @Mock
+    BoundStatement bound;
+
+    @Mock
+    AsyncResultSet resultSet;
+
+    private ShortenerUrlClickStore store;
+
+    @BeforeEach
+    void setup() {
+        store = new ShortenerUrlClickStore(session, 4, 64);
+    }
+
+    @Test
+    void constructor_shouldRejectEmptyBatches() {
+        assertThrows(IllegalArgumentException.class, () -> new ShortenerUrlClickStore(session, 0, 64));
+        assertThrows(IllegalArgumentException.class, () -> new ShortenerUrlClickStore(session, 4, 0));
+    }
+
+    @Test
+    void increment_shouldBatchOnlyWithinOnePartitionAndSumTotals() {
+        when(session.prepare(anyString())).thenReturn(prepared);
+        when(prepared.bind(any(Object[].class))).thenReturn(bound);
+        when(bound.setIdempotent(false)).thenReturn(bound);
+        when(session.executeAsync(any(Statement.class))).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        // "a" has two minutes: one single-partition batch; "b" has one: a plain UPDATE. One total per code
+        assertNull(store.increment(List.of(clicks("a", 3), clicks("b", 1), clicks("a", NEXT_MINUTE, 2))).join());
+
+        ArgumentCaptor<Statement> sent = ArgumentCaptor.forClass(Statement.class);
+        verify(session, times(4)).executeAsync(sent.capture());
+        List<BatchStatement> batches = sent.getAllValues().stream()
+                .filter(BatchStatement.class::isInstance)
+                .map(BatchStatement.class::cast)
+                .toList();
+        assertEquals(1, batches.size());
+        assertEquals(DefaultBatchType.COUNTER, batches.get(0).getBatchType());
+        assertEquals(2, batches.get(0).size());
+        assertEquals(Boolean.FALSE, batches.get(0).isIdempotent());
+
+        verify(session).prepare(ShortenerUrlClickStore.INCREMENT_MINUTE_CQL);
+        verify(session).prepare(ShortenerUrlClickStore.INCREMENT_TOTAL_CQL);
+        verify(prepared).bind(3L, "a", MINUTE);
+        verify(prepared).bind(2L, "a", NEXT_MINUTE);
+        verify(prepared).bind(5L, "a");
+        verify(prepared).bind(1L, "b", MINUTE);
+        verify(prepared).bind(1L, "b");
+    }
+
+    @Test
+    void increment_shouldSplitLongPartitionsByMaxBatchSize() {
+        when(session.prepare(anyString())).thenReturn(prepared);
+        when(prepared.bind(any(Object[].class))).thenReturn(bound);
+        when(bound.setIdempotent(false)).thenReturn(bound);
+        when(session.executeAsync(any(Statement.class))).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        List<ShortenerUrlClicks> counts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            counts.add(clicks("a", MINUTE.plusSeconds(60L * i), 1));
+        }
+
+        assertNull(store.increment(counts).join());
+
+        // 4 minutes in one batch, the fifth on its own, and the total
+        verify(session, times(3)).executeAsync(any(Statement.class));
+        verify(prepared).bind(5L, "a");
+    }
+
+    @Test
+    void increment_shouldKeepAtMostMaxInFlightWritesOutstanding() {
+        ShortenerUrlClickStore windowed = new ShortenerUrlClickStore(session, 4, 2);
+        List<CompletableFuture<AsyncResultSet>> outstanding = new ArrayList<>();
+        when(session.prepare(anyString())).thenReturn(prepared);
+        when(prepared.bind(any(Object[].class))).thenReturn(bound);
+        when(bound.setIdempotent(false)).thenReturn(bound);
+        when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+            CompletableFuture<AsyncResultSet> write = new CompletableFuture<>();
+            outstanding.add(write);
+            return write;
+        });
+
+        // three codes with one minute each: six writes through a window of two
+        CompletableFuture<Void> result = windowed.increment(List.of(clicks("a", 1), clicks("b", 1), clicks("c", 1)));
+
+        for (int sent = 2; sent <= 6; sent++) {
+            assertEquals(sent, outstanding.size());
+            assertEquals(0, windowed.availableSlots());
+            outstanding.get(sent - 2).complete(resultSet);
+        }
+        outstanding.get(5).complete(resultSet);
+
+        assertNull(result.join());
+        assertEquals(2, windowed.availableSlots());
+        verify(session, times(6)).executeAsync(any(Statement.class));
+    }
+
+    @Test
+    void increment_shouldFailWhenAnyWriteFails() {
+        IllegalStateException boom = new IllegalStateException("boom");
+        when(session.prepare(anyString())).thenReturn(prepared);
+        when(prepared.bind(any(Object[].class))).thenReturn(bound);
+        when(bound.setIdempotent(false)).thenReturn(bound);
+        when(session.executeAsync(any(Statement.class)))
+                .thenReturn(CompletableFuture.completedFuture(resultSet))
+                .thenReturn(CompletableFuture.failedFuture(boom));
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> store.increment(List.of(clicks("a", 1), clicks("b", 1), clicks("c", 1))).join());
+        assertSame(boom, ex.getCause());
+    }
+
+    @Test
+    void findTotal_shouldReturnZeroWhenNeverClicked() {
+        when(session.prepare(ShortenerUrlClickStore.SELECT_TOTAL_CQL)).thenReturn(prepared);
+        when(prepared.bind(any(Object[].class))).thenReturn(bound);
+        when(bound.setIdempotent(true)).thenReturn(bound);
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        assertEquals(0L, store.findTotal("abc").join());
+        verify(prepared).bind("abc");
+    }
+
+    @Test
+    void findSince_shouldMapMinuteRows() {
+        Row row = mock(Row.class);
+        when(row.getInstant(0)).thenReturn(MINUTE);
+        when(row.getLong(1)).thenReturn(42L);
+        when(resultSet.currentPage()).thenReturn(List.of(row));
+        when(session.prepare(ShortenerUrlClickStore.SELECT_MINUTES_CQL)).thenReturn(prepared);
+        when(prepared.bind(any(Object[].class))).thenReturn(bound);
+        when(bound.setIdempotent(true)).thenReturn(bound);
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        List<ShortenerUrlClicks> rows = store.findSince("abc", MINUTE.minusSeconds(3600)).join();
+
+        assertEquals(List.of(clicks("abc", 42)), rows);
+        verify(prepared).bind("abc", MINUTE.minusSeconds(3600));
+    }
+
+    private static ShortenerUrlClicks clicks(String code, long count) {
+        return clicks(code, MINUTE, count);
+    }
+
+    private static ShortenerUrlClicks clicks(String code, Instant minute, long count) {
+        return ShortenerUrlClicks.builder().shortcode(code).minute(minute).clicks(count).build();
+    }
+}
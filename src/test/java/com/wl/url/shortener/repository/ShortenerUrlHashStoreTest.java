@@ -0,0 +1,67 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortenerUrlHashStoreTest {
+
+    private static final ByteBuffer HASH = ByteBuffer.wrap(new byte[]{1, 2, 3});
+
+    @Mock
+    CqlSession session;
+
+    @Mock
+    PreparedStatement prepared;
+
+    @Mock
+    BoundStatement bound;
+
+    @Mock
+    AsyncResultSet resultSet;
+
+    private ShortenerUrlHashStore store;
+
+    @BeforeEach
+    void setup() {
+        when(prepared.bind(any(Object[].class))).thenReturn(bound);
+        when(bound.setIdempotent(true)).thenReturn(bound);
+        store = new ShortenerUrlHashStore(session);
+    }
+
+    @Test
+    void findShortCode_shouldReadShortcodeColumn() {
+        Row row = mock(Row.class);
+        when(row.getString(0)).thenReturn("abc");
+        when(resultSet.one()).thenReturn(row);
+        when(session.prepare(ShortenerUrlHashStore.SELECT_CQL)).thenReturn(prepared);
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        assertEquals(Optional.of("abc"), store.findShortCode(HASH).join());
+        verify(prepared).bind(HASH);
+    }
+
+    @Test
+    void save_shouldBindHashAndShortcode() {
+        when(session.prepare(ShortenerUrlHashStore.INSERT_CQL)).thenReturn(prepared);
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        assertNull(store.save(HASH, "abc").join());
+        verify(prepared).bind(HASH, "abc");
+    }
+}
@@ -0,0 +1,190 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.DefaultProtocolVersion;
+import com.datastax.oss.driver.api.core.context.DriverContext;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.metadata.Metadata;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.NodeState;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.servererrors.InvalidQueryException;
+import com.wl.url.shortener.entity.ShortenerUrl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessException;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortenerUrlReaderTest {
+
+    @Mock
+    CqlSession session;
+
+    @Mock
+    PreparedStatement prepared;
+
+    @Mock
+    BoundStatement bound;
+
+    @Mock
+    AsyncResultSet resultSet;
+
+    private ShortenerUrlReader reader;
+
+    @BeforeEach
+    void setup() {
+        when(session.prepare(ShortenerUrlReader.SELECT_CQL)).thenReturn(prepared);
+        when(prepared.bind(any(Object[].class))).thenReturn(bound);
+        when(bound.setIdempotent(true)).thenReturn(bound);
+        reader = new ShortenerUrlReader(session);
+    }
+
+    @Test
+    void findFullUrl_shouldReturnUrlFromRow() throws Exception {
+        Row row = mock(Row.class);
+        when(row.getString(0)).thenReturn("https://example.com");
+        when(resultSet.one()).thenReturn(row);
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        assertEquals(Optional.of("https://example.com"), reader.findFullUrl("abc").get());
+        verify(prepared).bind("abc");
+    }
+
+    @Test
+    void findUrl_shouldCarryExpiry() throws Exception {
+        Instant expiresAt = Instant.parse("2026-02-01T00:00:00Z");
+        Row row = mock(Row.class);
+        when(row.getString(0)).thenReturn("https://example.com");
+        when(row.getInstant(1)).thenReturn(expiresAt);
+        when(resultSet.one()).thenReturn(row);
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        ShortenerUrl found = reader.findUrl("abc").get().orElseThrow();
+
+        assertEquals("abc", found.getShortcode());
+        assertEquals("https://example.com", found.getFullUrl());
+        assertEquals(expiresAt, found.getExpiresAt());
+    }
+
+    @Test
+    void findFullUrl_shouldReturnEmptyWhenNoRow() throws Exception {
+        when(resultSet.one()).thenReturn(null);
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        assertEquals(Optional.empty(), reader.findFullUrl("abc").get());
+    }
+
+    @Test
+    void findFullUrl_shouldTranslateDriverErrors() {
+        when(session.executeAsync(bound))
+                .thenReturn(CompletableFuture.failedFuture(new InvalidQueryException(null, "bad")));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> reader.findFullUrl("abc").get());
+        assertInstanceOf(DataAccessException.class, ex.getCause());
+    }
+
+    @Test
+    void findUrl_attempts_shouldBePinnedToDistinctLiveReplicas() {
+        CqlIdentifier keyspace = CqlIdentifier.fromCql("shortener");
+        Metadata metadata = mock(Metadata.class);
+        TokenMap tokenMap = mock(TokenMap.class);
+        DriverContext context = mock(DriverContext.class);
+        Node down = node(NodeState.DOWN);
+        Set<Node> replicas = Set.of(node(NodeState.UP), node(NodeState.UP), down);
+        when(session.getKeyspace()).thenReturn(Optional.of(keyspace));
+        when(session.getMetadata()).thenReturn(metadata);
+        when(session.getContext()).thenReturn(context);
+        when(context.getProtocolVersion()).thenReturn(DefaultProtocolVersion.V4);
+        when(metadata.getTokenMap()).thenReturn(Optional.of(tokenMap));
+        when(tokenMap.getReplicas(eq(keyspace), any(ByteBuffer.class))).thenReturn(replicas);
+        when(bound.setNode(any(Node.class))).thenReturn(bound);
+        when(resultSet.one()).thenReturn(null);
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        reader.findUrl("abc", 0).join();
+        reader.findUrl("abc", 1).join();
+        reader.findUrl("abc", 0).join();
+
+        ArgumentCaptor<Node> pinned = ArgumentCaptor.forClass(Node.class);
+        verify(bound, times(3)).setNode(pinned.capture());
+        List<Node> nodes = pinned.getAllValues();
+        assertNotEquals(nodes.get(0), nodes.get(1));
+        assertEquals(nodes.get(0), nodes.get(2));
+        assertFalse(nodes.contains(down));
+    }
+
+    @Test
+    void findUrl_attempts_shouldSortReplicasOncePerTokenMap() {
+        CqlIdentifier keyspace = CqlIdentifier.fromCql("shortener");
+        Metadata metadata = mock(Metadata.class);
+        TokenMap tokenMap = mock(TokenMap.class);
+        TokenMap changed = mock(TokenMap.class);
+        DriverContext context = mock(DriverContext.class);
+        Node first = node(NodeState.UP);
+        Node second = node(NodeState.UP);
+        Set<Node> replicas = Set.of(first, second);
+        when(session.getKeyspace()).thenReturn(Optional.of(keyspace));
+        when(session.getMetadata()).thenReturn(metadata);
+        when(session.getContext()).thenReturn(context);
+        when(context.getProtocolVersion()).thenReturn(DefaultProtocolVersion.V4);
+        when(metadata.getTokenMap()).thenReturn(Optional.of(tokenMap));
+        when(tokenMap.getReplicas(eq(keyspace), any(ByteBuffer.class))).thenReturn(replicas);
+        when(changed.getReplicas(eq(keyspace), any(ByteBuffer.class))).thenReturn(replicas);
+        when(bound.setNode(any(Node.class))).thenReturn(bound);
+        when(resultSet.one()).thenReturn(null);
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        reader.findUrl("abc", 0).join();
+        clearInvocations(first, second);
+        reader.findUrl("abc", 1).join();
+        reader.findUrl("xyz", 0).join();
+
+        verify(first, never()).getHostId();
+        verify(second, never()).getHostId();
+
+        when(metadata.getTokenMap()).thenReturn(Optional.of(changed));
+        reader.findUrl("abc", 0).join();
+
+        verify(first, atLeastOnce()).getHostId();
+    }
+
+    @Test
+    void findUrl_attempt_withoutTokenMap_shouldLeaveRoutingToTheDriver() throws Exception {
+        Metadata metadata = mock(Metadata.class);
+        when(session.getKeyspace()).thenReturn(Optional.of(CqlIdentifier.fromCql("shortener")));
+        when(session.getMetadata()).thenReturn(metadata);
+        when(metadata.getTokenMap()).thenReturn(Optional.empty());
+        when(resultSet.one()).thenReturn(null);
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(resultSet));
+
+        assertEquals(Optional.empty(), reader.findUrl("abc", 1).get());
+        verify(bound, never()).setNode(any());
+    }
+
+    private static Node node(NodeState state) {
+        Node node = mock(Node.class);
+        lenient().when(node.getState()).thenReturn(state);
+        lenient().when(node.getHostId()).thenReturn(UUID.randomUUID());
+        return node;
+    }
+}
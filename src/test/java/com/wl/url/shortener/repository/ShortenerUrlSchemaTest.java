@@ -0,0 +1,90 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.metadata.Metadata;
+import com.datastax.oss.driver.api.core.metadata.schema.ColumnMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortenerUrlSchemaTest {
+
+    private static final Duration GC_GRACE = Duration.ofDays(3);
+
+    @Mock
+    CqlSession session;
+
+    @Mock
+    TableMetadata table;
+
+    @Test
+    void pendingChanges_oldTable_shouldAddColumnAndSwitchCompaction() {
+        when(table.getColumn("expires_at")).thenReturn(Optional.empty());
+        when(table.getOptions()).thenReturn(Map.of(
+                CqlIdentifier.fromCql("compaction"), Map.of("class", "org.apache.cassandra.db.compaction.SizeTieredCompactionStrategy"),
+                CqlIdentifier.fromCql("gc_grace_seconds"), 864000));
+
+        List<String> changes = ShortenerUrlSchema.pendingChanges(table, GC_GRACE);
+
+        assertEquals(2, changes.size());
+        assertEquals("ALTER TABLE shortner_url ADD expires_at timestamp", changes.get(0));
+        assertTrue(changes.get(1).contains("'class': 'LeveledCompactionStrategy'"));
+        assertTrue(changes.get(1).endsWith("gc_grace_seconds = 259200"));
+    }
+
+    @Test
+    void pendingChanges_tunedTable_shouldBeEmpty() {
+        when(table.getColumn("expires_at")).thenReturn(Optional.of(mock(ColumnMetadata.class)));
+        when(table.getOptions()).thenReturn(Map.of(
+                CqlIdentifier.fromCql("compaction"), Map.of(
+                        "class", "org.apache.cassandra.db.compaction.LeveledCompactionStrategy",
+                        "unchecked_tombstone_compaction", "true"),
+                CqlIdentifier.fromCql("gc_grace_seconds"), 259200));
+
+        assertEquals(List.of(), ShortenerUrlSchema.pendingChanges(table, GC_GRACE));
+    }
+
+    @Test
+    void afterSingletonsInstantiated_shouldExecuteOnlyPendingChanges() {
+        CqlIdentifier keyspace = CqlIdentifier.fromCql("shortener");
+        Metadata metadata = mock(Metadata.class);
+        KeyspaceMetadata keyspaceMetadata = mock(KeyspaceMetadata.class);
+        when(session.getKeyspace()).thenReturn(Optional.of(keyspace));
+        when(session.getMetadata()).thenReturn(metadata);
+        when(metadata.getKeyspace(keyspace)).thenReturn(Optional.of(keyspaceMetadata));
+        when(keyspaceMetadata.getTable("shortner_url")).thenReturn(Optional.of(table));
+        when(table.getColumn("expires_at")).thenReturn(Optional.empty());
+        when(table.getOptions()).thenReturn(Map.of(
+                CqlIdentifier.fromCql("compaction"), Map.of(
+                        "class", "org.apache.cassandra.db.compaction.LeveledCompactionStrategy",
+                        "unchecked_tombstone_compaction", "true"),
+                CqlIdentifier.fromCql("gc_grace_seconds"), 259200));
+
+        new ShortenerUrlSchema(session, GC_GRACE).afterSingletonsInstantiated();
+
+        verify(session).execute("ALTER TABLE shortner_url ADD expires_at timestamp");
+        verify(session, times(1)).execute(anyString());
+    }
+
+    @Test
+    void afterSingletonsInstantiated_withoutKeyspace_shouldDoNothing() {
+        when(session.getKeyspace()).thenReturn(Optional.empty());
+
+        new ShortenerUrlSchema(session, GC_GRACE).afterSingletonsInstantiated();
+
+        verify(session, never()).execute(anyString());
+    }
+}
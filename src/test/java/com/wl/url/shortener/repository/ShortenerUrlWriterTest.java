@@ -0,0 +1,193 @@
+package com.wl.url.shortener.repository;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.metadata.Metadata;
+import com.datastax.oss.driver.api.core.servererrors.InvalidQueryException;
+import com.wl.url.shortener.entity.ShortenerUrl;
+import com.wl.url.shortener.exception.impl.RateLimitExceededException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortenerUrlWriterTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    CqlSession session;
+
+    @Mock
+    TaskScheduler scheduler;
+
+    @Mock
+    PreparedStatement prepared;
+
+    @Mock
+    BoundStatement bound;
+
+    @BeforeEach
+    void setup() {
+        when(session.prepare(ShortenerUrlWriter.INSERT_CQL)).thenReturn(prepared);
+        lenient().when(prepared.bind(any(Object[].class))).thenReturn(bound);
+        lenient().when(bound.setIdempotent(true)).thenReturn(bound);
+    }
+
+    @Test
+    void insert_shouldBindPreparedStatementAndCompleteWhenDriverAcknowledges() throws Exception {
+        CompletableFuture<AsyncResultSet> driver = new CompletableFuture<>();
+        when(session.executeAsync(bound)).thenReturn(driver);
+
+        ShortenerUrlWriter writer = newWriter(4, false);
+        CompletableFuture<Void> res = writer.insert(entity("abc"));
+
+        verify(prepared).bind("abc", "https://example.com/abc", CLOCK.instant(), null, 0);
+        assertFalse(res.isDone());
+
+        driver.complete(mock(AsyncResultSet.class));
+
+        assertNull(res.get());
+        assertEquals(4, writer.availableSlots());
+    }
+
+    @Test
+    void insert_shouldPrepareOnlyOnce() {
+        when(session.executeAsync(bound)).thenReturn(CompletableFuture.completedFuture(mock(AsyncResultSet.class)));
+
+        ShortenerUrlWriter writer = newWriter(4, false);
+        writer.insert(entity("a"));
+        writer.insert(entity("b"));
+
+        verify(session, times(1)).prepare(ShortenerUrlWriter.INSERT_CQL);
+    }
+
+    @Test
+    void insert_shouldRejectWhenInFlightLimitIsReached() {
+        CompletableFuture<AsyncResultSet> driver = new CompletableFuture<>();
+        when(session.executeAsync(bound)).thenReturn(driver);
+
+        ShortenerUrlWriter writer = newWriter(1, false);
+        CompletableFuture<Void> first = writer.insert(entity("a"));
+        CompletableFuture<Void> second = writer.insert(entity("b"));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, second::get);
+        assertInstanceOf(RateLimitExceededException.class, ex.getCause());
+
+        // the slot frees up once the pending write completes
+        driver.complete(mock(AsyncResultSet.class));
+        assertTrue(first.isDone());
+        assertEquals(1, writer.availableSlots());
+    }
+
+    @Test
+    void insert_shouldTranslateDriverErrorsAndReleaseSlot() {
+        when(session.executeAsync(bound))
+                .thenReturn(CompletableFuture.failedFuture(new InvalidQueryException(null, "bad")));
+
+        ShortenerUrlWriter writer = newWriter(2, false);
+        CompletableFuture<Void> res = writer.insert(entity("abc"));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, res::get);
+        assertInstanceOf(DataAccessException.class, ex.getCause());
+        assertEquals(2, writer.availableSlots());
+    }
+
+    @Test
+    void insert_withBatching_shouldGroupConcurrentInsertsIntoOneUnloggedBatch() throws Exception {
+        Metadata metadata = mock(Metadata.class);
+        when(session.getMetadata()).thenReturn(metadata);
+        when(metadata.getTokenMap()).thenReturn(Optional.empty());
+        when(session.executeAsync(any(Statement.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(AsyncResultSet.class)));
+
+        ShortenerUrlWriter writer = newWriter(8, true);
+        CompletableFuture<Void> a = writer.insert(entity("a"));
+        CompletableFuture<Void> b = writer.insert(entity("b"));
+
+        // a single flush scheduled for the linger window
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(CLOCK.instant().plus(Duration.ofMillis(2))));
+        verify(session, never()).executeAsync(any(Statement.class));
+
+        writer.flush();
+
+        ArgumentCaptor<Statement> captor = ArgumentCaptor.forClass(Statement.class);
+        verify(session, times(1)).executeAsync(captor.capture());
+        BatchStatement batch = assertInstanceOf(BatchStatement.class, captor.getValue());
+        assertEquals(2, batch.size());
+
+        assertNull(a.get());
+        assertNull(b.get());
+        assertEquals(8, writer.availableSlots());
+    }
+
+    @Test
+    void insert_withBatching_shouldFlushImmediatelyWhenBatchIsFull() {
+        ShortenerUrlWriter writer = new ShortenerUrlWriter(session, scheduler, 8, true, 2, Duration.ofMillis(2), CLOCK);
+        writer.insert(entity("a"));
+        writer.insert(entity("b"));
+        writer.insert(entity("c"));
+        writer.insert(entity("d"));
+
+        // every enqueue past the threshold would otherwise schedule its own flush
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(CLOCK.instant()));
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(CLOCK.instant().plus(Duration.ofMillis(2))));
+    }
+
+    private ShortenerUrlWriter newWriter(int maxInFlight, boolean batching) {
+        return new ShortenerUrlWriter(session, scheduler, maxInFlight, batching, 16, Duration.ofMillis(2), CLOCK);
+    }
+
+    @Test
+    void insert_shouldWriteExpiringLinksWithTtlRoundedUp() {
+        when(session.executeAsync(bound)).thenReturn(new CompletableFuture<>());
+        Instant expiresAt = CLOCK.instant().plusMillis(90_500);
+        ShortenerUrl expiring = ShortenerUrl.builder()
+                .shortcode("abc")
+                .fullUrl("https://example.com/abc")
+                .expiresAt(expiresAt)
+                .build();
+
+        newWriter(4, false).insert(expiring);
+
+        verify(prepared).bind("abc", "https://example.com/abc", CLOCK.instant(), expiresAt, 91);
+    }
+
+    @Test
+    void ttlSeconds_shouldStayWithinCassandraLimits() {
+        Instant now = CLOCK.instant();
+
+        assertEquals(0, ShortenerUrlWriter.ttlSeconds(null, now));
+        assertEquals(1, ShortenerUrlWriter.ttlSeconds(now.minusSeconds(5), now));
+        assertEquals(60, ShortenerUrlWriter.ttlSeconds(now.plusSeconds(60), now));
+        assertEquals(ShortenerUrlWriter.MAX_TTL.toSeconds(),
+                ShortenerUrlWriter.ttlSeconds(now.plus(Duration.ofDays(365 * 30)), now));
+    }
+
+    private static ShortenerUrl entity(String code) {
+        return ShortenerUrl.builder()
+                .shortcode(code)
+                .fullUrl("https://example.com/" + code)
+                .build();
+    }
+}
@@ -0,0 +1,245 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.dto.response.ShortenerStatsResponse;
+import com.wl.url.shortener.entity.ShortenerUrlClicks;
+import com.wl.url.shortener.repository.ShortenerUrlClickStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClickAnalyticsTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T10:15:20Z");
+
+    @Mock
+    ShortenerUrlClickStore store;
+
+    @Mock
+    UniqueVisitors uniqueVisitors;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+    private ClickAnalytics analytics;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(START);
+        analytics = new ClickAnalytics(store, uniqueVisitors, meterRegistry, true, 4,
+                Duration.ofSeconds(10), Duration.ofMillis(1), clock);
+    }
+
+    @Test
+    void record_shouldDoNothingWhenDisabled() {
+        ClickAnalytics disabled = new ClickAnalytics(store, uniqueVisitors, meterRegistry, false, 4,
+                Duration.ofSeconds(10), Duration.ofMillis(100), clock);
+
+        disabled.record("abc");
+        disabled.drain();
+        disabled.shutdown();
+
+        assertFalse(disabled.isEnabled());
+        verifyNoInteractions(store, uniqueVisitors);
+    }
+
+    @Test
+    void record_shouldDropAndCountWhenBufferIsFull() {
+        for (int i = 0; i < 6; i++) {
+            analytics.record("abc");
+        }
+
+        assertEquals(2, clicks("dropped"));
+        analytics.drainBuffer();
+        assertEquals(4, clicks("recorded"));
+    }
+
+    @Test
+    void start_shouldDrainOnItsOwnThreadUntilShutdown() {
+        when(store.increment(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        analytics.record("abc");
+
+        analytics.start();
+        // nobody calls drain(): the analytics-drain thread empties the ring buffer on its own
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (clicks("recorded") == 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        analytics.shutdown();
+
+        assertEquals(1, clicks("recorded"));
+        assertEquals(1, captureIncrement().size());
+    }
+
+    @Test
+    void drain_shouldAggregatePerCodeAndMinuteAndWriteOnlyAfterFlushInterval() {
+        when(store.increment(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        analytics.record("abc");
+        analytics.record("abc");
+        analytics.record("xyz");
+        analytics.drain();
+        verifyNoInteractions(store);
+
+        clock.advance(Duration.ofSeconds(45)); // into the next minute
+        analytics.record("abc");
+        analytics.drain();
+
+        List<ShortenerUrlClicks> rows = captureIncrement();
+        Instant first = Instant.parse("2026-01-01T10:15:00Z");
+        Instant second = Instant.parse("2026-01-01T10:16:00Z");
+        assertEquals(3, rows.size());
+        assertTrue(rows.contains(row("abc", first, 2)));
+        assertTrue(rows.contains(row("xyz", first, 1)));
+        assertTrue(rows.contains(row("abc", second, 1)));
+        assertEquals(3, meterRegistry.get("shortener.analytics.flushed").counter().count());
+    }
+
+    @Test
+    void drain_shouldBucketClicksByTheirOwnMinuteAndDayNotByDrainTime() {
+        when(store.increment(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        MutableClock late = new MutableClock(Instant.parse("2026-01-01T23:59:50Z"));
+        ClickAnalytics analytics = new ClickAnalytics(store, uniqueVisitors, meterRegistry, true, 4,
+                Duration.ofSeconds(10), Duration.ofMillis(1), late);
+
+        analytics.record("abc", 7L);
+        late.advance(Duration.ofSeconds(15));
+        analytics.record("abc", 7L);
+        analytics.drain();
+
+        List<ShortenerUrlClicks> rows = captureIncrement();
+        assertEquals(2, rows.size());
+        assertTrue(rows.contains(row("abc", Instant.parse("2026-01-01T23:59:00Z"), 1)));
+        assertTrue(rows.contains(row("abc", Instant.parse("2026-01-02T00:00:00Z"), 1)));
+        verify(uniqueVisitors).add("abc", LocalDate.of(2026, 1, 1), 7L);
+        verify(uniqueVisitors).add("abc", LocalDate.of(2026, 1, 2), 7L);
+    }
+
+    @Test
+    void drain_shouldFeedVisitorsPerUtcDayAndFlushThemWithCounters() {
+        when(store.increment(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+        long visitor = ClickAnalytics.visitorOf("10.0.0.1", "curl/8");
+
+        analytics.record("abc", visitor);
+        analytics.record("abc");
+        analytics.drainBuffer();
+        analytics.flush();
+
+        LocalDate day = LocalDate.of(2026, 1, 1);
+        verify(uniqueVisitors).add("abc", day, visitor);
+        verify(uniqueVisitors).add("abc", day, 0L);
+        verify(uniqueVisitors).flush();
+    }
+
+    @Test
+    void visitorOf_shouldBeStableAndZeroOnlyWithoutAnyIdentity() {
+        assertEquals(ClickAnalytics.visitorOf("10.0.0.1", "curl/8"), ClickAnalytics.visitorOf("10.0.0.1", "curl/8"));
+        assertNotEquals(ClickAnalytics.visitorOf("10.0.0.1", "curl/8"), ClickAnalytics.visitorOf("10.0.0.2", "curl/8"));
+        assertNotEquals(0L, ClickAnalytics.visitorOf("10.0.0.1", null));
+        assertEquals(0L, ClickAnalytics.visitorOf(null, null));
+    }
+
+    @Test
+    void flush_shouldNotRetryFailedWrites() {
+        when(store.increment(anyList())).thenReturn(CompletableFuture.failedFuture(new QueryTimeoutException("timeout")));
+
+        analytics.record("abc");
+        analytics.drainBuffer();
+        analytics.flush();
+        analytics.flush();
+
+        // counters are not idempotent: resending could count twice
+        verify(store, times(1)).increment(anyList());
+        assertEquals(1, meterRegistry.get("shortener.analytics.flush.failures").counter().count());
+    }
+
+    @Test
+    void shutdown_shouldFlushWhatIsStillInTheBuffer() {
+        when(store.increment(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+
+        analytics.record("abc");
+        analytics.shutdown();
+
+        assertEquals(List.of(row("abc", Instant.parse("2026-01-01T10:15:00Z"), 1)), captureIncrement());
+    }
+
+    @Test
+    void stats_shouldCombineTotalAndMinutesInsideWindow() {
+        Instant minute = Instant.parse("2026-01-01T10:14:00Z");
+        when(store.findTotal("abc")).thenReturn(CompletableFuture.completedFuture(10L));
+        when(store.findSince("abc", Instant.parse("2026-01-01T09:16:00Z")))
+                .thenReturn(CompletableFuture.completedFuture(List.of(row("abc", minute, 4))));
+
+        ShortenerStatsResponse stats = analytics.stats("abc", 60).join();
+
+        assertEquals("abc", stats.getShortCode());
+        assertEquals(10L, stats.getTotalClicks());
+        assertEquals(Map.of(minute, 4L), stats.getClicksPerMinute());
+    }
+
+    @Test
+    void stats_shouldClampWindowToOneDay() {
+        when(store.findTotal("abc")).thenReturn(CompletableFuture.completedFuture(0L));
+        when(store.findSince(eq("abc"), any(Instant.class))).thenReturn(CompletableFuture.completedFuture(List.of()));
+
+        analytics.stats("abc", 1_000_000).join();
+
+        verify(store).findSince("abc", Instant.parse("2025-12-31T10:16:00Z"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ShortenerUrlClicks> captureIncrement() {
+        ArgumentCaptor<List<ShortenerUrlClicks>> captor = ArgumentCaptor.forClass(List.class);
+        verify(store).increment(captor.capture());
+        return captor.getValue();
+    }
+
+    private double clicks(String result) {
+        return meterRegistry.get("shortener.analytics.clicks").tag("result", result).counter().count();
+    }
+
+    private static ShortenerUrlClicks row(String code, Instant minute, long clicks) {
+        return ShortenerUrlClicks.builder().shortcode(code).minute(minute).clicks(clicks).build();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.utils.FrequencySketch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotnessSyncTest {
+
+    @Mock
+    StringRedisTemplate redis;
+
+    private FrequencySketch sketch;
+    private HotnessSync sync;
+
+    @BeforeEach
+    void setup() {
+        sketch = new FrequencySketch(16, 1000);
+        Clock clock = Clock.fixed(Instant.ofEpochSecond(1_200), ZoneOffset.UTC);
+        sync = new HotnessSync(redis, sketch, Duration.ofMinutes(10), clock);
+    }
+
+    @Test
+    void flush_shouldSendOnlyNonZeroCellsToCurrentWindow() {
+        AtomicReference<Object[]> sent = new AtomicReference<>();
+        doAnswer(inv -> {
+            sent.set(inv.getArguments());
+            return List.of(1L, 1L, 1L, 1L, 1L);
+        }).when(redis).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        sketch.increment("abc");
+
+        sync.flush();
+
+        Object[] invocation = sent.get();
+        assertEquals(List.of("url:hotness:2"), invocation[1]);
+        // script, keys, window TTL, additions and one cell/delta pair per sketch row
+        assertEquals(2 + 2 + 4 * 2, invocation.length);
+        assertEquals("1200", invocation[2]);
+        assertEquals("1", invocation[3]);
+    }
+
+    @Test
+    void flush_shouldReadBackOnlyTheCellsItSent() {
+        doReturn(List.of(25L, 25L, 25L, 25L, 25L))
+                .when(redis).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        sketch.increment("abc");
+
+        sync.flush();
+
+        assertEquals(25, sketch.estimate("abc"));
+    }
+
+    @Test
+    void flush_shouldScaleCountsOfABusyWindow() {
+        // 500 of 10000 additions in the window: 50 per 1000, the local sample size
+        doReturn(List.of(10_000L, 500L, 500L, 500L, 500L))
+                .when(redis).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        sketch.increment("abc");
+
+        sync.flush();
+
+        assertEquals(50, sketch.estimate("abc"));
+    }
+
+    @Test
+    void flush_shouldDropRemoteCountsWhenTheWindowRollsOver() {
+        MutableClock clock = new MutableClock(Instant.ofEpochSecond(1_200));
+        HotnessSync rolling = new HotnessSync(redis, sketch, Duration.ofMinutes(10), clock);
+        doReturn(List.of(25L, 25L, 25L, 25L, 25L), List.of(0L))
+                .when(redis).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        sketch.increment("abc");
+        rolling.flush();
+
+        clock.advance(Duration.ofMinutes(10));
+        rolling.flush();
+
+        assertEquals(1, sketch.estimate("abc"));
+    }
+
+    @Test
+    void flush_shouldSwallowRedisFailures() {
+        doThrow(new RedisConnectionFailureException("down"))
+                .when(redis).execute(any(RedisScript.class), anyList(), any(Object[].class));
+
+        assertDoesNotThrow(() -> sync.flush());
+        assertEquals(0, sketch.estimate("abc"));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.CircuitBreaker;
+import com.wl.url.shortener.utils.FrequencySketch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveShortUrlCacheTest {
+
+    @Mock
+    ReactiveStringRedisTemplate redis;
+
+    @Mock
+    ReactiveValueOperations<String, String> valueOps;
+
+    @Mock
+    StringRedisTemplate blockingRedis;
+
+    private Bulkhead bulkhead;
+    private CircuitBreaker breaker;
+    private ShortUrlCache tiers;
+    private ReactiveShortUrlCache cache;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(redis.opsForValue()).thenReturn(valueOps);
+        bulkhead = new Bulkhead("redis", 16, Duration.ofMillis(10));
+        breaker = new CircuitBreaker("redis", 4, 2, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(8), 1);
+        tiers = new ShortUrlCache(blockingRedis, new FrequencySketch(1024, 100_000),
+                bulkhead, breaker, new SimpleMeterRegistry(),
+                Duration.ofMillis(50), 100, Duration.ofSeconds(30));
+        cache = new ReactiveShortUrlCache(redis, tiers);
+    }
+
+    @Test
+    void get_shouldReadRedisOnceAndThenServeFromSharedLocalTier() {
+        when(valueOps.get("url:cache:{abc}")).thenReturn(Mono.just("https://example.com"));
+
+        assertEquals("https://example.com", cache.get("abc").block());
+        assertEquals("https://example.com", cache.get("abc").block());
+
+        verify(valueOps, times(1)).get("url:cache:{abc}");
+        assertEquals("https://example.com", tiers.getLocal("abc"));
+        verifyNoInteractions(blockingRedis);
+    }
+
+    @Test
+    void get_shouldCompleteEmptyOnRedisMiss() {
+        when(valueOps.get("url:cache:{abc}")).thenReturn(Mono.empty());
+
+        assertNull(cache.get("abc").block());
+        assertNull(tiers.getLocal("abc"));
+    }
+
+    @Test
+    void getAll_shouldIssueOneMultiGetPerSlotAndSkipLocalHits() {
+        tiers.putLocal("local", "https://local.com");
+        // {a} and {b} hash to different slots, so each gets its own MGET
+        when(valueOps.multiGet(List.of("url:cache:{a}"))).thenReturn(Mono.just(Arrays.asList("https://a.com")));
+        when(valueOps.multiGet(List.of("url:cache:{b}"))).thenReturn(Mono.just(Arrays.asList((String) null)));
+
+        Map<String, String> res = cache.getAll(List.of("local", "a", "b")).block();
+
+        assertEquals(Map.of("local", "https://local.com", "a", "https://a.com"), res);
+        assertEquals("https://a.com", tiers.getLocal("a"));
+        verify(valueOps, never()).multiGet(List.of("url:cache:{local}"));
+    }
+
+    @Test
+    void getAll_shouldNotTouchRedisWhenEverythingIsLocal() {
+        tiers.putLocal("a", "https://a.com");
+
+        assertEquals(Map.of("a", "https://a.com"), cache.getAll(List.of("a")).block());
+        verifyNoInteractions(redis);
+    }
+
+    @Test
+    void registerHitAndMaybeCache_shouldPromoteOnlyAfterThresholdLikeBlockingCache() {
+        when(valueOps.setIfAbsent("url:cache:{abc}", "https://example.com", Duration.ofHours(2)))
+                .thenReturn(Mono.just(true));
+
+        for (int i = 0; i < 19; i++) {
+            cache.registerHitAndMaybeCache("abc", "https://example.com").block();
+        }
+        verifyNoInteractions(valueOps);
+        assertNull(tiers.getLocal("abc"));
+
+        cache.registerHitAndMaybeCache("abc", "https://example.com").block();
+
+        verify(valueOps).setIfAbsent("url:cache:{abc}", "https://example.com", Duration.ofHours(2));
+        assertEquals("https://example.com", tiers.getLocal("abc"));
+    }
+
+    @Test
+    void registerHitAndMaybeCache_expiringLink_shouldCapTtlAndDropExpiredRedisValues() {
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(5));
+        String stored = expiresAt.toEpochMilli() + " https://example.com";
+        when(valueOps.setIfAbsent(eq("url:cache:{abc}"), eq(stored), any(Duration.class))).thenReturn(Mono.just(true));
+        for (int i = 0; i < 20; i++) {
+            cache.registerHitAndMaybeCache("abc", "https://example.com", expiresAt).block();
+        }
+        assertEquals("https://example.com", tiers.getLocal("abc"));
+
+        ArgumentCaptor<Duration> ttl = ArgumentCaptor.forClass(Duration.class);
+        verify(valueOps).setIfAbsent(eq("url:cache:{abc}"), eq(stored), ttl.capture());
+        assertTrue(ttl.getValue().compareTo(Duration.ofMinutes(5)) <= 0);
+
+        // in Redis but already expired: a miss, and not copied into L1
+        when(valueOps.get("url:cache:{old}")).thenReturn(Mono.just((System.currentTimeMillis() - 1) + " https://old"));
+        assertNull(cache.get("old").block());
+        assertNull(tiers.getLocal("old"));
+    }
+
+    @Test
+    void get_redisFailures_shouldBecomeMissesAndOpenSharedBreaker() {
+        when(valueOps.get("url:cache:{abc}")).thenReturn(Mono.error(new RedisSystemException("down", null)));
+        when(valueOps.get("url:cache:{xyz}")).thenReturn(Mono.never());
+
+        assertNull(cache.get("abc").block());
+        // no answer within the budget: gives up and carries on as a miss
+        assertNull(cache.get("xyz").block(Duration.ofSeconds(1)));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        // open: Redis is not even called, and the promotion only reaches L1
+        assertNull(cache.get("other").block());
+        for (int i = 0; i < 20; i++) {
+            cache.registerHitAndMaybeCache("hot", "https://hot.com").block();
+        }
+        verify(valueOps, never()).get("url:cache:{other}");
+        verify(valueOps, never()).setIfAbsent(anyString(), anyString(), any(Duration.class));
+        assertEquals("https://hot.com", tiers.getLocal("hot"));
+    }
+
+    @Test
+    void get_fullBulkhead_shouldBeAMissWithoutWaitingAndFreeThePermitOnTimeout() {
+        when(valueOps.get("url:cache:{slow}")).thenReturn(Mono.never());
+        for (int i = 0; i < 15; i++) {
+            bulkhead.callAsync(0, CompletableFuture::new);
+        }
+
+        assertNull(cache.get("slow").block(Duration.ofSeconds(1)));
+        assertEquals(1, bulkhead.availablePermits());
+
+        bulkhead.callAsync(0, CompletableFuture::new);
+        assertNull(cache.get("abc").block());
+        verify(valueOps, never()).get("url:cache:{abc}");
+    }
+}
@@ -0,0 +1,240 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.dto.response.ShortenerFullResponse;
+import com.wl.url.shortener.dto.response.ShortenerResolveResponse;
+import com.wl.url.shortener.dto.response.ShortenerResponse;
+import com.wl.url.shortener.dto.response.ShortenerStatsResponse;
+import com.wl.url.shortener.dto.response.ShortenerVisitorsResponse;
+import com.wl.url.shortener.entity.ShortenerUrl;
+import com.wl.url.shortener.exception.impl.BackendBusyException;
+import com.wl.url.shortener.exception.impl.NotFoundException;
+import com.wl.url.shortener.repository.ShortenerUrlReader;
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.Hedge;
+import com.wl.url.shortener.utils.ShortCodeSource;
+import com.wl.url.shortener.utils.ShortenerUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveShortenerServiceTest {
+
+    private static final ScheduledExecutorService HEDGE_TIMER = Executors.newSingleThreadScheduledExecutor();
+
+    @Mock
+    ShortenerUrlReader reader;
+
+    @Mock
+    ReactiveShortUrlCache cache;
+
+    @Mock
+    ShortCodeCreationService creationService;
+
+    @Mock
+    ShortCodeBloomFilter bloomFilter;
+
+    @Mock
+    ShortCodeSource generator;
+
+    @Mock
+    ClickAnalytics clickAnalytics;
+
+    @Mock
+    UniqueVisitors uniqueVisitors;
+
+    private Bulkhead cassandraBulkhead;
+    private ReactiveShortenerService service;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(bloomFilter.mightExist(anyString())).thenReturn(true);
+        lenient().when(generator.isPlausible(anyLong())).thenReturn(true);
+        lenient().when(cache.registerHitAndMaybeCache(anyString(), anyString(), any())).thenReturn(Mono.empty());
+        cassandraBulkhead = new Bulkhead("cassandra", 2, Duration.ofSeconds(5));
+        service = new ReactiveShortenerService(reader, cache, creationService, bloomFilter, generator, clickAnalytics, uniqueVisitors,
+                cassandraBulkhead,
+                new Hedge("redirect-read", 0.95, Duration.ZERO, Duration.ofMillis(20), 0, 64, HEDGE_TIMER));
+    }
+
+    @AfterAll
+    static void stopTimer() {
+        HEDGE_TIMER.shutdownNow();
+    }
+
+    @Test
+    void save_shouldFailForBlankUrlWithoutTouchingStores() {
+        assertThrows(IllegalArgumentException.class, () -> service.save("  ").block());
+        verifyNoInteractions(creationService);
+    }
+
+    @Test
+    void save_shouldBeLazyAndReturnCreatedCode() {
+        when(creationService.createAndPersistAsync("https://example.com", null, null))
+                .thenReturn(CompletableFuture.completedFuture("abc"));
+
+        Mono<ShortenerResponse> res = service.save("https://example.com");
+        verifyNoInteractions(creationService);
+
+        assertEquals("abc", res.block().getShortCode());
+    }
+
+    @Test
+    void findByShortUrl_shouldServeCachedValueWithoutCassandra() {
+        when(cache.get("abc")).thenReturn(Mono.just("https://example.com"));
+
+        ShortenerFullResponse res = service.findByShortUrl("abc").block();
+
+        assertEquals("https://example.com", res.getUrl());
+        verifyNoInteractions(reader);
+        verify(clickAnalytics).record("abc", 0L);
+    }
+
+    @Test
+    void findByShortUrl_cacheMiss_shouldReadCassandraAndRegisterHit() {
+        when(cache.get("abc")).thenReturn(Mono.empty());
+        Instant expiresAt = Instant.parse("2026-06-01T00:00:00Z");
+        when(reader.findUrl("abc", 0)).thenReturn(stored("abc", "https://example.com", expiresAt));
+
+        ShortenerFullResponse res = service.findByShortUrl("abc").block();
+
+        assertEquals("https://example.com", res.getUrl());
+        verify(cache).registerHitAndMaybeCache("abc", "https://example.com", expiresAt);
+    }
+
+    @Test
+    void findByShortUrl_notInStorage_shouldFailWithNotFound() {
+        when(cache.get("abc")).thenReturn(Mono.empty());
+        when(reader.findUrl("abc", 0)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        assertThrows(NotFoundException.class, () -> service.findByShortUrl("abc").block());
+        verify(cache, never()).registerHitAndMaybeCache(anyString(), anyString(), any());
+        verifyNoInteractions(clickAnalytics);
+    }
+
+    @Test
+    void findByShortUrl_fullCassandraBulkhead_shouldFailAtOnceWithoutReading() {
+        when(cache.get("abc")).thenReturn(Mono.empty());
+        cassandraBulkhead.callAsync(0, CompletableFuture::new);
+        cassandraBulkhead.callAsync(0, CompletableFuture::new);
+
+        long start = System.nanoTime();
+        assertThrows(BackendBusyException.class, () -> service.findByShortUrl("abc").block());
+        assertThrows(BackendBusyException.class, () -> service.stats("abc", 60).block());
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+        verifyNoInteractions(reader);
+    }
+
+    @Test
+    void findByShortUrl_concurrentMisses_shouldShareOneCassandraRead() {
+        when(cache.get("abc")).thenReturn(Mono.empty());
+        CompletableFuture<Optional<ShortenerUrl>> pending = new CompletableFuture<>();
+        when(reader.findUrl("abc", 0)).thenReturn(pending);
+
+        CompletableFuture<ShortenerFullResponse> first = service.findByShortUrl("abc", 1L).toFuture();
+        CompletableFuture<ShortenerFullResponse> second = service.findByShortUrl("abc", 2L).toFuture();
+        // cancelling one request must not abort the read the others are waiting on
+        CompletableFuture<ShortenerFullResponse> cancelled = service.findByShortUrl("abc", 3L).toFuture();
+        cancelled.cancel(true);
+
+        pending.complete(Optional.of(ShortenerUrl.builder().shortcode("abc").fullUrl("https://example.com").build()));
+
+        assertEquals("https://example.com", first.join().getUrl());
+        assertEquals("https://example.com", second.join().getUrl());
+        verify(reader, times(1)).findUrl("abc", 0);
+        verify(cache, times(1)).registerHitAndMaybeCache("abc", "https://example.com", null);
+        verify(clickAnalytics).record("abc", 1L);
+        verify(clickAnalytics).record("abc", 2L);
+    }
+
+    @Test
+    void findByShortUrl_definiteMissInBloomFilter_shouldFailWithoutTouchingStores() {
+        when(bloomFilter.mightExist("abc")).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> service.findByShortUrl("abc").block());
+        verifyNoInteractions(cache, reader);
+    }
+
+    @Test
+    void findByShortUrl_malformedCode_shouldFailBeforeAnyLookup() {
+        assertThrows(NotFoundException.class, () -> service.findByShortUrl("..%2F").block());
+        verifyNoInteractions(bloomFilter, cache, reader);
+    }
+
+    @Test
+    void findByShortUrl_implausibleId_shouldFailBeforeAnyLookup() {
+        when(generator.isPlausible(ShortenerUtils.decode("zzzz"))).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> service.findByShortUrl("zzzz").block());
+        verifyNoInteractions(bloomFilter, cache, reader);
+    }
+
+    @Test
+    void resolveAll_shouldMergeCacheAndCassandraInInputOrder() {
+        when(bloomFilter.mightExist("gone")).thenReturn(false);
+        when(cache.getAll(List.of("hot", "cold", "missing"))).thenReturn(Mono.just(Map.of("hot", "https://hot.com")));
+        when(reader.findUrl("cold")).thenReturn(stored("cold", "https://cold.com", null));
+        when(reader.findUrl("missing")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        ShortenerResolveResponse res = service.resolveAll(List.of("hot", "cold", "gone", "missing", "hot")).block();
+
+        assertEquals(List.of("hot", "cold"), List.copyOf(res.getUrls().keySet()));
+        assertEquals("https://cold.com", res.getUrls().get("cold"));
+        assertEquals(List.of("gone", "missing"), res.getNotFound());
+        verify(cache).registerHitAndMaybeCache("cold", "https://cold.com", null);
+        verify(reader, never()).findUrl("hot");
+    }
+
+    @Test
+    void stats_shouldReadCountersOnlyForExistingCodes() {
+        ShortenerStatsResponse stats = new ShortenerStatsResponse("abc", 3, Map.of());
+        when(reader.findFullUrl("abc")).thenReturn(CompletableFuture.completedFuture(Optional.of("https://a.com")));
+        when(reader.findFullUrl("gone")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        when(clickAnalytics.stats("abc", 60)).thenReturn(CompletableFuture.completedFuture(stats));
+
+        assertSame(stats, service.stats("abc", 60).block());
+        assertThrows(NotFoundException.class, () -> service.stats("gone", 60).block());
+
+        verify(clickAnalytics, never()).stats(eq("gone"), anyInt());
+        verify(clickAnalytics, never()).record(anyString(), anyLong());
+    }
+
+    @Test
+    void visitors_shouldQuerySketchesOnlyForExistingCodes() {
+        LocalDate day = LocalDate.of(2026, 1, 5);
+        ShortenerVisitorsResponse visitors = new ShortenerVisitorsResponse("abc", day, day, 7, Map.of(day, 7L));
+        when(reader.findFullUrl("abc")).thenReturn(CompletableFuture.completedFuture(Optional.of("https://a.com")));
+        when(reader.findFullUrl("gone")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        when(uniqueVisitors.query("abc", day, day)).thenReturn(visitors);
+
+        assertSame(visitors, service.visitors("abc", day, day).block());
+        assertThrows(NotFoundException.class, () -> service.visitors("gone", day, day).block());
+
+        verify(uniqueVisitors, never()).query(eq("gone"), any(), any());
+    }
+
+    private static CompletableFuture<Optional<ShortenerUrl>> stored(String code, String fullUrl, Instant expiresAt) {
+        return CompletableFuture.completedFuture(Optional.of(ShortenerUrl.builder()
+                .shortcode(code)
+                .fullUrl(fullUrl)
+                .expiresAt(expiresAt)
+                .build()));
+    }
+}
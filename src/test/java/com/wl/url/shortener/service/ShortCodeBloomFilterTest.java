@@ -0,0 +1,402 @@
+package com.wl.url.shortener.service;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.wl.url.shortener.exception.impl.BackendBusyException;
+import com.wl.url.shortener.utils.ShortCodeGenerator;
+import com.wl.url.shortener.utils.ShortenerUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.cql.CqlOperations;
+import org.springframework.data.cassandra.core.cql.RowCallbackHandler;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortCodeBloomFilterTest {
+
+    private static final long EPOCH = 1735689600L;
+    private static final long NOW = 1_000_000;
+    private static final Duration MAX_SKEW = Duration.ofSeconds(10);
+    private static final Duration JITTER = Duration.ofMinutes(5);
+    private static final ShortCodeGenerator GENERATOR = new ShortCodeGenerator(0,
+            Clock.fixed(Instant.ofEpochSecond(EPOCH + NOW), ZoneOffset.UTC));
+
+    private static final String STORED = code(100, 1);
+    private static final String UNKNOWN_OLD = code(200, 7);
+    private static final String UNKNOWN_RECENT = code(NOW - 5, 3);
+
+    @Mock
+    CassandraOperations cassandra;
+
+    @Mock
+    CqlOperations cql;
+
+    @Mock
+    StringRedisTemplate redis;
+
+    @Mock
+    StreamOperations<String, Object, Object> stream;
+
+    @TempDir
+    Path tmp;
+
+    private Path snapshot;
+    private MutableClock clock;
+    private final List<MapRecord<String, Object, Object>> entries = new ArrayList<>();
+    private long nextEntry = 1;
+
+    @BeforeEach
+    void setup() {
+        snapshot = tmp.resolve("codes.bloom");
+        clock = new MutableClock(Instant.ofEpochSecond(EPOCH + NOW));
+    }
+
+    @Test
+    void mightExist_disabled_shouldAlwaysPass() {
+        ShortCodeBloomFilter filter = newFilter(false, false);
+
+        filter.rebuild();
+
+        assertTrue(filter.mightExist(UNKNOWN_OLD));
+        assertTrue(filter.put(UNKNOWN_OLD, clock.instant()).isDone());
+        verifyNoInteractions(cassandra, redis);
+    }
+
+    @Test
+    void mightExist_beforeFirstRebuild_shouldPass() {
+        ShortCodeBloomFilter filter = newFilter(true, false);
+
+        assertTrue(filter.mightExist(UNKNOWN_OLD));
+    }
+
+    @Test
+    void rebuild_shouldRejectUnknownOldCodesOnly() {
+        storedCodes(STORED);
+        ShortCodeBloomFilter filter = newFilter(true, false);
+
+        filter.rebuild();
+
+        assertTrue(filter.mightExist(STORED));
+        assertFalse(filter.mightExist(UNKNOWN_OLD));
+        // minted inside the skew window: its creation may still be on the way
+        assertTrue(filter.mightExist(UNKNOWN_RECENT));
+    }
+
+    @Test
+    void rebuild_failure_shouldKeepPassingEverything() {
+        when(cassandra.getCqlOperations()).thenReturn(cql);
+        doThrow(new IllegalStateException("cassandra down"))
+                .when(cql).query(anyString(), any(RowCallbackHandler.class));
+        ShortCodeBloomFilter filter = newFilter(true, false);
+
+        filter.rebuild();
+
+        assertTrue(filter.mightExist(UNKNOWN_OLD));
+        assertFalse(Files.exists(snapshot));
+    }
+
+    @Test
+    void mightExist_shouldNeverRejectAliases() {
+        storedCodes();
+        ShortCodeBloomFilter filter = newFilter(true, false);
+        filter.rebuild();
+
+        assertTrue(filter.mightExist("summer-sale"));
+        assertFalse(filter.mightExist(UNKNOWN_OLD));
+    }
+
+    @Test
+    void singleNode_shouldTrustMissesForCodesOlderThanTheSkewWindow() {
+        storedCodes();
+        ShortCodeBloomFilter filter = newFilter(true, false);
+        filter.rebuild();
+
+        String created = code(NOW + 30, 1);
+        String unknown = code(NOW + 30, 2);
+        clock.advance(Duration.ofSeconds(30));
+        filter.put(created, clock.instant()).join();
+
+        assertTrue(filter.mightExist(created));
+        assertTrue(filter.mightExist(unknown));
+
+        clock.advance(MAX_SKEW.plusSeconds(1));
+
+        assertTrue(filter.mightExist(created));
+        assertFalse(filter.mightExist(unknown));
+    }
+
+    @Test
+    void put_duringRebuild_shouldSurviveTheSwap() {
+        String created = code(NOW + 1, 1);
+        ShortCodeBloomFilter filter = newFilter(true, false);
+        when(cassandra.getCqlOperations()).thenReturn(cql);
+        doAnswer(inv -> {
+            filter.put(created, clock.instant()).join();
+            return null;
+        }).when(cql).query(anyString(), any(RowCallbackHandler.class));
+
+        filter.rebuild();
+        clock.advance(Duration.ofMinutes(1));
+
+        assertTrue(filter.mightExist(created));
+        assertFalse(filter.mightExist(code(NOW + 1, 2)));
+    }
+
+    @Test
+    void put_withSync_shouldAnnounceAndCompleteOnceStored() throws Exception {
+        fakeStream();
+        ShortCodeBloomFilter filter = newFilter(true, true);
+
+        CompletableFuture<Void> result = filter.put(List.of("a1", "a2"), clock.instant());
+
+        assertNull(result.get());
+        assertEquals(1, entries.size());
+        assertEquals("a1 a2", entries.get(0).getValue().get(ShortCodeBloomFilter.CODES_FIELD));
+    }
+
+    @Test
+    void put_withSync_shouldFailWhenAnnouncementCannotBeStored() {
+        when(redis.opsForStream()).thenReturn(stream);
+        when(stream.add(eq(ShortCodeBloomFilter.STREAM_KEY), anyMap())).thenThrow(new QueryTimeoutException("down"));
+        ShortCodeBloomFilter filter = newFilter(true, true);
+
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> filter.put(STORED, clock.instant()).get());
+
+        assertInstanceOf(BackendBusyException.class, ex.getCause());
+    }
+
+    @Test
+    void put_withSync_shouldFailWhenAnnouncedAfterTheSkewWindow() {
+        fakeStream();
+        ShortCodeBloomFilter filter = newFilter(true, true);
+        Instant mintedAt = clock.instant();
+        clock.advance(MAX_SKEW.plusSeconds(1));
+
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> filter.put(STORED, mintedAt).get());
+
+        assertInstanceOf(BackendBusyException.class, ex.getCause());
+    }
+
+    @Test
+    void sync_shouldTrustMissesOnlyAfterFollowingTheStreamSinceTheScan() {
+        fakeStream();
+        storedCodes(STORED);
+        ShortCodeBloomFilter filter = newFilter(true, true);
+
+        filter.poll();
+        filter.rebuild();
+
+        String remote = code(NOW + 30, 1);
+        String unknown = code(NOW + 30, 2);
+        clock.advance(Duration.ofSeconds(30));
+        announceFromAnotherNode(remote);
+        clock.advance(MAX_SKEW.multipliedBy(2).plusSeconds(1));
+
+        assertTrue(filter.mightExist(unknown));
+
+        filter.poll();
+
+        assertTrue(filter.mightExist(remote));
+        assertTrue(filter.mightExist(STORED));
+        assertFalse(filter.mightExist(unknown));
+    }
+
+    @Test
+    void sync_scanStartedBeforeTheStreamWasFollowed_shouldTrustTheScanOnly() {
+        fakeStream();
+        storedCodes();
+        ShortCodeBloomFilter filter = newFilter(true, true);
+
+        filter.rebuild();
+        filter.poll();
+        clock.advance(Duration.ofMinutes(1));
+        filter.poll();
+
+        assertFalse(filter.mightExist(UNKNOWN_OLD));
+        assertTrue(filter.mightExist(code(NOW + 30, 1)));
+    }
+
+    @Test
+    void sync_gap_shouldFallBackToTheScanAndRebuildSoon() {
+        fakeStream();
+        storedCodes();
+        ShortCodeBloomFilter filter = newFilter(true, true);
+        filter.poll();
+        filter.rebuild();
+        clock.advance(Duration.ofMinutes(1));
+        filter.poll();
+        assertFalse(filter.mightExist(code(NOW + 30, 1)));
+
+        entries.clear();
+        filter.poll();
+
+        assertTrue(filter.mightExist(code(NOW + 30, 1)));
+        assertFalse(filter.mightExist(UNKNOWN_OLD));
+
+        clearInvocations(cql);
+        clock.advance(JITTER);
+        filter.maintain();
+
+        verify(cql).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void maintain_withoutSnapshot_shouldScanWithinTheJitter() {
+        storedCodes(STORED);
+        ShortCodeBloomFilter filter = newFilter(true, false);
+
+        clock.advance(JITTER);
+        filter.maintain();
+
+        assertFalse(filter.mightExist(UNKNOWN_OLD));
+    }
+
+    @Test
+    void snapshot_shouldBeLoadedOnStartupWithoutScanningCassandra() {
+        storedCodes(STORED);
+        newFilter(true, false).rebuild();
+        assertTrue(Files.exists(snapshot));
+        clearInvocations(cassandra, cql);
+
+        ShortCodeBloomFilter restarted = newFilter(true, false);
+        clock.advance(Duration.ofHours(1));
+        restarted.maintain();
+
+        assertTrue(restarted.mightExist(STORED));
+        assertFalse(restarted.mightExist(UNKNOWN_OLD));
+        verifyNoInteractions(cassandra);
+    }
+
+    @Test
+    void snapshot_withSync_shouldResumeFromTheSavedCursor() {
+        fakeStream();
+        storedCodes();
+        ShortCodeBloomFilter filter = newFilter(true, true);
+        filter.poll();
+        filter.rebuild();
+        filter.shutdown();
+        clearInvocations(cassandra, cql);
+
+        String remote = code(NOW + 30, 1);
+        clock.advance(Duration.ofSeconds(30));
+        announceFromAnotherNode(remote);
+        clock.advance(Duration.ofMinutes(1));
+
+        ShortCodeBloomFilter restarted = newFilter(true, true);
+        restarted.poll();
+
+        assertTrue(restarted.mightExist(remote));
+        assertFalse(restarted.mightExist(code(NOW + 30, 2)));
+        verifyNoInteractions(cassandra);
+    }
+
+    @Test
+    void snapshot_withGarbageFile_shouldBeIgnored() throws Exception {
+        Files.write(snapshot, new byte[]{1, 2, 3});
+
+        ShortCodeBloomFilter filter = newFilter(true, false);
+
+        assertTrue(filter.mightExist(UNKNOWN_OLD));
+    }
+
+    private ShortCodeBloomFilter newFilter(boolean enabled, boolean sync) {
+        return new ShortCodeBloomFilter(cassandra, redis, GENERATOR, enabled, sync, 1_000, 0.01, snapshot,
+                MAX_SKEW, Duration.ofSeconds(1), 1_000, Duration.ofDays(1), JITTER, clock);
+    }
+
+    private void storedCodes(String... codes) {
+        lenient().when(cassandra.getCqlOperations()).thenReturn(cql);
+        lenient().doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(1);
+            for (String c : List.of(codes)) {
+                Row row = mock(Row.class);
+                when(row.getString(0)).thenReturn(c);
+                handler.processRow(row);
+            }
+            return null;
+        }).when(cql).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fakeStream() {
+        lenient().when(redis.opsForStream()).thenReturn(stream);
+        lenient().when(stream.add(eq(ShortCodeBloomFilter.STREAM_KEY), anyMap())).thenAnswer(inv -> {
+            RecordId id = RecordId.of(nextEntry++ + "-0");
+            entries.add(MapRecord.create(ShortCodeBloomFilter.STREAM_KEY, (Map<Object, Object>) inv.getArgument(1))
+                    .withId(id));
+            return id;
+        });
+        lenient().when(stream.range(eq(ShortCodeBloomFilter.STREAM_KEY), any(Range.class), any(Limit.class)))
+                .thenAnswer(inv -> {
+                    Range<String> range = inv.getArgument(1);
+                    long from = RecordId.of(range.getLowerBound().getValue().orElseThrow()).getTimestamp();
+                    return entries.stream().filter(e -> e.getId().getTimestamp() >= from).toList();
+                });
+    }
+
+    private void announceFromAnotherNode(String shortCode) {
+        RecordId id = RecordId.of(nextEntry++ + "-0");
+        entries.add(MapRecord.create(ShortCodeBloomFilter.STREAM_KEY,
+                Map.<Object, Object>of(ShortCodeBloomFilter.CODES_FIELD, shortCode)).withId(id));
+    }
+
+    private static String code(long secondsSinceEpoch, int seq) {
+        return ShortenerUtils.encode(GENERATOR.idFloorAt(EPOCH + secondsSinceEpoch) + seq);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
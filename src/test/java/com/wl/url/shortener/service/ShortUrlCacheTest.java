@@ -1,131 +1,369 @@
 package com.wl.url.shortener.service;
 
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.CircuitBreaker;
+import com.wl.url.shortener.utils.FrequencySketch;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.async.RedisStringAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.protocol.CommandArgs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
 import java.time.Duration;
-
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ShortUrlCacheTest {
 
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
     @Mock
     StringRedisTemplate redis;
 
     @Mock
-    ValueOperations<String, String> valueOps;
+    RedisConnection connection;
 
+    @Mock
+    RedisStringAsyncCommands<byte[], byte[]> async;
+
+    private FrequencySketch sketch;
+    private CircuitBreaker breaker;
+    private SimpleMeterRegistry meterRegistry;
     private ShortUrlCache cache;
 
     @BeforeEach
     void setup() {
-        when(redis.opsForValue()).thenReturn(valueOps);
-        cache = new ShortUrlCache(redis);
+        lenient().when(connection.getNativeConnection()).thenReturn(async);
+        lenient().when(redis.execute(any(RedisCallback.class)))
+                .thenAnswer(inv -> ((RedisCallback<?>) inv.getArgument(0)).doInRedis(connection));
+        sketch = new FrequencySketch(1024, 100_000);
+        breaker = new CircuitBreaker("redis", 4, 2, 0.5, Duration.ofSeconds(1), Duration.ofSeconds(8), 1);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ShortUrlCache(redis, sketch, new Bulkhead("redis", 16, Duration.ofMillis(10)), breaker,
+                meterRegistry, Duration.ofMillis(50), 100, Duration.ofSeconds(30), CLOCK);
     }
 
     @Test
     void get_shouldUseCacheKeyPrefix() {
-        when(valueOps.get("url:cache:abc")).thenReturn("https://example.com");
+        stubGet("abc", "https://example.com");
 
         String res = cache.get("abc");
 
         assertEquals("https://example.com", res);
-        verify(valueOps).get("url:cache:abc");
-        verifyNoMoreInteractions(redis, valueOps);
+        verify(async).get(key("abc"));
+        verifyNoMoreInteractions(async);
     }
 
     @Test
-    void registerHitAndMaybeCache_shouldDoNothingWhenIncrementReturnsNull() {
-        when(valueOps.increment("url:hits:abc")).thenReturn(null);
+    void get_shouldServeSecondLookupFromLocalTier() {
+        stubGet("abc", "https://example.com");
 
-        cache.registerHitAndMaybeCache("abc", "https://full");
+        assertEquals("https://example.com", cache.get("abc"));
+        assertEquals("https://example.com", cache.get("abc"));
 
-        verify(valueOps).increment("url:hits:abc");
-        verifyNoMoreInteractions(redis, valueOps);
+        verify(async, times(1)).get(key("abc"));
     }
 
     @Test
-    void registerHitAndMaybeCache_hitsEquals1_shouldSetHitsTtl() {
-        when(valueOps.increment("url:hits:abc")).thenReturn(1L);
+    void get_shouldNotKeepRedisMissesInLocalTier() {
+        stubGet("abc", null);
 
-        cache.registerHitAndMaybeCache("abc", "https://full");
+        assertNull(cache.get("abc"));
+        assertNull(cache.get("abc"));
 
-        verify(valueOps).increment("url:hits:abc");
-        verify(redis).expire(eq("url:hits:abc"), eq(Duration.ofMinutes(10)));
-        verify(valueOps, never()).set(anyString(), anyString(), any(Duration.class));
-        verify(redis, never()).delete(anyString());
+        verify(async, times(2)).get(key("abc"));
     }
 
     @Test
-    void registerHitAndMaybeCache_hitsGreaterThan1_andTtlMissing_shouldResetHitsTtl() {
-        when(valueOps.increment("url:hits:abc")).thenReturn(2L);
-        when(redis.getExpire("url:hits:abc")).thenReturn(-1L); // sem expiração
+    void get_shouldCountLookupsPerTier() {
+        stubGet("abc", "https://example.com");
+        stubGet("zzz", null);
+
+        cache.get("abc"); // local miss, redis hit
+        cache.get("abc"); // local hit
+        cache.get("zzz"); // local miss, redis miss
+
+        assertEquals(1, lookups("local", "hit"));
+        assertEquals(2, lookups("local", "miss"));
+        assertEquals(1, lookups("redis", "hit"));
+        assertEquals(1, lookups("redis", "miss"));
+        assertEquals(2, meterRegistry.get("shortener.redis.latency").tag("command", "get").timer().count());
+    }
 
-        cache.registerHitAndMaybeCache("abc", "https://full");
+    @Test
+    void get_withoutAsyncConnection_shouldFallBackToBlockingCommand() {
+        RedisConnection blocking = mock(RedisConnection.class, RETURNS_DEEP_STUBS);
+        when(blocking.getNativeConnection()).thenReturn(null);
+        when(blocking.stringCommands().get(key("abc"))).thenReturn(bytes("https://example.com"));
+        doAnswer(inv -> ((RedisCallback<?>) inv.getArgument(0)).doInRedis(blocking))
+                .when(redis).execute(any(RedisCallback.class));
+
+        assertEquals("https://example.com", cache.get("abc"));
+        verifyNoInteractions(async);
+    }
 
-        verify(valueOps).increment("url:hits:abc");
-        verify(redis).getExpire("url:hits:abc");
-        verify(redis).expire(eq("url:hits:abc"), eq(Duration.ofMinutes(10)));
-        verify(valueOps, never()).set(anyString(), anyString(), any(Duration.class));
-        verify(redis, never()).delete(anyString());
+    @Test
+    void get_overBudget_shouldGiveUpAsMiss() {
+        when(async.get(key("abc"))).thenReturn(pending());
+
+        long start = System.nanoTime();
+        assertNull(cache.get("abc"));
+
+        // gives up at the 50ms budget, not at the client timeout
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+        assertEquals(1, bypassed("failure"));
+        assertEquals(0, lookups("redis", "miss"));
     }
 
     @Test
-    void registerHitAndMaybeCache_hitsGreaterThan1_andTtlOk_shouldNotTouchExpire() {
-        when(valueOps.increment("url:hits:abc")).thenReturn(2L);
-        when(redis.getExpire("url:hits:abc")).thenReturn(120L); // tem TTL
+    void get_repeatedFailures_shouldOpenBreakerAndSkipRedis() {
+        when(async.get(any(byte[].class))).thenReturn(failed(new IllegalStateException("connection reset")));
 
-        cache.registerHitAndMaybeCache("abc", "https://full");
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        assertNull(cache.get("c"));
+        assertEquals(Map.of(), cache.getAll(List.of("d", "e")));
 
-        verify(valueOps).increment("url:hits:abc");
-        verify(redis).getExpire("url:hits:abc");
-        verify(redis, never()).expire(anyString(), any(Duration.class));
-        verify(valueOps, never()).set(anyString(), anyString(), any(Duration.class));
+        verify(async, times(2)).get(any(byte[].class));
+        verify(async, never()).mget(any(byte[].class));
+        assertEquals(2, bypassed("failure"));
+        assertEquals(2, bypassed("open"));
+    }
+
+    @Test
+    void registerHitAndMaybeCache_belowThreshold_shouldNotTouchRedis() {
+        for (int i = 0; i < 19; i++) {
+            cache.registerHitAndMaybeCache("abc", "https://full");
+        }
+
+        // no per-code url:hits:* keys: counting stays in the local sketch
+        verifyNoInteractions(redis, async);
+    }
+
+    @Test
+    void registerHitAndMaybeCache_atThreshold_shouldPromoteWithSetIfAbsent() {
+        stubSet();
+        for (int i = 0; i < 20; i++) {
+            cache.registerHitAndMaybeCache("abc", "https://full");
+        }
+
+        ArgumentCaptor<SetArgs> args = ArgumentCaptor.forClass(SetArgs.class);
+        verify(async).set(eq(key("abc")), eq(bytes("https://full")), args.capture());
+        assertEquals(Set.of("NX", "PX", "7200000"), describe(args.getValue()));
         verify(redis, never()).delete(anyString());
+        assertEquals(1, meterRegistry.get("shortener.cache.promotions").counter().count());
     }
 
     @Test
-    void registerHitAndMaybeCache_hitsBelowThreshold_shouldNotCache() {
-        when(valueOps.increment("url:hits:abc")).thenReturn(19L);
-        when(redis.getExpire("url:hits:abc")).thenReturn(120L);
+    void registerHitAndMaybeCache_shouldUseMergedRemoteCounts() {
+        stubSet();
+        // another node already saw the code 20 times; this node only sees the first hit
+        FrequencySketch otherNode = new FrequencySketch(1024, 100_000);
+        for (int i = 0; i < 20; i++) {
+            otherNode.increment("abc");
+        }
+        int[] cells = otherNode.drainPending();
+        int[] touched = IntStream.range(0, cells.length).filter(i -> cells[i] != 0).toArray();
+        sketch.mergeRemote(touched, Arrays.stream(touched).map(i -> cells[i]).toArray(), 20);
+
+        cache.registerHitAndMaybeCache("xyz", "https://other");
+        verifyNoInteractions(async);
 
         cache.registerHitAndMaybeCache("abc", "https://full");
+        verify(async).set(eq(key("abc")), eq(bytes("https://full")), any(SetArgs.class));
+    }
 
-        verify(valueOps).increment("url:hits:abc");
-        verify(redis).getExpire("url:hits:abc");
-        verify(valueOps, never()).set(eq("url:cache:abc"), anyString(), any(Duration.class));
-        verify(redis, never()).delete("url:hits:abc");
+    @Test
+    void registerHitAndMaybeCache_promotion_shouldAlsoFillLocalTier() {
+        stubSet();
+        for (int i = 0; i < 20; i++) {
+            cache.registerHitAndMaybeCache("abc", "https://full");
+        }
+
+        assertEquals("https://full", cache.get("abc"));
+        verify(async, never()).get(any(byte[].class));
     }
 
     @Test
-    void registerHitAndMaybeCache_hitsAtThreshold_shouldCacheAndDeleteHitsKey() {
-        when(valueOps.increment("url:hits:abc")).thenReturn(20L);
-        when(redis.getExpire("url:hits:abc")).thenReturn(120L);
+    void registerHitAndMaybeCache_redisFailure_shouldStillFillLocalTier() {
+        when(async.set(any(byte[].class), any(byte[].class), any(SetArgs.class)))
+                .thenReturn(failed(new IllegalStateException("down")));
+        for (int i = 0; i < 20; i++) {
+            cache.registerHitAndMaybeCache("abc", "https://full");
+        }
+
+        assertEquals("https://full", cache.getLocal("abc"));
+        assertEquals(1, bypassed("failure"));
+    }
 
-        cache.registerHitAndMaybeCache("abc", "https://full");
+    @Test
+    void getAll_shouldIssueOneMgetPerSlotAndFillLocalTier() {
+        RedisFuture<List<KeyValue<byte[], byte[]>>> hitA = completed(List.of(KeyValue.just(key("a"), bytes("https://a.com"))));
+        RedisFuture<List<KeyValue<byte[], byte[]>>> missB = completed(List.of(KeyValue.empty(key("b"))));
+        when(async.mget(any(byte[].class))).thenAnswer(inv ->
+                new String((byte[]) inv.getArgument(0), StandardCharsets.UTF_8).equals("url:cache:{a}") ? hitA : missB);
+
+        Map<String, String> res = cache.getAll(List.of("a", "b"));
 
-        verify(valueOps).increment("url:hits:abc");
+        assertEquals(Map.of("a", "https://a.com"), res);
+        // {a} and {b} hash to different slots: one MGET per slot
+        verify(async, times(2)).mget(any(byte[].class));
 
-        // hits >= 20 -> cache
-        verify(valueOps).set(eq("url:cache:abc"), eq("https://full"), eq(Duration.ofHours(2)));
-        verify(redis).delete("url:hits:abc");
+        assertEquals("https://a.com", cache.get("a"));
+        verify(async, never()).get(key("a"));
+
+        assertEquals(1, lookups("redis", "hit"));
+        assertEquals(1, lookups("redis", "miss"));
+        assertEquals(1, meterRegistry.get("shortener.redis.latency").tag("command", "mget").timer().count());
     }
 
     @Test
-    void registerHitAndMaybeCache_hitsOverThreshold_shouldCacheAndDeleteHitsKey() {
-        when(valueOps.increment("url:hits:abc")).thenReturn(50L);
-        when(redis.getExpire("url:hits:abc")).thenReturn(120L);
+    void getAll_overBudget_shouldReturnOnlyLocalHits() {
+        stubGet("abc", "https://example.com");
+        cache.get("abc");
+        RedisFuture<List<KeyValue<byte[], byte[]>>> never = pending();
+        when(async.mget(any(byte[].class))).thenReturn(never);
+
+        assertEquals(Map.of("abc", "https://example.com"), cache.getAll(List.of("abc", "slow")));
+        assertEquals(1, bypassed("failure"));
+    }
 
-        cache.registerHitAndMaybeCache("abc", "https://full");
+    @Test
+    void getAll_shouldNotTouchRedisWhenEverythingIsInLocalTier() {
+        stubGet("abc", "https://example.com");
+        cache.get("abc");
+
+        Map<String, String> res = cache.getAll(List.of("abc"));
+
+        assertEquals(Map.of("abc", "https://example.com"), res);
+        verify(redis, times(1)).execute(any(RedisCallback.class));
+    }
+
+    @Test
+    void registerHitAndMaybeCache_expiringLink_shouldCapRedisTtlAtRemainingLifetime() {
+        stubSet();
+        Instant expiresAt = CLOCK.instant().plus(Duration.ofMinutes(10));
+        for (int i = 0; i < 20; i++) {
+            cache.registerHitAndMaybeCache("abc", "https://full", expiresAt);
+        }
+
+        String stored = expiresAt.toEpochMilli() + " https://full";
+        ArgumentCaptor<SetArgs> args = ArgumentCaptor.forClass(SetArgs.class);
+        verify(async).set(eq(key("abc")), eq(bytes(stored)), args.capture());
+        assertEquals(Set.of("NX", "PX", "600000"), describe(args.getValue()));
+        assertEquals("https://full", cache.getLocal("abc"));
+    }
+
+    @Test
+    void registerHitAndMaybeCache_alreadyExpired_shouldNotCache() {
+        for (int i = 0; i < 20; i++) {
+            cache.registerHitAndMaybeCache("abc", "https://full", CLOCK.instant().minusSeconds(1));
+        }
+
+        verifyNoInteractions(async);
+        assertNull(cache.getLocal("abc"));
+    }
+
+    @Test
+    void get_shouldTreatExpiredRedisValueAsMiss() {
+        long past = CLOCK.millis() - 1;
+        long future = CLOCK.millis() + 60_000;
+        stubGet("old", past + " https://old");
+        stubGet("new", future + " https://new");
+
+        assertNull(cache.get("old"));
+        assertEquals("https://new", cache.get("new"));
+        assertEquals(1, lookups("redis", "miss"));
+        assertEquals(1, lookups("redis", "hit"));
+    }
+
+    @Test
+    void encode_shouldRoundTripWithAndWithoutExpiry() {
+        Instant expiresAt = Instant.parse("2026-03-01T00:00:00Z");
+        String expiring = ShortUrlCache.encode("https://example.com/a b", expiresAt);
+
+        assertEquals("https://example.com/a b", ShortUrlCache.urlOf(expiring));
+        assertEquals(expiresAt.toEpochMilli(), ShortUrlCache.expiresAtMillis(expiring));
+        assertEquals("https://example.com", ShortUrlCache.encode("https://example.com", null));
+        assertEquals(Long.MAX_VALUE, ShortUrlCache.expiresAtMillis("https://example.com"));
+    }
+
+    private double lookups(String tier, String result) {
+        return meterRegistry.get("shortener.cache.lookups").tag("tier", tier).tag("result", result).counter().count();
+    }
+
+    private double bypassed(String reason) {
+        return meterRegistry.get("shortener.cache.bypassed").tag("reason", reason).counter().count();
+    }
+
+    // SET ... NX PX <ms> as Redis receives it
+    private static Set<String> describe(SetArgs setArgs) {
+        CommandArgs<byte[], byte[]> args = new CommandArgs<>(ByteArrayCodec.INSTANCE);
+        setArgs.build(args);
+        return Set.of(args.toCommandString().split(" "));
+    }
+
+    private void stubGet(String shortUrl, String value) {
+        RedisFuture<byte[]> future = completed(value == null ? null : bytes(value));
+        when(async.get(key(shortUrl))).thenReturn(future);
+    }
+
+    private void stubSet() {
+        RedisFuture<String> ok = completed("OK");
+        when(async.set(any(byte[].class), any(byte[].class), any(SetArgs.class))).thenReturn(ok);
+    }
+
+    private static byte[] key(String shortUrl) {
+        return bytes(ShortUrlCache.cacheKey(shortUrl));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RedisFuture<T> completed(T value) {
+        RedisFuture<T> future = mock(RedisFuture.class);
+        when(future.toCompletableFuture()).thenReturn(CompletableFuture.completedFuture(value));
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RedisFuture<T> failed(Throwable ex) {
+        RedisFuture<T> future = mock(RedisFuture.class);
+        when(future.toCompletableFuture()).thenReturn(CompletableFuture.failedFuture(ex));
+        return future;
+    }
 
-        verify(valueOps).set(eq("url:cache:abc"), eq("https://full"), eq(Duration.ofHours(2)));
-        verify(redis).delete("url:hits:abc");
+    @SuppressWarnings("unchecked")
+    private static <T> RedisFuture<T> pending() {
+        RedisFuture<T> future = mock(RedisFuture.class);
+        when(future.toCompletableFuture()).thenReturn(new CompletableFuture<>());
+        return future;
     }
-}
\ No newline at end of file
+}
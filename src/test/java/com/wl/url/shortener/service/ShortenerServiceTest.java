@@ -1,17 +1,38 @@
 package com.wl.url.shortener.service;
 
 import com.wl.url.shortener.dto.response.ShortenerFullResponse;
+import com.wl.url.shortener.dto.response.ShortenerResolveResponse;
 import com.wl.url.shortener.dto.response.ShortenerResponse;
+import com.wl.url.shortener.dto.response.ShortenerStatsResponse;
+import com.wl.url.shortener.dto.response.ShortenerVisitorsResponse;
 import com.wl.url.shortener.entity.ShortenerUrl;
 import com.wl.url.shortener.exception.impl.NotFoundException;
-import com.wl.url.shortener.repository.ShortenerUrlRepository;
+import com.wl.url.shortener.repository.ShortenerUrlReader;
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.Hedge;
+import com.wl.url.shortener.utils.ShortCodeGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -19,8 +40,10 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class ShortenerServiceTest {
 
+    private static final ScheduledExecutorService HEDGE_TIMER = Executors.newSingleThreadScheduledExecutor();
+
     @Mock
-    ShortenerUrlRepository repository;
+    ShortenerUrlReader reader;
 
     @Mock
     ShortUrlCache cache;
@@ -28,52 +51,97 @@ class ShortenerServiceTest {
     @Mock
     ShortCodeCreationService creationService;
 
+    @Mock
+    ShortCodeBloomFilter bloomFilter;
+
+    @Mock
+    ClickAnalytics clickAnalytics;
+
+    @Mock
+    UniqueVisitors uniqueVisitors;
+
+    private SimpleMeterRegistry meterRegistry;
     private ShortenerService service;
 
     @BeforeEach
     void setup() {
-        service = new ShortenerService(repository, cache, creationService);
+        meterRegistry = new SimpleMeterRegistry();
+        // no credit to speculate, so the read tests stay deterministic
+        service = service(0);
+    }
+
+    @AfterAll
+    static void stopTimer() {
+        HEDGE_TIMER.shutdownNow();
+    }
+
+    private ShortenerService service(double hedgeRate) {
+        return new ShortenerService(reader, cache, creationService, bloomFilter, new ShortCodeGenerator(0),
+                new Bulkhead("cassandra", 16, Duration.ofMillis(10)),
+                new Hedge("redirect-read", 0.95, Duration.ZERO, Duration.ofMillis(20), hedgeRate, 64, HEDGE_TIMER),
+                clickAnalytics, uniqueVisitors, meterRegistry);
     }
 
     @Test
     void save_shouldThrowWhenUrlNull() {
         assertThrows(IllegalArgumentException.class, () -> service.save(null));
-        verifyNoInteractions(repository, cache, creationService);
+        verifyNoInteractions(reader, cache, creationService);
     }
 
     @Test
     void save_shouldThrowWhenUrlBlank() {
         assertThrows(IllegalArgumentException.class, () -> service.save("   "));
-        verifyNoInteractions(repository, cache, creationService);
+        verifyNoInteractions(reader, cache, creationService);
     }
 
     @Test
     void save_shouldReturnShortCodeFromCreationService() {
-        when(creationService.createAndPersist("https://example.com")).thenReturn("abc123");
+        when(creationService.createAndPersist("https://example.com", null, null)).thenReturn("abc123");
 
         ShortenerResponse res = service.save("https://example.com");
 
         assertNotNull(res);
         assertEquals("abc123", res.getShortCode());
 
-        verify(creationService).createAndPersist("https://example.com");
-        verifyNoInteractions(repository, cache);
+        verify(creationService).createAndPersist("https://example.com", null, null);
+        verifyNoInteractions(reader, cache);
+    }
+
+    @Test
+    void saveAsync_shouldThrowWhenUrlBlank() {
+        assertThrows(IllegalArgumentException.class, () -> service.saveAsync(" "));
+        verifyNoInteractions(reader, cache, creationService);
+    }
+
+    @Test
+    void saveAsync_shouldMapShortCodeWhenCreationCompletes() {
+        CompletableFuture<String> created = new CompletableFuture<>();
+        when(creationService.createAndPersistAsync("https://example.com", null, null)).thenReturn(created);
+
+        CompletableFuture<ShortenerResponse> res = service.saveAsync("https://example.com");
+        assertFalse(res.isDone());
+
+        created.complete("abc123");
+
+        assertEquals("abc123", res.join().getShortCode());
+        verifyNoInteractions(reader, cache);
     }
 
     @Test
     void findByShortUrl_shouldThrowWhenShortUrlNull() {
         assertThrows(IllegalArgumentException.class, () -> service.findByShortUrl(null));
-        verifyNoInteractions(repository, cache, creationService);
+        verifyNoInteractions(reader, cache, creationService, bloomFilter);
     }
 
     @Test
     void findByShortUrl_shouldThrowWhenShortUrlBlank() {
         assertThrows(IllegalArgumentException.class, () -> service.findByShortUrl("  "));
-        verifyNoInteractions(repository, cache, creationService);
+        verifyNoInteractions(reader, cache, creationService);
     }
 
     @Test
     void findByShortUrl_shouldReturnCachedValueAndNotHitRepository() {
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
         when(cache.get("abc")).thenReturn("https://cached.com");
 
         ShortenerFullResponse res = service.findByShortUrl("abc");
@@ -82,13 +150,18 @@ class ShortenerServiceTest {
         assertEquals("https://cached.com", res.getUrl());
 
         verify(cache).get("abc");
-        verifyNoInteractions(repository);
-        verify(cache, never()).registerHitAndMaybeCache(anyString(), anyString());
+        verifyNoInteractions(reader);
+        verify(cache, never()).registerHitAndMaybeCache(anyString(), anyString(), any());
         verifyNoInteractions(creationService);
+        verify(clickAnalytics).record("abc", 0L);
+
+        assertEquals(1, meterRegistry.get("shortener.redirect.latency").tag("source", "cache").timer().count());
+        assertEquals(0, meterRegistry.get("shortener.cassandra.latency").tag("operation", "read").timer().count());
     }
 
     @Test
     void findByShortUrl_cacheMiss_shouldFetchFromRepository_andRegisterHit() {
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
         when(cache.get("abc")).thenReturn(null);
 
         ShortenerUrl entity = ShortenerUrl.builder()
@@ -96,7 +169,7 @@ class ShortenerServiceTest {
                 .fullUrl("https://db.com")
                 .build();
 
-        when(repository.findById("abc")).thenReturn(Optional.of(entity));
+        when(reader.findUrl("abc", 0)).thenReturn(CompletableFuture.completedFuture(Optional.of(entity)));
 
         ShortenerFullResponse res = service.findByShortUrl("abc");
 
@@ -104,21 +177,286 @@ class ShortenerServiceTest {
         assertEquals("https://db.com", res.getUrl());
 
         verify(cache).get("abc");
-        verify(repository).findById("abc");
-        verify(cache).registerHitAndMaybeCache("abc", "https://db.com");
+        verify(reader).findUrl("abc", 0);
+        verify(cache).registerHitAndMaybeCache("abc", "https://db.com", null);
         verifyNoInteractions(creationService);
+        verify(clickAnalytics).record("abc", 0L);
+
+        assertEquals(1, meterRegistry.get("shortener.redirect.latency").tag("source", "storage").timer().count());
+        assertEquals(1, meterRegistry.get("shortener.cassandra.latency").tag("operation", "read").timer().count());
+    }
+
+    @Test
+    void findByShortUrl_cacheMiss_shouldCapCachingAtLinkExpiry() {
+        Instant expiresAt = Instant.parse("2026-06-01T00:00:00Z");
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
+        when(reader.findUrl("abc", 0)).thenReturn(CompletableFuture.completedFuture(Optional.of(ShortenerUrl.builder()
+                .shortcode("abc")
+                .fullUrl("https://db.com")
+                .expiresAt(expiresAt)
+                .build())));
+
+        assertEquals("https://db.com", service.findByShortUrl("abc").getUrl());
+
+        verify(cache).registerHitAndMaybeCache("abc", "https://db.com", expiresAt);
+    }
+
+    @Test
+    void saveAsync_shouldPassExpiryToCreation() {
+        Instant expiresAt = Instant.parse("2026-06-01T00:00:00Z");
+        when(creationService.createAndPersistAsync("https://example.com", expiresAt, null))
+                .thenReturn(CompletableFuture.completedFuture("abc123"));
+
+        assertEquals("abc123", service.saveAsync("https://example.com", expiresAt, null).join().getShortCode());
     }
 
     @Test
     void findByShortUrl_cacheMiss_andNotFound_shouldThrowNotFoundException() {
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
         when(cache.get("abc")).thenReturn(null);
-        when(repository.findById("abc")).thenReturn(Optional.empty());
+        when(reader.findUrl("abc", 0)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
 
         assertThrows(NotFoundException.class, () -> service.findByShortUrl("abc"));
 
         verify(cache).get("abc");
-        verify(repository).findById("abc");
-        verify(cache, never()).registerHitAndMaybeCache(anyString(), anyString());
+        verify(reader).findUrl("abc", 0);
+        verify(cache, never()).registerHitAndMaybeCache(anyString(), anyString(), any());
+        verifyNoInteractions(creationService, clickAnalytics);
+    }
+
+    @Test
+    void findByShortUrl_concurrentMisses_shouldShareOneStorageRead() throws Exception {
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(reader.findUrl("abc", 0)).thenAnswer(inv -> {
+            reading.countDown();
+            release.await(1, TimeUnit.SECONDS);
+            return CompletableFuture.completedFuture(Optional.of(ShortenerUrl.builder().shortcode("abc").fullUrl("https://db.com").build()));
+        });
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> service.resolveFullUrl("abc", 1L));
+        assertTrue(reading.await(1, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> service.resolveFullUrl("abc", 2L));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertEquals("https://db.com", leader.get(1, TimeUnit.SECONDS));
+        assertEquals("https://db.com", follower.get(1, TimeUnit.SECONDS));
+        verify(reader, times(1)).findUrl("abc", 0);
+        verify(cache, times(1)).registerHitAndMaybeCache("abc", "https://db.com", null);
+        // yet every request still records its own click
+        verify(clickAnalytics).record("abc", 1L);
+        verify(clickAnalytics).record("abc", 2L);
+        assertEquals(2, meterRegistry.get("shortener.redirect.latency").tag("source", "storage").timer().count());
+    }
+
+    @Test
+    void findByShortUrl_concurrentMisses_shouldShareNotFound() throws Exception {
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(reader.findUrl("abc", 0)).thenAnswer(inv -> {
+            reading.countDown();
+            release.await(1, TimeUnit.SECONDS);
+            return CompletableFuture.completedFuture(Optional.empty());
+        });
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> service.resolveFullUrl("abc"));
+        assertTrue(reading.await(1, TimeUnit.SECONDS));
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> service.resolveFullUrl("abc"));
+        awaitCoalesced(1);
+        release.countDown();
+
+        ExecutionException leaderEx = assertThrows(ExecutionException.class, () -> leader.get(1, TimeUnit.SECONDS));
+        ExecutionException followerEx = assertThrows(ExecutionException.class, () -> follower.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(NotFoundException.class, leaderEx.getCause());
+        assertInstanceOf(NotFoundException.class, followerEx.getCause());
+        verify(reader, times(1)).findUrl("abc", 0);
+        verifyNoInteractions(clickAnalytics);
+        assertEquals(2, meterRegistry.get("shortener.redirect.latency").tag("source", "not_found").timer().count());
+    }
+
+    @Test
+    void findByShortUrl_definiteMissInBloomFilter_shouldThrowWithoutTouchingStores() {
+        when(bloomFilter.mightExist("abc")).thenReturn(false);
+
+        assertThrows(NotFoundException.class, () -> service.findByShortUrl("abc"));
+
+        verifyNoInteractions(cache, reader, creationService);
+        assertEquals(1, meterRegistry.get("shortener.redirect.latency").tag("source", "not_found").timer().count());
+    }
+
+    @Test
+    void findByShortUrl_malformedCode_shouldThrowBeforeAnyLookup() {
+        assertThrows(NotFoundException.class, () -> service.findByShortUrl("..%2F"));
+        assertThrows(NotFoundException.class, () -> service.findByShortUrl("a".repeat(200)));
+        assertThrows(NotFoundException.class, () -> service.findByShortUrl("zzzzzzzzzz")); // a second far in the future
+
+        verifyNoInteractions(bloomFilter, cache, reader);
+        assertEquals(3, meterRegistry.get("shortener.redirect.latency").tag("source", "malformed").timer().count());
+    }
+
+    @Test
+    void findByShortUrl_alias_shouldPassFormatCheckAndResolveFromStorage() {
+        when(bloomFilter.mightExist("summer-sale")).thenReturn(true);
+        when(reader.findUrl("summer-sale", 0)).thenReturn(CompletableFuture.completedFuture(Optional.of(ShortenerUrl.builder()
+                .shortcode("summer-sale")
+                .fullUrl("https://shop.com/sale")
+                .build())));
+
+        assertEquals("https://shop.com/sale", service.findByShortUrl("summer-sale").getUrl());
+        assertThrows(NotFoundException.class, () -> service.findByShortUrl("-sale"));
+    }
+
+    @Test
+    void findByShortUrl_slowReplica_shouldBeHedgedWithASecondRead() {
+        service = service(1.0);
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
+        // the first read is stuck on a slow replica; the speculative one answers
+        when(reader.findUrl("abc", 0)).thenReturn(new CompletableFuture<>());
+        when(reader.findUrl("abc", 1)).thenReturn(CompletableFuture.completedFuture(Optional.of(ShortenerUrl.builder()
+                .shortcode("abc")
+                .fullUrl("https://db.com")
+                .build())));
+
+        assertEquals("https://db.com", service.resolveFullUrl("abc"));
+
+        verify(reader).findUrl("abc", 0);
+        verify(reader).findUrl("abc", 1);
+        verify(cache).registerHitAndMaybeCache("abc", "https://db.com", null);
+    }
+
+    @Test
+    void resolveAll_shouldCombineCacheHitsAndConcurrentStorageLookups() {
+        when(bloomFilter.mightExist(anyString())).thenReturn(true);
+        when(cache.getAll(List.of("a", "b", "c"))).thenReturn(Map.of("a", "https://a.com"));
+
+        CompletableFuture<Optional<ShortenerUrl>> b = new CompletableFuture<>();
+        CompletableFuture<Optional<ShortenerUrl>> c = new CompletableFuture<>();
+        when(reader.findUrl("b")).thenReturn(b);
+        when(reader.findUrl("c")).thenReturn(c);
+
+        b.complete(Optional.of(ShortenerUrl.builder().shortcode("b").fullUrl("https://b.com").build()));
+        c.complete(Optional.empty());
+
+        ShortenerResolveResponse res = service.resolveAll(List.of("a", "b", "c", "a"));
+
+        assertEquals(Map.of("a", "https://a.com", "b", "https://b.com"), res.getUrls());
+        assertEquals(List.of("a", "b"), List.copyOf(res.getUrls().keySet()));
+        assertEquals(List.of("c"), res.getNotFound());
+
+        verify(reader, never()).findUrl("a");
+        verify(cache).registerHitAndMaybeCache("b", "https://b.com", null);
+        verify(cache, never()).registerHitAndMaybeCache(eq("c"), anyString(), any());
         verifyNoInteractions(creationService);
     }
-}
\ No newline at end of file
+
+    @Test
+    void resolveAll_shouldSkipCodesRejectedByBloomFilter() {
+        when(bloomFilter.mightExist("a")).thenReturn(true);
+        when(bloomFilter.mightExist("zzz")).thenReturn(false);
+        when(cache.getAll(List.of("a"))).thenReturn(Map.of("a", "https://a.com"));
+
+        ShortenerResolveResponse res = service.resolveAll(List.of("a", "zzz"));
+
+        assertEquals(Map.of("a", "https://a.com"), res.getUrls());
+        assertEquals(List.of("zzz"), res.getNotFound());
+        verifyNoInteractions(reader);
+    }
+
+    @Test
+    void resolveAll_shouldReportMalformedCodesAsNotFoundWithoutLookups() {
+        when(bloomFilter.mightExist("a")).thenReturn(true);
+        when(cache.getAll(List.of("a"))).thenReturn(Map.of("a", "https://a.com"));
+
+        ShortenerResolveResponse res = service.resolveAll(List.of("a", "../etc"));
+
+        assertEquals(Map.of("a", "https://a.com"), res.getUrls());
+        assertEquals(List.of("../etc"), res.getNotFound());
+        verify(bloomFilter, never()).mightExist("../etc");
+        verifyNoInteractions(reader);
+    }
+
+    @Test
+    void resolveAll_shouldPropagateStorageFailure() {
+        when(bloomFilter.mightExist("a")).thenReturn(true);
+        when(cache.getAll(List.of("a"))).thenReturn(Map.of());
+        when(reader.findUrl("a"))
+                .thenReturn(CompletableFuture.failedFuture(new QueryTimeoutException("timeout")));
+
+        assertThrows(QueryTimeoutException.class, () -> service.resolveAll(List.of("a")));
+    }
+
+    @Test
+    void stats_shouldCheckExistenceInStorageWithoutCountingAClick() {
+        ShortenerStatsResponse stats = new ShortenerStatsResponse("abc", 3, Map.of());
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
+        when(reader.findFullUrl("abc")).thenReturn(CompletableFuture.completedFuture(Optional.of("https://a.com")));
+        when(clickAnalytics.stats("abc", 60)).thenReturn(CompletableFuture.completedFuture(stats));
+
+        assertSame(stats, service.stats("abc", 60).join());
+
+        verify(clickAnalytics, never()).record(anyString(), anyLong());
+        verifyNoInteractions(cache);
+    }
+
+    @Test
+    void stats_shouldFailWithNotFoundForUnknownCodes() {
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
+        when(reader.findFullUrl("abc")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        CompletionException ex = assertThrows(CompletionException.class, () -> service.stats("abc", 60).join());
+        assertInstanceOf(NotFoundException.class, ex.getCause());
+
+        CompletionException malformed = assertThrows(CompletionException.class, () -> service.stats("../etc", 60).join());
+        assertInstanceOf(NotFoundException.class, malformed.getCause());
+        verify(clickAnalytics, never()).stats(anyString(), anyInt());
+    }
+
+    @Test
+    void resolveFullUrl_shouldPassVisitorToAnalytics() {
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
+        when(cache.get("abc")).thenReturn("https://example.com");
+
+        service.resolveFullUrl("abc", 42L);
+
+        verify(clickAnalytics).record("abc", 42L);
+    }
+
+    @Test
+    void visitors_shouldReturnSketchEstimatesForExistingCodes() {
+        LocalDate day = LocalDate.of(2026, 1, 5);
+        ShortenerVisitorsResponse visitors = new ShortenerVisitorsResponse("abc", day, day, 7, Map.of(day, 7L));
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
+        when(uniqueVisitors.query("abc", day, day)).thenReturn(visitors);
+        when(reader.findFullUrl("abc")).thenReturn(CompletableFuture.completedFuture(Optional.of("https://a.com")));
+
+        assertSame(visitors, service.visitors("abc", day, day).join());
+
+        verifyNoInteractions(cache, clickAnalytics);
+    }
+
+    @Test
+    void visitors_shouldFailWithNotFoundForUnknownCodes() {
+        when(bloomFilter.mightExist("abc")).thenReturn(true);
+        when(uniqueVisitors.query("abc", null, null)).thenReturn(new ShortenerVisitorsResponse());
+        when(reader.findFullUrl("abc")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        CompletionException ex = assertThrows(CompletionException.class, () -> service.visitors("abc", null, null).join());
+        assertInstanceOf(NotFoundException.class, ex.getCause());
+
+        CompletionException malformed = assertThrows(CompletionException.class, () -> service.visitors("../etc", null, null).join());
+        assertInstanceOf(NotFoundException.class, malformed.getCause());
+        verify(uniqueVisitors, times(1)).query(any(), any(), any());
+    }
+
+    private void awaitCoalesced(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (meterRegistry.get("shortener.lookup.coalesced").functionCounter().count() < expected
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, meterRegistry.get("shortener.lookup.coalesced").functionCounter().count());
+    }
+}
@@ -0,0 +1,241 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.dto.response.ShortenerVisitorsResponse;
+import com.wl.url.shortener.utils.Bulkhead;
+import com.wl.url.shortener.utils.HyperLogLog;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.async.RedisScriptingAsyncCommands;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UniqueVisitorsTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2026, 1, 5);
+    private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+
+    @Mock
+    StringRedisTemplate redis;
+
+    @Mock
+    RedisConnection connection;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UniqueVisitors visitors;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        visitors = newVisitors(true, 16);
+    }
+
+    @Test
+    void add_shouldDoNothingWhenDisabledOrVisitorUnknown() {
+        UniqueVisitors disabled = newVisitors(false, 16);
+        disabled.add("abc", MONDAY, 42);
+        disabled.flush();
+
+        visitors.add("abc", MONDAY, 0);
+        visitors.flush();
+
+        verifyNoInteractions(redis);
+    }
+
+    @Test
+    void add_shouldDropNewSketchesBeyondMaxPendingButKeepFeedingOpenOnes() {
+        UniqueVisitors bounded = newVisitors(true, 1);
+
+        bounded.add("abc", MONDAY, 1);
+        bounded.add("abc", MONDAY, 2);
+        bounded.add("xyz", MONDAY, 3);
+        bounded.add("abc", TUESDAY, 4);
+
+        assertEquals(2, meterRegistry.get("shortener.analytics.visitors.dropped").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_shouldSendOneEvalPerCodeAndDay() {
+        RedisScriptingAsyncCommands<byte[], byte[]> async = stubAsyncConnection();
+        RedisFuture<Object> ok = completed(1L);
+        when(async.<Object>eval(any(byte[].class), eq(ScriptOutputType.INTEGER), any(byte[][].class), any(byte[][].class)))
+                .thenReturn(ok);
+
+        visitors.add("abc", MONDAY, 1);
+        visitors.add("abc", MONDAY, 2);
+        visitors.add("abc", TUESDAY, 1);
+        visitors.add("xyz", MONDAY, 3);
+        visitors.flush();
+
+        ArgumentCaptor<byte[][]> keys = ArgumentCaptor.forClass(byte[][].class);
+        verify(async, times(3)).eval(any(byte[].class), eq(ScriptOutputType.INTEGER), keys.capture(), any(byte[][].class));
+        Set<String> sent = new HashSet<>();
+        for (byte[][] key : keys.getAllValues()) {
+            sent.add(new String(key[0], StandardCharsets.UTF_8));
+        }
+        assertEquals(Set.of("url:uv:{abc}:20260105", "url:uv:{abc}:20260106", "url:uv:{xyz}:20260105"), sent);
+        assertEquals(3, meterRegistry.get("shortener.analytics.visitors.merged").counter().count());
+
+        // nothing pending: the next flush does not talk to Redis
+        visitors.flush();
+        verify(redis, times(1)).execute(any(RedisCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_shouldKeepFailedSketchForNextFlushMergedWithNewVisits() {
+        RedisScriptingAsyncCommands<byte[], byte[]> async = stubAsyncConnection();
+        RedisFuture<Object> failed = failed(new RedisSystemException("down", null));
+        RedisFuture<Object> ok = completed(1L);
+        when(async.<Object>eval(any(byte[].class), eq(ScriptOutputType.INTEGER), any(byte[][].class), any(byte[][].class)))
+                .thenReturn(failed, ok);
+
+        HyperLogLog expected = new HyperLogLog();
+        for (long visitor = 1; visitor <= 2; visitor++) {
+            expected.add(visitor);
+        }
+
+        visitors.add("abc", MONDAY, 1);
+        visitors.flush();
+        visitors.add("abc", MONDAY, 2);
+        visitors.flush();
+
+        ArgumentCaptor<byte[][]> args = ArgumentCaptor.forClass(byte[][].class);
+        verify(async, times(2)).eval(any(byte[].class), eq(ScriptOutputType.INTEGER), any(byte[][].class), args.capture());
+        // ARGV = TTL in seconds, number of registers and only the filled registers
+        byte[][] retried = args.getAllValues().get(1);
+        assertEquals(String.valueOf(Duration.ofDays(35).toSeconds()), new String(retried[0], StandardCharsets.UTF_8));
+        assertEquals(String.valueOf(HyperLogLog.REGISTERS), new String(retried[1], StandardCharsets.UTF_8));
+        assertArrayEquals(expected.toCompactBytes(), retried[2]);
+        assertEquals(6, retried[2].length);
+        assertEquals(1, meterRegistry.get("shortener.analytics.visitors.merge.failures").counter().count());
+        assertEquals(1, meterRegistry.get("shortener.analytics.visitors.merged").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_shouldMergeOffTheCallingThreadOneRoundAtATime() {
+        List<Runnable> queued = new ArrayList<>();
+        UniqueVisitors deferred = new UniqueVisitors(redis, new Bulkhead("redis", 16, Duration.ofMillis(10)), meterRegistry,
+                true, Duration.ofDays(35), 16, queued::add, Clock.systemUTC());
+        RedisScriptingAsyncCommands<byte[], byte[]> async = stubAsyncConnection();
+        RedisFuture<Object> ok = completed(1L);
+        when(async.<Object>eval(any(byte[].class), eq(ScriptOutputType.INTEGER), any(byte[][].class), any(byte[][].class)))
+                .thenReturn(ok);
+
+        deferred.add("abc", MONDAY, 1);
+        CompletableFuture<Void> first = deferred.flush();
+        deferred.add("xyz", MONDAY, 2);
+        // the previous round has not finished: xyz waits for the next flush
+        deferred.flush();
+
+        assertFalse(first.isDone());
+        assertEquals(1, queued.size());
+        verifyNoInteractions(async);
+
+        queued.remove(0).run();
+        assertTrue(first.isDone());
+        deferred.flush();
+        queued.remove(0).run();
+
+        verify(async, times(2)).eval(any(byte[].class), eq(ScriptOutputType.INTEGER), any(byte[][].class), any(byte[][].class));
+        assertEquals(2, meterRegistry.get("shortener.analytics.visitors.merged").counter().count());
+    }
+
+    @Test
+    void query_shouldEstimatePerDayAndUnionWithoutDoubleCounting() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            monday.add(HyperLogLog.hash("v" + i, ""));
+        }
+        for (int i = 50; i < 150; i++) {
+            tuesday.add(HyperLogLog.hash("v" + i, ""));
+        }
+        RedisStringCommands strings = stubStringCommands();
+        when(strings.mGet(any(byte[][].class))).thenReturn(Arrays.asList(monday.toBytes(), tuesday.toBytes(), null));
+
+        ShortenerVisitorsResponse res = visitors.query("abc", MONDAY, MONDAY.plusDays(2));
+
+        assertEquals(MONDAY, res.getFrom());
+        assertEquals(MONDAY.plusDays(2), res.getTo());
+        assertEquals(Set.of(MONDAY, TUESDAY), res.getVisitorsPerDay().keySet());
+        assertEquals(100, res.getVisitorsPerDay().get(MONDAY), 3);
+        assertEquals(150, res.getUniqueVisitors(), 4);
+    }
+
+    @Test
+    void query_shouldDefaultToLastWeekAndClampLongRanges() {
+        RedisStringCommands strings = stubStringCommands();
+        when(strings.mGet(any(byte[][].class))).thenReturn(Collections.emptyList());
+
+        ShortenerVisitorsResponse lastWeek = visitors.query("abc", null, null);
+        assertEquals(LocalDate.of(2026, 1, 4), lastWeek.getFrom());
+        assertEquals(LocalDate.of(2026, 1, 10), lastWeek.getTo());
+
+        ShortenerVisitorsResponse clamped = visitors.query("abc", LocalDate.of(2025, 1, 1), MONDAY);
+        assertEquals(MONDAY.minusDays(UniqueVisitors.MAX_RANGE_DAYS - 1L), clamped.getFrom());
+        assertEquals(0, clamped.getUniqueVisitors());
+
+        ArgumentCaptor<byte[][]> keys = ArgumentCaptor.forClass(byte[][].class);
+        verify(strings, times(2)).mGet(keys.capture());
+        assertEquals(UniqueVisitors.MAX_RANGE_DAYS, keys.getAllValues().get(1).length);
+    }
+
+    private UniqueVisitors newVisitors(boolean enabled, int maxPending) {
+        Clock clock = Clock.fixed(Instant.parse("2026-01-10T12:00:00Z"), ZoneOffset.UTC);
+        return new UniqueVisitors(redis, new Bulkhead("redis", 16, Duration.ofMillis(10)), meterRegistry,
+                enabled, Duration.ofDays(35), maxPending, Runnable::run, clock);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisScriptingAsyncCommands<byte[], byte[]> stubAsyncConnection() {
+        RedisScriptingAsyncCommands<byte[], byte[]> async = mock(RedisScriptingAsyncCommands.class);
+        when(connection.getNativeConnection()).thenReturn(async);
+        when(redis.execute(any(RedisCallback.class)))
+                .thenAnswer(inv -> ((RedisCallback<?>) inv.getArgument(0)).doInRedis(connection));
+        return async;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisStringCommands stubStringCommands() {
+        RedisStringCommands strings = mock(RedisStringCommands.class);
+        when(connection.stringCommands()).thenReturn(strings);
+        when(redis.execute(any(RedisCallback.class)))
+                .thenAnswer(inv -> ((RedisCallback<?>) inv.getArgument(0)).doInRedis(connection));
+        return strings;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisFuture<Object> completed(Object value) {
+        RedisFuture<Object> future = mock(RedisFuture.class);
+        when(future.toCompletableFuture()).thenReturn(CompletableFuture.completedFuture(value));
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisFuture<Object> failed(Throwable ex) {
+        RedisFuture<Object> future = mock(RedisFuture.class);
+        when(future.toCompletableFuture()).thenReturn(CompletableFuture.failedFuture(ex));
+        return future;
+    }
+}
@@ -0,0 +1,73 @@
+package com.wl.url.shortener.service;
+
+import com.wl.url.shortener.repository.ShortenerUrlHashStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UrlDeduplicatorTest {
+
+    @Mock
+    ShortenerUrlHashStore store;
+
+    private UrlDeduplicator deduplicator;
+
+    @BeforeEach
+    void setup() {
+        deduplicator = new UrlDeduplicator(store, new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void hash_shouldBeCompactAndStable() {
+        ByteBuffer a = UrlDeduplicator.hash("https://example.com");
+
+        assertEquals(16, a.remaining());
+        assertEquals(a, UrlDeduplicator.hash("https://example.com"));
+        assertNotEquals(a, UrlDeduplicator.hash("https://example.com/"));
+    }
+
+    @Test
+    void findExisting_shouldQueryStoreOnceAndThenServeFromLocalCache() {
+        ByteBuffer hash = UrlDeduplicator.hash("https://example.com");
+        when(store.findShortCode(hash)).thenReturn(CompletableFuture.completedFuture(Optional.of("abc")));
+
+        assertEquals(Optional.of("abc"), deduplicator.findExisting("https://example.com").join());
+        assertEquals(Optional.of("abc"), deduplicator.findExisting("https://example.com").join());
+
+        verify(store, times(1)).findShortCode(hash);
+    }
+
+    @Test
+    void findExisting_shouldNotCacheMisses() {
+        ByteBuffer hash = UrlDeduplicator.hash("https://example.com");
+        when(store.findShortCode(hash)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        assertEquals(Optional.empty(), deduplicator.findExisting("https://example.com").join());
+        assertEquals(Optional.empty(), deduplicator.findExisting("https://example.com").join());
+
+        verify(store, times(2)).findShortCode(hash);
+    }
+
+    @Test
+    void remember_shouldWriteIndexAndFillLocalCache() {
+        ByteBuffer hash = UrlDeduplicator.hash("https://example.com");
+        when(store.save(hash, "abc")).thenReturn(CompletableFuture.completedFuture(null));
+
+        deduplicator.remember("https://example.com", "abc").join();
+
+        assertEquals(Optional.of("abc"), deduplicator.findExisting("https://example.com").join());
+        verify(store, never()).findShortCode(any());
+    }
+}
@@ -0,0 +1,126 @@
+package com.wl.url.shortener.utils;
+
+import com.wl.url.shortener.exception.impl.BackendBusyException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    @Test
+    void call_shouldReturnValueAndReleasePermit() {
+        Bulkhead bulkhead = new Bulkhead("redis", 2, Duration.ZERO);
+
+        assertEquals("ok", bulkhead.call(() -> "ok"));
+        assertEquals(2, bulkhead.availablePermits());
+    }
+
+    @Test
+    void call_shouldReleasePermitWhenActionThrows() {
+        Bulkhead bulkhead = new Bulkhead("redis", 1, Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> bulkhead.call(() -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(1, bulkhead.availablePermits());
+    }
+
+    @Test
+    void call_shouldRejectWhenSaturated() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("cassandra", 1, Duration.ofMillis(20));
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> bulkhead.run(() -> {
+            inside.countDown();
+            await(release);
+        }));
+        holder.start();
+        assertTrue(inside.await(1, TimeUnit.SECONDS));
+
+        BackendBusyException ex = assertThrows(BackendBusyException.class, () -> bulkhead.call(() -> "x"));
+        assertEquals("cassandra is saturated, try again later", ex.getMessage());
+
+        release.countDown();
+        holder.join(1000);
+        assertEquals(1, bulkhead.availablePermits());
+    }
+
+    @Test
+    void call_withCallerDeadline_shouldWaitNoLongerThanWhatIsLeftOfIt() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("redis", 1, Duration.ofSeconds(5));
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> bulkhead.run(() -> {
+            inside.countDown();
+            await(release);
+        }));
+        holder.start();
+        assertTrue(inside.await(1, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        assertThrows(BackendBusyException.class, () -> bulkhead.call(Duration.ofMillis(20).toNanos(), () -> "x"));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+
+        release.countDown();
+        holder.join(1000);
+    }
+
+    @Test
+    void callAsync_shouldHoldPermitUntilFutureCompletes() {
+        Bulkhead bulkhead = new Bulkhead("cassandra", 1, Duration.ZERO);
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> res = bulkhead.callAsync(() -> pending);
+
+        assertEquals(0, bulkhead.availablePermits());
+        assertThrows(BackendBusyException.class, () -> bulkhead.callAsync(CompletableFuture::new));
+
+        pending.complete("ok");
+        assertEquals("ok", res.join());
+        assertEquals(1, bulkhead.availablePermits());
+    }
+
+    @Test
+    void callAsync_shouldReleasePermitWhenSupplierThrows() {
+        Bulkhead bulkhead = new Bulkhead("cassandra", 1, Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> bulkhead.callAsync(() -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals(1, bulkhead.availablePermits());
+    }
+
+    @Test
+    void callAsync_withZeroWait_shouldRejectAtOnceAndReleaseOnCancel() {
+        Bulkhead bulkhead = new Bulkhead("redis", 1, Duration.ofSeconds(5));
+        CompletableFuture<String> pending = bulkhead.callAsync(0, CompletableFuture::new);
+
+        long start = System.nanoTime();
+        assertThrows(BackendBusyException.class, () -> bulkhead.callAsync(0, CompletableFuture::new));
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+
+        pending.cancel(true);
+        assertEquals(1, bulkhead.availablePermits());
+    }
+
+    @Test
+    void constructor_shouldRejectInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead("redis", 0, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead("redis", 1, Duration.ofMillis(-1)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.wl.url.shortener.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.wl.url.shortener.utils.CircuitBreaker.State.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void shouldStayClosedUntilMinimumCallsAndFailureRateAreReached() {
+        CircuitBreaker breaker = breaker(10, 4, 0.5, 2);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+        // only 3 calls: too few to decide
+        assertEquals(CLOSED, breaker.tryAcquire());
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(OPEN, breaker.tryAcquire());
+        assertEquals(1, breaker.trips());
+    }
+
+    @Test
+    void shouldForgetOutcomesThatLeftTheWindow() {
+        CircuitBreaker breaker = breaker(4, 4, 0.75, 1);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        // the window slides: the two old failures drop out
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertEquals(CLOSED, breaker.state());
+        breaker.onFailure();
+        assertEquals(OPEN, breaker.state());
+    }
+
+    @Test
+    void shouldProbeAfterOpenDurationAndCloseWhenProbesSucceed() {
+        CircuitBreaker breaker = breaker(4, 2, 0.5, 2);
+        trip(breaker);
+
+        clock.advance(Duration.ofMillis(999));
+        assertEquals(OPEN, breaker.tryAcquire());
+
+        clock.advance(Duration.ofMillis(1));
+        assertEquals(HALF_OPEN, breaker.tryAcquire());
+        assertEquals(HALF_OPEN, breaker.tryAcquire());
+        // only two probes at a time
+        assertEquals(OPEN, breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(HALF_OPEN, breaker.state());
+        breaker.onSuccess();
+        assertEquals(CLOSED, breaker.state());
+        assertEquals(CLOSED, breaker.tryAcquire());
+        assertEquals(2, breaker.probes());
+    }
+
+    @Test
+    void failedProbe_shouldReopenForTwiceAsLongUpToTheCap() {
+        CircuitBreaker breaker = breaker(4, 2, 0.5, 1);
+        trip(breaker);
+
+        for (long expected : new long[]{2000, 4000, 4000}) {
+            clock.advance(Duration.ofSeconds(10));
+            assertEquals(HALF_OPEN, breaker.tryAcquire());
+            breaker.onFailure();
+            assertEquals(OPEN, breaker.state());
+
+            clock.advance(Duration.ofMillis(expected - 1));
+            assertEquals(OPEN, breaker.tryAcquire());
+            clock.advance(Duration.ofMillis(1));
+            assertEquals(HALF_OPEN, breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(7, breaker.trips());
+
+        // closing resets the open time to the base
+        clock.advance(Duration.ofSeconds(10));
+        assertEquals(HALF_OPEN, breaker.tryAcquire());
+        breaker.onSuccess();
+        trip(breaker);
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(HALF_OPEN, breaker.tryAcquire());
+    }
+
+    @Test
+    void lostProbe_shouldNotLeaveBreakerHalfOpenForever() {
+        CircuitBreaker breaker = breaker(4, 2, 0.5, 1);
+        trip(breaker);
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(HALF_OPEN, breaker.tryAcquire());
+
+        // the probe never reports back
+        assertEquals(OPEN, breaker.tryAcquire());
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(HALF_OPEN, breaker.tryAcquire());
+    }
+
+    @Test
+    void lateOutcomesWhileOpen_shouldBeIgnored() {
+        CircuitBreaker breaker = breaker(4, 2, 0.5, 1);
+        trip(breaker);
+
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertEquals(OPEN, breaker.state());
+        assertEquals(1, breaker.trips());
+    }
+
+    @Test
+    void constructor_shouldRejectInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> breaker(0, 1, 0.5, 1));
+        assertThrows(IllegalArgumentException.class, () -> breaker(4, 5, 0.5, 1));
+        assertThrows(IllegalArgumentException.class, () -> breaker(4, 2, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> breaker(4, 2, 0.5, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker("redis", 4, 2, 0.5,
+                Duration.ofSeconds(2), Duration.ofSeconds(1), 1));
+    }
+
+    @Test
+    void concurrentFailures_shouldTripExactlyOnce() throws Exception {
+        CircuitBreaker breaker = breaker(100, 20, 0.5, 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < 1_000; i++) {
+                    breaker.onFailure();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(OPEN, breaker.state());
+        assertEquals(1, breaker.trips());
+    }
+
+    private CircuitBreaker breaker(int window, int minimumCalls, double failureRate, int probes) {
+        return new CircuitBreaker("redis", window, minimumCalls, failureRate,
+                Duration.ofSeconds(1), Duration.ofSeconds(4), probes, clock);
+    }
+
+    private static void trip(CircuitBreaker breaker) {
+        while (breaker.state() == CLOSED) {
+            breaker.onFailure();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
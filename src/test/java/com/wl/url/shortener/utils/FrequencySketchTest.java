@@ -0,0 +1,192 @@
+package com.wl.url.shortener.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+    @Test
+    void constructor_shouldRejectInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new FrequencySketch(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new FrequencySketch(16, 0));
+    }
+
+    @Test
+    void constructor_shouldRoundWidthUpToPowerOfTwo() {
+        assertEquals(4 * 1024, new FrequencySketch(1000, 10).size());
+    }
+
+    @Test
+    void increment_shouldReturnRunningEstimate() {
+        FrequencySketch sketch = new FrequencySketch(1024, 100_000);
+
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, sketch.increment("abc"));
+        }
+        assertEquals(5, sketch.estimate("abc"));
+        assertEquals(0, sketch.estimate("never-seen"));
+    }
+
+    @Test
+    void estimate_shouldNotShareCountsBetweenKeysWithTheSameStringHashCode() {
+        FrequencySketch sketch = new FrequencySketch(1024, 100_000);
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals("AaAa".hashCode(), "BBBB".hashCode());
+
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("Aa");
+            sketch.increment("AaAa");
+        }
+
+        // with the 32-bit hashCode both keys landed in the same cells on every row
+        assertEquals(0, sketch.estimate("BB"));
+        assertEquals(0, sketch.estimate("BBBB"));
+    }
+
+    @Test
+    void estimate_shouldNeverUnderestimate() {
+        FrequencySketch sketch = new FrequencySketch(64, 1_000_000);
+
+        for (int i = 0; i < 10_000; i++) {
+            sketch.increment("k" + (i % 500));
+        }
+
+        for (int i = 0; i < 500; i++) {
+            assertTrue(sketch.estimate("k" + i) >= 20);
+        }
+    }
+
+    @Test
+    void increment_shouldHalveCountersWhenSampleSizeIsReached() {
+        FrequencySketch sketch = new FrequencySketch(1024, 100);
+
+        for (int i = 0; i < 99; i++) {
+            sketch.increment("abc");
+        }
+        assertEquals(99, sketch.estimate("abc"));
+
+        sketch.increment("abc");
+
+        assertEquals(50, sketch.estimate("abc"));
+    }
+
+    @Test
+    void drainPending_shouldReturnDeltaOnlyOnce() {
+        FrequencySketch sketch = new FrequencySketch(16, 1000);
+        sketch.increment("abc");
+        sketch.increment("abc");
+
+        int[] first = sketch.drainPending();
+        int[] second = sketch.drainPending();
+
+        assertEquals(4 * 2, sum(first));
+        assertEquals(0, sum(second));
+        assertEquals(2, sketch.estimate("abc"));
+    }
+
+    @Test
+    void mergeRemote_shouldRaiseEstimateToRemoteCount() {
+        FrequencySketch local = new FrequencySketch(1024, 100_000);
+        FrequencySketch remote = new FrequencySketch(1024, 100_000);
+        for (int i = 0; i < 30; i++) {
+            remote.increment("abc");
+        }
+
+        merge(local, remote.drainPending(), 30);
+
+        assertEquals(30, local.estimate("abc"));
+        assertEquals(30, local.increment("abc"));
+    }
+
+    @Test
+    void mergeRemote_shouldScaleWindowCountsDownToSampleSize() {
+        FrequencySketch local = new FrequencySketch(1024, 1_000);
+        FrequencySketch remote = new FrequencySketch(1024, Long.MAX_VALUE);
+        for (int i = 0; i < 300; i++) {
+            remote.increment("abc");
+        }
+
+        // 300 of 10000 additions in the window: 30 per 1000, the local horizon
+        merge(local, remote.drainPending(), 10_000);
+
+        assertEquals(30, local.estimate("abc"));
+    }
+
+    @Test
+    void uniformLongTail_acrossTheCluster_shouldNotMakeAnyCodeHot() {
+        int width = 16384;
+        long sampleSize = 100_000;
+        FrequencySketch cluster = new FrequencySketch(width, Long.MAX_VALUE);
+        FrequencySketch local = new FrequencySketch(width, sampleSize);
+        Random random = new Random(7);
+
+        // 600k misses over 200k codes in one window, one node in ten sees its share
+        int total = 600_000;
+        for (int i = 0; i < total; i++) {
+            String code = "c" + random.nextInt(200_000);
+            cluster.increment(code);
+            if (i % 10 == 0) {
+                local.increment(code);
+            }
+        }
+        merge(local, cluster.drainPending(), total);
+
+        for (int i = 0; i < 200_000; i++) {
+            assertTrue(local.estimate("c" + i) < 20, "c" + i);
+        }
+        // a code with a real share of the traffic still stands out
+        FrequencySketch hot = new FrequencySketch(width, Long.MAX_VALUE);
+        for (int i = 0; i < 6_000; i++) {
+            hot.increment("viral");
+        }
+        merge(local, hot.drainPending(), total);
+        assertTrue(local.estimate("viral") >= 20);
+    }
+
+    @Test
+    void clearRemote_shouldForgetThePreviousWindow() {
+        FrequencySketch local = new FrequencySketch(1024, 100_000);
+        FrequencySketch remote = new FrequencySketch(1024, 100_000);
+        for (int i = 0; i < 30; i++) {
+            remote.increment("abc");
+        }
+        merge(local, remote.drainPending(), 30);
+
+        local.clearRemote();
+
+        assertEquals(0, local.estimate("abc"));
+    }
+
+    @Test
+    void mergeRemote_shouldRejectCellsOutsideTheSketch() {
+        FrequencySketch sketch = new FrequencySketch(16, 1000);
+        assertThrows(IllegalArgumentException.class,
+                () -> sketch.mergeRemote(new int[]{sketch.size()}, new int[]{1}, 1));
+        assertThrows(IllegalArgumentException.class, () -> sketch.mergeRemote(new int[]{1}, new int[0], 1));
+    }
+
+    static void merge(FrequencySketch target, int[] table, long additions) {
+        int cells = 0;
+        for (int value : table) {
+            if (value != 0) cells++;
+        }
+        int[] indexes = new int[cells];
+        int[] counts = new int[cells];
+        for (int i = 0, next = 0; i < table.length; i++) {
+            if (table[i] != 0) {
+                indexes[next] = i;
+                counts[next++] = table[i];
+            }
+        }
+        target.mergeRemote(indexes, counts, additions);
+    }
+
+    private static int sum(int[] values) {
+        int total = 0;
+        for (int v : values) total += v;
+        return total;
+    }
+}
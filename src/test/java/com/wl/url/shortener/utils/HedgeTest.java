@@ -0,0 +1,214 @@
+package com.wl.url.shortener.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgeTest {
+
+    // delays never elapse on their own: the test decides when the speculative call runs
+    private final List<Long> delays = new ArrayList<>();
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final List<Future<?>> timers = new ArrayList<>();
+
+    @Test
+    void slowFirstAttempt_shouldBeRacedBySpeculativeRequest() {
+        Hedge hedge = hedge(1.0);
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        CompletableFuture<String> result = hedge.callAsync(sequence(slow, CompletableFuture.completedFuture("fast")));
+
+        assertFalse(result.isDone());
+        assertEquals(List.of(Duration.ofMillis(50).toNanos()), delays);
+        runScheduled();
+
+        assertEquals("fast", result.join());
+        assertEquals(1, hedge.hedged());
+        assertEquals(1, hedge.won());
+
+        // the late answer changes nothing
+        slow.complete("slow");
+        assertEquals("fast", result.join());
+    }
+
+    @Test
+    void fastFirstAttempt_shouldNotSendSecondRequest() {
+        Hedge hedge = hedge(1.0);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<String> result = hedge.callAsync(attempt -> {
+            sent.incrementAndGet();
+            return first;
+        });
+
+        first.complete("a");
+
+        // the scheduled speculative call is cancelled as soon as the first one answers
+        assertTrue(timers.get(0).isCancelled());
+        runScheduled();
+        assertEquals("a", result.join());
+        assertEquals(1, sent.get());
+        assertEquals(0, hedge.hedged());
+        assertEquals(0, hedge.won());
+    }
+
+    @Test
+    void rateCap_shouldLimitSpeculationEvenWhenEverythingIsSlow() {
+        Hedge hedge = hedge(0.1);
+        for (int i = 0; i < 10; i++) {
+            hedge.callAsync(attempt -> new CompletableFuture<>());
+        }
+        runScheduled();
+
+        // 10 calls at 10% earn one speculative call
+        assertEquals(10, hedge.calls());
+        assertEquals(1, hedge.hedged());
+        assertEquals(9, hedge.capped());
+    }
+
+    @Test
+    void failedAttempt_shouldWaitForTheOtherOne() {
+        Hedge hedge = hedge(1.0);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        CompletableFuture<String> result = hedge.callAsync(sequence(first, second));
+        runScheduled();
+
+        first.completeExceptionally(new IllegalStateException("replica down"));
+        assertFalse(result.isDone());
+
+        second.complete("b");
+        assertEquals("b", result.join());
+    }
+
+    @Test
+    void bothAttemptsFailing_shouldFailWithTheLastError() {
+        Hedge hedge = hedge(1.0);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        CompletableFuture<String> result = hedge.callAsync(sequence(first, second));
+        runScheduled();
+
+        first.completeExceptionally(new IllegalStateException("first"));
+        second.completeExceptionally(new IllegalStateException("second"));
+
+        CompletionException ex = assertThrows(CompletionException.class, result::join);
+        assertEquals("second", ex.getCause().getMessage());
+    }
+
+    @Test
+    void failureWithoutSpeculation_shouldFailOverOnceAndThenFail() {
+        Hedge hedge = hedge(0);
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<String> result = hedge.callAsync(attempt -> {
+            sent.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("timeout"));
+        });
+
+        CompletionException ex = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        assertEquals(2, sent.get());
+        assertEquals(1, hedge.failedOver());
+        // without credit nothing is even scheduled
+        assertTrue(delays.isEmpty());
+    }
+
+    @Test
+    void firstAttemptFailing_shouldSendTheAlternateRightAwayWithoutCredit() {
+        Hedge hedge = hedge(0);
+        CompletableFuture<String> result = hedge.callAsync(sequence(
+                CompletableFuture.failedFuture(new IllegalStateException("pinned replica timed out")),
+                CompletableFuture.completedFuture("b")));
+
+        assertEquals("b", result.join());
+        assertEquals(1, hedge.failedOver());
+        assertEquals(0, hedge.hedged());
+        assertEquals(0, hedge.won());
+    }
+
+    @Test
+    void failOver_shouldReplaceTheSpeculativeAttempt() {
+        Hedge hedge = hedge(1.0);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        AtomicInteger sent = new AtomicInteger();
+        IntFunction<CompletableFuture<String>> attempts = sequence(first, second);
+        CompletableFuture<String> result = hedge.callAsync(attempt -> {
+            sent.incrementAndGet();
+            return attempts.apply(attempt);
+        });
+
+        first.completeExceptionally(new IllegalStateException("replica down"));
+        runScheduled();
+        second.complete("b");
+
+        assertEquals("b", result.join());
+        assertEquals(2, sent.get());
+        assertEquals(0, hedge.hedged());
+    }
+
+    @Test
+    void threshold_shouldFollowRecentLatencyWithinBounds() {
+        Hedge hedge = new Hedge("read", 0.95, Duration.ofMillis(1), Duration.ofMillis(50), 1.0, 64, this::capture);
+        assertEquals(Duration.ofMillis(50), hedge.threshold());
+
+        // immediate answers: the p95 falls below the minimum and is clamped to it
+        for (int i = 0; i < 64; i++) {
+            hedge.callAsync(attempt -> CompletableFuture.completedFuture("a"));
+        }
+
+        assertEquals(Duration.ofMillis(1), hedge.threshold());
+        hedge.callAsync(attempt -> new CompletableFuture<>());
+        assertEquals(Duration.ofMillis(1).toNanos(), (long) delays.get(delays.size() - 1));
+    }
+
+    @Test
+    void constructor_shouldRejectInvalidSettings() {
+        Duration min = Duration.ofMillis(1);
+        Duration max = Duration.ofMillis(50);
+        assertThrows(IllegalArgumentException.class, () -> new Hedge("read", 1.0, min, max, 0.05, 64, this::capture));
+        assertThrows(IllegalArgumentException.class, () -> new Hedge("read", 0.95, max, min, 0.05, 64, this::capture));
+        assertThrows(IllegalArgumentException.class, () -> new Hedge("read", 0.95, min, max, 1.5, 64, this::capture));
+        assertThrows(IllegalArgumentException.class, () -> new Hedge("read", 0.95, min, max, 0.05, 10, this::capture));
+    }
+
+    private Hedge hedge(double maxRate) {
+        return new Hedge("read", 0.95, Duration.ofMillis(2), Duration.ofMillis(50), maxRate, 64, this::capture);
+    }
+
+    private Future<?> capture(Runnable task, long nanos) {
+        delays.add(nanos);
+        scheduled.add(task);
+        CompletableFuture<Void> timer = new CompletableFuture<>();
+        timers.add(timer);
+        return timer;
+    }
+
+    private void runScheduled() {
+        for (int i = 0; i < scheduled.size(); i++) {
+            if (!timers.get(i).isCancelled()) {
+                scheduled.get(i).run();
+            }
+        }
+        scheduled.clear();
+        timers.clear();
+    }
+
+    // each attempt gets its own number; the speculative one is always 1
+    @SafeVarargs
+    private static <T> IntFunction<CompletableFuture<T>> sequence(CompletableFuture<T>... attempts) {
+        AtomicInteger next = new AtomicInteger();
+        return attempt -> {
+            assertEquals(next.get(), attempt);
+            return attempts[next.getAndIncrement()];
+        };
+    }
+}
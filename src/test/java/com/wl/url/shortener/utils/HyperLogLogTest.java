@@ -0,0 +1,109 @@
+package com.wl.url.shortener.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_shouldBeZeroForEmptySketch() {
+        HyperLogLog sketch = new HyperLogLog();
+
+        assertTrue(sketch.isEmpty());
+        assertEquals(0, sketch.estimate());
+    }
+
+    @Test
+    void estimate_shouldBeExactEnoughForSmallCardinalities() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            sketch.add(HyperLogLog.hash("10.0.0." + i, "curl/8"));
+            sketch.add(HyperLogLog.hash("10.0.0." + i, "curl/8")); // a repeat does not count
+        }
+
+        assertEquals(100, sketch.estimate(), 2);
+    }
+
+    @Test
+    void estimate_shouldStayWithinFewStandardErrorsForLargeCardinalities() {
+        HyperLogLog sketch = new HyperLogLog();
+        int distinct = 200_000;
+        for (int i = 0; i < distinct; i++) {
+            sketch.add(HyperLogLog.hash("visitor-" + i, "Mozilla/5.0"));
+        }
+
+        // ~1.6% standard error; 5% leaves room for ~3 deviations
+        assertEquals(distinct, sketch.estimate(), distinct * 0.05);
+    }
+
+    @Test
+    void merge_shouldEstimateUnionAndBeIdempotent() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        for (int i = 0; i < 30_000; i++) {
+            monday.add(HyperLogLog.hash("v" + i, ""));
+        }
+        for (int i = 20_000; i < 50_000; i++) {
+            tuesday.add(HyperLogLog.hash("v" + i, ""));
+        }
+
+        HyperLogLog union = HyperLogLog.fromBytes(monday.toBytes());
+        union.merge(tuesday);
+        long once = union.estimate();
+        union.merge(tuesday);
+
+        assertEquals(50_000, once, 2_500);
+        assertEquals(once, union.estimate());
+    }
+
+    @Test
+    void bytes_shouldRoundTripAndRejectWrongSize() {
+        HyperLogLog sketch = new HyperLogLog();
+        sketch.add(HyperLogLog.hash("a", "b"));
+
+        byte[] bytes = sketch.toBytes();
+        assertEquals(HyperLogLog.REGISTERS, bytes.length);
+        assertArrayEquals(bytes, HyperLogLog.fromBytes(bytes).toBytes());
+
+        // toBytes returns a copy: changing it does not touch the sketch
+        Arrays.fill(bytes, (byte) 0);
+        assertFalse(sketch.isEmpty());
+
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[16]));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(null));
+    }
+
+    @Test
+    void compactBytes_shouldBeSparseForSmallSketchesAndDenseForLargeOnes() {
+        HyperLogLog small = new HyperLogLog();
+        HyperLogLog large = new HyperLogLog();
+        for (int i = 0; i < 20_000; i++) {
+            large.add(HyperLogLog.hash("v" + i, ""));
+            if (i < 100) small.add(HyperLogLog.hash("v" + i, ""));
+        }
+
+        byte[] sparse = small.toCompactBytes();
+        assertEquals(0, sparse.length % 3);
+        assertTrue(sparse.length < HyperLogLog.REGISTERS);
+        assertEquals(HyperLogLog.REGISTERS, large.toCompactBytes().length);
+
+        // applying the compact form is the same as merging the whole sketch
+        HyperLogLog fromSparse = new HyperLogLog();
+        fromSparse.mergeCompact(sparse);
+        HyperLogLog fromDense = new HyperLogLog();
+        fromDense.mergeCompact(large.toCompactBytes());
+        assertArrayEquals(small.toBytes(), fromSparse.toBytes());
+        assertArrayEquals(large.toBytes(), fromDense.toBytes());
+        assertThrows(IllegalArgumentException.class, () -> fromSparse.mergeCompact(new byte[4]));
+    }
+
+    @Test
+    void hash_shouldSeparateParts() {
+        assertEquals(HyperLogLog.hash("1.2.3.4", "ua"), HyperLogLog.hash("1.2.3.4", "ua"));
+        assertNotEquals(HyperLogLog.hash("1.2.3.4", "ua"), HyperLogLog.hash("1.2.3.4u", "a"));
+        assertNotEquals(HyperLogLog.hash("1.2.3.4", null), HyperLogLog.hash("1.2.3.4", "x"));
+    }
+}
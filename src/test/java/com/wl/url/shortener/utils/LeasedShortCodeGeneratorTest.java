@@ -0,0 +1,201 @@
+package com.wl.url.shortener.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeasedShortCodeGeneratorTest {
+
+    private final AtomicLong counter = new AtomicLong(1_000);
+    private final List<Long> reservations = new CopyOnWriteArrayList<>();
+    private final MutableTime time = new MutableTime();
+
+    private final LeasedShortCodeGenerator.IdRangeStore store = size -> {
+        reservations.add(size);
+        return counter.addAndGet(size);
+    };
+
+    @Test
+    void constructor_shouldRejectInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new LeasedShortCodeGenerator(store, 0, 10, Duration.ofSeconds(1), Duration.ofSeconds(5)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LeasedShortCodeGenerator(store, 10, 5, Duration.ofSeconds(1), Duration.ofSeconds(5)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LeasedShortCodeGenerator(store, 1, 5, Duration.ofSeconds(10), Duration.ofSeconds(5)));
+    }
+
+    @Test
+    void next_shouldHandOutConsecutiveIdsFromLeasedBlock() {
+        LeasedShortCodeGenerator gen = newGenerator(16, 1024);
+
+        assertEquals(1_000L, gen.nextId());
+        assertEquals(1_001L, gen.nextId());
+        assertEquals(1, reservations.size());
+    }
+
+    @Test
+    void next_shouldLeaseNewBlockWhenCurrentIsExhausted() {
+        LeasedShortCodeGenerator gen = newGenerator(4, 4);
+
+        for (int i = 0; i < 4; i++) {
+            gen.nextId();
+        }
+        long id = gen.nextId();
+
+        assertEquals(1_004L, id);
+        assertEquals(List.of(4L, 4L), reservations);
+    }
+
+    @Test
+    void next_shouldGrowBlockWhenCreationRateIsHigh() {
+        LeasedShortCodeGenerator gen = newGenerator(4, 1024);
+
+        // 4 ids in 1ms with a target of one lease per second: the next block hits the maximum
+        for (int i = 0; i < 4; i++) {
+            gen.nextId();
+        }
+        time.nanos += TimeUnit.MILLISECONDS.toNanos(1);
+        gen.nextId();
+
+        assertEquals(1024L, gen.currentBlockSize());
+    }
+
+    @Test
+    void next_shouldShrinkBlockWhenCreationRateIsLow() {
+        LeasedShortCodeGenerator gen = newGenerator(4, 1024);
+        for (int i = 0; i < 4; i++) {
+            gen.nextId();
+        }
+        time.nanos += TimeUnit.MILLISECONDS.toNanos(1);
+        gen.nextId();
+        assertEquals(1024L, gen.currentBlockSize());
+
+        time.nanos += TimeUnit.SECONDS.toNanos(6);
+        gen.nextId();
+
+        assertEquals(4L, gen.currentBlockSize());
+    }
+
+    @Test
+    void next_shouldAbandonBlocksOlderThanMaxAge() {
+        LeasedShortCodeGenerator gen = newGenerator(16, 16);
+        gen.nextId();
+
+        time.nanos += TimeUnit.SECONDS.toNanos(6);
+        long id = gen.nextId();
+
+        assertEquals(1_016L, id);
+        assertEquals(2, reservations.size());
+    }
+
+    @Test
+    void next_shouldGenerateUniqueIdsUnderContention() throws Exception {
+        LeasedShortCodeGenerator gen = new LeasedShortCodeGenerator(
+                store, 8, 512, Duration.ofMillis(100), Duration.ofSeconds(5));
+        int threads = 8;
+        int perThread = 5_000;
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    codes.add(gen.next());
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(threads * perThread, codes.size());
+    }
+
+    @Test
+    void idFloorAt_shouldBeZeroUntilAnObservationIsOlderThanMaxAge() {
+        LeasedShortCodeGenerator gen = newGenerator(16, 16);
+        gen.nextId();
+
+        assertEquals(0L, gen.idFloorAt(time.seconds));
+    }
+
+    @Test
+    void idFloorAt_shouldUseCounterSeenBeforeMaxAge() {
+        LeasedShortCodeGenerator gen = newGenerator(16, 16);
+        gen.nextId();
+        long firstEnd = counter.get();
+
+        time.seconds += 10;
+        time.nanos += TimeUnit.SECONDS.toNanos(10);
+        gen.nextId();
+
+        // any id issued from now on comes from a block leased after the first observation
+        assertEquals(firstEnd, gen.idFloorAt(time.seconds));
+        assertTrue(gen.nextId() >= gen.idFloorAt(time.seconds));
+    }
+
+    @Test
+    void nextBlock_shouldSpanBlocksWithoutGapsInsideAFreshLease() {
+        LeasedShortCodeGenerator gen = newGenerator(4, 4);
+
+        List<String> codes = gen.next(10);
+
+        assertEquals(10, codes.size());
+        for (int i = 0; i < codes.size(); i++) {
+            assertEquals(1_000L + i, ShortenerUtils.decode(codes.get(i)));
+        }
+        assertEquals(List.of(4L, 4L, 4L), reservations);
+    }
+
+    @Test
+    void nextBlock_shouldTakeRemainderOfCurrentBlockFirst() {
+        LeasedShortCodeGenerator gen = newGenerator(4, 4);
+        gen.nextId();
+
+        List<String> codes = gen.next(3);
+
+        assertEquals(List.of(1_001L, 1_002L, 1_003L),
+                codes.stream().map(ShortenerUtils::decode).toList());
+        assertEquals(1, reservations.size());
+    }
+
+    private LeasedShortCodeGenerator newGenerator(long min, long max) {
+        return new LeasedShortCodeGenerator(store, min, max, Duration.ofSeconds(1), Duration.ofSeconds(5),
+                time, () -> time.nanos);
+    }
+
+    private static final class MutableTime extends Clock {
+
+        private volatile long seconds = 1_800_000_000L;
+        private volatile long nanos = 0;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochSecond(seconds);
+        }
+    }
+}
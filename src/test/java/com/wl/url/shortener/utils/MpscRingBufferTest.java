@@ -0,0 +1,89 @@
+package com.wl.url.shortener.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferTest {
+
+    @Test
+    void constructor_shouldRequirePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<String>(0));
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<String>(1));
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<String>(100));
+        assertEquals(128, new MpscRingBuffer<String>(128).capacity());
+    }
+
+    @Test
+    void offer_shouldRejectWhenFullWithoutLosingQueuedElements() {
+        MpscRingBuffer<String> buffer = new MpscRingBuffer<>(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer("e" + i, i * 10L, 100L + i));
+        }
+        assertFalse(buffer.offer("e4", 40, 104));
+
+        List<String> drained = new ArrayList<>();
+        assertEquals(4, buffer.drain((element, value, stamp) -> drained.add(element + "=" + value + "@" + stamp), Integer.MAX_VALUE));
+        assertEquals(List.of("e0=0@100", "e1=10@101", "e2=20@102", "e3=30@103"), drained);
+    }
+
+    @Test
+    void drain_shouldRespectLimitAndFreeSlotsForWrapAround() {
+        MpscRingBuffer<String> buffer = new MpscRingBuffer<>(4);
+        List<String> drained = new ArrayList<>();
+
+        // several laps around the ring to cover the sequence hand-over
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(buffer.offer(round + ":" + i, i, round));
+            }
+            assertEquals(2, buffer.drain((element, value, stamp) -> drained.add(element), 2));
+            assertEquals(1, buffer.drain((element, value, stamp) -> drained.add(element), 2));
+            assertEquals(0, buffer.drain((element, value, stamp) -> drained.add(element), 2));
+        }
+
+        assertEquals(30, drained.size());
+        assertEquals("9:2", drained.get(29));
+    }
+
+    @Test
+    void offer_shouldRejectNull() {
+        assertThrows(NullPointerException.class, () -> new MpscRingBuffer<String>(2).offer(null, 0, 0));
+    }
+
+    @Test
+    void concurrentProducers_everyAcceptedElementIsDrainedExactlyOnce() throws Exception {
+        MpscRingBuffer<String> buffer = new MpscRingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 50_000;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    if (buffer.offer("click", 1, 0)) accepted.incrementAndGet();
+                }
+                done.countDown();
+            });
+            producer.start();
+        }
+
+        AtomicInteger consumed = new AtomicInteger();
+        while (done.getCount() > 0) {
+            buffer.drain((element, value, stamp) -> consumed.addAndGet((int) value), 256);
+        }
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        buffer.drain((element, value, stamp) -> consumed.addAndGet((int) value), Integer.MAX_VALUE);
+
+        assertTrue(accepted.get() > 0);
+        assertEquals(accepted.get(), consumed.get());
+    }
+}
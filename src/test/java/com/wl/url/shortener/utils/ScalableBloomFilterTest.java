@@ -0,0 +1,84 @@
+package com.wl.url.shortener.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void constructor_shouldRejectInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(100, 1));
+    }
+
+    @Test
+    void mightContain_shouldNeverReturnFalseForInsertedValues() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("code" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("code" + i), "Falso negativo para code" + i);
+        }
+    }
+
+    @Test
+    void mightContain_shouldKeepFalsePositiveRateBoundedWhileGrowing() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 20_000; i++) {
+            filter.put("code" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 20_000; i++) {
+            if (filter.mightContain("other" + i)) falsePositives++;
+        }
+
+        assertTrue(falsePositives < 20_000 * 0.02, "Falsos positivos: " + falsePositives);
+    }
+
+    @Test
+    void approximateCount_shouldTrackInsertions() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+
+        for (int i = 0; i < 500; i++) {
+            filter.put("code" + i);
+            filter.put("code" + i);
+        }
+
+        long count = filter.approximateCount();
+        assertTrue(count > 480 && count <= 500, "count=" + count);
+    }
+
+    @Test
+    void writeTo_andReadFrom_shouldRoundTrip() throws IOException {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 1_000; i++) {
+            filter.put("code" + i);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+        ScalableBloomFilter copy = ScalableBloomFilter.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(copy.mightContain("code" + i));
+        }
+        assertEquals(filter.approximateCount(), copy.approximateCount());
+    }
+
+    @Test
+    void readFrom_shouldRejectForeignData() {
+        byte[] garbage = {1, 2, 3, 4, 5, 6, 7, 8};
+
+        assertThrows(IOException.class, () -> ScalableBloomFilter.readFrom(
+                new DataInputStream(new ByteArrayInputStream(garbage))));
+    }
+}
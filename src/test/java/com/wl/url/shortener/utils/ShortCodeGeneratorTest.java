@@ -5,13 +5,22 @@ import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Method;
 import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class ShortCodeGeneratorTest {
 
+    private static final long EPOCH = 1735689600L;
+    private static final Clock FIXED = Clock.fixed(Instant.ofEpochSecond(EPOCH + 1_000), ZoneOffset.UTC);
+
     @Test
     void constructor_shouldRejectNodeIdBelowZero() {
         assertThrows(IllegalArgumentException.class, () -> new ShortCodeGenerator(-1));
@@ -38,13 +47,34 @@ class ShortCodeGeneratorTest {
         Set<String> codes = new HashSet<>();
         for (int i = 0; i < 64; i++) {
             String c = gen.next();
-            assertTrue(codes.add(c), "Código duplicado no i=" + i + ": " + c);
+            assertTrue(codes.add(c), "Duplicate code at i=" + i + ": " + c);
+        }
+    }
+
+    @Test
+    void next_shouldBorrowNextSecondInsteadOfThrowingWhenSequenceIsExhausted() {
+        ShortCodeGenerator gen = new ShortCodeGenerator(2, 5, 6, 5, FIXED);
+        Set<String> codes = new HashSet<>();
+
+        for (int i = 0; i < 64 * 6; i++) {
+            assertTrue(codes.add(gen.next()), "Duplicate code at i=" + i);
+        }
+    }
+
+    @Test
+    void next_shouldThrowRateLimitExceededWhenDriftBudgetIsExhausted() {
+        ShortCodeGenerator gen = new ShortCodeGenerator(2, 5, 6, 5, FIXED);
+
+        for (int i = 0; i < 64 * 6; i++) {
+            gen.next();
         }
+
+        assertThrows(RateLimitExceededException.class, gen::next);
     }
 
     @Test
-    void next_shouldThrowRateLimitExceededOn65thCallInSameSecond() {
-        ShortCodeGenerator gen = new ShortCodeGenerator(2);
+    void next_withZeroDrift_shouldKeepOldLimitOf64PerSecond() {
+        ShortCodeGenerator gen = new ShortCodeGenerator(2, 5, 6, 0, FIXED);
 
         for (int i = 0; i < 64; i++) {
             gen.next();
@@ -53,6 +83,144 @@ class ShortCodeGeneratorTest {
         assertThrows(RateLimitExceededException.class, gen::next);
     }
 
+    @Test
+    void next_shouldResumeAfterClockCatchesUpWithBorrowedSeconds() {
+        MutableClock clock = new MutableClock(EPOCH + 100);
+        ShortCodeGenerator gen = new ShortCodeGenerator(0, 5, 6, 1, clock);
+        for (int i = 0; i < 128; i++) {
+            gen.next();
+        }
+        assertThrows(RateLimitExceededException.class, gen::next);
+
+        clock.seconds = EPOCH + 102;
+
+        assertDoesNotThrow(gen::next);
+    }
+
+    @Test
+    void next_shouldTolerateSmallBackwardClockSteps() {
+        MutableClock clock = new MutableClock(EPOCH + 100);
+        ShortCodeGenerator gen = new ShortCodeGenerator(0, 5, 6, 5, clock);
+        String before = gen.next();
+
+        clock.seconds = EPOCH + 98;
+        String after = gen.next();
+
+        assertNotEquals(before, after);
+        assertTrue(ShortenerUtils.decode(after) > ShortenerUtils.decode(before));
+    }
+
+    @Test
+    void next_shouldRateLimitWhileClockIsBackBeyondDriftAndResumeOnceItCatchesUp() {
+        MutableClock clock = new MutableClock(EPOCH + 100);
+        ShortCodeGenerator gen = new ShortCodeGenerator(0, 5, 6, 5, clock);
+        String before = gen.next();
+
+        clock.seconds = EPOCH + 90;
+        assertThrows(RateLimitExceededException.class, gen::next);
+
+        clock.seconds = EPOCH + 95;
+        assertTrue(ShortenerUtils.decode(gen.next()) > ShortenerUtils.decode(before));
+    }
+
+    @Test
+    void next_shouldPackSecondNodeAndSequenceWithConfiguredWidths() {
+        ShortCodeGenerator gen = new ShortCodeGenerator(3, 2, 4, 0, FIXED);
+
+        long first = ShortenerUtils.decode(gen.next());
+        long second = ShortenerUtils.decode(gen.next());
+
+        assertEquals(1_000L, first >>> 6);
+        assertEquals(3L, (first >>> 4) & 0b11);
+        assertEquals(0L, first & 0b1111);
+        assertEquals(1L, second & 0b1111);
+        assertEquals(gen.idFloorAt(EPOCH + 1_000), first & ~0b111111L);
+    }
+
+    @Test
+    void isPlausible_shouldRejectIdsFromTheFuture() {
+        ShortCodeGenerator gen = new ShortCodeGenerator(3, 2, 4, 5, FIXED);
+
+        assertTrue(gen.isPlausible(ShortenerUtils.decode(gen.next())));
+        assertTrue(gen.isPlausible(0));
+        // codes minted before the current layout decode to smaller ids and stay valid
+        assertTrue(gen.isPlausible(gen.idFloorAt(EPOCH + 10)));
+        // drift plus clock skew between nodes still passes
+        assertTrue(gen.isPlausible(gen.idFloorAt(EPOCH + 1_000 + 65)));
+        assertFalse(gen.isPlausible(gen.idFloorAt(EPOCH + 1_000 + 66)));
+        assertFalse(gen.isPlausible(Long.MAX_VALUE));
+        assertFalse(gen.isPlausible(-1));
+    }
+
+    @Test
+    void constructor_shouldRejectInvalidLayouts() {
+        assertThrows(IllegalArgumentException.class, () -> new ShortCodeGenerator(0, 5, 0, 5, FIXED));
+        assertThrows(IllegalArgumentException.class, () -> new ShortCodeGenerator(0, 16, 16, 5, FIXED));
+        assertThrows(IllegalArgumentException.class, () -> new ShortCodeGenerator(4, 2, 6, 5, FIXED));
+        assertThrows(IllegalArgumentException.class, () -> new ShortCodeGenerator(0, 5, 6, -1, FIXED));
+    }
+
+    @Test
+    void nextBlock_shouldMatchCodesIssuedOneByOne() {
+        ShortCodeGenerator single = new ShortCodeGenerator(2, 5, 6, 5, FIXED);
+        ShortCodeGenerator block = new ShortCodeGenerator(2, 5, 6, 5, FIXED);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            expected.add(single.next());
+        }
+
+        // 150 codes span two borrowed seconds (64 per second)
+        assertEquals(expected, block.next(150));
+    }
+
+    @Test
+    void nextBlock_shouldContinueWhereSingleCallsStopped() {
+        ShortCodeGenerator gen = new ShortCodeGenerator(0, 5, 6, 5, FIXED);
+        String first = gen.next();
+
+        List<String> codes = gen.next(10);
+
+        assertEquals(10, codes.size());
+        assertFalse(codes.contains(first));
+        assertEquals(ShortenerUtils.decode(first) + 1, ShortenerUtils.decode(codes.get(0)));
+    }
+
+    @Test
+    void nextBlock_shouldThrowRateLimitExceededWhenDriftBudgetIsExhausted() {
+        ShortCodeGenerator gen = new ShortCodeGenerator(0, 5, 6, 1, FIXED);
+
+        assertThrows(RateLimitExceededException.class, () -> gen.next(64 * 3));
+    }
+
+    @Test
+    void next_shouldGenerateUniqueCodesUnderContention() throws Exception {
+        ShortCodeGenerator gen = new ShortCodeGenerator(1);
+        int threads = 8;
+        int perThread = 2_000;
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    codes.add(gen.next());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(threads * perThread, codes.size());
+    }
+
     @Test
     void next_shouldThrowIfClockBeforeCustomEpoch() {
         Clock beforeEpoch = Clock.fixed(java.time.Instant.ofEpochSecond(1735689600L - 1), java.time.ZoneOffset.UTC);
@@ -80,4 +248,28 @@ class ShortCodeGeneratorTest {
         Throwable t = e.getCause() != null ? e.getCause() : e;
         return (t instanceof RuntimeException re) ? re : new RuntimeException(t);
     }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile long seconds;
+
+        private MutableClock(long seconds) {
+            this.seconds = seconds;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochSecond(seconds);
+        }
+    }
 }
@@ -2,7 +2,9 @@ package com.wl.url.shortener.utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -58,7 +60,7 @@ class ShortenerUtilsTest {
         for (char c : encoded.toCharArray()) {
             assertTrue(
                     isBase62(c),
-                    "Caractere inválido encontrado: " + c
+                    "Invalid character found: " + c
             );
         }
     }
@@ -69,10 +71,135 @@ class ShortenerUtilsTest {
 
         for (long i = 0; i < 10_000; i++) {
             String encoded = ShortenerUtils.encode(i);
-            assertTrue(values.add(encoded), "Colisão para valor: " + i);
+            assertTrue(values.add(encoded), "Collision for value: " + i);
         }
     }
 
+    @Test
+    void decode_shouldInvertEncode() {
+        for (long value : new long[]{0, 1, 61, 62, 123456789L, Long.MAX_VALUE}) {
+            assertEquals(value, ShortenerUtils.decode(ShortenerUtils.encode(value)));
+        }
+    }
+
+    @Test
+    void decode_shouldRejectInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> ShortenerUtils.decode(null));
+        assertThrows(IllegalArgumentException.class, () -> ShortenerUtils.decode(""));
+        assertThrows(IllegalArgumentException.class, () -> ShortenerUtils.decode("ab-c"));
+        assertThrows(IllegalArgumentException.class, () -> ShortenerUtils.decode("..%2F"));
+    }
+
+    @Test
+    void decode_shouldRejectValuesAboveLongRange() {
+        String max = ShortenerUtils.encode(Long.MAX_VALUE);
+
+        assertThrows(IllegalArgumentException.class, () -> ShortenerUtils.decode(max + "0"));
+        assertThrows(IllegalArgumentException.class, () -> ShortenerUtils.decode("zzzzzzzzzzzz"));
+    }
+
+    @Test
+    void encodeIntoBuffer_shouldMatchEncodeAndReturnLength() {
+        char[] chars = new char[ShortenerUtils.MAX_LENGTH + 2];
+        byte[] bytes = new byte[ShortenerUtils.MAX_LENGTH + 2];
+
+        for (long value : new long[]{0, 61, 62, 123456789L, Long.MAX_VALUE}) {
+            String expected = ShortenerUtils.encode(value);
+
+            int written = ShortenerUtils.encode(value, chars, 2);
+            assertEquals(expected, new String(chars, 2, written));
+
+            written = ShortenerUtils.encode(value, bytes, 2);
+            assertEquals(expected, new String(bytes, 2, written, StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    void encodedLength_shouldCoverFullLongRange() {
+        assertEquals(1, ShortenerUtils.encodedLength(0));
+        assertEquals(1, ShortenerUtils.encodedLength(61));
+        assertEquals(2, ShortenerUtils.encodedLength(62));
+        assertEquals(ShortenerUtils.MAX_LENGTH, ShortenerUtils.encodedLength(Long.MAX_VALUE));
+    }
+
+    @Test
+    void decodeRange_shouldReadOnlyTheGivenSlice() {
+        assertEquals(62, ShortenerUtils.decode("/r/10?x", 3, 5));
+    }
+
+    @Test
+    void tryDecode_shouldAcceptCanonicalCodes() {
+        for (long value : new long[]{0, 1, 62, 123456789L, Long.MAX_VALUE}) {
+            assertEquals(value, ShortenerUtils.tryDecode(ShortenerUtils.encode(value)));
+        }
+    }
+
+    @Test
+    void tryDecode_shouldRejectMalformedCodesWithoutThrowing() {
+        assertEquals(-1, ShortenerUtils.tryDecode(null));
+        assertEquals(-1, ShortenerUtils.tryDecode(""));
+        assertEquals(-1, ShortenerUtils.tryDecode("..%2F"));
+        assertEquals(-1, ShortenerUtils.tryDecode("abc\u00e9"));
+        assertEquals(-1, ShortenerUtils.tryDecode("a".repeat(200)));
+        assertEquals(-1, ShortenerUtils.tryDecode("zzzzzzzzzzz")); // 11 digits, but above Long.MAX_VALUE
+        assertEquals(-1, ShortenerUtils.tryDecode("0abc")); // encode never emits a leading zero
+        assertFalse(ShortenerUtils.isWellFormed("..%2F"));
+        assertTrue(ShortenerUtils.isWellFormed("abc"));
+    }
+
+    @Test
+    void isAlias_shouldMatchPatternAndNeverOverlapGeneratedCodes() {
+        for (String alias : new String[]{"summer-sale", "a_b", "Black-Friday_2026", "x".repeat(31) + "-" + "y".repeat(32)}) {
+            assertTrue(ShortenerUtils.isAlias(alias), alias);
+            assertTrue(alias.matches(ShortenerUtils.ALIAS_PATTERN), alias);
+            assertEquals(-1, ShortenerUtils.tryDecode(alias), alias);
+        }
+        for (String invalid : new String[]{null, "", "ab", "abc", "-abc", "abc-", "a--", "a b-c", "caf\u00e9-x",
+                "..%2F", "a-" + "b".repeat(63), ShortenerUtils.encode(123456789L)}) {
+            assertFalse(ShortenerUtils.isAlias(invalid), String.valueOf(invalid));
+            if (invalid != null) {
+                assertFalse(invalid.matches(ShortenerUtils.ALIAS_PATTERN), invalid);
+            }
+        }
+    }
+
+    @Test
+    void aliasGrammar_shouldBeDisjointFromEveryGeneratedCode() {
+        // the base62 alphabet has neither '-' nor '_', and every alias has at least one of them
+        for (char c = 0; c < 128; c++) {
+            boolean separator = c == '-' || c == '_';
+            assertEquals(separator, ShortenerUtils.tryDecode(String.valueOf(c)) < 0 && isAliasChar(c), String.valueOf(c));
+        }
+
+        Random random = new Random(42);
+        long[] edges = {0, 1, 61, 62, 3843, 3844, Integer.MAX_VALUE, Long.MAX_VALUE - 1, Long.MAX_VALUE};
+        for (int i = 0; i < 100_000; i++) {
+            long id = i < edges.length ? edges[i] : (random.nextLong() >>> 1) >>> random.nextInt(63);
+            String code = ShortenerUtils.encode(id);
+            assertFalse(ShortenerUtils.isAlias(code), code);
+            assertFalse(code.matches(ShortenerUtils.ALIAS_PATTERN), code);
+        }
+
+        char[] aliasChars = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-_".toCharArray();
+        int checked = 0;
+        while (checked < 100_000) {
+            char[] candidate = new char[3 + random.nextInt(ShortenerUtils.ALIAS_MAX_LENGTH - 2)];
+            for (int j = 0; j < candidate.length; j++) {
+                candidate[j] = aliasChars[random.nextInt(aliasChars.length)];
+            }
+            String alias = new String(candidate);
+            if (!ShortenerUtils.isAlias(alias)) continue;
+
+            assertTrue(alias.matches(ShortenerUtils.ALIAS_PATTERN), alias);
+            assertEquals(-1, ShortenerUtils.tryDecode(alias), alias);
+            checked++;
+        }
+    }
+
+    private boolean isAliasChar(char c) {
+        return isBase62(c) || c == '-' || c == '_';
+    }
+
     private boolean isBase62(char c) {
         return (c >= '0' && c <= '9')
                 || (c >= 'A' && c <= 'Z')
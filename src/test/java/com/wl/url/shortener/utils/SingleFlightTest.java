@@ -0,0 +1,154 @@
+package com.wl.url.shortener.utils;
+
+import com.wl.url.shortener.exception.impl.NotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void callAsync_shouldShareOneLoadPerKeyWhileInFlight() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.callAsync("abc", () -> {
+            loads.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<String> second = flight.callAsync("abc", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        CompletableFuture<String> otherKey = flight.callAsync("xyz", () -> CompletableFuture.completedFuture("xyz"));
+
+        assertEquals(1, flight.inFlight());
+        pending.complete("https://example.com");
+
+        assertEquals("https://example.com", first.join());
+        assertEquals("https://example.com", second.join());
+        assertEquals("xyz", otherKey.join());
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.coalesced());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void callAsync_shouldShareFailureAndForgetKeyAfterwards() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.callAsync("abc", () -> pending);
+        CompletableFuture<String> second = flight.callAsync("abc", CompletableFuture::new);
+        pending.completeExceptionally(new NotFoundException("Short URL not found"));
+
+        assertInstanceOf(NotFoundException.class, assertThrows(ExecutionException.class, first::get).getCause());
+        assertInstanceOf(NotFoundException.class, assertThrows(ExecutionException.class, second::get).getCause());
+
+        // the 404 is not kept: the next call loads again
+        assertEquals("https://example.com",
+                flight.callAsync("abc", () -> CompletableFuture.completedFuture("https://example.com")).join());
+    }
+
+    @Test
+    void callAsync_cancellingOneCallerShouldNotCancelTheLoad() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.callAsync("abc", () -> pending);
+        CompletableFuture<String> second = flight.callAsync("abc", CompletableFuture::new);
+        first.cancel(true);
+        pending.complete("https://example.com");
+
+        assertFalse(pending.isCancelled());
+        assertEquals("https://example.com", second.join());
+    }
+
+    @Test
+    void callAsync_shouldFailAndForgetKeyWhenLoaderThrows() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+
+        CompletableFuture<String> res = flight.callAsync("abc", () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, res::get).getCause());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void call_shouldBlockFollowersOnTheLeaderLoad() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.call("abc", () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "https://example.com";
+        }));
+        assertTrue(loading.await(1, TimeUnit.SECONDS));
+
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> flight.call("abc", () -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        while (flight.coalesced() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertEquals("https://example.com", leader.get(1, TimeUnit.SECONDS));
+        assertEquals("https://example.com", follower.get(1, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void call_followerShouldRethrowLeaderExceptionUnwrapped() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flight.call("abc", () -> {
+            loading.countDown();
+            await(release);
+            throw new NotFoundException("Short URL not found");
+        }));
+        assertTrue(loading.await(1, TimeUnit.SECONDS));
+
+        CompletableFuture<Throwable> follower = CompletableFuture.supplyAsync(() -> {
+            try {
+                flight.call("abc", () -> "other");
+                return null;
+            } catch (RuntimeException ex) {
+                return ex;
+            }
+        });
+        while (flight.coalesced() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertInstanceOf(NotFoundException.class, follower.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(NotFoundException.class,
+                assertThrows(ExecutionException.class, () -> leader.get(1, TimeUnit.SECONDS)).getCause());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}